@@ -0,0 +1,119 @@
+package com.github.sommeri.less4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.FunctionsCacheStatistics;
+import com.github.sommeri.less4j.LessCompiler.MergedRulesetsStatistics;
+import com.github.sommeri.less4j.LessCompiler.Problem;
+import com.github.sommeri.sourcemap.SourceMapFormat;
+import com.github.sommeri.sourcemap.SourceMapGeneratorFactory;
+import com.github.sommeri.sourcemap.SourceMapSection;
+
+/**
+ * Concatenates separately compiled style sheets into one bundle. Source map of the bundle is
+ * an index map - each compiled style sheet is a section with its own source map embedded as
+ * it is. Maps are neither parsed nor re-encoded, so bundling cost does not depend on number
+ * of their mappings.
+ *
+ * Source map links at the end of bundled style sheets are removed.
+ */
+public class CssBundler {
+
+  private static final String SOURCE_MAP_LINK_START = "/*# sourceMappingURL=";
+  private static final String COMMENT_END = "*/";
+
+  private final StringBuilder css = new StringBuilder();
+  private final List<SourceMapSection> sections = new ArrayList<SourceMapSection>();
+  private final List<Problem> warnings = new ArrayList<Problem>();
+  private int line = 0;
+  private int functionsCacheHits = 0;
+  private int functionsCacheMisses = 0;
+  private int mergedRulesets = 0;
+  private int mergedRulesetsSavedBytes = 0;
+
+  /**
+   * Appends compiled style sheet to the bundle. Each style sheet starts on new line.
+   *
+   * @throws IllegalArgumentException if the result has no css, e.g. it was streamed into writer
+   */
+  public CssBundler add(CompilationResult result) {
+    if (result.getCss() == null)
+      throw new IllegalArgumentException("Compilation result without css can not be bundled, it was probably streamed into writer.");
+
+    String resultCss = removeSourceMapLink(result.getCss());
+    String sourceMap = result.getSourceMap();
+    if (sourceMap != null && !sourceMap.isEmpty()) {
+      sections.add(SourceMapSection.forMap(sourceMap, line, 0));
+    }
+
+    css.append(resultCss);
+    line += countLines(resultCss);
+    if (!resultCss.isEmpty() && resultCss.charAt(resultCss.length() - 1) != '\n') {
+      css.append('\n');
+      line++;
+    }
+
+    warnings.addAll(result.getWarnings());
+    if (result.getFunctionsCacheStatistics() != null) {
+      functionsCacheHits += result.getFunctionsCacheStatistics().getHits();
+      functionsCacheMisses += result.getFunctionsCacheStatistics().getMisses();
+    }
+    if (result.getMergedRulesetsStatistics() != null) {
+      mergedRulesets += result.getMergedRulesetsStatistics().getMergedRulesets();
+      mergedRulesetsSavedBytes += result.getMergedRulesetsStatistics().getSavedBytes();
+    }
+    return this;
+  }
+
+  /**
+   * Bundle of all style sheets added so far. Warnings, functions cache statistics and merged
+   * rulesets statistics are combined. Compilation statistics and profiles of bundled style sheets
+   * are not carried over, the bundle has neither of them.
+   *
+   * @param name name of bundle css file, it goes into source map
+   * @param sourceMapUrl url of bundle source map linked from the end of bundle css or
+   *   <code>null</code> if the link should not be added
+   */
+  public CompilationResult toCompilationResult(String name, String sourceMapUrl) {
+    StringBuilder indexMap = new StringBuilder();
+    try {
+      SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3).appendIndexMapTo(indexMap, name, sections);
+    } catch (IOException e) {
+      throw new IllegalStateException("Impossible to happen exception.", e);
+    }
+
+    String resultCss = css.toString();
+    if (sourceMapUrl != null) {
+      resultCss += SOURCE_MAP_LINK_START + sourceMapUrl + " " + COMMENT_END + "\n";
+    }
+
+    FunctionsCacheStatistics functionsCacheStatistics = new FunctionsCacheStatistics(functionsCacheHits, functionsCacheMisses);
+    MergedRulesetsStatistics mergedRulesetsStatistics = new MergedRulesetsStatistics(mergedRulesets, mergedRulesetsSavedBytes);
+    return new CompilationResult(resultCss, indexMap.toString(), new ArrayList<Problem>(warnings), functionsCacheStatistics, mergedRulesetsStatistics);
+  }
+
+  private String removeSourceMapLink(String css) {
+    int linkStart = css.lastIndexOf(SOURCE_MAP_LINK_START);
+    if (linkStart == -1)
+      return css;
+
+    int linkEnd = css.indexOf(COMMENT_END, linkStart + SOURCE_MAP_LINK_START.length());
+    if (linkEnd == -1 || !css.substring(linkEnd + COMMENT_END.length()).trim().isEmpty())
+      return css;
+
+    return css.substring(0, linkStart);
+  }
+
+  private int countLines(String text) {
+    int result = 0;
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '\n')
+        result++;
+    }
+    return result;
+  }
+
+}
@@ -4,11 +4,16 @@ import com.github.sommeri.sourcemap.DefaultSourceMapUrlGenerator;
 import com.github.sommeri.sourcemap.SourceMapUrlGenerator;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 public interface LessCompiler {
@@ -29,6 +34,25 @@ public interface LessCompiler {
 
   public CompilationResult compile(LessSource source, Configuration options) throws Less4jException;
 
+  /**
+   * Writes compiled css into the writer while it is printed, so the whole css is never kept in 
+   * memory. Returned {@link CompilationResult#getCss()} is <code>null</code>, source map and 
+   * everything else are available as usual. The writer is flushed, but not closed.
+   */
+  public CompilationResult compile(LessSource source, Configuration options, Writer cssOutput) throws Less4jException;
+
+  /**
+   * Writes compiled css encoded in UTF-8 into the stream, see 
+   * {@link #compile(LessSource, Configuration, Writer)}.
+   */
+  public CompilationResult compile(LessSource source, Configuration options, OutputStream cssOutput) throws Less4jException;
+
+  /**
+   * Writes compiled css encoded in UTF-8 into the channel, see 
+   * {@link #compile(LessSource, Configuration, Writer)}.
+   */
+  public CompilationResult compile(LessSource source, Configuration options, WritableByteChannel cssOutput) throws Less4jException;
+
   /**
    * WARNING: experimental API
    */
@@ -37,11 +61,20 @@ public interface LessCompiler {
     private LessSource cssResultLocation;
     private SourceMapConfiguration sourceMapConfiguration = new SourceMapConfiguration();
     private List<LessFunction> functionPackages = new ArrayList<LessFunction>();
+    private Map<String, List<LessFunction>> namedFunctions = new HashMap<String, List<LessFunction>>();
     private Map<String, String> externalVariables = new HashMap<String, String>();
     private EmbeddedScriptGenerator embeddedScriptGenerator;
     private boolean compressing = false;
     private boolean ieCompatibility = true;
     private Cache cache;
+    private int extendsSolverThreads = 1;
+    private boolean removeDuplicateSelectors = false;
+    private boolean mergeAdjacentMedia = false;
+    private boolean mergeRulesets = false;
+    private UsedSelectors usedSelectors;
+    private UsedSelectors criticalSelectors;
+    private boolean collectStatistics = false;
+    private boolean profiling = false;
 
     /**
      * This is needed in for source map.
@@ -87,6 +120,25 @@ public interface LessCompiler {
       this.functionPackages.add(functionPackage);
     }
 
+    public Map<String, List<LessFunction>> getNamedCustomFunctions() {
+      return namedFunctions;
+    }
+
+    /**
+     * Registers custom function under function name. The {@link LessFunction#canEvaluate(com.github.sommeri.less4j.core.ast.FunctionExpression, List)}
+     * method of named function is called only for functions with the same name (case insensitive)
+     * and named functions take precedence over functions added without name.
+     */
+    public void addCustomFunction(String name, LessFunction function) {
+      String key = name.toLowerCase();
+      List<LessFunction> functions = namedFunctions.get(key);
+      if (functions == null) {
+        functions = new ArrayList<LessFunction>();
+        namedFunctions.put(key, functions);
+      }
+      functions.add(function);
+    }
+
     public void addExternalVariables(Map<String, String> variables) {
       this.externalVariables.putAll(variables);
     }
@@ -147,6 +199,172 @@ public interface LessCompiler {
       return this;
     }
 
+    /**
+     * If it is on, repeated selectors are removed from selectors lists of nested rulesets.
+     * Nested rulesets multiply selectors of their parents and duplicates removed from parent
+     * are not multiplied further, so the compiler needs less memory for deeply nested style
+     * sheets. Less.js keeps duplicate selectors, so it is off by default.
+     * 
+     * It is not an output-wide deduplication. Only rulesets nested inside other rulesets are 
+     * affected - selectors lists of top level rulesets are kept as written and so are duplicates 
+     * created later, e.g. by extends.
+     */
+    public boolean isRemoveDuplicateSelectors() {
+      return removeDuplicateSelectors;
+    }
+
+    /**
+     * If it is on, repeated selectors are removed from selectors lists of nested rulesets.
+     * Nested rulesets multiply selectors of their parents and duplicates removed from parent
+     * are not multiplied further, so the compiler needs less memory for deeply nested style
+     * sheets. Less.js keeps duplicate selectors, so it is off by default.
+     * 
+     * It is not an output-wide deduplication. Only rulesets nested inside other rulesets are 
+     * affected - selectors lists of top level rulesets are kept as written and so are duplicates 
+     * created later, e.g. by extends.
+     */
+    public Configuration setRemoveDuplicateSelectors(boolean removeDuplicateSelectors) {
+      this.removeDuplicateSelectors = removeDuplicateSelectors;
+      return this;
+    }
+
+    /**
+     * If it is on, media at-rules with the same media queries that directly follow each other
+     * are merged into one. Rules keep their order, so the merge does not change the cascade.
+     * Less.js keeps them separate, so it is off by default.
+     */
+    public boolean isMergeAdjacentMedia() {
+      return mergeAdjacentMedia;
+    }
+
+    /**
+     * If it is on, media at-rules with the same media queries that directly follow each other
+     * are merged into one. Rules keep their order, so the merge does not change the cascade.
+     * Less.js keeps them separate, so it is off by default.
+     */
+    public Configuration setMergeAdjacentMedia(boolean mergeAdjacentMedia) {
+      this.mergeAdjacentMedia = mergeAdjacentMedia;
+      return this;
+    }
+
+    /**
+     * If it is on, rulesets with the same selectors and rulesets with the same declarations 
+     * are merged to make the css smaller. Rulesets are merged only if it does not change 
+     * which declarations win. Less.js does not merge rulesets, so it is off by default.
+     */
+    public boolean isMergeRulesets() {
+      return mergeRulesets;
+    }
+
+    /**
+     * If it is on, rulesets with the same selectors and rulesets with the same declarations 
+     * are merged to make the css smaller. Rulesets are merged only if it does not change 
+     * which declarations win. Less.js does not merge rulesets, so it is off by default.
+     */
+    public Configuration setMergeRulesets(boolean mergeRulesets) {
+      this.mergeRulesets = mergeRulesets;
+      return this;
+    }
+
+    /**
+     * If it is set, rulesets whose selectors can not match anything used by the application 
+     * are removed after extends are solved. Keyframes no longer referenced by remaining 
+     * <code>animation</code> or <code>animation-name</code> declarations are removed too. 
+     * It is <code>null</code> by default - nothing is removed.
+     */
+    public UsedSelectors getUsedSelectors() {
+      return usedSelectors;
+    }
+
+    /**
+     * If it is set, rulesets whose selectors can not match anything used by the application 
+     * are removed after extends are solved. Keyframes no longer referenced by remaining 
+     * <code>animation</code> or <code>animation-name</code> declarations are removed too. 
+     * It is <code>null</code> by default - nothing is removed.
+     */
+    public Configuration setUsedSelectors(UsedSelectors usedSelectors) {
+      this.usedSelectors = usedSelectors;
+      return this;
+    }
+
+    /**
+     * If it is set, compiled css is split in two parts. Critical part contains rulesets that 
+     * match critical classes, ids and elements and font faces they need. The rest of css is
+     * deferred, see {@link CompilationResult#getCritical()}. It is <code>null</code> by 
+     * default - css is not split.
+     */
+    public UsedSelectors getCriticalSelectors() {
+      return criticalSelectors;
+    }
+
+    /**
+     * If it is set, compiled css is split in two parts. Critical part contains rulesets that 
+     * match critical classes, ids and elements and font faces they need. The rest of css is
+     * deferred, see {@link CompilationResult#getCritical()}. It is <code>null</code> by 
+     * default - css is not split.
+     */
+    public Configuration setCriticalSelectors(UsedSelectors criticalSelectors) {
+      this.criticalSelectors = criticalSelectors;
+      return this;
+    }
+
+    /**
+     * Number of threads used to solve extends. Extends located inside different media
+     * are matched in parallel if it is bigger then 1. Compiled css is the same regardless
+     * of this setting. Default is 1 - extends are solved serially by the compiling thread.
+     */
+    public int getExtendsSolverThreads() {
+      return extendsSolverThreads;
+    }
+
+    /**
+     * Number of threads used to solve extends. Extends located inside different media
+     * are matched in parallel if it is bigger then 1. Compiled css is the same regardless
+     * of this setting. Default is 1 - extends are solved serially by the compiling thread.
+     */
+    public Configuration setExtendsSolverThreads(int extendsSolverThreads) {
+      this.extendsSolverThreads = extendsSolverThreads;
+      return this;
+    }
+
+    /**
+     * If it is on, the compiler measures time spent in each compilation stage and counts 
+     * imports, mixin expansions, variable lookups and other work, see 
+     * {@link CompilationResult#getStatistics()}. It is off by default and costs nothing then.
+     */
+    public boolean isCollectStatistics() {
+      return collectStatistics;
+    }
+
+    /**
+     * If it is on, the compiler measures time spent in each compilation stage and counts 
+     * imports, mixin expansions, variable lookups and other work, see 
+     * {@link CompilationResult#getStatistics()}. It is off by default and costs nothing then.
+     */
+    public Configuration setCollectStatistics(boolean collectStatistics) {
+      this.collectStatistics = collectStatistics;
+      return this;
+    }
+
+    /**
+     * If it is on, the compiler measures time spent in each mixin, detached ruleset and function 
+     * call and builds call tree of them, see {@link CompilationResult#getProfile()}. It is off by 
+     * default and costs nothing then.
+     */
+    public boolean isProfiling() {
+      return profiling;
+    }
+
+    /**
+     * If it is on, the compiler measures time spent in each mixin, detached ruleset and function 
+     * call and builds call tree of them, see {@link CompilationResult#getProfile()}. It is off by 
+     * default and costs nothing then.
+     */
+    public Configuration setProfiling(boolean profiling) {
+      this.profiling = profiling;
+      return this;
+    }
+
   }
 
   public static class SourceMapConfiguration {
@@ -240,6 +458,11 @@ public interface LessCompiler {
     private final String css;
     private final String sourceMap;
     private final List<Problem> warnings;
+    private final FunctionsCacheStatistics functionsCacheStatistics;
+    private final MergedRulesetsStatistics mergedRulesetsStatistics;
+    private final CompilationResult critical;
+    private final CompilationStatistics statistics;
+    private final CompilationProfile profile;
 
     public CompilationResult(String css) {
       this(css, "", emptyList());
@@ -250,10 +473,35 @@ public interface LessCompiler {
     }
 
     public CompilationResult(String css, String sourceMap, List<Problem> warnings) {
+      this(css, sourceMap, warnings, new FunctionsCacheStatistics(0, 0));
+    }
+
+    public CompilationResult(String css, String sourceMap, List<Problem> warnings, FunctionsCacheStatistics functionsCacheStatistics) {
+      this(css, sourceMap, warnings, functionsCacheStatistics, new MergedRulesetsStatistics(0, 0));
+    }
+
+    public CompilationResult(String css, String sourceMap, List<Problem> warnings, FunctionsCacheStatistics functionsCacheStatistics, MergedRulesetsStatistics mergedRulesetsStatistics) {
+      this(css, sourceMap, warnings, functionsCacheStatistics, mergedRulesetsStatistics, null);
+    }
+
+    public CompilationResult(String css, String sourceMap, List<Problem> warnings, FunctionsCacheStatistics functionsCacheStatistics, MergedRulesetsStatistics mergedRulesetsStatistics, CompilationResult critical) {
+      this(css, sourceMap, warnings, functionsCacheStatistics, mergedRulesetsStatistics, critical, null);
+    }
+
+    public CompilationResult(String css, String sourceMap, List<Problem> warnings, FunctionsCacheStatistics functionsCacheStatistics, MergedRulesetsStatistics mergedRulesetsStatistics, CompilationResult critical, CompilationStatistics statistics) {
+      this(css, sourceMap, warnings, functionsCacheStatistics, mergedRulesetsStatistics, critical, statistics, null);
+    }
+
+    public CompilationResult(String css, String sourceMap, List<Problem> warnings, FunctionsCacheStatistics functionsCacheStatistics, MergedRulesetsStatistics mergedRulesetsStatistics, CompilationResult critical, CompilationStatistics statistics, CompilationProfile profile) {
       super();
       this.css = css;
       this.sourceMap = sourceMap;
       this.warnings = warnings;
+      this.functionsCacheStatistics = functionsCacheStatistics;
+      this.mergedRulesetsStatistics = mergedRulesetsStatistics;
+      this.critical = critical;
+      this.statistics = statistics;
+      this.profile = profile;
     }
 
     public String getCss() {
@@ -268,6 +516,525 @@ public interface LessCompiler {
       return sourceMap;
     }
 
+    /**
+     * How many calls of pure built-in functions (e.g. <code>darken</code> or <code>percentage</code>)
+     * were answered from the cache of already computed results.
+     */
+    public FunctionsCacheStatistics getFunctionsCacheStatistics() {
+      return functionsCacheStatistics;
+    }
+
+    /**
+     * How many rulesets were merged and how much smaller the css is thanks to it. It is 
+     * non-zero only if {@link Configuration#isMergeRulesets()} is on.
+     */
+    public MergedRulesetsStatistics getMergedRulesetsStatistics() {
+      return mergedRulesetsStatistics;
+    }
+
+    /**
+     * Critical part of compiled css with its own source map or <code>null</code> if 
+     * {@link Configuration#getCriticalSelectors()} is not set. If it is set, {@link #getCss()} 
+     * and {@link #getSourceMap()} contain only the deferred rest of css.
+     */
+    public CompilationResult getCritical() {
+      return critical;
+    }
+
+    /**
+     * Time spent in compilation stages and amount of work done by the compiler or <code>null</code> 
+     * if {@link Configuration#isCollectStatistics()} is off.
+     */
+    public CompilationStatistics getStatistics() {
+      return statistics;
+    }
+
+    /**
+     * Time spent in mixins, detached rulesets and functions or <code>null</code> if 
+     * {@link Configuration#isProfiling()} is off.
+     */
+    public CompilationProfile getProfile() {
+      return profile;
+    }
+
+  }
+
+  public static class FunctionsCacheStatistics {
+
+    private final int hits;
+    private final int misses;
+
+    public FunctionsCacheStatistics(int hits, int misses) {
+      this.hits = hits;
+      this.misses = misses;
+    }
+
+    /**
+     * Number of function calls answered from the cache.
+     */
+    public int getHits() {
+      return hits;
+    }
+
+    /**
+     * Number of cacheable function calls that had to be evaluated.
+     */
+    public int getMisses() {
+      return misses;
+    }
+
+    /**
+     * Ratio of hits to all cacheable calls, 0 if there was none.
+     */
+    public double getHitRate() {
+      int calls = hits + misses;
+      return calls == 0 ? 0 : (double) hits / calls;
+    }
+
+    @Override
+    public String toString() {
+      return "hits: " + hits + ", misses: " + misses;
+    }
+
+  }
+
+  public static class MergedRulesetsStatistics {
+
+    private final int mergedRulesets;
+    private final int savedBytes;
+
+    public MergedRulesetsStatistics(int mergedRulesets, int savedBytes) {
+      this.mergedRulesets = mergedRulesets;
+      this.savedBytes = savedBytes;
+    }
+
+    /**
+     * Number of rulesets merged into other rulesets.
+     */
+    public int getMergedRulesets() {
+      return mergedRulesets;
+    }
+
+    /**
+     * By how many characters merging shortened the css.
+     */
+    public int getSavedBytes() {
+      return savedBytes;
+    }
+
+  }
+
+  public static class CompilationStatistics {
+
+    private final List<StageStatistics> stages;
+    private final int importsRead;
+    private final long parsedCharacters;
+    private final int mixinExpansions;
+    private final int variableLookups;
+    private final int functionCalls;
+    private final int extendsMatched;
+    private final int mappingsGenerated;
+
+    public CompilationStatistics(List<StageStatistics> stages, int importsRead, long parsedCharacters, int mixinExpansions, int variableLookups, int functionCalls, int extendsMatched, int mappingsGenerated) {
+      this.stages = stages;
+      this.importsRead = importsRead;
+      this.parsedCharacters = parsedCharacters;
+      this.mixinExpansions = mixinExpansions;
+      this.variableLookups = variableLookups;
+      this.functionCalls = functionCalls;
+      this.extendsMatched = extendsMatched;
+      this.mappingsGenerated = mappingsGenerated;
+    }
+
+    /**
+     * Compilation stages in the order in which they run. Stages that did not run, e.g. rulesets 
+     * merging when it is turned off, are not listed.
+     */
+    public List<StageStatistics> getStages() {
+      return stages;
+    }
+
+    /**
+     * Wall time of all stages in nanoseconds.
+     */
+    public long getWallTime() {
+      long result = 0;
+      for (StageStatistics stage : stages) {
+        result += stage.getWallTime();
+      }
+      return result;
+    }
+
+    /**
+     * Cpu time of all stages in nanoseconds or -1 if the jvm does not measure thread cpu time.
+     */
+    public long getCpuTime() {
+      long result = 0;
+      for (StageStatistics stage : stages) {
+        if (stage.getCpuTime() < 0)
+          return -1;
+        result += stage.getCpuTime();
+      }
+      return result;
+    }
+
+    /**
+     * Number of solved imports, inline imports included. File imported multiple times is 
+     * counted each time.
+     */
+    public int getImportsRead() {
+      return importsRead;
+    }
+
+    /**
+     * Number of characters parsed - compiled less file and all imported less files together.
+     */
+    public long getParsedCharacters() {
+      return parsedCharacters;
+    }
+
+    /**
+     * Number of mixin and detached ruleset calls expanded into their bodies.
+     */
+    public int getMixinExpansions() {
+      return mixinExpansions;
+    }
+
+    /**
+     * Number of variables evaluated, every reference is counted each time it is evaluated.
+     */
+    public int getVariableLookups() {
+      return variableLookups;
+    }
+
+    /**
+     * Number of built-in and custom functions calls evaluated, calls answered from functions 
+     * cache included.
+     */
+    public int getFunctionCalls() {
+      return functionCalls;
+    }
+
+    /**
+     * Number of selectors added to rulesets by extends.
+     */
+    public int getExtendsMatched() {
+      return extendsMatched;
+    }
+
+    /**
+     * Number of source map mappings generated.
+     */
+    public int getMappingsGenerated() {
+      return mappingsGenerated;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder result = new StringBuilder();
+      for (StageStatistics stage : stages) {
+        result.append(stage).append("\n");
+      }
+      result.append(new StageStatistics("total", getWallTime(), getCpuTime())).append("\n");
+      result.append("imports read: ").append(importsRead).append("\n");
+      result.append("parsed characters: ").append(parsedCharacters).append("\n");
+      result.append("mixin expansions: ").append(mixinExpansions).append("\n");
+      result.append("variable lookups: ").append(variableLookups).append("\n");
+      result.append("function calls: ").append(functionCalls).append("\n");
+      result.append("extends matched: ").append(extendsMatched).append("\n");
+      result.append("mappings generated: ").append(mappingsGenerated).append("\n");
+      return result.toString();
+    }
+
+  }
+
+  public static class StageStatistics {
+
+    private final String name;
+    private final long wallTime;
+    private final long cpuTime;
+
+    public StageStatistics(String name, long wallTime, long cpuTime) {
+      this.name = name;
+      this.wallTime = wallTime;
+      this.cpuTime = cpuTime;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Wall time of the stage in nanoseconds.
+     */
+    public long getWallTime() {
+      return wallTime;
+    }
+
+    /**
+     * Cpu time consumed by the compiling thread during the stage in nanoseconds or -1 if the 
+     * jvm does not measure thread cpu time. Work done by extends solver threads is not included.
+     */
+    public long getCpuTime() {
+      return cpuTime;
+    }
+
+    @Override
+    public String toString() {
+      return name + ": " + toMillis(wallTime) + " ms wall, " + (cpuTime < 0 ? "?" : toMillis(cpuTime)) + " ms cpu";
+    }
+
+    private static String toMillis(long nanos) {
+      return String.format(Locale.US, "%.3f", nanos / 1000000.0);
+    }
+
+  }
+
+  public enum ProfileOrder {
+    INCLUSIVE_TIME, EXCLUSIVE_TIME, CALLS;
+  }
+
+  /**
+   * Time spent in mixins, detached rulesets and functions during one compilation. Inclusive 
+   * time contains time of all nested calls, exclusive time does not. Time spent in mixin 
+   * matching, guards and arguments evaluation belongs to the caller.
+   * 
+   * Declarations are evaluated only after all mixins were expanded, so functions used in 
+   * mixin bodies show up at the top of call tree rather than under the mixin. Functions folded 
+   * into constants before compilation are not listed at all.
+   */
+  public static class CompilationProfile {
+
+    private final List<ProfileEntry> entries;
+    private final ProfileNode callTree;
+
+    public CompilationProfile(List<ProfileEntry> entries, ProfileNode callTree) {
+      this.entries = entries;
+      this.callTree = callTree;
+    }
+
+    /**
+     * One entry per called mixin, detached ruleset and function in the order of their first 
+     * call.
+     */
+    public List<ProfileEntry> getEntries() {
+      return entries;
+    }
+
+    /**
+     * Entries sorted from the most expensive one down.
+     */
+    public List<ProfileEntry> getEntries(final ProfileOrder order) {
+      List<ProfileEntry> result = new ArrayList<ProfileEntry>(entries);
+      Collections.sort(result, new Comparator<ProfileEntry>() {
+
+        @Override
+        public int compare(ProfileEntry o1, ProfileEntry o2) {
+          return compareLongs(toValue(o2), toValue(o1));
+        }
+
+        private long toValue(ProfileEntry entry) {
+          switch (order) {
+          case INCLUSIVE_TIME:
+            return entry.getInclusiveTime();
+          case EXCLUSIVE_TIME:
+            return entry.getExclusiveTime();
+          case CALLS:
+            return entry.getCalls();
+          default:
+            throw new IllegalStateException("Unknown profile order: " + order);
+          }
+        }
+
+      });
+      return result;
+    }
+
+    private static int compareLongs(long x, long y) {
+      return (x < y) ? -1 : ((x == y) ? 0 : 1);
+    }
+
+    /**
+     * Root of call tree. The root itself represents compilation, it has no label and its 
+     * children are calls made directly from style sheets.
+     */
+    public ProfileNode getCallTree() {
+      return callTree;
+    }
+
+    /**
+     * Human readable table of entries sorted by given order.
+     */
+    public String toTable(ProfileOrder order) {
+      StringBuilder result = new StringBuilder();
+      result.append(String.format(Locale.US, "%14s %14s %10s  %s\n", "inclusive ms", "exclusive ms", "calls", "definition"));
+      for (ProfileEntry entry : getEntries(order)) {
+        result.append(String.format(Locale.US, "%14.3f %14.3f %10d  %s\n", entry.getInclusiveTime() / 1000000.0, entry.getExclusiveTime() / 1000000.0, entry.getCalls(), entry.getLabel()));
+      }
+      return result.toString();
+    }
+
+    /**
+     * Call tree in collapsed stacks format understood by flame graph tools. Each line contains 
+     * semicolon separated call stack followed by exclusive time of its top in microseconds. 
+     * Stacks with zero time are left out.
+     */
+    public String toCollapsedStacks() {
+      StringBuilder result = new StringBuilder();
+      for (ProfileNode child : callTree.getChildren()) {
+        appendCollapsedStacks(result, "", child);
+      }
+      return result.toString();
+    }
+
+    private void appendCollapsedStacks(StringBuilder result, String prefix, ProfileNode node) {
+      String stack = prefix + node.getLabel().replace(';', ',');
+      long micros = node.getExclusiveTime() / 1000;
+      if (micros > 0)
+        result.append(stack).append(" ").append(micros).append("\n");
+
+      for (ProfileNode child : node.getChildren()) {
+        appendCollapsedStacks(result, stack + ";", child);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return toTable(ProfileOrder.EXCLUSIVE_TIME);
+    }
+
+  }
+
+  public static class ProfileEntry {
+
+    private final String kind;
+    private final String name;
+    private final String location;
+    private final int calls;
+    private final long inclusiveTime;
+    private final long exclusiveTime;
+
+    public ProfileEntry(String kind, String name, String location, int calls, long inclusiveTime, long exclusiveTime) {
+      this.kind = kind;
+      this.name = name;
+      this.location = location;
+      this.calls = calls;
+      this.inclusiveTime = inclusiveTime;
+      this.exclusiveTime = exclusiveTime;
+    }
+
+    /**
+     * One of "mixin", "detached ruleset", "function" or "custom function".
+     */
+    public String getKind() {
+      return kind;
+    }
+
+    /**
+     * Mixin or function name, <code>null</code> for detached rulesets.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Source name, line and column of mixin or detached ruleset definition, <code>null</code> 
+     * for functions.
+     */
+    public String getLocation() {
+      return location;
+    }
+
+    public String getLabel() {
+      StringBuilder result = new StringBuilder(kind);
+      if (name != null)
+        result.append(" ").append(name);
+      if (location != null)
+        result.append(" (").append(location).append(")");
+      return result.toString();
+    }
+
+    public int getCalls() {
+      return calls;
+    }
+
+    /**
+     * Time in nanoseconds, nested calls included. Recursive calls are counted only once.
+     */
+    public long getInclusiveTime() {
+      return inclusiveTime;
+    }
+
+    /**
+     * Time in nanoseconds, nested calls excluded.
+     */
+    public long getExclusiveTime() {
+      return exclusiveTime;
+    }
+
+    @Override
+    public String toString() {
+      return getLabel();
+    }
+
+  }
+
+  public static class ProfileNode {
+
+    private final String label;
+    private final int calls;
+    private final long inclusiveTime;
+    private final long exclusiveTime;
+    private final List<ProfileNode> children;
+
+    public ProfileNode(String label, int calls, long inclusiveTime, long exclusiveTime, List<ProfileNode> children) {
+      this.label = label;
+      this.calls = calls;
+      this.inclusiveTime = inclusiveTime;
+      this.exclusiveTime = exclusiveTime;
+      this.children = children;
+    }
+
+    /**
+     * Label of called mixin, detached ruleset or function, see {@link ProfileEntry#getLabel()}.
+     */
+    public String getLabel() {
+      return label;
+    }
+
+    /**
+     * How many times was it called from this call stack.
+     */
+    public int getCalls() {
+      return calls;
+    }
+
+    /**
+     * Time in nanoseconds, nested calls included.
+     */
+    public long getInclusiveTime() {
+      return inclusiveTime;
+    }
+
+    /**
+     * Time in nanoseconds, nested calls excluded.
+     */
+    public long getExclusiveTime() {
+      return exclusiveTime;
+    }
+
+    /**
+     * Calls made from this one in the order of their first call.
+     */
+    public List<ProfileNode> getChildren() {
+      return children;
+    }
+
+    @Override
+    public String toString() {
+      return label;
+    }
+
   }
 
   /**
@@ -289,6 +1056,30 @@ public interface LessCompiler {
     void setAst(LessSource key, Object value);
   }
 
+  /**
+   * Tells which classes, ids and elements are used by the application. Selectors containing 
+   * anything unused can not match and are removed from compiled css, see
+   * {@link Configuration#setUsedSelectors(UsedSelectors)}. Use {@link UsedSelectorsSet} if 
+   * names are known up front.
+   */
+  public interface UsedSelectors {
+
+    /**
+     * Class name without leading dot.
+     */
+    boolean isUsedClass(String name);
+
+    /**
+     * Id without leading hash.
+     */
+    boolean isUsedId(String name);
+
+    /**
+     * Element name in lower case.
+     */
+    boolean isUsedElement(String name);
+  }
+
   public interface Problem {
 
     public Type getType();
@@ -22,6 +22,8 @@ import com.github.sommeri.less4j.utils.URIUtils;
 
 public abstract class LessSource {
 
+  private String inputSourceMap;
+
   public abstract LessSource relativeSource(String filename) throws FileNotFound, CannotReadFile, StringSourceException;
 
   public abstract String getContent() throws FileNotFound, CannotReadFile;
@@ -43,6 +45,21 @@ public abstract class LessSource {
     return null;
   }
 
+  /**
+   * Source map of this less source. It is useful when less was generated by another tool - generated css 
+   * source map then points to files that tool started with. Source names in the map are relative to this 
+   * source location. Invalid source map is ignored.
+   * 
+   * @return source map of this less or <code>null</code>
+   */
+  public String getInputSourceMap() {
+    return inputSourceMap;
+  }
+
+  public void setInputSourceMap(String inputSourceMap) {
+    this.inputSourceMap = inputSourceMap;
+  }
+
   public abstract static class AbstractHierarchicalSource extends LessSource {
 
     protected AbstractHierarchicalSource parent;
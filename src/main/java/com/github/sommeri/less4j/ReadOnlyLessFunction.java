@@ -0,0 +1,33 @@
+package com.github.sommeri.less4j;
+
+import java.util.List;
+
+import com.github.sommeri.less4j.core.ast.Expression;
+import com.github.sommeri.less4j.core.ast.FunctionExpression;
+
+/**
+ * Custom less function that promises to treat its arguments as read-only.
+ *
+ * Less4j clones function call and all its arguments before passing them to {@link LessFunction},
+ * so the function can modify them freely. Implementations of this interface receive original
+ * nodes instead and parameters list is unmodifiable. Use it for functions called very often,
+ * cloning can be expensive.
+ *
+ * Returned expression is allowed to be one of the parameters or a new node. Less4j fixes only
+ * the returned node itself - its parent child relationships and missing underlying structure.
+ * The rest of returned tree must be already correct.
+ *
+ */
+public interface ReadOnlyLessFunction extends LessFunction {
+
+  /**
+   * Evaluates less function in parameter. Will be called only if {@link #canEvaluate(FunctionExpression, List)} returns <code>true</code>.
+   *
+   * The method must NOT modify <code>input</code>, <code>parameters</code> nor <code>evaluatedParameter</code>.
+   *
+   * @see LessFunction#evaluate(FunctionExpression, List, Expression, LessProblems)
+   */
+  @Override
+  public Expression evaluate(FunctionExpression input, List<Expression> parameters, Expression evaluatedParameter, LessProblems problems);
+
+}
@@ -0,0 +1,47 @@
+package com.github.sommeri.less4j;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Used classes, ids and elements given as sets. If some set is <code>null</code>, all names 
+ * of that kind are considered used. Element names are case insensitive.
+ */
+public class UsedSelectorsSet implements LessCompiler.UsedSelectors {
+
+  private final Set<String> classes;
+  private final Set<String> ids;
+  private final Set<String> elements;
+
+  public UsedSelectorsSet(Collection<String> classes, Collection<String> ids, Collection<String> elements) {
+    super();
+    this.classes = classes == null ? null : new HashSet<String>(classes);
+    this.ids = ids == null ? null : new HashSet<String>(ids);
+    this.elements = elements == null ? null : toLowerCase(elements);
+  }
+
+  @Override
+  public boolean isUsedClass(String name) {
+    return classes == null || classes.contains(name);
+  }
+
+  @Override
+  public boolean isUsedId(String name) {
+    return ids == null || ids.contains(name);
+  }
+
+  @Override
+  public boolean isUsedElement(String name) {
+    return elements == null || elements.contains(name);
+  }
+
+  private Set<String> toLowerCase(Collection<String> names) {
+    Set<String> result = new HashSet<String>();
+    for (String name : names) {
+      result.add(name.toLowerCase());
+    }
+    return result;
+  }
+
+}
@@ -36,6 +36,15 @@ public class Arguments {
 
   @Parameter(names={"-iec", "--ieCompatibility"}, description="Turns off and on ie-compatible limitations. Currently used only inside data-uri function. If it is on, data-uri wont encode images too large for ie8. Turning it off is equivalent to calling less.js with --no-ie-compat option.")
   private boolean ieCompatibility = true;
+
+  @Parameter(names={"--stats"}, description="Print time spent in each compilation stage and counts of imports, mixin expansions, variable lookups, function calls, extends and source map mappings to the standard error.")
+  private boolean statistics;
+
+  @Parameter(names={"--profile"}, description="Print time spent in each mixin, detached ruleset and function to the standard error and write collapsed call stacks for flame graph tools into file with the same name as input file and suffix '.stacks'. In multiple files mode, the file is placed into output directory.")
+  private boolean profile;
+
+  @Parameter(names={"--profileSort"}, description="Order of profile table: 'inclusive', 'exclusive' or 'calls'. Default is 'exclusive'.")
+  private String profileSort = "exclusive";
   
   public boolean isHelp() {
     return help;
@@ -69,4 +78,16 @@ public class Arguments {
     return ieCompatibility;
   }
 
+  public boolean isStatistics() {
+    return statistics;
+  }
+
+  public boolean isProfile() {
+    return profile;
+  }
+
+  public String getProfileSort() {
+    return profileSort;
+  }
+
 }
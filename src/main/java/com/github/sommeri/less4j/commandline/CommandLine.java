@@ -11,6 +11,7 @@ import com.beust.jcommander.ParameterException;
 import com.github.sommeri.less4j.Less4jException;
 import com.github.sommeri.less4j.LessCompiler.CompilationResult;
 import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessCompiler.ProfileOrder;
 import com.github.sommeri.less4j.core.DefaultLessCompiler;
 import com.github.sommeri.less4j.platform.Constants;
 import com.github.sommeri.less4j.utils.URIUtils;
@@ -62,14 +63,34 @@ public class CommandLine {
 
     }
 
+    ProfileOrder profileOrder = null;
+    if (arguments.isProfile()) {
+      profileOrder = toProfileOrder(arguments.getProfileSort());
+      if (profileOrder == null) {
+        print.reportError("Unknown profile order: " + arguments.getProfileSort());
+        return;
+      }
+    }
+
     if (arguments.isMultiMode()) {
-      runAsMultimode(arguments.getFiles(), arguments.getOutputDirectory(), arguments.isSourceMap(), arguments.isCompressing(), arguments.isIeCompatibility(), arguments.isPrintIncorrect());
+      runAsMultimode(arguments.getFiles(), arguments.getOutputDirectory(), arguments.isSourceMap(), arguments.isCompressing(), arguments.isIeCompatibility(), arguments.isPrintIncorrect(), arguments.isStatistics(), profileOrder);
     } else {
-      runAsSinglemode(arguments.getFiles(), arguments.isSourceMap(), arguments.isCompressing(), arguments.isIeCompatibility(), arguments.isPrintIncorrect());
+      runAsSinglemode(arguments.getFiles(), arguments.isSourceMap(), arguments.isCompressing(), arguments.isIeCompatibility(), arguments.isPrintIncorrect(), arguments.isStatistics(), profileOrder);
     }
   }
 
-  private void runAsSinglemode(List<String> files, boolean generateSourceMap, boolean isCompressing, boolean ieCompatibility, boolean printPartial) {
+  private ProfileOrder toProfileOrder(String profileSort) {
+    if ("inclusive".equals(profileSort))
+      return ProfileOrder.INCLUSIVE_TIME;
+    if ("exclusive".equals(profileSort))
+      return ProfileOrder.EXCLUSIVE_TIME;
+    if ("calls".equals(profileSort))
+      return ProfileOrder.CALLS;
+
+    return null;
+  }
+
+  private void runAsSinglemode(List<String> files, boolean generateSourceMap, boolean isCompressing, boolean ieCompatibility, boolean printPartial, boolean printStatistics, ProfileOrder profileOrder) {
     if (files.isEmpty()) {
       print.reportError("No file available.");
       return;
@@ -84,8 +105,10 @@ public class CommandLine {
     String mapFileName = singleModeMapFilename(cssFileName, generateSourceMap);
 
     try {
-      CompilationResult content = compile(lessFile, cssFile, generateSourceMap, isCompressing, ieCompatibility);
+      CompilationResult content = compile(lessFile, cssFile, generateSourceMap, isCompressing, ieCompatibility, printStatistics, profileOrder != null);
       singleModePrint(files, lessFileName, lessFile, cssFileName, mapFileName, content);
+      print.printStatistics(lessFileName, content);
+      print.printProfile(lessFileName, content, profileOrder, URIUtils.changeSuffix(lessFileName, Constants.PROFILE_STACKS_SUFFIX));
     } catch (Less4jException ex) {
       CompilationResult partialResult = ex.getPartialResult();
       if (printPartial) {
@@ -122,7 +145,7 @@ public class CommandLine {
     }
   }
 
-  private void runAsMultimode(List<String> files, String outputDirectory, boolean generateSourceMap, boolean isCompressing, boolean ieCompatibility, boolean printPartial) {
+  private void runAsMultimode(List<String> files, String outputDirectory, boolean generateSourceMap, boolean isCompressing, boolean ieCompatibility, boolean printPartial, boolean printStatistics, ProfileOrder profileOrder) {
     if (!print.ensureDirectory(outputDirectory))
       return;
 
@@ -131,8 +154,10 @@ public class CommandLine {
       String cssFilename = toOutputFilename(outputDirectory, filename, Constants.CSS_SUFFIX);
       String mapFilename = generateSourceMap? toOutputFilename(outputDirectory, filename, Constants.FULL_SOURCE_MAP_SUFFIX): null;
       try {
-        CompilationResult content = compile(inputFile, toFile(cssFilename), generateSourceMap, isCompressing, ieCompatibility);
+        CompilationResult content = compile(inputFile, toFile(cssFilename), generateSourceMap, isCompressing, ieCompatibility, printStatistics, profileOrder != null);
         print.printToFiles(content, filename, inputFile, cssFilename, mapFilename);
+        print.printStatistics(filename, content);
+        print.printProfile(filename, content, profileOrder, toOutputFilename(outputDirectory, filename, Constants.PROFILE_STACKS_SUFFIX));
       } catch (Less4jException ex) {
         CompilationResult partialResult = ex.getPartialResult();
         if (printPartial) {
@@ -160,11 +185,13 @@ public class CommandLine {
     return outputDirectory + new File(filename).getName();
   }
 
-  private CompilationResult compile(File lessFile, File cssFile, boolean generateSourceMap, boolean isCompressing, boolean ieCompatibility) throws Less4jException {
+  private CompilationResult compile(File lessFile, File cssFile, boolean generateSourceMap, boolean isCompressing, boolean ieCompatibility, boolean collectStatistics, boolean profiling) throws Less4jException {
     Configuration configuration = new Configuration();
     configuration.setCssResultLocation(cssFile);
     configuration.setCompressing(isCompressing);
     configuration.setIeCompatibility(ieCompatibility);
+    configuration.setCollectStatistics(collectStatistics);
+    configuration.setProfiling(profiling);
     configuration.getSourceMapConfiguration().setLinkSourceMap(generateSourceMap && cssFile != null);
 
     DefaultLessCompiler compiler = new DefaultLessCompiler();
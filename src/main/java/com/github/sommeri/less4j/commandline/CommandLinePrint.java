@@ -9,6 +9,7 @@ import org.apache.commons.io.IOUtils;
 
 import com.github.sommeri.less4j.Less4jException;
 import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.ProfileOrder;
 import com.github.sommeri.less4j.LessSource;
 import com.github.sommeri.less4j.utils.ProblemsPrinter;
 import com.github.sommeri.less4j.utils.ProblemsPrinter.SourceNamePrinter;
@@ -64,6 +65,23 @@ public class CommandLinePrint {
     standardErr.print(warnings);
   }
 
+  public void printStatistics(String inputfileName, CompilationResult content) {
+    if (content == null || content.getStatistics() == null)
+      return;
+
+    standardErr.println("Statistics of compilation of " + inputfileName);
+    standardErr.print(content.getStatistics());
+  }
+
+  public void printProfile(String inputfileName, CompilationResult content, ProfileOrder order, String stacksFilename) {
+    if (content == null || content.getProfile() == null)
+      return;
+
+    standardErr.println("Profile of compilation of " + inputfileName);
+    standardErr.print(content.getProfile().toTable(order));
+    outputFile(stacksFilename, content.getProfile().toCollapsedStacks());
+  }
+
   private void outputFile(String filename, String content) {
     File file = new File(filename);
     outputFile(filename, file, content);
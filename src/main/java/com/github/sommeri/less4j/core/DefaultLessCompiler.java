@@ -1,7 +1,10 @@
 package com.github.sommeri.less4j.core;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.channels.WritableByteChannel;
 
 import com.github.sommeri.less4j.Less4jException;
 import com.github.sommeri.less4j.LessCompiler;
@@ -56,4 +59,22 @@ public class DefaultLessCompiler implements LessCompiler {
     return compiler.compile(source, options);
   }
 
+  @Override
+  public CompilationResult compile(LessSource source, Configuration options, Writer cssOutput) throws Less4jException {
+    ThreadUnsafeLessCompiler compiler = new ThreadUnsafeLessCompiler();
+    return compiler.compile(source, options, cssOutput);
+  }
+
+  @Override
+  public CompilationResult compile(LessSource source, Configuration options, OutputStream cssOutput) throws Less4jException {
+    ThreadUnsafeLessCompiler compiler = new ThreadUnsafeLessCompiler();
+    return compiler.compile(source, options, cssOutput);
+  }
+
+  @Override
+  public CompilationResult compile(LessSource source, Configuration options, WritableByteChannel cssOutput) throws Less4jException {
+    ThreadUnsafeLessCompiler compiler = new ThreadUnsafeLessCompiler();
+    return compiler.compile(source, options, cssOutput);
+  }
+
 }
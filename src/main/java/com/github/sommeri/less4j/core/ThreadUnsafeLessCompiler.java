@@ -1,8 +1,16 @@
 package com.github.sommeri.less4j.core;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -18,7 +26,13 @@ import com.github.sommeri.less4j.LessSource.FileNotFound;
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
 import com.github.sommeri.less4j.core.ast.StyleSheet;
 import com.github.sommeri.less4j.core.ast.VariableDeclaration;
+import com.github.sommeri.less4j.core.compiler.CompilationInterrupted;
+import com.github.sommeri.less4j.core.compiler.CompilationStatisticsCollector;
 import com.github.sommeri.less4j.core.compiler.LessToCssCompiler;
+import com.github.sommeri.less4j.core.compiler.expressions.PureFunctionsCache;
+import com.github.sommeri.less4j.core.compiler.stages.CriticalCssSplitter;
+import com.github.sommeri.less4j.core.compiler.stages.RulesetsMerger;
+import com.github.sommeri.less4j.core.output.CannotWriteCss;
 import com.github.sommeri.less4j.core.parser.ANTLRParser;
 import com.github.sommeri.less4j.core.parser.ANTLRParser.ParseResult;
 import com.github.sommeri.less4j.core.parser.ASTBuilder;
@@ -32,9 +46,12 @@ import com.github.sommeri.less4j.utils.PrintUtils;
 import com.github.sommeri.less4j.utils.URIUtils;
 
 public class ThreadUnsafeLessCompiler implements LessCompiler {
+  private static final String CSS_OUTPUT_ENCODING = "UTF-8";
+
   private ProblemsHandler problemsHandler;
   private ASTBuilder astBuilder;
   private LessToCssCompiler compiler;
+  private CompilationStatisticsCollector statistics;
 
   private ANTLRParser parser = new ANTLRParser();
 
@@ -76,20 +93,37 @@ public class ThreadUnsafeLessCompiler implements LessCompiler {
 
   @Override
   public CompilationResult compile(LessSource source, Configuration options) throws Less4jException {
+    return compile(source, options, (Writer) null);
+  }
+
+  @Override
+  public CompilationResult compile(LessSource source, Configuration options, OutputStream cssOutput) throws Less4jException {
+    return compile(source, options, new OutputStreamWriter(cssOutput, Charset.forName(CSS_OUTPUT_ENCODING)));
+  }
+
+  @Override
+  public CompilationResult compile(LessSource source, Configuration options, WritableByteChannel cssOutput) throws Less4jException {
+    return compile(source, options, Channels.newWriter(cssOutput, CSS_OUTPUT_ENCODING));
+  }
+
+  @Override
+  public CompilationResult compile(LessSource source, Configuration options, Writer cssOutput) throws Less4jException {
     if (options == null)
       options = new Configuration();
 
     problemsHandler = new ProblemsHandler();
     astBuilder = new ASTBuilder(problemsHandler);
-    compiler = new LessToCssCompiler(problemsHandler, options);
-    CompilationResult compilationResult = doCompile(source, options);
+    statistics = CompilationStatisticsCollector.create(options);
+    compiler = new LessToCssCompiler(problemsHandler, options, statistics);
+    CompilationResult compilationResult = doCompile(source, options, cssOutput);
     if (problemsHandler.hasErrors()) {
       throw new Less4jException(problemsHandler.getErrors(), compilationResult);
     }
     return compilationResult;
   }
 
-  private CompilationResult doCompile(LessSource source, Configuration options) throws Less4jException {
+  private CompilationResult doCompile(LessSource source, Configuration options, Writer cssOutput) throws Less4jException {
+    statistics.startStage(CompilationStatisticsCollector.PARSING);
     StyleSheet lessStyleSheet = null;
     if (options != null && options.getCache() != null) {
       lessStyleSheet = (StyleSheet) options.getCache().getAst(source);
@@ -110,11 +144,16 @@ public class ThreadUnsafeLessCompiler implements LessCompiler {
     List<VariableDeclaration> externalVariables = astBuilder.parseVariables(variables);
     lessStyleSheet.addMembers(externalVariables);
     lessStyleSheet.configureParentToAllChilds();
+    statistics.endStage();
 
     try {
       ASTCssNode cssStyleSheet = compiler.compileToCss(lessStyleSheet, source, options);
-      CompilationResult compilationResult = createCompilationResult(cssStyleSheet, source, externalVariables, compiler.getImportedsources(), options);
+      CompilationResult compilationResult = createCompilationResult(cssStyleSheet, source, externalVariables, compiler.getImportedsources(), options, cssOutput);
       return compilationResult;
+    } catch (CannotWriteCss ex) {
+      throw new Less4jException(new GeneralProblem("Cannot write css: " + ex.getMessage()), createEmptyCompilationResult());
+    } catch (CompilationInterrupted ex) {
+      throw new Less4jException(new GeneralProblem(ex.getMessage()), createEmptyCompilationResult());
     } catch (UnableToFinish ex) {
       problemsHandler.unableToFinish(lessStyleSheet, ex);
       return createEmptyCompilationResult();
@@ -124,7 +163,9 @@ public class ThreadUnsafeLessCompiler implements LessCompiler {
   private ParseResult toAntlrTree(LessSource source) throws Less4jException {
     ParseResult result;
     try {
-      result = parser.parseStyleSheet(source.getContent(), source);
+      String content = compiler.getSources().getContent(source);
+      statistics.parsed(content);
+      result = parser.parseStyleSheet(content, source);
     } catch (FileNotFound ex) {
       throw new Less4jException(new GeneralProblem("The file " + source + " does not exists."), new CompilationResult(null));
     } catch (CannotReadFile ex) {
@@ -163,7 +204,7 @@ public class ThreadUnsafeLessCompiler implements LessCompiler {
     return parser.parseFullExpression(expression, source);
   }
 
-  private CompilationResult createCompilationResult(ASTCssNode cssStyleSheet, LessSource lessSource, List<VariableDeclaration> externalVariables, Collection<LessSource> additionalSourceFiles, Configuration options) {
+  private CompilationResult createCompilationResult(ASTCssNode cssStyleSheet, LessSource lessSource, List<VariableDeclaration> externalVariables, Collection<LessSource> additionalSourceFiles, Configuration options, Writer cssOutput) {
     LessSource cssDestination = options == null ? null : options.getCssResultLocation();
     if (cssDestination == null) {
       String guessedCssName = URIUtils.changeSuffix(lessSource.getName(), Constants.CSS_SUFFIX);
@@ -171,15 +212,55 @@ public class ThreadUnsafeLessCompiler implements LessCompiler {
       cssDestination = new LessSource.StringSource("", guessedCssName, guessedURI);
     }
 
-    CssPrinter builder = new CssPrinter(lessSource, cssDestination, extractSources(externalVariables), additionalSourceFiles, options);
+    statistics.startStage(CompilationStatisticsCollector.PRINTING);
+    CompilationResult critical = null;
+    if (options != null && options.getCriticalSelectors() != null) {
+      CriticalCssSplitter splitter = new CriticalCssSplitter(options.getCriticalSelectors());
+      StyleSheet criticalStyleSheet = splitter.split((StyleSheet) cssStyleSheet);
+      LessSource criticalDestination = toCriticalDestination(cssDestination);
+      critical = printCss(criticalStyleSheet, lessSource, criticalDestination, criticalDestination.getName(), externalVariables, additionalSourceFiles, options, null);
+    }
+
+    CompilationResult printed = printCss(cssStyleSheet, lessSource, cssDestination, getCssResultLocationName(options, lessSource), externalVariables, additionalSourceFiles, options, cssOutput);
+    statistics.endStage();
+    CompilationResult compilationResult = new CompilationResult(printed.getCss(), printed.getSourceMap(), problemsHandler.getWarnings(), toFunctionsCacheStatistics(), toMergedRulesetsStatistics(), critical, statistics.toStatistics(), statistics.toProfile());
+    return compilationResult;
+  }
+
+  /**
+   * If css output is available, css is streamed into it and the result does not contain css.
+   */
+  private CompilationResult printCss(ASTCssNode cssStyleSheet, LessSource lessSource, LessSource cssDestination, String cssResultLocation, List<VariableDeclaration> externalVariables, Collection<LessSource> additionalSourceFiles, Configuration options, Writer cssOutput) {
+    CssPrinter builder = new CssPrinter(lessSource, cssDestination, extractSources(externalVariables), additionalSourceFiles, options, compiler.getSources(), cssOutput);
     builder.append(cssStyleSheet);
-    StringBuilder css = builder.toCss();
     String sourceMap = builder.toSourceMap();
+    statistics.mappingsGenerated(builder.getMappingsCount());
+    for (Entry<LessSource, String> unreadable : builder.getUnreadableInputMaps().entrySet()) {
+      problemsHandler.warnUnreadableInputSourceMap(cssStyleSheet, unreadable.getKey(), unreadable.getValue());
+    }
 
-    handleSourceMapLink(cssStyleSheet, css, options, lessSource, sourceMap);
+    appendSourceMapLink(builder, cssStyleSheet, options, cssResultLocation, sourceMap);
 
-    CompilationResult compilationResult = new CompilationResult(css.toString(), sourceMap, problemsHandler.getWarnings());
-    return compilationResult;
+    if (cssOutput != null) {
+      builder.flush();
+      flush(cssOutput);
+      return new CompilationResult(null, sourceMap, new ArrayList<Problem>());
+    }
+    return new CompilationResult(builder.toCss().toString(), sourceMap, new ArrayList<Problem>());
+  }
+
+  private void flush(Writer cssOutput) {
+    try {
+      cssOutput.flush();
+    } catch (IOException ex) {
+      throw new CannotWriteCss(ex);
+    }
+  }
+
+  private LessSource toCriticalDestination(LessSource cssDestination) {
+    String name = URIUtils.changeSuffix(cssDestination.getName(), Constants.CRITICAL_CSS_SUFFIX);
+    URI uri = cssDestination.getURI() == null ? null : URI.create(URIUtils.changeSuffix(cssDestination.getURI().toString(), Constants.CRITICAL_CSS_SUFFIX));
+    return new LessSource.StringSource("", name, uri);
   }
 
   private List<LessSource> extractSources(List<VariableDeclaration> externalVariables) {
@@ -191,12 +272,27 @@ public class ThreadUnsafeLessCompiler implements LessCompiler {
   }
 
   private CompilationResult createEmptyCompilationResult() {
-    CompilationResult compilationResult = new CompilationResult("", null, problemsHandler.getWarnings());
+    CompilationResult compilationResult = new CompilationResult("", null, problemsHandler.getWarnings(), toFunctionsCacheStatistics(), toMergedRulesetsStatistics());
     return compilationResult;
   }
 
-  private void handleSourceMapLink(ASTCssNode cssAst, StringBuilder css, Configuration options, LessSource source, String sourceMap) {
-    String cssResultLocation = getCssResultLocationName(options, source);
+  private FunctionsCacheStatistics toFunctionsCacheStatistics() {
+    PureFunctionsCache cache = compiler.getFunctionsCache();
+    return new FunctionsCacheStatistics(cache.getHits(), cache.getMisses());
+  }
+
+  private MergedRulesetsStatistics toMergedRulesetsStatistics() {
+    RulesetsMerger merger = compiler.getRulesetsMerger();
+    if (merger == null)
+      return new MergedRulesetsStatistics(0, 0);
+    return new MergedRulesetsStatistics(merger.getMergedRulesets(), merger.getSavedBytes());
+  }
+
+  /**
+   * Inline source map is base64 encoded straight into the css, so the encoded map is never
+   * held in memory as a separate string.
+   */
+  private void appendSourceMapLink(CssPrinter builder, ASTCssNode cssAst, Configuration options, String cssResultLocation, String sourceMap) {
     LessCompiler.SourceMapConfiguration sourceMapConfiguration = options.getSourceMapConfiguration();
     if (!sourceMapConfiguration.shouldLinkSourceMap() && !sourceMapConfiguration.isInline())
       return;
@@ -206,37 +302,19 @@ public class ThreadUnsafeLessCompiler implements LessCompiler {
       return;
     }
 
-    addNewLine(css);
-
-    String commentText;
     String encodingCharset = sourceMapConfiguration.getEncodingCharset();
     if (sourceMapConfiguration.isInline()) {
-      String encodedSourceMap = PrintUtils.base64Encode(sourceMap, encodingCharset, problemsHandler, cssAst);
-      commentText = "/*# sourceMappingURL=data:application/json;base64," + encodedSourceMap + " */";
+      try {
+        builder.appendInlineSourceMapLink(sourceMap, encodingCharset);
+      } catch (UnsupportedEncodingException uex) {
+        problemsHandler.errUnknownEncodingCharsetSourceMap(cssAst, encodingCharset);
+      }
     } else {
       // compose linking comment
       String url = sourceMapConfiguration.getSourceMapNameGenerator().generateUrl(cssResultLocation);
       String encodedUrl = PrintUtils.urlEncode(url, encodingCharset, problemsHandler, cssAst);
-      commentText = "/*# sourceMappingURL=" + encodedUrl + " */";
+      builder.appendOnNewLine("/*# sourceMappingURL=" + encodedUrl + " */\n");
     }
-
-    css.append(commentText).append("\n");
-  }
-
-  private void addNewLine(StringBuilder css) {
-    if (css == null)
-      return;
-
-    int length = css.length();
-    if (length == 0) {
-      css.append("\n");
-      return;
-    }
-    String endingSymbol = css.substring(length - 1);
-    if ("\n".equals(endingSymbol))
-      return;
-
-    css.append("\n");
   }
 
   private String getCssResultLocationName(Configuration options, LessSource source) {
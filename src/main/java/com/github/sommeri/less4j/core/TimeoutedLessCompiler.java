@@ -1,7 +1,10 @@
 package com.github.sommeri.less4j.core;
 
 import java.io.File;
+import java.io.OutputStream;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.channels.WritableByteChannel;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
@@ -73,6 +76,40 @@ public class TimeoutedLessCompiler implements LessCompiler {
 
   @Override
   public CompilationResult compile(LessSource source, Configuration options) throws Less4jException {
+    return compile(source, options, (Writer) null);
+  }
+
+  @Override
+  public CompilationResult compile(LessSource source, Configuration options, OutputStream cssOutput) throws Less4jException {
+    final OutputStream iOutput = cssOutput;
+    return compile(source, options, new CompilerCall() {
+      public CompilationResult compile(ThreadUnsafeLessCompiler compiler, LessSource source, Configuration options) throws Less4jException {
+        return compiler.compile(source, options, iOutput);
+      }
+    });
+  }
+
+  @Override
+  public CompilationResult compile(LessSource source, Configuration options, WritableByteChannel cssOutput) throws Less4jException {
+    final WritableByteChannel iOutput = cssOutput;
+    return compile(source, options, new CompilerCall() {
+      public CompilationResult compile(ThreadUnsafeLessCompiler compiler, LessSource source, Configuration options) throws Less4jException {
+        return compiler.compile(source, options, iOutput);
+      }
+    });
+  }
+
+  @Override
+  public CompilationResult compile(LessSource source, Configuration options, Writer cssOutput) throws Less4jException {
+    final Writer iOutput = cssOutput;
+    return compile(source, options, new CompilerCall() {
+      public CompilationResult compile(ThreadUnsafeLessCompiler compiler, LessSource source, Configuration options) throws Less4jException {
+        return compiler.compile(source, options, iOutput);
+      }
+    });
+  }
+
+  private CompilationResult compile(LessSource source, Configuration options, final CompilerCall call) throws Less4jException {
     final LessSource iSource = source;
     final Configuration iOption = options;
 
@@ -81,7 +118,7 @@ public class TimeoutedLessCompiler implements LessCompiler {
 
         ThreadUnsafeLessCompiler compiler = new ThreadUnsafeLessCompiler();
         try {
-          return compiler.compile(iSource, iOption);
+          return call.compile(compiler, iSource, iOption);
         } catch (Less4jException ex) {
           throw new Less4jRuntimeException(ex);
         }
@@ -126,6 +163,12 @@ public class TimeoutedLessCompiler implements LessCompiler {
     }
   }
 
+  private interface CompilerCall {
+
+    CompilationResult compile(ThreadUnsafeLessCompiler compiler, LessSource source, Configuration options) throws Less4jException;
+
+  }
+
   @SuppressWarnings("serial")
   private class Less4jRuntimeException extends RuntimeException {
 
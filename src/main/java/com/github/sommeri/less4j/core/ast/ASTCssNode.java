@@ -18,9 +18,10 @@ public abstract class ASTCssNode implements PubliclyCloneable {
   // to be identifying,
   // cycle detector must be modified. !
   private HiddenTokenAwareTree underlyingStructure;
-  private List<Comment> openingComments = new ArrayList<Comment>();
-  private List<Comment> orphanComments = new ArrayList<Comment>();
-  private List<Comment> trailingComments = new ArrayList<Comment>();
+  // comments lists are created lazily - most nodes have no comments and nodes are cloned a lot
+  private List<Comment> openingComments;
+  private List<Comment> orphanComments;
+  private List<Comment> trailingComments;
 
   public ASTCssNode(HiddenTokenAwareTree underlyingStructure) {
     this.underlyingStructure = underlyingStructure;
@@ -92,8 +93,18 @@ public abstract class ASTCssNode implements PubliclyCloneable {
     this.underlyingStructure = underlyingStructure;
   }
 
+  public boolean hasComments() {
+    return !isEmpty(openingComments) || !isEmpty(orphanComments) || !isEmpty(trailingComments);
+  }
+
+  private boolean isEmpty(List<Comment> comments) {
+    return comments == null || comments.isEmpty();
+  }
+
   @NotAstProperty
   public List<Comment> getTrailingComments() {
+    if (trailingComments == null)
+      trailingComments = new ArrayList<Comment>();
     return trailingComments;
   }
 
@@ -102,15 +113,17 @@ public abstract class ASTCssNode implements PubliclyCloneable {
   }
 
   public void addTrailingComments(List<Comment> comments) {
-    this.trailingComments.addAll(comments);
+    getTrailingComments().addAll(comments);
   }
 
   public void addTrailingComment(Comment comment) {
-    this.trailingComments.add(comment);
+    getTrailingComments().add(comment);
   }
 
   @NotAstProperty
   public List<Comment> getOpeningComments() {
+    if (openingComments == null)
+      openingComments = new ArrayList<Comment>();
     return openingComments;
   }
 
@@ -119,11 +132,13 @@ public abstract class ASTCssNode implements PubliclyCloneable {
   }
 
   public void addOpeningComments(List<Comment> openingComments) {
-    this.openingComments.addAll(openingComments);
+    getOpeningComments().addAll(openingComments);
   }
 
   @NotAstProperty
   public List<Comment> getOrphanComments() {
+    if (orphanComments == null)
+      orphanComments = new ArrayList<Comment>();
     return orphanComments;
   }
 
@@ -153,9 +168,9 @@ public abstract class ASTCssNode implements PubliclyCloneable {
   public ASTCssNode clone() {
     try {
       ASTCssNode clone = (ASTCssNode) super.clone();
-      clone.setOpeningComments(new ArrayList<Comment>(getOpeningComments()));
-      clone.setOrphanComments(new ArrayList<Comment>(getOrphanComments()));
-      clone.setTrailingComments(new ArrayList<Comment>(getTrailingComments()));
+      clone.setOpeningComments(copy(openingComments));
+      clone.setOrphanComments(copy(orphanComments));
+      clone.setTrailingComments(copy(trailingComments));
       clone.setParent(null);
       return clone;
     } catch (CloneNotSupportedException e) {
@@ -163,6 +178,10 @@ public abstract class ASTCssNode implements PubliclyCloneable {
     }
   }
 
+  private List<Comment> copy(List<Comment> comments) {
+    return comments == null || comments.isEmpty() ? null : new ArrayList<Comment>(comments);
+  }
+
   public void configureParentToAllChilds() {
     List<? extends ASTCssNode> childs = getChilds();
     for (ASTCssNode kid : childs) {
@@ -69,6 +69,10 @@ public class Declaration extends ASTCssNode {
     return n != null ? n.toLowerCase().equals("font") : false;
   }
 
+  public boolean hasInterpolatedName() {
+    return name != null && name.isInterpolated();
+  }
+
   public boolean isFilterDeclaration() {
     String n = getNameAsString();
     return n != null ? n.toLowerCase().endsWith("filter") : false;
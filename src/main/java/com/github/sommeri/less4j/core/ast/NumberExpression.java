@@ -13,7 +13,9 @@ public class NumberExpression extends Expression implements Cloneable {
 
   private String originalString;
   private Dimension dimension = Dimension.NUMBER;
-  private Double valueAsDouble;
+  // value is kept in primitive, so arithmetic does not allocate - hasValue distinguishes missing value
+  private double value;
+  private boolean hasValue = false;
   private String suffix = "";
   private boolean expliciteSign = false;
 
@@ -38,7 +40,14 @@ public class NumberExpression extends Expression implements Cloneable {
 
   public NumberExpression(HiddenTokenAwareTree token, Double valueAsDouble, String suffix, String originalString, Dimension dimension) {
     this(token, originalString, dimension);
-    this.valueAsDouble = valueAsDouble;
+    setValueAsDouble(valueAsDouble);
+    this.suffix = suffix;
+  }
+
+  public NumberExpression(HiddenTokenAwareTree token, double value, String suffix, String originalString, Dimension dimension) {
+    this(token, originalString, dimension);
+    this.value = value;
+    this.hasValue = true;
     this.suffix = suffix;
   }
 
@@ -54,12 +63,33 @@ public class NumberExpression extends Expression implements Cloneable {
     return dimension;
   }
 
+  /**
+   * Returns boxed value or <code>null</code> if the number has no value. Prefer {@link #doubleValue()}
+   * in calculations, it does not allocate.
+   */
   public Double getValueAsDouble() {
-    return valueAsDouble;
+    return hasValue ? Double.valueOf(value) : null;
   }
 
   public void setValueAsDouble(Double number) {
-    this.valueAsDouble = number;
+    this.hasValue = number != null;
+    this.value = hasValue ? number.doubleValue() : 0;
+  }
+
+  public boolean hasValue() {
+    return hasValue;
+  }
+
+  /**
+   * Returns primitive value, 0 if the number has no value.
+   */
+  public double doubleValue() {
+    return value;
+  }
+
+  public void setValue(double value) {
+    this.value = value;
+    this.hasValue = true;
   }
 
   public void setDimension(Dimension dimension) {
@@ -83,10 +113,10 @@ public class NumberExpression extends Expression implements Cloneable {
   }
 
   public void negate() {
-    if (valueAsDouble == null)
+    if (!hasValue)
       return;
 
-    valueAsDouble = valueAsDouble * -1;
+    value = value * -1;
   }
 
   public boolean convertibleTo(NumberExpression second) {
@@ -109,28 +139,41 @@ public class NumberExpression extends Expression implements Cloneable {
   }
 
   public NumberExpression convertIfPossible(String toSuffix) {
-    String fromSuffix = getSuffix();
-    if (toSuffix==null || toSuffix.isEmpty() || fromSuffix==null || fromSuffix.isEmpty())
+    if (!hasValue || !hasConversion(toSuffix))
       return this;
 
+    toSuffix = toSuffix.toLowerCase();
+    return new NumberExpression(getUnderlyingStructure(), convertValueIfPossible(toSuffix), toSuffix, null, Dimension.forSuffix(toSuffix));
+  }
+
+  /**
+   * Returns value converted into units given by suffix or unchanged value if the conversion is not
+   * possible. Unlike {@link #convertIfPossible(String)}, it does not create new node.
+   */
+  public double convertValueIfPossible(String toSuffix) {
+    if (!hasConversion(toSuffix))
+      return value;
+
+    Map<String, Number> conversions = getDimension().getConversions();
+    Number multiplier = conversions.get(getSuffix().toLowerCase());
+    Number divisor = conversions.get(toSuffix.toLowerCase());
+    return value * multiplier.doubleValue() / divisor.doubleValue();
+  }
+
+  private boolean hasConversion(String toSuffix) {
+    String fromSuffix = getSuffix();
+    if (toSuffix == null || toSuffix.isEmpty() || fromSuffix == null || fromSuffix.isEmpty())
+      return false;
+
     fromSuffix = fromSuffix.toLowerCase();
     toSuffix = toSuffix.toLowerCase();
     if (fromSuffix.equals(toSuffix))
-      return this;
+      return false;
 
     Map<String, Number> conversions = getDimension().getConversions();
-    Number multiplier = conversions.get(fromSuffix);
-    Number divisor = conversions.get(toSuffix);
-
-    if (multiplier != null && divisor != null) {
-      HiddenTokenAwareTree token = getUnderlyingStructure();
-      Double value = getValueAsDouble();
-      return new NumberExpression(token, value * multiplier.doubleValue() / divisor.doubleValue(), toSuffix, null, Dimension.forSuffix(toSuffix));
-    } else {
-      return this;
-    }
-
+    return conversions.containsKey(fromSuffix) && conversions.containsKey(toSuffix);
   }
+
   @Override
   @NotAstProperty
   public List<? extends ASTCssNode> getChilds() {
@@ -240,7 +283,7 @@ public class NumberExpression extends Expression implements Cloneable {
     if (originalString != null)
       return originalString;
 
-    return "" + valueAsDouble + suffix;
+    return "" + getValueAsDouble() + suffix;
   }
 
   @Override
@@ -250,7 +293,8 @@ public class NumberExpression extends Expression implements Cloneable {
     result = prime * result + ((dimension == null) ? 0 : dimension.hashCode());
     result = prime * result + (expliciteSign ? 1231 : 1237);
     result = prime * result + ((suffix == null) ? 0 : suffix.hashCode());
-    result = prime * result + ((valueAsDouble == null) ? 0 : valueAsDouble.hashCode());
+    long bits = Double.doubleToLongBits(value);
+    result = prime * result + (hasValue ? (int) (bits ^ (bits >>> 32)) : 0);
     return result;
   }
 
@@ -272,10 +316,9 @@ public class NumberExpression extends Expression implements Cloneable {
         return false;
     } else if (!suffix.equals(other.suffix))
       return false;
-    if (valueAsDouble == null) {
-      if (other.valueAsDouble != null)
-        return false;
-    } else if (!valueAsDouble.equals(other.valueAsDouble))
+    if (hasValue != other.hasValue)
+      return false;
+    if (hasValue && Double.doubleToLongBits(value) != Double.doubleToLongBits(other.value))
       return false;
     return true;
   }
@@ -0,0 +1,180 @@
+package com.github.sommeri.less4j.core.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.sommeri.less4j.LessCompiler.CompilationProfile;
+import com.github.sommeri.less4j.LessCompiler.ProfileEntry;
+import com.github.sommeri.less4j.LessCompiler.ProfileNode;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.BodyOwner;
+import com.github.sommeri.less4j.core.ast.DetachedRuleset;
+import com.github.sommeri.less4j.core.ast.ReusableStructure;
+import com.github.sommeri.less4j.core.parser.HiddenTokenAwareTree;
+import com.github.sommeri.less4j.utils.PrintUtils;
+
+/**
+ * Builds call tree of mixins, detached rulesets and functions. Each call is measured from
+ * {@link #enter(Frame)} to {@link #exit()}, time of nested calls is subtracted from exclusive
+ * time of their caller.
+ *
+ * Frames are interned - all calls of the same definition share one frame, clones of the
+ * definition included, because clones share the underlying structure.
+ */
+class CallTreeProfiler {
+
+  private static final String MIXIN = "mixin";
+  private static final String DETACHED_RULESET = "detached ruleset";
+  private static final String FUNCTION = "function";
+  private static final String CUSTOM_FUNCTION = "custom function";
+
+  private final Map<HiddenTokenAwareTree, Frame> bodyFrames = new IdentityHashMap<HiddenTokenAwareTree, Frame>();
+  private final Map<String, Frame> functionFrames = new HashMap<String, Frame>();
+  private final List<Frame> frames = new ArrayList<Frame>();
+
+  private final Node root = new Node(null, null);
+  private Node current = root;
+
+  public Frame toFrame(BodyOwner<?> bodyOwner) {
+    ASTCssNode node = (ASTCssNode) bodyOwner;
+    Frame result = bodyFrames.get(node.getUnderlyingStructure());
+    if (result == null) {
+      result = new Frame(toKind(bodyOwner), toName(bodyOwner), toLocation(node));
+      bodyFrames.put(node.getUnderlyingStructure(), result);
+      frames.add(result);
+    }
+    return result;
+  }
+
+  public Frame toFunctionFrame(String name, boolean custom) {
+    String key = (custom ? CUSTOM_FUNCTION : FUNCTION) + " " + name;
+    Frame result = functionFrames.get(key);
+    if (result == null) {
+      result = new Frame(custom ? CUSTOM_FUNCTION : FUNCTION, name, null);
+      functionFrames.put(key, result);
+      frames.add(result);
+    }
+    return result;
+  }
+
+  public void enter(Frame frame) {
+    Node child = current.children.get(frame);
+    if (child == null) {
+      child = new Node(frame, current);
+      current.children.put(frame, child);
+    }
+    frame.active++;
+    current = child;
+    // last, so the bookkeeping above is not measured
+    child.childrenTime = 0;
+    child.start = System.nanoTime();
+  }
+
+  public void exit() {
+    long elapsed = System.nanoTime() - current.start;
+    long exclusive = elapsed - current.childrenTime;
+    current.calls++;
+    current.inclusiveTime += elapsed;
+    current.exclusiveTime += exclusive;
+
+    Frame frame = current.frame;
+    frame.calls++;
+    frame.exclusiveTime += exclusive;
+    frame.active--;
+    // recursive calls are already included in the outermost one
+    if (frame.active == 0)
+      frame.inclusiveTime += elapsed;
+
+    current = current.parent;
+    current.childrenTime += elapsed;
+  }
+
+  public CompilationProfile toProfile() {
+    List<ProfileEntry> entries = new ArrayList<ProfileEntry>();
+    for (Frame frame : frames) {
+      entries.add(new ProfileEntry(frame.kind, frame.name, frame.location, frame.calls, frame.inclusiveTime, frame.exclusiveTime));
+    }
+    return new CompilationProfile(entries, toProfileNode(root));
+  }
+
+  private ProfileNode toProfileNode(Node node) {
+    List<ProfileNode> children = new ArrayList<ProfileNode>();
+    long inclusiveTime = node.inclusiveTime;
+    for (Node child : node.children.values()) {
+      children.add(toProfileNode(child));
+    }
+    if (node == root) {
+      // root is never entered, its time is time of all top level calls
+      for (ProfileNode child : children) {
+        inclusiveTime += child.getInclusiveTime();
+      }
+      return new ProfileNode(null, 0, inclusiveTime, 0, children);
+    }
+
+    Frame frame = node.frame;
+    ProfileEntry entry = new ProfileEntry(frame.kind, frame.name, frame.location, node.calls, node.inclusiveTime, node.exclusiveTime);
+    return new ProfileNode(entry.getLabel(), node.calls, inclusiveTime, node.exclusiveTime, children);
+  }
+
+  private String toKind(BodyOwner<?> bodyOwner) {
+    return bodyOwner instanceof DetachedRuleset ? DETACHED_RULESET : MIXIN;
+  }
+
+  private String toName(BodyOwner<?> bodyOwner) {
+    if (bodyOwner instanceof ReusableStructure)
+      return PrintUtils.toString(((ReusableStructure) bodyOwner).getNamesAsStrings().toArray(new String[0]));
+
+    return null;
+  }
+
+  private String toLocation(ASTCssNode node) {
+    LessSource source = node.getSource();
+    String name = source == null ? null : source.getName();
+    if (name == null && source != null && source.getURI() != null)
+      name = source.getURI().toString();
+
+    return (name == null ? "" : name) + ":" + node.getSourceLine() + ":" + node.getSourceColumn();
+  }
+
+  static class Frame {
+
+    private final String kind;
+    private final String name;
+    private final String location;
+    private int active = 0;
+    private int calls = 0;
+    private long inclusiveTime = 0;
+    private long exclusiveTime = 0;
+
+    private Frame(String kind, String name, String location) {
+      this.kind = kind;
+      this.name = name;
+      this.location = location;
+    }
+
+  }
+
+  private static class Node {
+
+    private final Frame frame;
+    private final Node parent;
+    private final Map<Frame, Node> children = new LinkedHashMap<Frame, Node>();
+    private long start;
+    private long childrenTime;
+    private int calls = 0;
+    private long inclusiveTime = 0;
+    private long exclusiveTime = 0;
+
+    public Node(Frame frame, Node parent) {
+      this.frame = frame;
+      this.parent = parent;
+    }
+
+  }
+
+}
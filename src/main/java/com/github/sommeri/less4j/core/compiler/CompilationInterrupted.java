@@ -0,0 +1,14 @@
+package com.github.sommeri.less4j.core.compiler;
+
+/**
+ * Thread running the compilation was interrupted while it waited for helper threads. Interrupt
+ * status of the thread is restored before this is thrown.
+ */
+@SuppressWarnings("serial")
+public class CompilationInterrupted extends RuntimeException {
+
+  public CompilationInterrupted(InterruptedException cause) {
+    super("Compilation was interrupted.", cause);
+  }
+
+}
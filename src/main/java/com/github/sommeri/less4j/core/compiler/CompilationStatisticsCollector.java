@@ -0,0 +1,153 @@
+package com.github.sommeri.less4j.core.compiler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.sommeri.less4j.LessCompiler.CompilationProfile;
+import com.github.sommeri.less4j.LessCompiler.CompilationStatistics;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessCompiler.StageStatistics;
+import com.github.sommeri.less4j.core.ast.BodyOwner;
+
+/**
+ * Measures compilation stages and counts work done during one compilation. Stages do not nest,
+ * each one must end before the next one starts. Counters are incremented only by the compiling
+ * thread.
+ *
+ * If profiling is turned on, it also builds call tree of mixin, detached ruleset and function
+ * calls. Each {@link #enter(BodyOwner)} or {@link #enterFunction(String, boolean)} must be
+ * followed by {@link #exit()}.
+ *
+ * Use {@link #create(Configuration)} to get an instance, it returns {@link NullCompilationStatisticsCollector}
+ * that does nothing when both statistics and profiling are turned off.
+ */
+public class CompilationStatisticsCollector {
+
+  public static final String PARSING = "parsing";
+  public static final String IMPORTS = "imports";
+  public static final String REFERENCES = "references";
+  public static final String EXPRESSIONS = "expressions";
+  public static final String UNNESTING = "unnesting";
+  public static final String EXTENDS = "extends";
+  public static final String MEDIA_BUBBLING = "media bubbling";
+  public static final String CLEAN_UP = "clean up";
+  public static final String RULESETS_MERGING = "rulesets merging";
+  public static final String PRINTING = "printing";
+
+  private final ThreadMXBean threads;
+  private final boolean measureCpu;
+
+  private final List<StageStatistics> stages = new ArrayList<StageStatistics>();
+  private String stage;
+  private long stageWallStart;
+  private long stageCpuStart;
+
+  private int importsRead = 0;
+  private long parsedCharacters = 0;
+  private int mixinExpansions = 0;
+  private int variableLookups = 0;
+  private int functionCalls = 0;
+  private int extendsMatched = 0;
+  private int mappingsGenerated = 0;
+
+  private final boolean collectStatistics;
+  private final CallTreeProfiler profiler;
+
+  /**
+   * Used only by {@link NullCompilationStatisticsCollector}, it does not touch thread management bean.
+   */
+  protected CompilationStatisticsCollector() {
+    this.threads = null;
+    this.measureCpu = false;
+    this.collectStatistics = false;
+    this.profiler = null;
+  }
+
+  private CompilationStatisticsCollector(boolean collectStatistics, boolean profile) {
+    this.threads = ManagementFactory.getThreadMXBean();
+    this.measureCpu = threads.isCurrentThreadCpuTimeSupported();
+    this.collectStatistics = collectStatistics;
+    this.profiler = profile ? new CallTreeProfiler() : null;
+  }
+
+  public static CompilationStatisticsCollector create(Configuration configuration) {
+    if (configuration != null && (configuration.isCollectStatistics() || configuration.isProfiling()))
+      return new CompilationStatisticsCollector(configuration.isCollectStatistics(), configuration.isProfiling());
+
+    return NullCompilationStatisticsCollector.INSTANCE;
+  }
+
+  public void startStage(String name) {
+    stage = name;
+    stageCpuStart = cpuTime();
+    stageWallStart = System.nanoTime();
+  }
+
+  public void endStage() {
+    long wallTime = System.nanoTime() - stageWallStart;
+    long cpuTime = measureCpu ? cpuTime() - stageCpuStart : -1;
+    stages.add(new StageStatistics(stage, wallTime, cpuTime));
+    stage = null;
+  }
+
+  private long cpuTime() {
+    return measureCpu ? threads.getCurrentThreadCpuTime() : -1;
+  }
+
+  public void importRead() {
+    importsRead++;
+  }
+
+  public void parsed(String content) {
+    parsedCharacters += content.length();
+  }
+
+  public void mixinExpanded() {
+    mixinExpansions++;
+  }
+
+  public void variableLookedUp() {
+    variableLookups++;
+  }
+
+  public void functionCalled() {
+    functionCalls++;
+  }
+
+  public void extendsMatched(int count) {
+    extendsMatched += count;
+  }
+
+  public void mappingsGenerated(int count) {
+    mappingsGenerated += count;
+  }
+
+  public void enter(BodyOwner<?> bodyOwner) {
+    if (profiler != null)
+      profiler.enter(profiler.toFrame(bodyOwner));
+  }
+
+  public void enterFunction(String name, boolean custom) {
+    if (profiler != null)
+      profiler.enter(profiler.toFunctionFrame(name, custom));
+  }
+
+  public void exit() {
+    if (profiler != null)
+      profiler.exit();
+  }
+
+  public CompilationProfile toProfile() {
+    return profiler == null ? null : profiler.toProfile();
+  }
+
+  public CompilationStatistics toStatistics() {
+    if (!collectStatistics)
+      return null;
+
+    return new CompilationStatistics(new ArrayList<StageStatistics>(stages), importsRead, parsedCharacters, mixinExpansions, variableLookups, functionCalls, extendsMatched, mappingsGenerated);
+  }
+
+}
@@ -17,8 +17,11 @@ import com.github.sommeri.less4j.core.ast.FixedMediaExpression;
 import com.github.sommeri.less4j.core.ast.MediaExpressionFeature;
 import com.github.sommeri.less4j.core.ast.StyleSheet;
 import com.github.sommeri.less4j.core.compiler.expressions.ExpressionEvaluator;
+import com.github.sommeri.less4j.core.compiler.expressions.PureFunctionsCache;
 import com.github.sommeri.less4j.core.compiler.scopes.IScope;
+import com.github.sommeri.less4j.core.compiler.scopes.NullScope;
 import com.github.sommeri.less4j.core.compiler.selectors.ExtendsSolver;
+import com.github.sommeri.less4j.core.compiler.selectors.UnusedSelectorsRemover;
 import com.github.sommeri.less4j.core.compiler.selectors.UselessLessElementsRemover;
 import com.github.sommeri.less4j.core.compiler.stages.ASTManipulator;
 import com.github.sommeri.less4j.core.compiler.stages.DirectiveBubblerAndMerger;
@@ -27,9 +30,12 @@ import com.github.sommeri.less4j.core.compiler.stages.FinalVisibilitySolver;
 import com.github.sommeri.less4j.core.compiler.stages.ImportsAndScopeSolver;
 import com.github.sommeri.less4j.core.compiler.stages.PropertiesMerger;
 import com.github.sommeri.less4j.core.compiler.stages.ReferencesSolver;
+import com.github.sommeri.less4j.core.compiler.stages.RulesetsMerger;
+import com.github.sommeri.less4j.core.compiler.stages.TreeVisitorsPipeline;
 import com.github.sommeri.less4j.core.compiler.stages.UnNestingAndBubbling;
 import com.github.sommeri.less4j.core.compiler.stages.UrlsAndImportsNormalizer;
 import com.github.sommeri.less4j.core.compiler.stages.UselessImportantRemover;
+import com.github.sommeri.less4j.core.output.SourcesRegistry;
 import com.github.sommeri.less4j.core.problems.ProblemsHandler;
 import com.github.sommeri.less4j.core.validators.CssAstValidator;
 
@@ -38,33 +44,61 @@ public class LessToCssCompiler {
   private ProblemsHandler problemsHandler;
   private Configuration configuration;
   private Set<LessSource> importedSources;
+  private PureFunctionsCache functionsCache = new PureFunctionsCache();
+  private SourcesRegistry sources = new SourcesRegistry();
+  private RulesetsMerger rulesetsMerger;
+  private final CompilationStatisticsCollector statistics;
 
   public LessToCssCompiler(ProblemsHandler problemsHandler, Configuration configuration) {
+    this(problemsHandler, configuration, NullCompilationStatisticsCollector.INSTANCE);
+  }
+
+  public LessToCssCompiler(ProblemsHandler problemsHandler, Configuration configuration, CompilationStatisticsCollector statistics) {
     super();
     this.problemsHandler = problemsHandler;
     this.configuration = configuration;
+    this.statistics = statistics;
   }
 
   public ASTCssNode compileToCss(StyleSheet less, LessSource source, Configuration options) {
     this.importedSources = resolveImportsAndReferences(less, source);
     
+    statistics.startStage(CompilationStatisticsCollector.EXPRESSIONS);
     evaluateExpressions(less);
+    statistics.endStage();
     
+    statistics.startStage(CompilationStatisticsCollector.UNNESTING);
     markAllVisibleNodes(less);
     freeNestedRulesetsAndMedia(less);
+    statistics.endStage();
+
+    statistics.startStage(CompilationStatisticsCollector.EXTENDS);
     solveExtends(less);
+    if (configuration.getUsedSelectors() != null)
+      markUnusedSelectors(less);
     removeInvisibleNodes(less);
+    statistics.endStage();
 
+    statistics.startStage(CompilationStatisticsCollector.MEDIA_BUBBLING);
     finalMediaMergingAndBubbling(less);
-    // TODO the following line is probably useless now, investigate (removal is now part of freeNestedRulesetsAndMedia step)
-    removeUselessLessElements(less);
-    removeEmptyRulesetsAndMedia(less);
-    finishDeclarations(less);
+    statistics.endStage();
+
+    statistics.startStage(CompilationStatisticsCollector.CLEAN_UP);
+    // useless less elements removal, empty bodies removal and declarations finishing share one tree traversal
+    // TODO useless less elements removal is probably useless now, investigate (removal is now part of freeNestedRulesetsAndMedia step)
+    finalCleanUp(less);
     //normalizeUrlsAndImportsInImportedFiles(less);
 
     //final clean up  
     sortTopLevelElements(less);
     removeUselessCharsets(less);
+    statistics.endStage();
+
+    if (configuration.isMergeRulesets()) {
+      statistics.startStage(CompilationStatisticsCollector.RULESETS_MERGING);
+      mergeRulesets(less, source);
+      statistics.endStage();
+    }
 
     //final validation
     validateFinalCss(less);
@@ -72,22 +106,29 @@ public class LessToCssCompiler {
     return less;
   }
 
-  private void removeEmptyRulesetsAndMedia(StyleSheet less) {
-    EmptyBodiesRemover remover = new EmptyBodiesRemover();
-    remover.removeEmptyBodies(less);
+  private void finalCleanUp(StyleSheet less) {
+    TreeVisitorsPipeline pipeline = new TreeVisitorsPipeline( //
+        new UselessLessElementsRemover(), //
+        new EmptyBodiesRemover(), //
+        new PropertiesMerger(), //
+        new UselessImportantRemover());
+    pipeline.apply(less);
   }
 
-  private void finishDeclarations(StyleSheet less) {
-    PropertiesMerger propertiesMerger = new PropertiesMerger();
-    propertiesMerger.apply(less);
-    
-    UselessImportantRemover remover = new UselessImportantRemover();
-    remover.apply(less);
+  private void mergeRulesets(StyleSheet less, LessSource source) {
+    rulesetsMerger = new RulesetsMerger(source, configuration);
+    rulesetsMerger.mergeRulesets(less);
   }
 
   private void solveExtends(StyleSheet less) {
-    ExtendsSolver extendsSolver = new ExtendsSolver();
+    ExtendsSolver extendsSolver = new ExtendsSolver(configuration.getExtendsSolverThreads());
     extendsSolver.solveExtends(less);
+    statistics.extendsMatched(extendsSolver.getAddedSelectors());
+  }
+
+  private void markUnusedSelectors(StyleSheet less) {
+    UnusedSelectorsRemover remover = new UnusedSelectorsRemover(configuration.getUsedSelectors());
+    remover.markUnused(less);
   }
 
   private void markAllVisibleNodes(StyleSheet less) {
@@ -96,28 +137,27 @@ public class LessToCssCompiler {
   }
 
   private void freeNestedRulesetsAndMedia(StyleSheet less) {
-    UnNestingAndBubbling nestingBubbling = new UnNestingAndBubbling();
+    UnNestingAndBubbling nestingBubbling = new UnNestingAndBubbling(configuration);
     nestingBubbling.unnestRulesetsAndDirectives(less);
   }
 
   //FIXME: meri: test for equivalent of #2162 -  but with detached rulesetss
   private Set<LessSource> resolveImportsAndReferences(StyleSheet less, LessSource source) {
-    ImportsAndScopeSolver solver = new ImportsAndScopeSolver(problemsHandler, configuration);
+    statistics.startStage(CompilationStatisticsCollector.IMPORTS);
+    ImportsAndScopeSolver solver = new ImportsAndScopeSolver(problemsHandler, configuration, functionsCache, sources, statistics);
     IScope scope = solver.buildImportsAndScope(less, source);
     Set<LessSource> importedSources = solver.getImportedSources();
+    statistics.endStage();
 
-    ReferencesSolver referencesSolver = new ReferencesSolver(problemsHandler, configuration);
+    statistics.startStage(CompilationStatisticsCollector.REFERENCES);
+    ReferencesSolver referencesSolver = new ReferencesSolver(problemsHandler, configuration, functionsCache, statistics);
     referencesSolver.solveReferences(less, scope);
+    statistics.endStage();
     // Warning at this point: ast changed, but the scope did not changed its structure. The scope stopped to be useful.
     
     return importedSources;
   }
 
-  private void removeUselessLessElements(StyleSheet node) {
-    UselessLessElementsRemover remover = new UselessLessElementsRemover();
-    remover.removeUselessLessElements(node);
-  }
-
   @SuppressWarnings("unused")
   private void normalizeUrlsAndImportsInImportedFiles(StyleSheet node) {
     UrlsAndImportsNormalizer normalizer = new UrlsAndImportsNormalizer(problemsHandler, configuration);
@@ -147,7 +187,7 @@ public class LessToCssCompiler {
   }
 
   private void finalMediaMergingAndBubbling(StyleSheet less) {
-    DirectiveBubblerAndMerger bubblerAndMerger = new DirectiveBubblerAndMerger(problemsHandler);
+    DirectiveBubblerAndMerger bubblerAndMerger = new DirectiveBubblerAndMerger(problemsHandler, configuration);
     bubblerAndMerger.bubbleAndMergeMedia(less);
   }
   
@@ -179,7 +219,7 @@ public class LessToCssCompiler {
     ASTManipulator manipulator = new ASTManipulator();
     if (node instanceof Expression) {
       //variables are not supposed to be there now
-      ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator(problemsHandler, configuration);
+      ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator(new NullScope(), problemsHandler, configuration, functionsCache, statistics);
       Expression value = expressionEvaluator.evaluate((Expression) node);
       manipulator.replace(node, value);
     } else {
@@ -222,8 +262,26 @@ public class LessToCssCompiler {
     validator.validate(less);
   }
 
+  /**
+   * Sources read during the compilation.
+   */
+  public SourcesRegistry getSources() {
+    return sources;
+  }
+
   public Set<LessSource> getImportedsources() {
     return importedSources;
   }
 
+  /**
+   * Returns <code>null</code> if rulesets merging is turned off.
+   */
+  public RulesetsMerger getRulesetsMerger() {
+    return rulesetsMerger;
+  }
+
+  public PureFunctionsCache getFunctionsCache() {
+    return functionsCache;
+  }
+
 }
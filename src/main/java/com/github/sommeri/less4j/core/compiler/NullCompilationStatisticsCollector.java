@@ -0,0 +1,75 @@
+package com.github.sommeri.less4j.core.compiler;
+
+import com.github.sommeri.less4j.LessCompiler.CompilationProfile;
+import com.github.sommeri.less4j.LessCompiler.CompilationStatistics;
+import com.github.sommeri.less4j.core.ast.BodyOwner;
+
+/**
+ * Used when statistics and profiling are turned off - neither measures time nor counts anything.
+ */
+public class NullCompilationStatisticsCollector extends CompilationStatisticsCollector {
+
+  public static final NullCompilationStatisticsCollector INSTANCE = new NullCompilationStatisticsCollector();
+
+  private NullCompilationStatisticsCollector() {
+  }
+
+  @Override
+  public void startStage(String name) {
+  }
+
+  @Override
+  public void endStage() {
+  }
+
+  @Override
+  public void importRead() {
+  }
+
+  @Override
+  public void parsed(String content) {
+  }
+
+  @Override
+  public void mixinExpanded() {
+  }
+
+  @Override
+  public void variableLookedUp() {
+  }
+
+  @Override
+  public void functionCalled() {
+  }
+
+  @Override
+  public void extendsMatched(int count) {
+  }
+
+  @Override
+  public void mappingsGenerated(int count) {
+  }
+
+  @Override
+  public void enter(BodyOwner<?> bodyOwner) {
+  }
+
+  @Override
+  public void enterFunction(String name, boolean custom) {
+  }
+
+  @Override
+  public void exit() {
+  }
+
+  @Override
+  public CompilationProfile toProfile() {
+    return null;
+  }
+
+  @Override
+  public CompilationStatistics toStatistics() {
+    return null;
+  }
+
+}
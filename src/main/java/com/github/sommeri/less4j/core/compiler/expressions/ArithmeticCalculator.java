@@ -28,20 +28,27 @@ class ArithmeticCalculator {
     
     BinaryExpressionOperator operator = originalExpression.getOperator();
     
+    // values are computed in primitives, node is created only for the final result
+    double firstVal;
+    double secondVal;
     if (shouldConvert(operator)) {
-      first = first.convertIfPossible(resultSuffix);
-      second = second.convertIfPossible(resultSuffix);
+      firstVal = first.convertValueIfPossible(resultSuffix);
+      secondVal = second.convertValueIfPossible(resultSuffix);
+    } else {
+      firstVal = first.doubleValue();
+      secondVal = second.doubleValue();
     }
     
+    HiddenTokenAwareTree parentToken = originalExpression.getUnderlyingStructure();
     switch (operator.getOperator()) {
     case SOLIDUS:
-      return divide(first, second, resultSuffix, originalExpression);
+      return createResultNumber(parentToken, firstVal / secondVal, second, resultSuffix);
     case STAR:
-      return multiply(first, second, resultSuffix, originalExpression);
+      return createResultNumber(parentToken, firstVal * secondVal, second, resultSuffix);
     case MINUS:
-      return subtract(first, second, resultSuffix, originalExpression);
+      return createResultNumber(parentToken, firstVal - secondVal, second, resultSuffix);
     case PLUS:
-      return add(first, second, resultSuffix, originalExpression);
+      return createResultNumber(parentToken, firstVal + secondVal, second, resultSuffix);
 
     default:
       throw new BugHappened("Unknown operator.", operator);
@@ -53,56 +60,8 @@ class ArithmeticCalculator {
     return operator.getOperator()==BinaryExpressionOperator.Operator.PLUS || operator.getOperator()==BinaryExpressionOperator.Operator.MINUS;
   }
 
-  private Expression subtract(NumberExpression first, NumberExpression second, String resultSuffix, BinaryExpression originalExpression) {
-    return subtractNumbers(first, second, resultSuffix, originalExpression.getUnderlyingStructure());
-  }
-
-  private Expression subtractNumbers(NumberExpression first, NumberExpression second, String resultSuffix, HiddenTokenAwareTree parentToken) {
-    Double firstVal = first.getValueAsDouble();
-    Double secondVal = second.getValueAsDouble();
-    Double resultVal = firstVal - secondVal;
-
-    return createResultNumber(parentToken, resultVal, first, second, resultSuffix);
-  }
-
-  private Expression multiply(NumberExpression first, NumberExpression second, String resultSuffix, BinaryExpression originalExpression) {
-    return multiplyNumbers(first, second, resultSuffix, originalExpression.getUnderlyingStructure());
-  }
-
-  private Expression multiplyNumbers(NumberExpression first, NumberExpression second, String resultSuffix, HiddenTokenAwareTree parentToken) {
-    Double firstVal = first.getValueAsDouble();
-    Double secondVal = second.getValueAsDouble();
-    Double resultVal = firstVal * secondVal;
-
-    return createResultNumber(parentToken, resultVal, first, second, resultSuffix);
-  }
-
-  private Expression divide(NumberExpression first, NumberExpression second, String resultSuffix, BinaryExpression originalExpression) {
-    return divideNumbers(first, second, resultSuffix, originalExpression.getUnderlyingStructure());
-  }
-
-  private Expression divideNumbers(NumberExpression first, NumberExpression second, String resultSuffix, HiddenTokenAwareTree parentToken) {
-    Double firstVal = first.getValueAsDouble();
-    Double secondVal = second.getValueAsDouble();
-    Double resultVal = firstVal / secondVal;
-    
-    return createResultNumber(parentToken, resultVal, first, second, resultSuffix);
-  }
-
-  private Expression add(NumberExpression first, NumberExpression second, String resultSuffix, BinaryExpression originalExpression) {
-    return addNumbers(first, second, resultSuffix, originalExpression.getUnderlyingStructure());
-  }
-
-  private Expression addNumbers(NumberExpression first, NumberExpression second, String resultSuffix, HiddenTokenAwareTree parentToken) {
-    Double firstVal = first.getValueAsDouble();
-    Double secondVal = second.getValueAsDouble();
-    Double resultVal = firstVal + secondVal;
-
-    return createResultNumber(parentToken, resultVal, first, second, resultSuffix);
-  }
-
-  private Expression createResultNumber(HiddenTokenAwareTree parentToken, Double resultVal, NumberExpression first, NumberExpression second, String resultSuffix) {
-    if (resultVal.isInfinite()) {
+  private Expression createResultNumber(HiddenTokenAwareTree parentToken, double resultVal, NumberExpression second, String resultSuffix) {
+    if (Double.isInfinite(resultVal)) {
       problemsHandler.divisionByZero(second);
       return new FaultyExpression(second);
     }
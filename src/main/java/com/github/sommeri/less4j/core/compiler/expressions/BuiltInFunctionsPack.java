@@ -29,6 +29,14 @@ public abstract class BuiltInFunctionsPack implements FunctionsPackage {
     return function.evaluate(parameters, problemsHandler, input, evaluatedParameter);
   }
 
+  /**
+   * Pure functions result depends only on their arguments and they have no side effects.
+   * Calls with constant arguments are evaluated only once.
+   */
+  public boolean isPure() {
+    return false;
+  }
+
   protected abstract Map<String, Function> getFunctions();
 
   private String normalizeName(FunctionExpression input) {
@@ -115,6 +115,11 @@ public class ColorFunctions extends BuiltInFunctionsPack {
     super(problemsHandler);
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
   @Override
   protected Map<String, Function> getFunctions() {
     return FUNCTIONS;
@@ -354,7 +359,7 @@ class Hue extends AbstractColorOperationFunction {
   @Override
   protected Expression evaluate(ColorExpression color, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
     HSLAValue hsla = toHSLA(color);
-    return new NumberExpression(token, Double.valueOf(Math.round(hsla.h)), "", null, Dimension.NUMBER);
+    return new NumberExpression(token, (double) Math.round(hsla.h), "", null, Dimension.NUMBER);
   }
 
   @Override
@@ -369,7 +374,7 @@ class Saturation extends AbstractColorOperationFunction {
   @Override
   protected Expression evaluate(ColorExpression color, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
     HSLAValue hsla = toHSLA(color);
-    return new NumberExpression(token, Double.valueOf(Math.round(hsla.s * 100)), "%", null, Dimension.PERCENTAGE);
+    return new NumberExpression(token, (double) Math.round(hsla.s * 100), "%", null, Dimension.PERCENTAGE);
   }
 
   @Override
@@ -384,7 +389,7 @@ class Lightness extends AbstractColorOperationFunction {
   @Override
   protected Expression evaluate(ColorExpression color, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
     HSLAValue hsla = toHSLA(color);
-    return new NumberExpression(token, Double.valueOf(Math.round(hsla.l * 100)), "%", null, Dimension.PERCENTAGE);
+    return new NumberExpression(token, (double) Math.round(hsla.l * 100), "%", null, Dimension.PERCENTAGE);
   }
 
   @Override
@@ -399,7 +404,7 @@ class HSVHue extends AbstractColorOperationFunction {
   @Override
   protected Expression evaluate(ColorExpression color, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
     HSVAValue hsva = toHSVA(color);
-    return new NumberExpression(token, Double.valueOf(Math.round(hsva.h)), "", null, Dimension.NUMBER);
+    return new NumberExpression(token, (double) Math.round(hsva.h), "", null, Dimension.NUMBER);
   }
 
   @Override
@@ -414,7 +419,7 @@ class HSVSaturation extends AbstractColorOperationFunction {
   @Override
   protected Expression evaluate(ColorExpression color, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
     HSVAValue hsva = toHSVA(color);
-    return new NumberExpression(token, Double.valueOf(Math.round(hsva.s * 100)), "%", null, Dimension.PERCENTAGE);
+    return new NumberExpression(token, (double) Math.round(hsva.s * 100), "%", null, Dimension.PERCENTAGE);
   }
 
   @Override
@@ -429,7 +434,7 @@ class HSVValue extends AbstractColorOperationFunction {
   @Override
   protected Expression evaluate(ColorExpression color, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
     HSVAValue hsva = toHSVA(color);
-    return new NumberExpression(token, Double.valueOf(Math.round(hsva.v * 100)), "%", null, Dimension.PERCENTAGE);
+    return new NumberExpression(token, (double) Math.round(hsva.v * 100), "%", null, Dimension.PERCENTAGE);
   }
 
   @Override
@@ -443,7 +448,7 @@ class Red extends AbstractColorOperationFunction {
 
   @Override
   protected Expression evaluate(ColorExpression color, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
-    return new NumberExpression(token, Double.valueOf(color.getRed()), "", null, Dimension.NUMBER);
+    return new NumberExpression(token, color.getRed(), "", null, Dimension.NUMBER);
   }
 
   @Override
@@ -457,7 +462,7 @@ class Green extends AbstractColorOperationFunction {
 
   @Override
   protected Expression evaluate(ColorExpression color, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
-    return new NumberExpression(token, Double.valueOf(color.getGreen()), "", null, Dimension.NUMBER);
+    return new NumberExpression(token, color.getGreen(), "", null, Dimension.NUMBER);
   }
 
   @Override
@@ -471,7 +476,7 @@ class Blue extends AbstractColorOperationFunction {
 
   @Override
   protected Expression evaluate(ColorExpression color, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
-    return new NumberExpression(token, Double.valueOf(color.getBlue()), "", null, Dimension.NUMBER);
+    return new NumberExpression(token, color.getBlue(), "", null, Dimension.NUMBER);
   }
 
   @Override
@@ -486,7 +491,7 @@ class Alpha extends CssNameClashMultiParameterFunction {
   @Override
   public Expression evaluate(List<Expression> parameters, ProblemsHandler problemsHandler, FunctionExpression call, Expression evaluatedParameter) {
     ColorExpression color = (ColorExpression) parameters.get(0);
-    return new NumberExpression(call.getUnderlyingStructure(), Double.valueOf(color.getAlpha()), "", null, Dimension.NUMBER);
+    return new NumberExpression(call.getUnderlyingStructure(), color.getAlpha(), "", null, Dimension.NUMBER);
   }
 
   @Override
@@ -523,7 +528,7 @@ class Luma extends AbstractColorOperationFunction {
 
     double luma = 0.2126 * r + 0.7152 * g + 0.0722 * b;
 
-    return new NumberExpression(token, Double.valueOf(round8(luma * color.getAlpha() * 100)), "%", null, Dimension.PERCENTAGE);
+    return new NumberExpression(token, round8(luma * color.getAlpha() * 100), "%", null, Dimension.PERCENTAGE);
   }
 
   @Override
@@ -539,7 +544,7 @@ class Luminance extends AbstractColorOperationFunction {
   protected Expression evaluate(ColorExpression color, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
     double luminance = ((0.2126 * (color.getRed() / 255.0) + 0.7152 * (color.getGreen() / 255.0) + 0.0722 * (color.getBlue() / 255.0)) * color.getAlpha() * 100);
 
-    return new NumberExpression(token, Double.valueOf(round8(luminance)), "%", null, Dimension.PERCENTAGE);
+    return new NumberExpression(token, round8(luminance), "%", null, Dimension.PERCENTAGE);
   }
 
   @Override
@@ -621,12 +626,12 @@ class Saturate extends CssNameClashMultiParameterFunction {
   }
 
   protected void applyAbsolute(NumberExpression amount, HSLAValue hsla) {
-    hsla.s += amount.getValueAsDouble() / 100.0f;
+    hsla.s += amount.doubleValue() / 100.0f;
     hsla.s = AbstractColorFunction.clamp(hsla.s);
   }
 
   protected void applyRelative(NumberExpression amount, HSLAValue hsla) {
-    hsla.s += hsla.s * amount.getValueAsDouble() / 100.0f;
+    hsla.s += hsla.s * amount.doubleValue() / 100.0f;
     hsla.s = AbstractColorFunction.clamp(hsla.s);
   }
 
@@ -665,13 +670,13 @@ class Desaturate extends AbstractColorHSLAmountFunction {
 
   @Override
   protected void applyAbsolute(NumberExpression amount, HSLAValue hsla) {
-    hsla.s -= amount.getValueAsDouble() / 100.0f;
+    hsla.s -= amount.doubleValue() / 100.0f;
     hsla.s = clamp(hsla.s);
   }
 
   @Override
   protected void applyRelative(NumberExpression amount, HSLAValue hsla) {
-    hsla.s -= hsla.s * amount.getValueAsDouble() / 100.0f;
+    hsla.s -= hsla.s * amount.doubleValue() / 100.0f;
     hsla.s = clamp(hsla.s);
   }
 
@@ -686,13 +691,13 @@ class Lighten extends AbstractColorHSLAmountFunction {
 
   @Override
   protected void applyAbsolute(NumberExpression amount, HSLAValue hsla) {
-    hsla.l += amount.getValueAsDouble() / 100.0f;
+    hsla.l += amount.doubleValue() / 100.0f;
     hsla.l = clamp(hsla.l);
   }
 
   @Override
   protected void applyRelative(NumberExpression amount, HSLAValue hsla) {
-    hsla.l += hsla.l * amount.getValueAsDouble() / 100.0f;
+    hsla.l += hsla.l * amount.doubleValue() / 100.0f;
     hsla.l = clamp(hsla.l);
   }
 
@@ -707,13 +712,13 @@ class Darken extends AbstractColorHSLAmountFunction {
 
   @Override
   protected void applyAbsolute(NumberExpression amount, HSLAValue hsla) {
-    hsla.l -= amount.getValueAsDouble() / 100.0f;
+    hsla.l -= amount.doubleValue() / 100.0f;
     hsla.l = clamp(hsla.l);
   }
 
   @Override
   protected void applyRelative(NumberExpression amount, HSLAValue hsla) {
-    hsla.l -= hsla.l * amount.getValueAsDouble() / 100.0f;
+    hsla.l -= hsla.l * amount.doubleValue() / 100.0f;
     hsla.l = clamp(hsla.l);
   }
 
@@ -728,13 +733,13 @@ class FadeIn extends AbstractColorHSLAmountFunction {
 
   @Override
   protected void applyAbsolute(NumberExpression amount, HSLAValue hsla) {
-    hsla.a += amount.getValueAsDouble() / 100.0f;
+    hsla.a += amount.doubleValue() / 100.0f;
     hsla.a = clamp(hsla.a);
   }
 
   @Override
   protected void applyRelative(NumberExpression amount, HSLAValue hsla) {
-    hsla.a += hsla.a * amount.getValueAsDouble() / 100.0f;
+    hsla.a += hsla.a * amount.doubleValue() / 100.0f;
     hsla.a = clamp(hsla.a);
   }
 
@@ -749,13 +754,13 @@ class FadeOut extends AbstractColorHSLAmountFunction {
 
   @Override
   protected void applyAbsolute(NumberExpression amount, HSLAValue hsla) {
-    hsla.a -= amount.getValueAsDouble() / 100.0f;
+    hsla.a -= amount.doubleValue() / 100.0f;
     hsla.a = clamp(hsla.a);
   }
 
   @Override
   protected void applyRelative(NumberExpression amount, HSLAValue hsla) {
-    hsla.a -= hsla.a * amount.getValueAsDouble() / 100.0f;
+    hsla.a -= hsla.a * amount.doubleValue() / 100.0f;
     hsla.a = clamp(hsla.a);
   }
 
@@ -782,7 +787,7 @@ class Fade extends AbstractColorAmountFunction {
   }
 
   protected void apply(NumberExpression amount, HSLAValue hsla) {
-    hsla.a = (amount.getValueAsDouble() / 100.0f);
+    hsla.a = (amount.doubleValue() / 100.0f);
     hsla.a = clamp(hsla.a);
   }
 
@@ -809,7 +814,7 @@ class Spin extends AbstractColorAmountFunction {
   }
 
   protected void apply(NumberExpression amount, HSLAValue hsla) {
-    double hue = ((hsla.h + amount.getValueAsDouble()) % 360);
+    double hue = ((hsla.h + amount.doubleValue()) % 360);
     hsla.h = hue < 0 ? 360 + hue : hue;
   }
 
@@ -833,7 +838,7 @@ class Mix extends AbstractColorFunction {
     NumberExpression weight = splitParameters.size() > 2 ? (NumberExpression) splitParameters.get(2) : null;
 
     if (weight == null) {
-      weight = new NumberExpression(token, Double.valueOf(50), "%", null, Dimension.PERCENTAGE);
+      weight = new NumberExpression(token, 50, "%", null, Dimension.PERCENTAGE);
     }
 
     return mix(color1, color2, weight, token);
@@ -1296,7 +1301,7 @@ abstract class AbstractColorFunction extends CatchAllMultiParameterFunction {
    * @return
    */
   protected static Expression mix(ColorExpression color1, ColorExpression color2, NumberExpression weight, HiddenTokenAwareTree token) {
-    double p = weight.getValueAsDouble() / 100.0;
+    double p = weight.doubleValue() / 100.0;
     double w = p * 2 - 1;
     double a = color1.getAlpha() - color2.getAlpha();
 
@@ -123,7 +123,7 @@ class ColorsCalculator {
       return ((ColorExpression) value).getRed();
     }
     
-    return ((NumberExpression) value).getValueAsDouble();
+    return ((NumberExpression) value).doubleValue();
   }
 
   private double calcGreen(Expression value) {
@@ -131,7 +131,7 @@ class ColorsCalculator {
       return ((ColorExpression) value).getGreen();
     }
     
-    return ((NumberExpression) value).getValueAsDouble();
+    return ((NumberExpression) value).doubleValue();
   }
 
   private double calcBlue(Expression value) {
@@ -139,7 +139,7 @@ class ColorsCalculator {
       return ((ColorExpression) value).getBlue();
     }
     
-    return ((NumberExpression) value).getValueAsDouble();
+    return ((NumberExpression) value).doubleValue();
   }
 
   private double calcAlpha(Expression value) {
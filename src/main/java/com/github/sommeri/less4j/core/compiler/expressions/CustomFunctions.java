@@ -1,10 +1,14 @@
 package com.github.sommeri.less4j.core.compiler.expressions;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.github.sommeri.less4j.LessFunction;
 import com.github.sommeri.less4j.LessProblems;
+import com.github.sommeri.less4j.ReadOnlyLessFunction;
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
 import com.github.sommeri.less4j.core.ast.Expression;
 import com.github.sommeri.less4j.core.ast.FaultyExpression;
@@ -16,32 +20,56 @@ public class CustomFunctions implements FunctionsPackage {
 
   private final ProblemsHandler problemsHandler;
   private List<LessFunction> functions;
+  private Map<String, List<LessFunction>> namedFunctions;
 
   public CustomFunctions(ProblemsHandler problemsHandler, List<LessFunction> functions) {
+    this(problemsHandler, functions, null);
+  }
+
+  public CustomFunctions(ProblemsHandler problemsHandler, List<LessFunction> functions, Map<String, List<LessFunction>> namedFunctions) {
     this.problemsHandler = problemsHandler;
     this.functions = functions == null ? new ArrayList<LessFunction>() : functions;
+    this.namedFunctions = namedFunctions == null ? new HashMap<String, List<LessFunction>>() : namedFunctions;
   }
 
   @Override
   public boolean canEvaluate(FunctionExpression input, List<Expression> parameters) {
-    for (LessFunction function : functions) {
-      if (function.canEvaluate(input, parameters))
-        return true;
-    }
-    return false;
+    return findFunction(input, parameters) != null;
   }
 
   @Override
   public Expression evaluate(FunctionExpression input, List<Expression> parameters, Expression evaluatedParameter) {
-    for (LessFunction function : functions) {
-      if (function.canEvaluate(input, parameters)) {
-        FunctionExpression inputClone = input.clone();
-        List<Expression> parametersClone = ArraysUtils.deeplyClonedList(parameters);
-        Expression evaluatedParameterClone = evaluatedParameter.clone();
-        return fixResult(function.evaluate(inputClone, parametersClone, evaluatedParameterClone, new SafeLessProblem(problemsHandler, inputClone)), input);
+    LessFunction function = findFunction(input, parameters);
+    if (function == null)
+      return new FaultyExpression(input);
+
+    if (function instanceof ReadOnlyLessFunction) {
+      List<Expression> readOnlyParameters = Collections.unmodifiableList(parameters);
+      return fixReadOnlyResult(function.evaluate(input, readOnlyParameters, evaluatedParameter, new SafeLessProblem(problemsHandler, input)), input);
+    }
+
+    FunctionExpression inputClone = input.clone();
+    List<Expression> parametersClone = ArraysUtils.deeplyClonedList(parameters);
+    Expression evaluatedParameterClone = evaluatedParameter.clone();
+    return fixResult(function.evaluate(inputClone, parametersClone, evaluatedParameterClone, new SafeLessProblem(problemsHandler, inputClone)), input);
+  }
+
+  private LessFunction findFunction(FunctionExpression input, List<Expression> parameters) {
+    if (!namedFunctions.isEmpty()) {
+      List<LessFunction> candidates = namedFunctions.get(input.getName().toLowerCase());
+      if (candidates != null) {
+        for (LessFunction function : candidates) {
+          if (function.canEvaluate(input, parameters))
+            return function;
+        }
       }
     }
-    return new FaultyExpression(input);
+
+    for (LessFunction function : functions) {
+      if (function.canEvaluate(input, parameters))
+        return function;
+    }
+    return null;
   }
 
   private Expression fixResult(Expression result, FunctionExpression input) {
@@ -52,6 +80,17 @@ public class CustomFunctions implements FunctionsPackage {
     return result;
   }
 
+  private Expression fixReadOnlyResult(Expression result, FunctionExpression input) {
+    if (result == null)
+      return new FaultyExpression(input);
+
+    // read only functions promise correct subtree, fixing just the top node is enough
+    if (result.getUnderlyingStructure() == null)
+      result.setUnderlyingStructure(input.getUnderlyingStructure());
+    result.configureParentToAllChilds();
+    return result;
+  }
+
   private void fixNode(ASTCssNode node, FunctionExpression input) {
     if (node.getUnderlyingStructure()==null)
       node.setUnderlyingStructure(input.getUnderlyingStructure());
@@ -90,7 +90,7 @@ public abstract class ExpressionComparator {
       NumberExpression patternClone = (NumberExpression) pattern.getExpression().clone();
 
       if (pattern.getSign() == Sign.MINUS)
-        patternClone.setValueAsDouble(patternClone.getValueAsDouble() * -1);
+        patternClone.negate();
 
       NumberExpression number = (NumberExpression) expression;
       return equalNumber(patternClone, number);
@@ -110,7 +110,17 @@ public abstract class ExpressionComparator {
     return value.equals(value2);
   }
 
-  protected boolean equals(Double value, Double value2) {
+  /**
+   * Compares first value with value of the second number. Missing values are equal only to each other.
+   */
+  protected boolean valueEquals(NumberExpression first, double firstValue, NumberExpression second) {
+    if (!first.hasValue() || !second.hasValue())
+      return first.hasValue() == second.hasValue();
+
+    return equals(firstValue, second.doubleValue());
+  }
+
+  protected boolean equals(double value, double value2) {
     return MathUtils.equals(value, value2);
   }
 
@@ -38,6 +38,8 @@ import com.github.sommeri.less4j.core.ast.RuleSet;
 import com.github.sommeri.less4j.core.ast.SignedExpression;
 import com.github.sommeri.less4j.core.ast.SignedExpression.Sign;
 import com.github.sommeri.less4j.core.ast.Variable;
+import com.github.sommeri.less4j.core.compiler.CompilationStatisticsCollector;
+import com.github.sommeri.less4j.core.compiler.NullCompilationStatisticsCollector;
 import com.github.sommeri.less4j.core.compiler.expressions.strings.StringInterpolator;
 import com.github.sommeri.less4j.core.compiler.scopes.IScope;
 import com.github.sommeri.less4j.core.compiler.scopes.NullScope;
@@ -61,22 +63,44 @@ public class ExpressionEvaluator {
   private StringInterpolator stringInterpolator;
   private StringInterpolator embeddedScriptInterpolator;
   private EmbeddedScriptGenerator embeddedScripting;
+  private final PureFunctionsCache functionsCache;
+  private final CompilationStatisticsCollector statistics;
 
   public ExpressionEvaluator(ProblemsHandler problemsHandler, Configuration configuration) {
     this(new NullScope(), problemsHandler, configuration);
   }
 
+  public ExpressionEvaluator(ProblemsHandler problemsHandler, Configuration configuration, PureFunctionsCache functionsCache) {
+    this(new NullScope(), problemsHandler, configuration, functionsCache);
+  }
+
   public ExpressionEvaluator(IScope scope, ProblemsHandler problemsHandler, Configuration configuration) {
+    this(scope, problemsHandler, configuration, null);
+  }
+
+  /**
+   * @param functionsCache - cache for results of pure built-in functions, <code>null</code> turns caching off.
+   */
+  public ExpressionEvaluator(IScope scope, ProblemsHandler problemsHandler, Configuration configuration, PureFunctionsCache functionsCache) {
+    this(scope, problemsHandler, configuration, functionsCache, NullCompilationStatisticsCollector.INSTANCE);
+  }
+
+  /**
+   * @param statistics - counts variable lookups and function calls.
+   */
+  public ExpressionEvaluator(IScope scope, ProblemsHandler problemsHandler, Configuration configuration, PureFunctionsCache functionsCache, CompilationStatisticsCollector statistics) {
     super();
     this.lazyScope = scope == null ? new NullScope() : scope;
     this.problemsHandler = problemsHandler;
+    this.functionsCache = functionsCache;
+    this.statistics = statistics;
     arithmeticCalculator = new ArithmeticCalculator(problemsHandler);
     colorsCalculator = new ColorsCalculator(problemsHandler);
     embeddedScripting = configuration.getEmbeddedScriptGenerator() == null ? new EmbeddedLessGenerator() : configuration.getEmbeddedScriptGenerator();
     stringInterpolator = new StringInterpolator(problemsHandler);
     embeddedScriptInterpolator = new StringInterpolator(embeddedScripting, problemsHandler);
 
-    functions.add(new CustomFunctions(problemsHandler, configuration.getCustomFunctions()));
+    functions.add(new CustomFunctions(problemsHandler, configuration.getCustomFunctions(), configuration.getNamedCustomFunctions()));
     functions.add(new MathFunctions(problemsHandler));
     functions.add(new StringFunctions(problemsHandler));
     functions.add(new ColorFunctions(problemsHandler));
@@ -148,11 +172,16 @@ public class ExpressionEvaluator {
       return new FaultyExpression(input);
     }
 
+    statistics.variableLookedUp();
     Expression expression = lazyScope.getValue(input);
     if (expression == null) {
       return handleUndefinedVariable(input, failOnUndefined);
     }
 
+    // fast path - evaluated value of a leaf is its copy, it can not reference other variables
+    if (isLeaf(expression))
+      return expression.clone();
+
     cycleDetector.enteringVariableValue(input);
     Expression result = evaluate(expression);
     cycleDetector.leftVariableValue();
@@ -222,6 +251,22 @@ public class ExpressionEvaluator {
     }
   }
 
+  private boolean isLeaf(Expression input) {
+    switch (input.getType()) {
+    case IDENTIFIER_EXPRESSION:
+    case COLOR_EXPRESSION:
+    case NUMBER:
+    case FAULTY_EXPRESSION:
+    case UNICODE_RANGE_EXPRESSION:
+    case EMPTY_EXPRESSION:
+    case ANONYMOUS:
+      return true;
+
+    default:
+      return false;
+    }
+  }
+
   private boolean booleanEvalueate(Expression input) {
     if (input.getType() == ASTCssNodeType.COMPARISON_EXPRESSION)
       return booleanEvalueate((ComparisonExpression) input);
@@ -260,21 +305,21 @@ public class ExpressionEvaluator {
     if (!leftE.convertibleTo(rightE))
       return false;
 
-    Double left = leftE.convertIfPossible(rightE.getSuffix()).getValueAsDouble();
-    Double right = rightE.getValueAsDouble();
+    double left = leftE.convertValueIfPossible(rightE.getSuffix());
+    double right = rightE.doubleValue();
 
     switch (operator.getOperator()) {
     case GREATER:
-      return left.compareTo(right) > 0;
+      return Double.compare(left, right) > 0;
 
     case GREATER_OR_EQUAL:
-      return left.compareTo(right) >= 0;
+      return Double.compare(left, right) >= 0;
 
     case LOWER_OR_EQUAL:
-      return left.compareTo(right) <= 0;
+      return Double.compare(left, right) <= 0;
 
     case LOWER:
-      return left.compareTo(right) < 0;
+      return Double.compare(left, right) < 0;
 
     default:
       throw new BugHappened("Unexpected comparison operator", operator);
@@ -287,8 +332,18 @@ public class ExpressionEvaluator {
 
     if (!input.isCssOnlyFunction()) {
       for (FunctionsPackage pack : functions) {
-        if (pack.canEvaluate(input, splitParameters))
-          return pack.evaluate(input, splitParameters, evaluatedParameter);
+        if (pack.canEvaluate(input, splitParameters)) {
+          statistics.functionCalled();
+          statistics.enterFunction(input.getName(), !(pack instanceof BuiltInFunctionsPack));
+          try {
+            if (isCacheable(pack, splitParameters))
+              return evaluateCached(pack, input, splitParameters, evaluatedParameter);
+
+            return pack.evaluate(input, splitParameters, evaluatedParameter);
+          } finally {
+            statistics.exit();
+          }
+        }
       }
     }
 
@@ -296,6 +351,40 @@ public class ExpressionEvaluator {
     return unknownFunction.evaluate(splitParameters, problemsHandler, input, evaluatedParameter);
   }
 
+  private boolean isCacheable(FunctionsPackage pack, List<Expression> parameters) {
+    return functionsCache != null && pack instanceof BuiltInFunctionsPack && ((BuiltInFunctionsPack) pack).isPure() && functionsCache.accepts(parameters);
+  }
+
+  private Expression evaluateCached(FunctionsPackage pack, FunctionExpression input, List<Expression> parameters, Expression evaluatedParameter) {
+    Expression cached = functionsCache.get(input, parameters, evaluatedParameter);
+    if (cached != null)
+      return cached;
+
+    int errors = problemsHandler.getErrors().size();
+    int warnings = problemsHandler.getWarnings().size();
+    Expression result = pack.evaluate(input, parameters, evaluatedParameter);
+    // calls that reported a problem are not cached - the problem must be reported again next time
+    if (errors == problemsHandler.getErrors().size() && warnings == problemsHandler.getWarnings().size())
+      functionsCache.put(input, parameters, evaluatedParameter, result);
+
+    return result;
+  }
+
+  /**
+   * Returns <code>true</code> if the function would be evaluated by a pure built-in function.
+   * Custom functions are never considered pure.
+   */
+  public boolean isPureFunction(FunctionExpression input, List<Expression> parameters) {
+    if (input.isCssOnlyFunction())
+      return false;
+
+    for (FunctionsPackage pack : functions) {
+      if (pack.canEvaluate(input, parameters))
+        return pack instanceof BuiltInFunctionsPack && ((BuiltInFunctionsPack) pack).isPure();
+    }
+    return false;
+  }
+
   public Expression evaluate(ListExpression input) {
     List<Expression> evaluated = new ArrayList<Expression>();
     for (Expression expression : input.getExpressions()) {
@@ -19,17 +19,15 @@ public class FormalisticExpressionComparator extends ExpressionComparator {
   }
 
   private boolean valueEq(NumberExpression n1, NumberExpression n2) {
-    return equals(n1.getValueAsDouble(), n2.getValueAsDouble());
+    return valueEquals(n1, n1.doubleValue(), n2);
   }
 
   private boolean suffixEq(NumberExpression n1, NumberExpression n2) {
     return equals(n1.getSuffix(), n2.getSuffix());
   }
 
-  protected boolean equals(Double value, Double value2) {
-    if (value == null || value2==null)
-      return value2 == null && value==null;
-
-    return value.compareTo(value2) == 0;
+  @Override
+  protected boolean equals(double value, double value2) {
+    return Double.compare(value, value2) == 0;
   }
 }
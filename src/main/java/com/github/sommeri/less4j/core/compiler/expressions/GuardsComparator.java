@@ -12,8 +12,8 @@ public class GuardsComparator extends ExpressionComparator {
     if (!pattern.convertibleTo(numberExpression))
       return false;
 
-    NumberExpression value = pattern.convertIfPossible(numberExpression.getSuffix());
-    return equals(value.getValueAsDouble(), numberExpression.getValueAsDouble());
+    double value = pattern.convertValueIfPossible(numberExpression.getSuffix());
+    return valueEquals(pattern, value, numberExpression);
   }
 
   @Override
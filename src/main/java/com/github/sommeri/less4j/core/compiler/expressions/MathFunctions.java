@@ -65,6 +65,11 @@ public class MathFunctions extends BuiltInFunctionsPack {
     super(problemsHandler);
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
   @Override
   protected Map<String, Function> getFunctions() {
     return FUNCTIONS;
@@ -95,19 +100,19 @@ class Percentage extends AbstractFunction {
   }
 
   private Expression evaluate(CssString parameter, ProblemsHandler problemsHandler) {
-    Double value = utils.toDouble(parameter);
-    if (value.isNaN())
+    double value = utils.toDouble(parameter);
+    if (Double.isNaN(value))
       problemsHandler.mathFunctionParameterNotANumberWarn(MathFunctions.PERCENTAGE, parameter);
 
     return createResult(value, parameter.getUnderlyingStructure());
   }
 
   private Expression evaluate(NumberExpression parameter) {
-    return createResult(parameter.getValueAsDouble(), parameter.getUnderlyingStructure());
+    return createResult(parameter.doubleValue(), parameter.getUnderlyingStructure());
   }
 
-  private Expression createResult(Double originalValue, HiddenTokenAwareTree parentToken) {
-    Double value = originalValue * 100.0;
+  private Expression createResult(double originalValue, HiddenTokenAwareTree parentToken) {
+    double value = originalValue * 100.0;
 
     return new NumberExpression(parentToken, value, "%", null, Dimension.PERCENTAGE);
   }
@@ -133,17 +138,17 @@ abstract class AbstractSingleValueMathFunction implements Function {
 
     NumberExpression parameter = (NumberExpression) iParameter;
     HiddenTokenAwareTree parentToken = parameter.getUnderlyingStructure();
-    Double oValue = parameter.getValueAsDouble();
+    double oValue = parameter.doubleValue();
     String suffix = parameter.getSuffix();
     Dimension dimension = parameter.getDimension();
     
-    if (oValue.isInfinite() || oValue.isNaN())
+    if (Double.isInfinite(oValue) || Double.isNaN(oValue))
       return new NumberExpression(parentToken, oValue, suffix, null, dimension);
 
     return calc(parentToken, oValue, suffix, dimension);
   }
   
-  protected Expression calc(HiddenTokenAwareTree parentToken, Double oValue, String suffix, Dimension dimension) {
+  protected Expression calc(HiddenTokenAwareTree parentToken, double oValue, String suffix, Dimension dimension) {
     return new NumberExpression(parentToken, calc(oValue, suffix, dimension), resultSuffix(suffix, dimension),
 	null, resultDimension(suffix, dimension));
   }
@@ -390,7 +395,7 @@ class Mod extends AbtractMultiParameterMathFunction {
   protected Expression evaluate(List<Expression> splitParameters, ProblemsHandler problemsHandler, FunctionExpression functionCall, HiddenTokenAwareTree token) {
     NumberExpression a = (NumberExpression) splitParameters.get(0);
     NumberExpression b = (NumberExpression) splitParameters.get(1);
-    return new NumberExpression(token, a.getValueAsDouble() % b.getValueAsDouble(), a.getSuffix(), null, a.getDimension());
+    return new NumberExpression(token, a.doubleValue() % b.doubleValue(), a.getSuffix(), null, a.getDimension());
   }
 
   @Override
@@ -419,7 +424,7 @@ class Pow extends AbstractTwoValueMathFunction {
 
   @Override
   protected Expression evaluate(NumberExpression a, NumberExpression b, ProblemsHandler problemsHandler, HiddenTokenAwareTree token) {
-    return new NumberExpression(token, Math.pow(a.getValueAsDouble(), b.getValueAsDouble()), a.getSuffix(), null, a.getDimension());
+    return new NumberExpression(token, Math.pow(a.doubleValue(), b.doubleValue()), a.getSuffix(), null, a.getDimension());
   }
 
   @Override
@@ -460,16 +465,16 @@ class Round extends AbtractMultiParameterMathFunction {
   @Override
   protected Expression evaluate(List<Expression> splitParameters, ProblemsHandler problemsHandler, FunctionExpression functionCall, HiddenTokenAwareTree parentToken) {
     NumberExpression parameter = (NumberExpression) splitParameters.get(0);
-    Double oValue = parameter.getValueAsDouble();
+    double oValue = parameter.doubleValue();
     String suffix = parameter.getSuffix();
     Dimension dimension = parameter.getDimension();
     
-    if (oValue.isInfinite() || oValue.isNaN())
+    if (Double.isInfinite(oValue) || Double.isNaN(oValue))
       return new NumberExpression(parentToken, oValue, suffix, null, dimension);
 
     NumberExpression fraction = (NumberExpression) (splitParameters.size() > 1 ? splitParameters.get(1) : null);
     if (fraction != null) {
-      double pow = Math.pow(10, fraction.getValueAsDouble());
+      double pow = Math.pow(10, fraction.doubleValue());
       oValue = Math.round(oValue * pow) / pow;
     } else {
       oValue = (double) Math.round(oValue);
@@ -583,8 +588,7 @@ class Min extends MinMax {
   }
 
   protected NumberExpression compareCompatible(NumberExpression first, NumberExpression second) {
-    NumberExpression secondConverted = second.convertIfPossible(first.getSuffix());
-    if (secondConverted.getValueAsDouble()<first.getValueAsDouble())
+    if (second.convertValueIfPossible(first.getSuffix()) < first.doubleValue())
       return second;
     
     return first;
@@ -600,8 +604,7 @@ class Max extends MinMax {
   }
 
   protected NumberExpression compareCompatible(NumberExpression first, NumberExpression second) {
-    NumberExpression secondConverted = second.convertIfPossible(first.getSuffix());
-    if (secondConverted.getValueAsDouble()>first.getValueAsDouble())
+    if (second.convertValueIfPossible(first.getSuffix()) > first.doubleValue())
       return second;
     
     return first;
@@ -620,11 +623,11 @@ class Length extends AbtractMultiParameterMathFunction {
   protected Expression evaluate(List<Expression> splitParameters, ProblemsHandler problemsHandler, FunctionExpression call, HiddenTokenAwareTree token) {
     Expression expression = splitParameters.get(0);
     if (expression.getType()!=ASTCssNodeType.LIST_EXPRESSION)
-      return new NumberExpression(call.getUnderlyingStructure(), Double.valueOf(1), "", null, Dimension.NUMBER);
+      return new NumberExpression(call.getUnderlyingStructure(), 1.0, "", null, Dimension.NUMBER);
     
     ListExpression list = (ListExpression) expression;
     int length = list.getExpressions().size();
-    return new NumberExpression(call.getUnderlyingStructure(), Double.valueOf(length), "", null, Dimension.NUMBER);
+    return new NumberExpression(call.getUnderlyingStructure(), length, "", null, Dimension.NUMBER);
   }
 
   @Override
@@ -138,7 +138,7 @@ class Unit extends CatchAllMultiParameterFunction {
       newDimension = Dimension.NUMBER;
     }
 
-    return new NumberExpression(token, dimension.getValueAsDouble(), newSuffix, null, newDimension);
+    return new NumberExpression(token, dimension.doubleValue(), newSuffix, null, newDimension);
   }
 
   @Override
@@ -251,10 +251,10 @@ class Extract extends CatchAllMultiParameterFunction {
     NumberExpression index = (NumberExpression) splitParameters.get(1);
     if (isList(firstParameter)) {
       List<Expression> values = collect((ListExpression) firstParameter);
-      return values.get(index.getValueAsDouble().intValue() - 1);
+      return values.get((int) index.doubleValue() - 1);
     }
     
-    if (MathUtils.equals(index.getValueAsDouble(), 1.0)) {
+    if (MathUtils.equals(index.doubleValue(), 1.0)) {
       return firstParameter;
     }
     
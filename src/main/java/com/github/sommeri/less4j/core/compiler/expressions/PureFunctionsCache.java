@@ -0,0 +1,227 @@
+package com.github.sommeri.less4j.core.compiler.expressions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ColorExpression;
+import com.github.sommeri.less4j.core.ast.Expression;
+import com.github.sommeri.less4j.core.ast.FunctionExpression;
+import com.github.sommeri.less4j.core.parser.HiddenTokenAwareTree;
+
+/**
+ * Remembers results of pure built-in functions called with the same arguments. One cache
+ * is shared by all expression evaluators of a single compilation.
+ *
+ * Only calls whose arguments are numbers, colors and identifiers are cached. Arguments are
+ * compared by {@link FormalisticExpressionComparator} and must also have the same type and
+ * printed form, so the cached result is exactly what the function would return. Colors must
+ * also have exactly the same channels - printed form is rounded, but functions compute with
+ * unrounded channels.
+ *
+ * Cached result is returned as a clone with underlying structure taken from the current call,
+ * so error messages and source maps are the same as if the function was evaluated again.
+ *
+ */
+public class PureFunctionsCache {
+
+  public static final int DEFAULT_MAXIMUM_SIZE = 2000;
+
+  private static final int CALL_TOKEN = -1;
+  private static final int EVALUATED_PARAMETER_TOKEN = -2;
+
+  private final FormalisticExpressionComparator comparator = new FormalisticExpressionComparator();
+  private final Map<Key, CachedResult> results;
+  private int hits = 0;
+  private int misses = 0;
+
+  public PureFunctionsCache() {
+    this(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  public PureFunctionsCache(final int maximumSize) {
+    results = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+        return size() > maximumSize;
+      }
+
+    };
+  }
+
+  /**
+   * Returns <code>true</code> if results of the call with these parameters can be cached.
+   */
+  public boolean accepts(List<Expression> parameters) {
+    for (Expression parameter : parameters) {
+      switch (parameter.getType()) {
+      case NUMBER:
+      case COLOR_EXPRESSION:
+      case IDENTIFIER_EXPRESSION:
+        break;
+
+      default:
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns result of previous call with equal parameters or <code>null</code>. Both hit and
+   * miss are counted.
+   */
+  public Expression get(FunctionExpression input, List<Expression> parameters, Expression evaluatedParameter) {
+    CachedResult cached = results.get(new Key(input, parameters));
+    if (cached == null) {
+      misses++;
+      return null;
+    }
+
+    hits++;
+    Expression result = cached.value.clone();
+    result.setUnderlyingStructure(tokenSource(cached.tokenSource, input, parameters, evaluatedParameter).getUnderlyingStructure());
+    return result;
+  }
+
+  /**
+   * Stores result of the function call. Results which could not be faithfully reproduced from the
+   * cache are ignored.
+   */
+  public void put(FunctionExpression input, List<Expression> parameters, Expression evaluatedParameter, Expression result) {
+    if (result == null || !result.getChilds().isEmpty() || hasComments(result))
+      return;
+
+    int tokenSource = findTokenSource(result.getUnderlyingStructure(), input, parameters, evaluatedParameter);
+    if (tokenSource == Integer.MIN_VALUE)
+      return;
+
+    List<Expression> keyParameters = new ArrayList<Expression>(parameters.size());
+    for (Expression parameter : parameters) {
+      keyParameters.add(parameter.clone());
+    }
+    results.put(new Key(input, keyParameters), new CachedResult(result.clone(), tokenSource));
+  }
+
+  public int getHits() {
+    return hits;
+  }
+
+  public int getMisses() {
+    return misses;
+  }
+
+  public int size() {
+    return results.size();
+  }
+
+  private boolean hasComments(Expression result) {
+    return !result.getOpeningComments().isEmpty() || !result.getOrphanComments().isEmpty() || !result.getTrailingComments().isEmpty();
+  }
+
+  private int findTokenSource(HiddenTokenAwareTree token, FunctionExpression input, List<Expression> parameters, Expression evaluatedParameter) {
+    if (token == input.getUnderlyingStructure())
+      return CALL_TOKEN;
+
+    for (int i = 0; i < parameters.size(); i++) {
+      if (token == parameters.get(i).getUnderlyingStructure())
+        return i;
+    }
+
+    if (token == evaluatedParameter.getUnderlyingStructure())
+      return EVALUATED_PARAMETER_TOKEN;
+
+    return Integer.MIN_VALUE;
+  }
+
+  private ASTCssNode tokenSource(int tokenSource, FunctionExpression input, List<Expression> parameters, Expression evaluatedParameter) {
+    switch (tokenSource) {
+    case CALL_TOKEN:
+      return input;
+
+    case EVALUATED_PARAMETER_TOKEN:
+      return evaluatedParameter;
+
+    default:
+      return parameters.get(tokenSource);
+    }
+  }
+
+  private static class CachedResult {
+
+    private final Expression value;
+    private final int tokenSource;
+
+    public CachedResult(Expression value, int tokenSource) {
+      this.value = value;
+      this.tokenSource = tokenSource;
+    }
+
+  }
+
+  private class Key {
+
+    private final String name;
+    private final List<Expression> parameters;
+    private final int hashCode;
+
+    public Key(FunctionExpression input, List<Expression> parameters) {
+      this.name = input.getName().toLowerCase();
+      this.parameters = parameters;
+      this.hashCode = computeHashCode();
+    }
+
+    private int computeHashCode() {
+      int result = name.hashCode();
+      for (Expression parameter : parameters) {
+        result = 31 * result + parameter.getClass().hashCode();
+        result = 31 * result + parameter.toString().hashCode();
+      }
+      return result;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Key))
+        return false;
+
+      Key other = (Key) obj;
+      if (hashCode != other.hashCode || !name.equals(other.name) || parameters.size() != other.parameters.size())
+        return false;
+
+      for (int i = 0; i < parameters.size(); i++) {
+        if (!equalParameters(parameters.get(i), other.parameters.get(i)))
+          return false;
+      }
+      return true;
+    }
+
+    private boolean equalParameters(Expression first, Expression second) {
+      return first.getClass() == second.getClass() && first.toString().equals(second.toString()) && comparator.equal(first, second) && equalChannels(first, second);
+    }
+
+    private boolean equalChannels(Expression first, Expression second) {
+      if (!(first instanceof ColorExpression))
+        return true;
+
+      ColorExpression firstColor = (ColorExpression) first;
+      ColorExpression secondColor = (ColorExpression) second;
+      return Double.compare(firstColor.getRed(), secondColor.getRed()) == 0 && Double.compare(firstColor.getGreen(), secondColor.getGreen()) == 0 //
+          && Double.compare(firstColor.getBlue(), secondColor.getBlue()) == 0 && Double.compare(firstColor.getAlpha(), secondColor.getAlpha()) == 0;
+    }
+
+  }
+
+}
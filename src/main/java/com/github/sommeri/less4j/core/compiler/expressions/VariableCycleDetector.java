@@ -1,32 +1,50 @@
 package com.github.sommeri.less4j.core.compiler.expressions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Stack;
 
 import com.github.sommeri.less4j.core.ast.Variable;
 
 public class VariableCycleDetector {
 
   // since names are evaluated lazily, we can ignore the scope and consider variable name only
-  private Stack<String> names = new Stack<String>();
-  private Stack<Variable> variables = new Stack<Variable>();
+  private final List<Variable> variables = new ArrayList<Variable>();
+  // names of variables under evaluation are kept also in open addressing hash table - the membership 
+  // test takes constant time and neither entering nor leaving variable allocates
+  private String[] names = new String[16];
+  private int[] slots = new int[8];
 
   protected VariableCycleDetector() {
   }
 
   public boolean wouldCycle(Variable input) {
-    return names.contains(input.getName());
+    String name = input.getName();
+    int mask = names.length - 1;
+    for (int i = hash(name) & mask; names[i] != null; i = (i + 1) & mask) {
+      if (names[i].equals(name))
+        return true;
+    }
+    return false;
   }
   
   public void leftVariableValue() {
-    names.pop();
-    variables.pop();
+    int depth = variables.size() - 1;
+    variables.remove(depth);
+    // variables are left in reverse order of entering, so no name remaining in the
+    // table was placed behind this slot and it is safe to just clear it
+    names[slots[depth]] = null;
   }
 
   public void enteringVariableValue(Variable input) {
-    names.add(input.getName());
+    int depth = variables.size();
+    if ((depth + 1) * 2 > names.length)
+      rehash(names.length * 2);
+    if (depth == slots.length)
+      slots = Arrays.copyOf(slots, depth * 2);
+
+    slots[depth] = insert(input.getName());
     variables.add(input);
   }
 
@@ -34,10 +52,35 @@ public class VariableCycleDetector {
     if (!wouldCycle(input))
       return Collections.emptyList();
     
-    int position = names.indexOf(input.getName());
+    int position = 0;
+    while (!variables.get(position).getName().equals(input.getName()))
+      position++;
+
     List<Variable> result = new ArrayList<Variable>(variables.subList(position, variables.size()));
     result.add(input);
     return result;
   }
 
+  private int insert(String name) {
+    int mask = names.length - 1;
+    int i = hash(name) & mask;
+    while (names[i] != null)
+      i = (i + 1) & mask;
+
+    names[i] = name;
+    return i;
+  }
+
+  private void rehash(int capacity) {
+    names = new String[capacity];
+    for (int depth = 0; depth < variables.size(); depth++) {
+      slots[depth] = insert(variables.get(depth).getName());
+    }
+  }
+
+  private static int hash(String name) {
+    int hash = name.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
 }
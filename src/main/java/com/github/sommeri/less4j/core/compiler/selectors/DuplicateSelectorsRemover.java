@@ -0,0 +1,119 @@
+package com.github.sommeri.less4j.core.compiler.selectors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
+import com.github.sommeri.less4j.core.ast.ElementSubsequent;
+import com.github.sommeri.less4j.core.ast.Expression;
+import com.github.sommeri.less4j.core.ast.PseudoClass;
+import com.github.sommeri.less4j.core.ast.Selector;
+import com.github.sommeri.less4j.core.ast.SelectorPart;
+import com.github.sommeri.less4j.utils.ArraysUtils;
+
+/**
+ * Removes repeated selectors from selectors list, the first occurrence is kept. Selectors
+ * are duplicate if they are equal according to {@link GeneralComparatorForExtend} in both
+ * directions and have the same visibility. Selectors with extends, comments or parts that
+ * are not simple selectors are always kept.
+ *
+ * Nested rulesets multiply selectors of their parents, removing duplicates as soon as
+ * rulesets are joined keeps them from multiplying in each nesting level.
+ */
+public class DuplicateSelectorsRemover {
+
+  private GeneralComparatorForExtend comparator;
+
+  public List<Selector> removeDuplicates(List<Selector> selectors) {
+    if (selectors.size() < 2)
+      return selectors;
+
+    // performance optimization - most lists have no duplicates, create the result only when needed
+    List<Selector> result = null;
+    Map<String, List<Selector>> byKey = new HashMap<String, List<Selector>>();
+    for (int i = 0; i < selectors.size(); i++) {
+      Selector selector = selectors.get(i);
+      String key = key(selector);
+      if (key != null) {
+        List<Selector> sameKey = byKey.get(key);
+        if (sameKey == null) {
+          sameKey = new ArrayList<Selector>(1);
+          byKey.put(key, sameKey);
+        }
+        if (containsEqual(sameKey, selector)) {
+          if (result == null)
+            result = new ArrayList<Selector>(selectors.subList(0, i));
+          selector.setParent(null);
+          continue;
+        }
+        sameKey.add(selector);
+      }
+      if (result != null)
+        result.add(selector);
+    }
+    return result == null ? selectors : result;
+  }
+
+  private boolean containsEqual(List<Selector> candidates, Selector selector) {
+    for (Selector candidate : candidates) {
+      if (getComparator().equals(candidate, selector) && getComparator().equals(selector, candidate))
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns cheap key such that equal selectors have equal keys or <code>null</code> if the
+   * selector should not be removed.
+   */
+  private String key(Selector selector) {
+    List<SelectorPart> parts = selector.getParts();
+    if (parts.isEmpty() || selector.isExtending() || !isRemovable(selector))
+      return null;
+
+    SelectorPart last = ArraysUtils.last(parts);
+    String lastKey = "";
+    if (last.hasSubsequent()) {
+      ElementSubsequent subsequent = last.getLastSubsequent();
+      lastKey = subsequent.getType() + ":" + subsequent.getFullName();
+    } else if (last.hasElement()) {
+      lastKey = last.getElementName().getName();
+    }
+    return selector.getVisibility() + " " + parts.size() + " " + lastKey;
+  }
+
+  private boolean isRemovable(ASTCssNode node) {
+    if (node.hasComments())
+      return false;
+
+    if (node instanceof SelectorPart && node.getType() != ASTCssNodeType.SIMPLE_SELECTOR)
+      return false;
+
+    if (node.getType() == ASTCssNodeType.PSEUDO_CLASS && !isComparable(((PseudoClass) node).getParameter()))
+      return false;
+
+    for (ASTCssNode kid : node.getChilds()) {
+      if (!isRemovable(kid))
+        return false;
+    }
+    return true;
+  }
+
+  private boolean isComparable(ASTCssNode parameter) {
+    if (parameter == null || parameter instanceof Expression)
+      return true;
+
+    return parameter.getType() == ASTCssNodeType.SELECTOR || parameter.getType() == ASTCssNodeType.NTH;
+  }
+
+  private GeneralComparatorForExtend getComparator() {
+    // performance optimization - create the comparator only when it is needed
+    if (comparator == null)
+      comparator = new GeneralComparatorForExtend();
+    return comparator;
+  }
+
+}
@@ -2,9 +2,19 @@ package com.github.sommeri.less4j.core.compiler.selectors;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
 import com.github.sommeri.less4j.core.ast.ASTCssNode.Visibility;
@@ -13,23 +23,64 @@ import com.github.sommeri.less4j.core.ast.Extend;
 import com.github.sommeri.less4j.core.ast.MultiTargetExtend;
 import com.github.sommeri.less4j.core.ast.RuleSet;
 import com.github.sommeri.less4j.core.ast.Selector;
+import com.github.sommeri.less4j.core.compiler.CompilationInterrupted;
 import com.github.sommeri.less4j.core.compiler.stages.ASTManipulator;
 import com.github.sommeri.less4j.utils.ArraysUtils;
 import com.github.sommeri.less4j.utils.Couple;
 
+/**
+ * Solves both inline and body extends. Extending selectors are processed in the order in which
+ * they are in the style sheet.
+ *
+ * Selectors inside media are able to extend only rulesets inside the same media. If the solver
+ * is created with more than one thread, consecutive extending selectors located in different
+ * media are matched in parallel, each media by its own thread. Found extends are then performed
+ * by the calling thread in the original order, so the result is the same as in serial mode.
+ * Extending selectors located directly in style sheet can extend anything and are always
+ * solved serially.
+ */
 public class ExtendsSolver {
 
   private GeneralComparatorForExtend comparator = new GeneralComparatorForExtend();
   private ASTManipulator manipulator = new ASTManipulator();
 
   private List<RuleSet> allRulesets = new ArrayList<RuleSet>();
+  private ExtendsTargetsIndex rulesetsIndex = new ExtendsTargetsIndex();
   private List<Selector> inlineExtends = new ArrayList<Selector>();
 
   private PerformedExtendsDB performedExtends = new PerformedExtendsDB();
 
+  private final int threads;
+  private int addedSelectors = 0;
+
+  public ExtendsSolver() {
+    this(1);
+  }
+
+  public ExtendsSolver(int threads) {
+    this.threads = threads;
+  }
+
   public void solveExtends(ASTCssNode node) {
     collectRulesets(node);
-    solveInlineExtends();
+    if (inlineExtends.isEmpty())
+      return;
+
+    for (RuleSet ruleSet : allRulesets) {
+      rulesetsIndex.add(ruleSet);
+    }
+    if (threads > 1) {
+      solveInlineExtendsInParallel();
+    } else {
+      solveInlineExtends();
+    }
+  }
+
+  /**
+   * Number of selectors added to extended rulesets.
+   */
+  public int getAddedSelectors() {
+    return addedSelectors;
   }
 
   private void solveInlineExtends() {
@@ -39,13 +90,22 @@ public class ExtendsSolver {
   }
 
   private void solveInlineExtends(Selector extendingSelector) {
+    List<ExtendRefs> doExtends = findExtends(extendingSelector, comparator);
+    performExtends(extendingSelector, doExtends);
+  }
+
+  private List<ExtendRefs> findExtends(Selector extendingSelector, GeneralComparatorForExtend comparator) {
     // performance optimization - create the array only when it is needed
     // this came out of profiling and is worth keeping this way
     ArrayList<ExtendRefs> doExtends = null;
-    for (RuleSet ruleSet : allRulesets) {
+    for (RuleSet ruleSet : rulesetsIndex.findCandidates(extendingSelector)) {
+      // canExtend would refuse them anyway, skip them before expensive selectors comparison
+      if (!compatibleMediaLocation(extendingSelector, ruleSet))
+        continue;
+
       for (Selector targetSelector : ruleSet.getSelectors()) {
-        Selector newSelector = constructNewSelector(extendingSelector, targetSelector);
-        if (newSelector != null && canExtend(extendingSelector, newSelector, ruleSet)) {
+        Selector newSelector = constructNewSelector(extendingSelector, targetSelector, comparator);
+        if (newSelector != null && canExtend(extendingSelector, newSelector, ruleSet, comparator)) {
           if (doExtends == null) {
             doExtends = new ArrayList<ExtendRefs>();
           }
@@ -53,6 +113,10 @@ public class ExtendsSolver {
         }
       }
     }
+    return doExtends;
+  }
+
+  private void performExtends(Selector extendingSelector, List<ExtendRefs> doExtends) {
     if (doExtends != null) {
       for (ExtendRefs refs : doExtends) {
         doTheExtend(extendingSelector, refs.newSelector, refs.ruleSet, refs.targetSelector);
@@ -60,8 +124,120 @@ public class ExtendsSolver {
     }
   }
 
+  private void solveInlineExtendsInParallel() {
+    ExecutorService executor = null;
+    try {
+      int start = 0;
+      while (start < inlineExtends.size()) {
+        if (findMediaOwner(inlineExtends.get(start)) == null) {
+          solveInlineExtends(inlineExtends.get(start));
+          start++;
+          continue;
+        }
+
+        int end = start;
+        while (end < inlineExtends.size() && findMediaOwner(inlineExtends.get(end)) != null) {
+          end++;
+        }
+        if (executor == null) {
+          executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+        }
+        solveInMediaInParallel(inlineExtends.subList(start, end), executor);
+        start = end;
+      }
+    } finally {
+      if (executor != null)
+        executor.shutdown();
+    }
+  }
+
+  /**
+   * All selectors are located inside media. Selectors are split by their media, each round
+   * takes the first remaining selector of each media. Selectors of one round can not influence
+   * each other, so they are matched in parallel and then extended in the original order.
+   */
+  private void solveInMediaInParallel(List<Selector> selectors, ExecutorService executor) {
+    Map<ASTCssNode, LinkedList<Integer>> byMedia = new LinkedHashMap<ASTCssNode, LinkedList<Integer>>();
+    for (int i = 0; i < selectors.size(); i++) {
+      ASTCssNode media = findMediaOwner(selectors.get(i));
+      LinkedList<Integer> mediaSelectors = byMedia.get(media);
+      if (mediaSelectors == null) {
+        mediaSelectors = new LinkedList<Integer>();
+        byMedia.put(media, mediaSelectors);
+      }
+      mediaSelectors.add(i);
+    }
+
+    while (!byMedia.isEmpty()) {
+      List<Integer> round = new ArrayList<Integer>();
+      Iterator<LinkedList<Integer>> iterator = byMedia.values().iterator();
+      while (iterator.hasNext()) {
+        LinkedList<Integer> mediaSelectors = iterator.next();
+        round.add(mediaSelectors.removeFirst());
+        if (mediaSelectors.isEmpty())
+          iterator.remove();
+      }
+      Collections.sort(round);
+      solveRound(selectors, round, executor);
+    }
+  }
+
+  private void solveRound(List<Selector> selectors, List<Integer> round, ExecutorService executor) {
+    if (round.size() == 1) {
+      solveInlineExtends(selectors.get(round.get(0)));
+      return;
+    }
+
+    List<Future<List<ExtendRefs>>> found = new ArrayList<Future<List<ExtendRefs>>>(round.size());
+    for (Integer index : round) {
+      final Selector extendingSelector = selectors.get(index);
+      found.add(executor.submit(new Callable<List<ExtendRefs>>() {
+        public List<ExtendRefs> call() {
+          // comparators are cheap to create and keeping them thread local is safer
+          return findExtends(extendingSelector, new GeneralComparatorForExtend());
+        }
+      }));
+    }
+
+    // matching reads rulesets of all media, nothing can be changed until all threads are done
+    List<List<ExtendRefs>> doExtends = new ArrayList<List<ExtendRefs>>(round.size());
+    for (Future<List<ExtendRefs>> future : found) {
+      doExtends.add(waitFor(future));
+    }
+    for (int i = 0; i < round.size(); i++) {
+      performExtends(selectors.get(round.get(i)), doExtends.get(i));
+    }
+  }
+
+  private List<ExtendRefs> waitFor(Future<List<ExtendRefs>> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompilationInterrupted(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+
+      if (cause instanceof Error)
+        throw (Error) cause;
+
+      throw new RuntimeException("Unexpected state, this should not be possible", cause);
+    }
+  }
+
+  private ASTCssNode findMediaOwner(Selector extendingSelector) {
+    ASTCssNode owner = findOwnerNode(extendingSelector);
+    if (owner == null || owner.getType() == ASTCssNodeType.STYLE_SHEET)
+      return null;
+
+    return owner;
+  }
+
    private void doTheExtend(Selector originalExtendingSelector, Selector addSelector, RuleSet target, Selector targetSelector) {
     addSelector(target, addSelector);
+    addedSelectors++;
 
     performedExtends.register(targetSelector, originalExtendingSelector, addSelector.getVisibility());
 
@@ -87,11 +263,11 @@ public class ExtendsSolver {
   }
 
   private boolean canExtend(Selector extendingSelector, RuleSet targetRuleSet) {
-    return canExtend(extendingSelector, extendingSelector, targetRuleSet);
+    return canExtend(extendingSelector, extendingSelector, targetRuleSet, comparator);
   }
 
-  private boolean canExtend(Selector extendingSelector, Selector newSelector, RuleSet targetRuleSet) {
-    if (containsSelector(newSelector, targetRuleSet)) {
+  private boolean canExtend(Selector extendingSelector, Selector newSelector, RuleSet targetRuleSet, GeneralComparatorForExtend comparator) {
+    if (containsSelector(newSelector, targetRuleSet, comparator)) {
       return false;
     }
 
@@ -108,7 +284,7 @@ public class ExtendsSolver {
     return result;
   }
 
-  private boolean containsSelector(Selector extendingSelector, RuleSet targetRuleSet) {
+  private boolean containsSelector(Selector extendingSelector, RuleSet targetRuleSet, GeneralComparatorForExtend comparator) {
     for (Selector selector : targetRuleSet.getSelectors()) {
       // if (comparator.contains(selector, extendingSelector))
       if (comparator.equals(selector, extendingSelector))
@@ -124,6 +300,7 @@ public class ExtendsSolver {
   private void addSelector(RuleSet ruleSet, Selector selector) {
     selector.setParent(ruleSet);
     ruleSet.addSelector(selector);
+    rulesetsIndex.selectorAdded(ruleSet, selector);
 
     if (selector.getVisibility() == Visibility.VISIBLE) {
       //visibility of children
@@ -147,7 +324,7 @@ public class ExtendsSolver {
 
   }
 
-  private Selector constructNewSelector(Selector extending, Selector possibleTarget) {
+  private Selector constructNewSelector(Selector extending, Selector possibleTarget, GeneralComparatorForExtend comparator) {
     if (possibleTarget == extending)
       return null;
 
@@ -245,6 +422,19 @@ public class ExtendsSolver {
     
   }
 
+  private static class DaemonThreadFactory implements ThreadFactory {
+
+    private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = defaultFactory.newThread(runnable);
+      thread.setDaemon(true);
+      return thread;
+    }
+
+  }
+
   private static class PerformedExtendsDB {
 
     private Map<Selector, List<PerformedExtend>> allSelectorExtends = new HashMap<Selector, List<PerformedExtend>>();
@@ -0,0 +1,185 @@
+package com.github.sommeri.less4j.core.compiler.selectors;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
+import com.github.sommeri.less4j.core.ast.ElementSubsequent;
+import com.github.sommeri.less4j.core.ast.Extend;
+import com.github.sommeri.less4j.core.ast.RuleSet;
+import com.github.sommeri.less4j.core.ast.Selector;
+import com.github.sommeri.less4j.core.ast.SelectorPart;
+import com.github.sommeri.less4j.utils.ArraysUtils;
+
+/**
+ * Inverted index from selector keys to rulesets. It is used to find rulesets that can
+ * possibly be extended by an extend, so the full {@link GeneralComparatorForExtend}
+ * comparison runs only on them.
+ *
+ * Key of a simple selector is its last element subsequent (class, id, pseudo, attribute)
+ * or its element name if it has no subsequent. Extend without <code>all</code> must be equal
+ * to the target selector, so the index keeps key of the last simple selector of each
+ * ruleset selector. Extend with <code>all</code> may match anywhere inside the target, so
+ * the index keeps all element names and subsequents of each ruleset selector, including
+ * those nested inside pseudo classes.
+ *
+ * Selectors whose key can not be computed are candidates for every extend.
+ *
+ * Rulesets are identified by the order in which they were added and candidates are always
+ * returned in that order. Candidates lookup does not modify the index and can run from
+ * multiple threads at once.
+ */
+public class ExtendsTargetsIndex {
+
+  private final List<RuleSet> rulesets = new ArrayList<RuleSet>();
+  private final Map<RuleSet, Integer> positions = new IdentityHashMap<RuleSet, Integer>();
+
+  private final Map<String, List<Integer>> byLastSimpleSelector = new HashMap<String, List<Integer>>();
+  private final Map<String, List<Integer>> byAnySimpleSelector = new HashMap<String, List<Integer>>();
+  private final BitSet unindexed = new BitSet();
+
+  public void add(RuleSet ruleSet) {
+    int position = rulesets.size();
+    rulesets.add(ruleSet);
+    positions.put(ruleSet, position);
+
+    for (Selector selector : ruleSet.getSelectors()) {
+      index(position, selector);
+    }
+  }
+
+  /**
+   * Must be called whenever new selector is added into already indexed ruleset.
+   */
+  public void selectorAdded(RuleSet ruleSet, Selector selector) {
+    Integer position = positions.get(ruleSet);
+    if (position != null)
+      index(position, selector);
+  }
+
+  public List<RuleSet> getAllRulesets() {
+    return rulesets;
+  }
+
+  /**
+   * Returns rulesets that may contain a selector extended by the extending selector. The result
+   * is a superset of what full comparison would find.
+   */
+  public List<RuleSet> findCandidates(Selector extendingSelector) {
+    BitSet candidates = new BitSet();
+    for (Extend extend : extendingSelector.getExtend()) {
+      String key = lastPartKey(extend.getTarget());
+      if (key == null)
+        return rulesets;
+
+      if (extend.isAll()) {
+        addCandidates(candidates, byAnySimpleSelector.get(key));
+      } else {
+        addCandidates(candidates, byLastSimpleSelector.get(key));
+      }
+    }
+    candidates.or(unindexed);
+
+    List<RuleSet> result = new ArrayList<RuleSet>(candidates.cardinality());
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      result.add(rulesets.get(i));
+    }
+    return result;
+  }
+
+  private void addCandidates(BitSet candidates, List<Integer> found) {
+    if (found == null)
+      return;
+
+    for (Integer position : found) {
+      candidates.set(position);
+    }
+  }
+
+  private void index(int position, Selector selector) {
+    String lastPartKey = lastPartKey(selector);
+    List<String> allKeys = new ArrayList<String>();
+    if (lastPartKey == null || !collectKeys(selector.getParts(), allKeys)) {
+      unindexed.set(position);
+      return;
+    }
+
+    register(byLastSimpleSelector, lastPartKey, position);
+    for (String key : allKeys) {
+      register(byAnySimpleSelector, key, position);
+    }
+  }
+
+  private void register(Map<String, List<Integer>> index, String key, int position) {
+    List<Integer> list = index.get(key);
+    if (list == null) {
+      list = new ArrayList<Integer>();
+      index.put(key, list);
+    }
+    // positions are added mostly in increasing order, duplicates are removed by bitset later
+    if (list.isEmpty() || ArraysUtils.last(list) != position)
+      list.add(position);
+  }
+
+  /**
+   * Collects keys of all simple selectors in the list and of all selectors nested in them.
+   * Returns <code>false</code> if the list contains something that is not a simple selector.
+   */
+  private boolean collectKeys(List<? extends ASTCssNode> nodes, List<String> keys) {
+    for (ASTCssNode node : nodes) {
+      if (node instanceof SelectorPart) {
+        if (node.getType() != ASTCssNodeType.SIMPLE_SELECTOR)
+          return false;
+
+        SelectorPart part = (SelectorPart) node;
+        if (part.hasElement())
+          keys.add(elementKey(part));
+        for (ElementSubsequent subsequent : part.getSubsequent()) {
+          keys.add(subsequentKey(subsequent));
+        }
+      }
+      if (!collectKeys(node.getChilds(), keys))
+        return false;
+    }
+    return true;
+  }
+
+  private String lastPartKey(Selector selector) {
+    if (selector == null || selector.getParts().isEmpty())
+      return null;
+
+    SelectorPart last = ArraysUtils.last(selector.getParts());
+    if (last.getType() != ASTCssNodeType.SIMPLE_SELECTOR)
+      return null;
+
+    return key(last);
+  }
+
+  /**
+   * Simple selector without both element and subsequent compares as equal to many different
+   * selectors, such part has no key.
+   */
+  private String key(SelectorPart part) {
+    if (part.hasSubsequent())
+      return subsequentKey(part.getLastSubsequent());
+
+    if (part.hasElement())
+      return elementKey(part);
+
+    return null;
+  }
+
+  private String subsequentKey(ElementSubsequent subsequent) {
+    return subsequent.getType() + ":" + subsequent.getFullName();
+  }
+
+  private String elementKey(SelectorPart part) {
+    return "element:" + part.getElementName().getName();
+  }
+
+}
@@ -0,0 +1,171 @@
+package com.github.sommeri.less4j.core.compiler.selectors;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.github.sommeri.less4j.LessCompiler.UsedSelectors;
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNode.Visibility;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
+import com.github.sommeri.less4j.core.ast.Body;
+import com.github.sommeri.less4j.core.ast.BodyOwner;
+import com.github.sommeri.less4j.core.ast.Declaration;
+import com.github.sommeri.less4j.core.ast.Keyframes;
+import com.github.sommeri.less4j.core.ast.KeyframesName;
+import com.github.sommeri.less4j.core.ast.RuleSet;
+import com.github.sommeri.less4j.core.ast.Selector;
+import com.github.sommeri.less4j.core.ast.StyleSheet;
+
+/**
+ * Marks selectors that can not match anything used by the application as invisible,
+ * {@link com.github.sommeri.less4j.core.compiler.stages.FinalVisibilitySolver} removes them
+ * later. Ruleset is marked invisible if all its selectors are. Keyframes not referenced by
+ * remaining <code>animation</code> and <code>animation-name</code> declarations are marked
+ * invisible too.
+ *
+ * Which selectors can match is decided by {@link UsedSelectorsMatcher}.
+ *
+ * Must run after extends are solved - extending selector may be the only used selector
+ * of a ruleset.
+ */
+public class UnusedSelectorsRemover {
+
+  private static final Set<String> ANIMATION_PROPERTIES = new HashSet<String>();
+
+  static {
+    ANIMATION_PROPERTIES.add("animation");
+    ANIMATION_PROPERTIES.add("animation-name");
+  }
+
+  private final UsedSelectorsMatcher matcher;
+
+  public UnusedSelectorsRemover(UsedSelectors usedSelectors) {
+    this.matcher = new UsedSelectorsMatcher(usedSelectors);
+  }
+
+  public void markUnused(StyleSheet less) {
+    markUnusedRulesets(less);
+
+    Set<String> animations = new HashSet<String>();
+    collectAnimations(less, animations);
+    markUnusedKeyframes(less, animations);
+  }
+
+  private void markUnusedRulesets(Body body) {
+    for (ASTCssNode member : body.getMembers()) {
+      if (member.getVisibility() != Visibility.VISIBLE)
+        continue;
+
+      if (member.getType() == ASTCssNodeType.RULE_SET) {
+        markUnused((RuleSet) member);
+      } else if (isStylesContainer(member)) {
+        markUnusedRulesets(((BodyOwner<?>) member).getBody());
+      }
+    }
+  }
+
+  private void markUnused(RuleSet ruleSet) {
+    boolean anyUsed = false;
+    for (Selector selector : ruleSet.getSelectors()) {
+      if (selector.getVisibility() != Visibility.VISIBLE)
+        continue;
+
+      if (matcher.canMatch(selector)) {
+        anyUsed = true;
+      } else {
+        selector.setVisibility(Visibility.DEFAULT);
+      }
+    }
+    if (!anyUsed && !ruleSet.getSelectors().isEmpty())
+      ruleSet.setVisibility(Visibility.DEFAULT);
+  }
+
+  private void collectAnimations(Body body, Set<String> animations) {
+    for (ASTCssNode member : body.getMembers()) {
+      if (member.getVisibility() != Visibility.VISIBLE)
+        continue;
+
+      if (member.getType() == ASTCssNodeType.RULE_SET) {
+        collectAnimations((RuleSet) member, animations);
+      } else if (isStylesContainer(member)) {
+        collectAnimations(((BodyOwner<?>) member).getBody(), animations);
+      }
+    }
+  }
+
+  private void collectAnimations(RuleSet ruleSet, Set<String> animations) {
+    for (ASTCssNode member : ruleSet.getBody().getMembers()) {
+      if (member.getType() != ASTCssNodeType.DECLARATION)
+        continue;
+
+      Declaration declaration = (Declaration) member;
+      if (isAnimationProperty(declaration.getNameAsString()))
+        collectNames(declaration.getExpression(), animations);
+    }
+  }
+
+  private void markUnusedKeyframes(Body body, Set<String> animations) {
+    for (ASTCssNode member : body.getMembers()) {
+      if (member.getVisibility() != Visibility.VISIBLE)
+        continue;
+
+      if (member.getType() == ASTCssNodeType.KEYFRAMES) {
+        if (!isReferenced((Keyframes) member, animations))
+          member.setVisibility(Visibility.DEFAULT);
+      } else if (isStylesContainer(member)) {
+        markUnusedKeyframes(((BodyOwner<?>) member).getBody(), animations);
+      }
+    }
+  }
+
+  private boolean isReferenced(Keyframes keyframes, Set<String> animations) {
+    for (KeyframesName name : keyframes.getNames()) {
+      String value = matcher.toName(name.getName());
+      // keep what we do not understand
+      if (value == null || animations.contains(value))
+        return true;
+    }
+    return false;
+  }
+
+  private boolean isAnimationProperty(String property) {
+    if (property == null)
+      return false;
+
+    String name = property.toLowerCase();
+    if (name.startsWith("-")) {
+      int prefixEnd = name.indexOf('-', 1);
+      name = prefixEnd == -1 ? name : name.substring(prefixEnd + 1);
+    }
+    return ANIMATION_PROPERTIES.contains(name);
+  }
+
+  /**
+   * Collects all identifiers and strings in the expression. Names of timing functions and other
+   * keywords are collected too, they can not harm.
+   */
+  private void collectNames(ASTCssNode node, Set<String> names) {
+    if (node == null)
+      return;
+
+    String name = matcher.toName(node);
+    if (name != null)
+      names.add(name);
+
+    for (ASTCssNode kid : node.getChilds()) {
+      collectNames(kid, names);
+    }
+  }
+
+  private boolean isStylesContainer(ASTCssNode node) {
+    switch (node.getType()) {
+    case MEDIA:
+    case SUPPORTS:
+    case DOCUMENT:
+      return ((BodyOwner<?>) node).getBody() != null;
+    default:
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,191 @@
+package com.github.sommeri.less4j.core.compiler.selectors;
+
+import com.github.sommeri.less4j.LessCompiler.UsedSelectors;
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
+import com.github.sommeri.less4j.core.ast.CssClass;
+import com.github.sommeri.less4j.core.ast.CssString;
+import com.github.sommeri.less4j.core.ast.ElementSubsequent;
+import com.github.sommeri.less4j.core.ast.IdSelector;
+import com.github.sommeri.less4j.core.ast.IdentifierExpression;
+import com.github.sommeri.less4j.core.ast.PseudoClass;
+import com.github.sommeri.less4j.core.ast.RuleSet;
+import com.github.sommeri.less4j.core.ast.Selector;
+import com.github.sommeri.less4j.core.ast.SelectorAttribute;
+import com.github.sommeri.less4j.core.ast.SelectorOperator.Operator;
+import com.github.sommeri.less4j.core.ast.SelectorPart;
+import com.github.sommeri.less4j.core.ast.SimpleSelector;
+
+/**
+ * Decides whether selector can match anything used by the application. Selector can not match
+ * if any of its simple selectors contains unused class, id or element. Attribute selectors are
+ * checked only if they compare <code>class</code> or <code>id</code> with exact value, each class
+ * listed in <code>[class="a b"]</code> must be used. Selectors inside <code>:not</code> are
+ * ignored, selectors inside other pseudo classes must be able to match. Escaped class and id
+ * names are unescaped before the lookup, e.g. <code>.sm\:flex</code> is used if class
+ * <code>sm:flex</code> is used. Anything the matcher does not understand, e.g. interpolated names,
+ * is considered used.
+ */
+public class UsedSelectorsMatcher {
+
+  private static final String NOT = "not";
+  private static final int MAX_HEX_DIGITS = 6;
+  private static final int REPLACEMENT_CHARACTER = 0xFFFD;
+
+  private final UsedSelectors usedSelectors;
+
+  public UsedSelectorsMatcher(UsedSelectors usedSelectors) {
+    this.usedSelectors = usedSelectors;
+  }
+
+  /**
+   * Returns <code>true</code> if at least one selector of the ruleset can match.
+   */
+  public boolean canMatchAny(RuleSet ruleSet) {
+    for (Selector selector : ruleSet.getSelectors()) {
+      if (canMatch(selector))
+        return true;
+    }
+    return false;
+  }
+
+  public boolean canMatch(Selector selector) {
+    for (SelectorPart part : selector.getParts()) {
+      if (part.getType() == ASTCssNodeType.SIMPLE_SELECTOR && !canMatch((SimpleSelector) part))
+        return false;
+    }
+    return true;
+  }
+
+  private boolean canMatch(SimpleSelector part) {
+    if (part.hasElement() && !part.isStar() && !part.getElementName().isInterpolated()) {
+      if (!usedSelectors.isUsedElement(part.getElementName().getName().toLowerCase()))
+        return false;
+    }
+
+    for (ElementSubsequent subsequent : part.getSubsequent()) {
+      if (!canMatch(subsequent))
+        return false;
+    }
+    return true;
+  }
+
+  private boolean canMatch(ElementSubsequent subsequent) {
+    if (subsequent.isInterpolated())
+      return true;
+
+    switch (subsequent.getType()) {
+    case CSS_CLASS:
+      return usedSelectors.isUsedClass(unescape(((CssClass) subsequent).getName()));
+
+    case ID_SELECTOR:
+      return usedSelectors.isUsedId(unescape(((IdSelector) subsequent).getName()));
+
+    case SELECTOR_ATTRIBUTE:
+      return canMatch((SelectorAttribute) subsequent);
+
+    case PSEUDO_CLASS:
+      PseudoClass pseudo = (PseudoClass) subsequent;
+      ASTCssNode parameter = pseudo.getParameter();
+      if (parameter == null || parameter.getType() != ASTCssNodeType.SELECTOR || NOT.equalsIgnoreCase(pseudo.getName()))
+        return true;
+      return canMatch((Selector) parameter);
+
+    default:
+      return true;
+    }
+  }
+
+  private boolean canMatch(SelectorAttribute attribute) {
+    if (attribute.getOperator() == null || attribute.getValue() == null)
+      return true;
+
+    String value = toName(attribute.getValue());
+    if (value == null)
+      return true;
+
+    String name = attribute.getName().toLowerCase();
+    Operator operator = attribute.getOperator().getOperator();
+    if (name.equals("class") && operator == Operator.INCLUDES)
+      return usedSelectors.isUsedClass(value);
+    if (name.equals("class") && operator == Operator.EQUALS)
+      return areUsedClasses(value);
+    if (name.equals("id") && operator == Operator.EQUALS)
+      return usedSelectors.isUsedId(value);
+    return true;
+  }
+
+  private boolean areUsedClasses(String value) {
+    for (String name : value.trim().split("\\s+")) {
+      if (!name.isEmpty() && !usedSelectors.isUsedClass(name))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Replaces css escapes, both <code>\:</code> and hexadecimal <code>\3A </code>, by characters
+   * they stand for.
+   */
+  public static String unescape(String name) {
+    int backslash = name.indexOf('\\');
+    if (backslash == -1)
+      return name;
+
+    StringBuilder result = new StringBuilder(name.length());
+    result.append(name, 0, backslash);
+    int i = backslash;
+    while (i < name.length()) {
+      char c = name.charAt(i);
+      if (c != '\\' || i + 1 == name.length()) {
+        result.append(c);
+        i++;
+        continue;
+      }
+
+      int end = i + 1;
+      while (end < name.length() && end - i - 1 < MAX_HEX_DIGITS && Character.digit(name.charAt(end), 16) != -1) {
+        end++;
+      }
+      if (end == i + 1) {
+        // escaped character stands for itself
+        result.append(name.charAt(end));
+        i = end + 1;
+        continue;
+      }
+
+      int codePoint = Integer.parseInt(name.substring(i + 1, end), 16);
+      if (codePoint == 0 || codePoint > Character.MAX_CODE_POINT || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE))
+        codePoint = REPLACEMENT_CHARACTER;
+      result.appendCodePoint(codePoint);
+      i = skipEscapeWhitespace(name, end);
+    }
+    return result.toString();
+  }
+
+  /**
+   * Single whitespace after hexadecimal escape belongs to the escape.
+   */
+  private static int skipEscapeWhitespace(String name, int i) {
+    if (i < name.length() - 1 && name.charAt(i) == '\r' && name.charAt(i + 1) == '\n')
+      return i + 2;
+    if (i < name.length() && " \t\n\r\f".indexOf(name.charAt(i)) != -1)
+      return i + 1;
+    return i;
+  }
+
+  /**
+   * Value of identifier or string, <code>null</code> for anything else.
+   */
+  public String toName(ASTCssNode node) {
+    switch (node.getType()) {
+    case IDENTIFIER_EXPRESSION:
+      return ((IdentifierExpression) node).getValue();
+    case STRING_EXPRESSION:
+      return ((CssString) node).getValue();
+    default:
+      return null;
+    }
+  }
+
+}
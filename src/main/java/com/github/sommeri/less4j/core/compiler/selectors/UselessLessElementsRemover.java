@@ -1,32 +1,26 @@
 package com.github.sommeri.less4j.core.compiler.selectors;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
 import com.github.sommeri.less4j.core.ast.RuleSet;
 import com.github.sommeri.less4j.core.ast.Selector;
+import com.github.sommeri.less4j.core.compiler.stages.FusableTreeVisitor;
+import com.github.sommeri.less4j.core.compiler.stages.TreeVisitorsPipeline;
 
-public class UselessLessElementsRemover {
+public class UselessLessElementsRemover extends FusableTreeVisitor {
   
   private final SelectorsManipulator manipulator = new SelectorsManipulator();
   
   public void removeUselessLessElements(ASTCssNode node) {
-    switch (node.getType()) {
-    case RULE_SET:
-      removeFrom((RuleSet) node);
-      break;
-
-    case CHARSET_DECLARATION:
-    case IMPORT:
-      break;
+    new TreeVisitorsPipeline(this).apply(node);
+  }
 
-    default:
-      List<ASTCssNode> childs = new ArrayList<ASTCssNode>(node.getChilds());
-      for (ASTCssNode kid : childs) {
-        removeUselessLessElements(kid);
-      }
-    }
+  @Override
+  protected void enteringNode(ASTCssNode node) {
+    if (node.getType() == ASTCssNodeType.RULE_SET)
+      removeFrom((RuleSet) node);
   }
 
   public void removeFrom(RuleSet ruleSet) {
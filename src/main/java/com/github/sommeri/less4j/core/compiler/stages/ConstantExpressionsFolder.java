@@ -0,0 +1,176 @@
+package com.github.sommeri.less4j.core.compiler.stages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
+import com.github.sommeri.less4j.core.ast.AbstractVariableDeclaration;
+import com.github.sommeri.less4j.core.ast.BinaryExpression;
+import com.github.sommeri.less4j.core.ast.Declaration;
+import com.github.sommeri.less4j.core.ast.DetachedRuleset;
+import com.github.sommeri.less4j.core.ast.Expression;
+import com.github.sommeri.less4j.core.ast.FunctionExpression;
+import com.github.sommeri.less4j.core.ast.ParenthesesExpression;
+import com.github.sommeri.less4j.core.ast.SignedExpression;
+import com.github.sommeri.less4j.core.compiler.expressions.ExpressionEvaluator;
+import com.github.sommeri.less4j.core.compiler.expressions.PureFunctionsCache;
+import com.github.sommeri.less4j.core.problems.ProblemsHandler;
+
+/**
+ * Evaluates variable free arithmetic and pure built-in functions calls with constant
+ * arguments, so they do not have to be evaluated again each time they are reached through
+ * mixin call or variable reference.
+ *
+ * Only declarations and variables values are folded, because these are always fully
+ * evaluated. Font declarations are left alone - the slash in them is not a division. Folded
+ * expression must evaluate into number or color without reporting any problem. Anything
+ * else is left to the regular evaluation, so errors and warnings are reported exactly as
+ * before and only when the expression is really used.
+ *
+ * Must run before scope is extracted from the tree - scope keeps references to variables
+ * values.
+ */
+public class ConstantExpressionsFolder {
+
+  private final ASTManipulator manipulator = new ASTManipulator();
+  private final Configuration configuration;
+  private final PureFunctionsCache functionsCache;
+  private ProblemsHandler scratchProblemsHandler;
+  private ExpressionEvaluator evaluator;
+
+  public ConstantExpressionsFolder(Configuration configuration, PureFunctionsCache functionsCache) {
+    this.configuration = configuration;
+    this.functionsCache = functionsCache;
+  }
+
+  public void foldConstants(ASTCssNode node) {
+    switch (node.getType()) {
+    case DECLARATION:
+      foldInDeclaration((Declaration) node);
+      return;
+
+    case VARIABLE_DECLARATION:
+      foldInVariableDeclaration((AbstractVariableDeclaration) node);
+      return;
+
+    default:
+      for (ASTCssNode kid : node.getChilds()) {
+        foldConstants(kid);
+      }
+    }
+  }
+
+  private void foldInDeclaration(Declaration declaration) {
+    Expression expression = declaration.getExpression();
+    if (expression == null || declaration.isFontDeclaration() || declaration.hasInterpolatedName())
+      return;
+
+    fold(expression);
+  }
+
+  private void foldInVariableDeclaration(AbstractVariableDeclaration declaration) {
+    Expression value = declaration.getValue();
+    if (value == null)
+      return;
+
+    if (value.getType() == ASTCssNodeType.DETACHED_RULESET) {
+      foldConstants(((DetachedRuleset) value).getBody());
+      return;
+    }
+
+    fold(value);
+  }
+
+  /**
+   * Folds expression subtree bottom up. Returns <code>true</code> if the expression is
+   * constant value after folding.
+   */
+  private boolean fold(Expression expression) {
+    switch (expression.getType()) {
+    case NUMBER:
+    case COLOR_EXPRESSION:
+    case IDENTIFIER_EXPRESSION:
+      return true;
+
+    case BINARY_EXPRESSION: {
+      BinaryExpression binary = (BinaryExpression) expression;
+      boolean left = fold(binary.getLeft());
+      boolean right = fold(binary.getRight());
+      return left && right && replaceByValue(expression);
+    }
+
+    case PARENTHESES_EXPRESSION: {
+      ParenthesesExpression parentheses = (ParenthesesExpression) expression;
+      return fold(parentheses.getEnclosedExpression()) && replaceByValue(expression);
+    }
+
+    case SIGNED_EXPRESSION: {
+      SignedExpression signed = (SignedExpression) expression;
+      return fold(signed.getExpression()) && replaceByValue(expression);
+    }
+
+    case FUNCTION:
+      return foldFunction((FunctionExpression) expression);
+
+    default:
+      foldChilds(expression);
+      return false;
+    }
+  }
+
+  private boolean foldFunction(FunctionExpression function) {
+    Expression parameter = function.getParameter();
+    if (parameter == null || function.isCssOnlyFunction() || AstLogic.isQuotelessUrlFunction(function))
+      return false;
+
+    List<Expression> parameters = parameter.getType() == ASTCssNodeType.EMPTY_EXPRESSION ? new ArrayList<Expression>() : parameter.splitByComma();
+    boolean allConstant = true;
+    for (Expression argument : parameters) {
+      allConstant &= fold(argument);
+    }
+
+    if (!allConstant || !getEvaluator().isPureFunction(function, parameters))
+      return false;
+
+    return replaceByValue(function);
+  }
+
+  private void foldChilds(Expression expression) {
+    List<ASTCssNode> childs = new ArrayList<ASTCssNode>(expression.getChilds());
+    for (ASTCssNode kid : childs) {
+      if (AstLogic.isExpression(kid))
+        fold((Expression) kid);
+    }
+  }
+
+  private boolean replaceByValue(Expression expression) {
+    int errors = getScratchProblemsHandler().getErrors().size();
+    int warnings = getScratchProblemsHandler().getWarnings().size();
+    Expression value = getEvaluator().evaluate(expression);
+    if (errors != scratchProblemsHandler.getErrors().size() || warnings != scratchProblemsHandler.getWarnings().size())
+      return false;
+
+    if (value.getType() != ASTCssNodeType.NUMBER && value.getType() != ASTCssNodeType.COLOR_EXPRESSION)
+      return false;
+
+    manipulator.replace(expression, value);
+    return true;
+  }
+
+  private ExpressionEvaluator getEvaluator() {
+    // performance optimization - create expressions evaluator only when it is needed
+    if (evaluator == null)
+      evaluator = new ExpressionEvaluator(getScratchProblemsHandler(), configuration, functionsCache);
+    return evaluator;
+  }
+
+  private ProblemsHandler getScratchProblemsHandler() {
+    // problems found during folding are ignored, the expression is evaluated and reported later
+    if (scratchProblemsHandler == null)
+      scratchProblemsHandler = new ProblemsHandler();
+    return scratchProblemsHandler;
+  }
+
+}
@@ -0,0 +1,273 @@
+package com.github.sommeri.less4j.core.compiler.stages;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.sommeri.less4j.LessCompiler.UsedSelectors;
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
+import com.github.sommeri.less4j.core.ast.Body;
+import com.github.sommeri.less4j.core.ast.BodyOwner;
+import com.github.sommeri.less4j.core.ast.Declaration;
+import com.github.sommeri.less4j.core.ast.FontFace;
+import com.github.sommeri.less4j.core.ast.GeneralBody;
+import com.github.sommeri.less4j.core.ast.RuleSet;
+import com.github.sommeri.less4j.core.ast.StyleSheet;
+import com.github.sommeri.less4j.core.compiler.selectors.UsedSelectorsMatcher;
+import com.github.sommeri.less4j.utils.InStringCssPrinter;
+
+/**
+ * Moves critical part of the final css into a new style sheet. Ruleset is critical if at least one
+ * of its selectors matches critical classes, ids and elements according to
+ * {@link UsedSelectorsMatcher}. Selectors without names, e.g. <code>:root</code> or <code>*</code>,
+ * always match. Media, supports and document with critical rulesets are split - critical
+ * rulesets are moved into their copy in the critical style sheet.
+ *
+ * Font faces are moved into critical style sheet if their font family is listed by
+ * <code>font</code> or <code>font-family</code> declaration in critical ruleset. Family names are
+ * compared case insensitively and without quotes. Charsets are copied into both style sheets.
+ * Everything else stays in the original style sheet.
+ *
+ * Critical style sheet is supposed to be loaded first, rulesets keep their relative order inside
+ * each style sheet. Moving critical ruleset before the rest of the css must not change the cascade,
+ * so critical ruleset stays in the original style sheet if an earlier ruleset left there sets a
+ * property from the same family, see {@link RulesetsMerger}.
+ */
+public class CriticalCssSplitter {
+
+  private final UsedSelectorsMatcher matcher;
+  private final Map<ASTCssNode, Boolean> critical = new IdentityHashMap<ASTCssNode, Boolean>();
+  private final Set<String> criticalFonts = new HashSet<String>();
+  // families of properties set by rulesets left in the original style sheet so far
+  private final Set<String> deferredFamilies = new HashSet<String>();
+  private boolean deferredAnything = false;
+
+  public CriticalCssSplitter(UsedSelectors criticalSelectors) {
+    this.matcher = new UsedSelectorsMatcher(criticalSelectors);
+  }
+
+  /**
+   * Removes critical part from the style sheet and returns it as a new style sheet.
+   */
+  public StyleSheet split(StyleSheet less) {
+    collectCriticalRulesets(less);
+    collectCriticalFontFaces(less);
+
+    StyleSheet result = new StyleSheet(less.getUnderlyingStructure());
+    moveCritical(less, result);
+    return result;
+  }
+
+  private void collectCriticalRulesets(Body body) {
+    for (ASTCssNode member : body.getMembers()) {
+      if (member.getType() == ASTCssNodeType.RULE_SET) {
+        RuleSet ruleSet = (RuleSet) member;
+        if (matcher.canMatchAny(ruleSet)) {
+          critical.put(ruleSet, Boolean.TRUE);
+          collectFonts(ruleSet);
+        }
+      } else if (isStylesContainer(member)) {
+        collectCriticalRulesets(((BodyOwner<?>) member).getBody());
+      }
+    }
+  }
+
+  private void collectFonts(RuleSet ruleSet) {
+    for (ASTCssNode member : ruleSet.getBody().getMembers()) {
+      if (member.getType() != ASTCssNodeType.DECLARATION)
+        continue;
+
+      Declaration declaration = (Declaration) member;
+      if (isFontFamily(declaration)) {
+        criticalFonts.addAll(toFamilyNames(toFontText(declaration.getExpression())));
+      } else if (declaration.isFontDeclaration()) {
+        criticalFonts.addAll(toFamilyNames(withoutFontStyles(toFontText(declaration.getExpression()))));
+      }
+    }
+  }
+
+  private void collectCriticalFontFaces(Body body) {
+    for (ASTCssNode member : body.getMembers()) {
+      if (member.getType() == ASTCssNodeType.FONT_FACE) {
+        if (isCritical((FontFace) member))
+          critical.put(member, Boolean.TRUE);
+      } else if (isStylesContainer(member)) {
+        collectCriticalFontFaces(((BodyOwner<?>) member).getBody());
+      }
+    }
+  }
+
+  private boolean isCritical(FontFace fontFace) {
+    GeneralBody body = fontFace.getBody();
+    if (body == null)
+      return false;
+
+    for (ASTCssNode member : body.getMembers()) {
+      if (member.getType() == ASTCssNodeType.DECLARATION && isFontFamily((Declaration) member)) {
+        for (String family : toFamilyNames(toFontText(((Declaration) member).getExpression()))) {
+          if (criticalFonts.contains(family))
+            return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Moves critical members from the body into the target body. Returns <code>true</code>
+   * if anything was moved.
+   */
+  private boolean moveCritical(Body body, Body target) {
+    List<ASTCssNode> rest = new ArrayList<ASTCssNode>(body.getMembers().size());
+    boolean moved = false;
+    for (ASTCssNode member : body.getMembers()) {
+      if (member.getType() == ASTCssNodeType.RULE_SET && !canMove((RuleSet) member)) {
+        defer((RuleSet) member);
+        rest.add(member);
+      } else if (critical.containsKey(member)) {
+        target.addMember(member);
+        member.setParent(target);
+        moved = true;
+      } else if (member.getType() == ASTCssNodeType.CHARSET_DECLARATION) {
+        target.addMember(member.clone());
+        rest.add(member);
+      } else if (isStylesContainer(member)) {
+        boolean movedFromContainer = moveCriticalFromContainer(member, target);
+        // container left without members would be printed empty
+        if (!movedFromContainer || !((BodyOwner<?>) member).getBody().isEmpty())
+          rest.add(member);
+        moved |= movedFromContainer;
+      } else {
+        rest.add(member);
+      }
+    }
+    if (moved) {
+      body.removeAllMembers();
+      body.addMembers(rest);
+    }
+    return moved;
+  }
+
+  private boolean canMove(RuleSet ruleSet) {
+    if (!critical.containsKey(ruleSet))
+      return false;
+    if (!deferredAnything)
+      return true;
+
+    Set<String> families = RulesetsMerger.toFamilies(ruleSet);
+    if (families == null || deferredFamilies.contains(null))
+      return false;
+
+    for (String family : families) {
+      if (deferredFamilies.contains(family))
+        return false;
+    }
+    return true;
+  }
+
+  private void defer(RuleSet ruleSet) {
+    Set<String> families = RulesetsMerger.toFamilies(ruleSet);
+    deferredAnything = true;
+    if (families == null) {
+      // anything may be overridden by this ruleset
+      deferredFamilies.add(null);
+    } else {
+      deferredFamilies.addAll(families);
+    }
+  }
+
+  private boolean moveCriticalFromContainer(ASTCssNode container, Body target) {
+    Body body = ((BodyOwner<?>) container).getBody();
+    // performance optimization - clone the container without its members
+    List<ASTCssNode> members = new ArrayList<ASTCssNode>(body.getMembers());
+    body.removeAllMembers();
+    ASTCssNode copy = container.clone();
+    body.addMembers(members);
+
+    if (!moveCritical(body, ((BodyOwner<?>) copy).getBody()))
+      return false;
+
+    target.addMember(copy);
+    copy.setParent(target);
+    return true;
+  }
+
+  private boolean isFontFamily(Declaration declaration) {
+    String name = declaration.getNameAsString();
+    return name != null && name.toLowerCase().equals("font-family");
+  }
+
+  /**
+   * Family names of font family list without quotes, e.g. <code>"brand sans", serif</code>
+   * gives <code>brand sans</code> and <code>serif</code>.
+   */
+  private List<String> toFamilyNames(String fontFamilies) {
+    List<String> result = new ArrayList<String>();
+    for (String family : fontFamilies.split(",")) {
+      String name = family.trim();
+      if (name.length() > 1 && (name.charAt(0) == '"' || name.charAt(0) == '\'') && name.charAt(name.length() - 1) == name.charAt(0))
+        name = name.substring(1, name.length() - 1).trim();
+      name = name.replaceAll("\\s+", " ");
+      if (!name.isEmpty())
+        result.add(name);
+    }
+    return result;
+  }
+
+  /**
+   * Font shorthand lists families after font size and optional line height, e.g.
+   * <code>bold 14px/2 "brand sans", serif</code>. Returns only the families part.
+   */
+  private String withoutFontStyles(String font) {
+    int firstComma = font.indexOf(',');
+    String first = firstComma == -1 ? font : font.substring(0, firstComma);
+    int quote = indexOfQuote(first);
+    int familyStart = 0;
+    String[] words = (quote == -1 ? first : first.substring(0, quote)).split("\\s+");
+    int position = 0;
+    for (String word : words) {
+      position = first.indexOf(word, position) + word.length();
+      // font size is the last thing before families
+      if (!word.isEmpty() && (Character.isDigit(word.charAt(0)) || word.charAt(0) == '.'))
+        familyStart = position;
+    }
+    if (quote != -1 && familyStart == 0)
+      familyStart = quote;
+    return font.substring(familyStart);
+  }
+
+  private int indexOfQuote(String text) {
+    int doubleQuote = text.indexOf('"');
+    int singleQuote = text.indexOf('\'');
+    if (doubleQuote == -1)
+      return singleQuote;
+    if (singleQuote == -1)
+      return doubleQuote;
+    return Math.min(doubleQuote, singleQuote);
+  }
+
+  private String toFontText(ASTCssNode expression) {
+    if (expression == null)
+      return "";
+
+    InStringCssPrinter printer = new InStringCssPrinter();
+    printer.append(expression);
+    return printer.toString().toLowerCase();
+  }
+
+  private boolean isStylesContainer(ASTCssNode node) {
+    switch (node.getType()) {
+    case MEDIA:
+    case SUPPORTS:
+    case DOCUMENT:
+      return ((BodyOwner<?>) node).getBody() != null;
+    default:
+      return false;
+    }
+  }
+
+}
@@ -2,30 +2,45 @@ package com.github.sommeri.less4j.core.compiler.stages;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 
+import com.github.sommeri.less4j.LessCompiler.Configuration;
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
 import com.github.sommeri.less4j.core.ast.Body;
 import com.github.sommeri.less4j.core.ast.BodyOwner;
 import com.github.sommeri.less4j.core.ast.Directive;
 import com.github.sommeri.less4j.core.ast.GeneralBody;
 import com.github.sommeri.less4j.core.ast.Media;
+import com.github.sommeri.less4j.core.ast.MediaQuery;
 import com.github.sommeri.less4j.core.ast.StyleSheet;
+import com.github.sommeri.less4j.core.problems.BugHappened;
 import com.github.sommeri.less4j.core.problems.ProblemsHandler;
+import com.github.sommeri.less4j.utils.InStringCssPrinter;
 
 /**
  * Bubbles directives at-rules on top of stylesheet and merges media queries.
  * Merging assumes that all media are already bubbled on top of rulesets.
+ * 
+ * Nested media are collected and placed right after their top level media. If 
+ * {@link Configuration#isMergeAdjacentMedia()} is on, media with the same media 
+ * queries that directly follow each other are merged into one.
  *
  */
 public class DirectiveBubblerAndMerger {
 
   private ASTManipulator  astManipulator = new ASTManipulator();
   private ProblemsHandler problemsHandler;
+  private final boolean mergeAdjacentMedia;
 
   public DirectiveBubblerAndMerger(ProblemsHandler problemsHandler) {
+    this(problemsHandler, new Configuration());
+  }
+
+  public DirectiveBubblerAndMerger(ProblemsHandler problemsHandler, Configuration configuration) {
     super();
     this.problemsHandler = problemsHandler;
+    this.mergeAdjacentMedia = configuration.isMergeAdjacentMedia();
   }
 
   public void bubbleAndMergeMedia(StyleSheet node) {
@@ -36,12 +51,31 @@ public class DirectiveBubblerAndMerger {
   private void mergeTopLevelMedias(Body node) {
     NestedMediaCollector nestedMediaCollector = new NestedMediaCollector(problemsHandler);
 
-    List<? extends ASTCssNode> childs = new ArrayList<ASTCssNode>(node.getChilds());
-    for (ASTCssNode kid : childs) {
+    // the body is rebuilt at once, adding nested media one by one after their parents would be quadratic 
+    List<ASTCssNode> members = node.getMembers();
+    List<ASTCssNode> result = new ArrayList<ASTCssNode>(members.size());
+    boolean changed = false;
+    Media previous = null;
+    String previousKey = null;
+    for (ASTCssNode kid : members) {
       switch (kid.getType()) {
       case MEDIA: {
-        List<Media> nestedMedia = nestedMediaCollector.collectMedia((Media) kid);
-        astManipulator.addIntoBody(nestedMedia, kid);
+        List<Media> allMedia = new ArrayList<Media>();
+        allMedia.add((Media) kid);
+        allMedia.addAll(nestedMediaCollector.collectMedia((Media) kid));
+        changed |= allMedia.size() > 1;
+
+        for (Media media : allMedia) {
+          String key = mergeAdjacentMedia ? toMergingKey(media) : null;
+          if (key != null && key.equals(previousKey)) {
+            moveMembers(media, previous);
+            changed = true;
+          } else {
+            result.add(media);
+            previous = media;
+            previousKey = key;
+          }
+        }
         break;
       }
       default: {
@@ -52,10 +86,74 @@ public class DirectiveBubblerAndMerger {
         } else {
           // nothing is needed
         }
+        result.add(kid);
+        // empty rulesets left behind by bubbled media are removed later, they do not separate media
+        if (!isEmptyWithoutComments(kid)) {
+          previous = null;
+          previousKey = null;
+        }
       }
       }
     }
 
+    if (changed) {
+      node.removeAllMembers();
+      node.addMembers(result);
+      for (ASTCssNode kid : result) {
+        kid.setParent(node);
+      }
+    }
+  }
+
+  private void moveMembers(Media from, Media to) {
+    Body toBody = to.getBody();
+    for (ASTCssNode member : from.getBody().getMembers()) {
+      toBody.addMember(member);
+      member.setParent(toBody);
+    }
+    from.getBody().removeAllMembers();
+    from.setParent(null);
+  }
+
+  /**
+   * Normalized media queries text or <code>null</code> if the media can not be merged.   
+   */
+  private String toMergingKey(Media media) {
+    Body body = media.getBody();
+    if (body == null || media.hasComments() || body.hasComments() || hasComments(body.getOpeningCurlyBrace()) || hasComments(body.getClosingCurlyBrace()))
+      return null;
+
+    StringBuilder result = new StringBuilder();
+    for (MediaQuery mediaQuery : media.getMediums()) {
+      if (hasComments(mediaQuery))
+        return null;
+      InStringCssPrinter printer = new InStringCssPrinter();
+      printer.append(mediaQuery);
+      result.append(printer.toString()).append(", ");
+    }
+    return result.toString();
+  }
+
+  @SuppressWarnings("unchecked")
+  private boolean isEmptyWithoutComments(ASTCssNode node) {
+    if (!AstLogic.isBodyOwner(node))
+      return false;
+
+    Body body = ((BodyOwner<? extends Body>) node).getBody();
+    return body != null && body.isEmpty() && !hasComments(node);
+  }
+
+  private boolean hasComments(ASTCssNode node) {
+    if (node == null)
+      return false;
+    if (node.hasComments())
+      return true;
+
+    for (ASTCssNode kid : node.getChilds()) {
+      if (hasComments(kid))
+        return true;
+    }
+    return false;
   }
 
   private void bubbleUp(ASTCssNode node) {
@@ -70,7 +168,8 @@ public class DirectiveBubblerAndMerger {
       if (AstLogic.isBubleableDirective(node)) {
         bubbleUp((Directive) node);
       }
-      List<? extends ASTCssNode> childs = new ArrayList<ASTCssNode>(node.getChilds());
+      // getChilds returns new list - there is no need to copy it before directives are moved around 
+      List<? extends ASTCssNode> childs = node.getChilds();
       for (ASTCssNode kid : childs) {
         bubbleUp(kid);
       }
@@ -86,14 +185,13 @@ public class DirectiveBubblerAndMerger {
     astManipulator.removeFromBody(directive);
     BodiesStorage bodiesStorage = new BodiesStorage();
 
-    // move all kids of media into the empty clone. It is wasteful, they are
-    // going to be cloned but does not need to.
+    // replace all bodies in parental chain by clones that contain only the chain. Directive 
+    // members are moved into the innermost one after the chain is cloned, so they are not cloned.
     Body oldBody = parentChainIterator.getParentAsBody();
     ASTCssNode currentNode = parentChainIterator.getCurrentNode();
     parentChainIterator.moveUpToNextBody();
 
     Body emptyClone = bodiesStorage.storeAndReplaceBySingleMemberClone(oldBody, null);
-    astManipulator.moveMembersBetweenBodies(directive.getBody(), emptyClone);
 
     while (!parentChainIterator.finished()) {
       // store current node and
@@ -105,9 +203,12 @@ public class DirectiveBubblerAndMerger {
       bodiesStorage.storeAndReplaceBySingleMemberClone(oldBody, currentNode);
     }
 
-    // clone whole parental chain
+    // clone whole parental chain and find its innermost body
     currentNode = parentChainIterator.getCurrentNode();
+    List<Integer> pathToEmptyClone = pathFrom(currentNode, emptyClone);
     ASTCssNode currentNodeClone = currentNode.clone();
+    Body innermostBody = (Body) followPath(currentNodeClone, pathToEmptyClone);
+    astManipulator.moveMembersBetweenBodies(directive.getBody(), innermostBody);
 
     // make it directive child
     directive.getBody().addMember(currentNodeClone);
@@ -118,6 +219,34 @@ public class DirectiveBubblerAndMerger {
     astManipulator.addIntoBody(directive, currentNode);
   }
 
+  /**
+   * Indexes of childs leading from ancestor to the node.  
+   */
+  private List<Integer> pathFrom(ASTCssNode ancestor, ASTCssNode node) {
+    LinkedList<Integer> result = new LinkedList<Integer>();
+    while (node != ancestor) {
+      ASTCssNode parent = node.getParent();
+      result.addFirst(indexOf(parent.getChilds(), node));
+      node = parent;
+    }
+    return result;
+  }
+
+  private int indexOf(List<? extends ASTCssNode> childs, ASTCssNode node) {
+    for (int i = 0; i < childs.size(); i++) {
+      if (childs.get(i) == node)
+        return i;
+    }
+    throw new BugHappened("Node is not a child of its parent.", node);
+  }
+
+  private ASTCssNode followPath(ASTCssNode node, List<Integer> path) {
+    for (Integer index : path) {
+      node = node.getChilds().get(index);
+    }
+    return node;
+  }
+
 }
 
 class BodiesStorage {
@@ -4,19 +4,27 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.Body;
 import com.github.sommeri.less4j.core.ast.BodyOwner;
 import com.github.sommeri.less4j.core.ast.Comment;
 
-public class EmptyBodiesRemover {
+public class EmptyBodiesRemover extends FusableTreeVisitor {
 
   private ASTManipulator manipulator = new ASTManipulator();
 
   public void removeEmptyBodies(ASTCssNode node) {
+    new TreeVisitorsPipeline(this).apply(node);
+  }
+
+  @Override
+  protected void leavingNode(ASTCssNode node) {
+    // only body members can be removed - performance optimization: most bodies have nothing to remove
+    if (!(node instanceof Body) || !containsRemovable(((Body) node).getMembers()))
+      return;
+
     List<ASTCssNode> childs = new ArrayList<ASTCssNode>(node.getChilds());
     List<Comment> ownerlessComments = new ArrayList<Comment>();
     for (ASTCssNode kid : childs) {
-      removeEmptyBodies(kid);
-
       if (shouldRemove(kid)) {
         ownerlessComments.addAll(kid.getOpeningComments());
         ownerlessComments.addAll(kid.getTrailingComments());
@@ -30,6 +38,14 @@ public class EmptyBodiesRemover {
     }
   }
 
+  private boolean containsRemovable(List<? extends ASTCssNode> childs) {
+    for (ASTCssNode kid : childs) {
+      if (shouldRemove(kid))
+        return true;
+    }
+    return false;
+  }
+
   @SuppressWarnings("unchecked")
   private boolean shouldRemove(ASTCssNode kid) {
     if (!AstLogic.isBodyOwner(kid))
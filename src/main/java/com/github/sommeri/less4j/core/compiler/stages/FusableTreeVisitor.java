@@ -0,0 +1,23 @@
+package com.github.sommeri.less4j.core.compiler.stages;
+
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+
+/**
+ * Visitor that can share one tree traversal with other visitors, see {@link TreeVisitorsPipeline}. 
+ * 
+ * The visitor is called when the traversal enters a node and when it leaves it. Both methods 
+ * may modify only the node itself and its subtree:
+ * 1.) <code>enteringNode</code> is called before any kid is visited,
+ * 2.) <code>leavingNode</code> is called after all kids were visited and may add or remove kids.
+ * 
+ * Selectors contain no bodies nor declarations and are not visited.   
+ */
+public abstract class FusableTreeVisitor {
+
+  protected void enteringNode(ASTCssNode node) {
+  }
+
+  protected void leavingNode(ASTCssNode node) {
+  }
+
+}
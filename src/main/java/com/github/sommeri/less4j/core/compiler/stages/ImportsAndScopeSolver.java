@@ -10,27 +10,39 @@ import com.github.sommeri.less4j.LessSource;
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
 import com.github.sommeri.less4j.core.ast.Import;
 import com.github.sommeri.less4j.core.ast.StyleSheet;
+import com.github.sommeri.less4j.core.compiler.CompilationStatisticsCollector;
+import com.github.sommeri.less4j.core.compiler.expressions.PureFunctionsCache;
 import com.github.sommeri.less4j.core.compiler.scopes.IScope;
 import com.github.sommeri.less4j.core.compiler.scopes.PlaceholderScope;
 import com.github.sommeri.less4j.core.compiler.stages.SingleImportSolver.AlreadyImportedSources;
+import com.github.sommeri.less4j.core.output.SourcesRegistry;
 import com.github.sommeri.less4j.core.problems.ProblemsHandler;
 
 public class ImportsAndScopeSolver {
 
   private final ProblemsHandler problemsHandler;
   private final Configuration configuration;
+  private final PureFunctionsCache functionsCache;
+  private final SourcesRegistry sources;
+  private final CompilationStatisticsCollector statistics;
   private SingleImportSolver importsSolver;
+  private ConstantExpressionsFolder constantsFolder;
   private Set<LessSource> allImportedSources;
 
-  public ImportsAndScopeSolver(ProblemsHandler problemsHandler, Configuration configuration) {
+  public ImportsAndScopeSolver(ProblemsHandler problemsHandler, Configuration configuration, PureFunctionsCache functionsCache, SourcesRegistry sources, CompilationStatisticsCollector statistics) {
     this.problemsHandler = problemsHandler;
     this.configuration = configuration;
+    this.functionsCache = functionsCache;
+    this.sources = sources;
+    this.statistics = statistics;
   }
 
   public IScope buildImportsAndScope(StyleSheet less, LessSource source) {
-    importsSolver = new SingleImportSolver(problemsHandler, configuration);
+    importsSolver = new SingleImportSolver(problemsHandler, configuration, sources, statistics);
     allImportedSources = new HashSet<LessSource>(); 
+    constantsFolder = new ConstantExpressionsFolder(configuration, functionsCache);
 
+    constantsFolder.foldConstants(less);
     InitialScopeExtractor scopeBuilder = new InitialScopeExtractor();
     IScope scope = scopeBuilder.extractScope(less);
     List<PlaceholderScope> importsPlaceholders = scopeBuilder.getImportsPlaceholders();
@@ -59,11 +71,12 @@ public class ImportsAndScopeSolver {
 
   private List<PlaceholderScope> importIntoPlaceholder(PlaceholderScope placeholder, AlreadyImportedSources alreadyImportedSources) {
     Import encounteredImport = (Import) placeholder.getOwner();
-    ReferencesSolver referencesSolver = new ReferencesSolver(problemsHandler, configuration);
+    ReferencesSolver referencesSolver = new ReferencesSolver(problemsHandler, configuration, functionsCache, statistics);
     referencesSolver.solveReferences(encounteredImport, placeholder.getParent());
 
     ASTCssNode importedAst = importsSolver.importEncountered(encounteredImport, placeholder.getOwner().getSource(), alreadyImportedSources);
     if (importedAst != null) {
+      constantsFolder.foldConstants(importedAst);
       InitialScopeExtractor importedAstScopeBuilder = new InitialScopeExtractor();
       IScope addThisIntoScopeTree = importedAstScopeBuilder.extractScope(importedAst);
       
@@ -8,9 +8,11 @@ import com.github.sommeri.less4j.core.ast.GeneralBody;
 import com.github.sommeri.less4j.core.ast.MixinReference;
 import com.github.sommeri.less4j.core.ast.ReusableStructure;
 import com.github.sommeri.less4j.core.ast.ReusableStructureName;
+import com.github.sommeri.less4j.core.compiler.CompilationStatisticsCollector;
 import com.github.sommeri.less4j.core.compiler.expressions.ExpressionEvaluator;
 import com.github.sommeri.less4j.core.compiler.expressions.GuardValue;
 import com.github.sommeri.less4j.core.compiler.expressions.MixinsGuardsValidator;
+import com.github.sommeri.less4j.core.compiler.expressions.PureFunctionsCache;
 import com.github.sommeri.less4j.core.compiler.scopes.FoundMixin;
 import com.github.sommeri.less4j.core.compiler.scopes.FullMixinDefinition;
 import com.github.sommeri.less4j.core.compiler.scopes.InScopeSnapshotRunner;
@@ -25,12 +27,16 @@ public class MixinReferenceFinder {
   private boolean foundNamespace = false;
   private final ProblemsHandler problemsHandler;
   private final Configuration configuration;
+  private final PureFunctionsCache functionsCache;
+  private final CompilationStatisticsCollector statistics;
 
-  public MixinReferenceFinder(ReferencesSolver referencesSolver, AstNodesStack semiCompiledNodes, ProblemsHandler problemsHandler, Configuration configuration) {
+  public MixinReferenceFinder(ReferencesSolver referencesSolver, AstNodesStack semiCompiledNodes, ProblemsHandler problemsHandler, Configuration configuration, PureFunctionsCache functionsCache, CompilationStatisticsCollector statistics) {
     this.parentSolver = referencesSolver;
     this.semiCompiledNodes = semiCompiledNodes;
     this.problemsHandler = problemsHandler;
     this.configuration = configuration;
+    this.functionsCache = functionsCache;
+    this.statistics = statistics;
   }
 
   /**
@@ -149,7 +155,7 @@ public class MixinReferenceFinder {
           parentSolver.unsafeDoSolveReferences(bodyClone, scope);
          
           // this needs to be done to enforce https://github.com/SomMeri/less4j/issues/163
-          ExpressionEvaluator evaluator = new ExpressionEvaluator(scope, problemsHandler, configuration);
+          ExpressionEvaluator evaluator = new ExpressionEvaluator(scope, problemsHandler, configuration, functionsCache, statistics);
           evaluator.evaluateValues(scope);
         }
         MixinsGuardsValidator guardsValidator = new MixinsGuardsValidator(scope, problemsHandler, configuration);
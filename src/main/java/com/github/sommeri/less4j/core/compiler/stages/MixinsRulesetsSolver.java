@@ -17,11 +17,13 @@ import com.github.sommeri.less4j.core.ast.ListExpression;
 import com.github.sommeri.less4j.core.ast.ListExpressionOperator;
 import com.github.sommeri.less4j.core.ast.MixinReference;
 import com.github.sommeri.less4j.core.ast.ReusableStructure;
+import com.github.sommeri.less4j.core.compiler.CompilationStatisticsCollector;
 import com.github.sommeri.less4j.core.compiler.expressions.ExpressionEvaluator;
 import com.github.sommeri.less4j.core.compiler.expressions.ExpressionFilter;
 import com.github.sommeri.less4j.core.compiler.expressions.ExpressionManipulator;
 import com.github.sommeri.less4j.core.compiler.expressions.GuardValue;
 import com.github.sommeri.less4j.core.compiler.expressions.MixinsGuardsValidator;
+import com.github.sommeri.less4j.core.compiler.expressions.PureFunctionsCache;
 import com.github.sommeri.less4j.core.compiler.scopes.FoundMixin;
 import com.github.sommeri.less4j.core.compiler.scopes.FullMixinDefinition;
 import com.github.sommeri.less4j.core.compiler.scopes.IScope;
@@ -42,43 +44,53 @@ class MixinsRulesetsSolver {
   private final ReferencesSolver parentSolver;
   private final AstNodesStack semiCompiledNodes;
   private final Configuration configuration;
+  private final PureFunctionsCache functionsCache;
+  private final CompilationStatisticsCollector statistics;
   private final DefaultGuardHelper defaultGuardHelper;
   private final CallerCalleeScopeJoiner scopeManipulation = new CallerCalleeScopeJoiner();
   private final ExpressionManipulator expressionManipulator = new ExpressionManipulator();
 
-  public MixinsRulesetsSolver(ReferencesSolver parentSolver, AstNodesStack semiCompiledNodes, ProblemsHandler problemsHandler, Configuration configuration) {
+  public MixinsRulesetsSolver(ReferencesSolver parentSolver, AstNodesStack semiCompiledNodes, ProblemsHandler problemsHandler, Configuration configuration, PureFunctionsCache functionsCache, CompilationStatisticsCollector statistics) {
     this.parentSolver = parentSolver;
     this.semiCompiledNodes = semiCompiledNodes;
     this.problemsHandler = problemsHandler;
     this.configuration = configuration;
+    this.functionsCache = functionsCache;
+    this.statistics = statistics;
     this.defaultGuardHelper = new DefaultGuardHelper(problemsHandler);
   }
 
   private Couple<List<ASTCssNode>, IScope> resolveCalledBody(final IScope callerScope, final BodyOwner<?> bodyOwner, final IScope referencedMixinScope, final ReturnMode returnMode, final int visibilityBlocks) {
+    statistics.mixinExpanded();
 
     // ... and I'm starting to see the point of closures ...
     return InScopeSnapshotRunner.runInLocalDataSnapshot(referencedMixinScope, new IFunction<Couple<List<ASTCssNode>, IScope>>() {
 
       @Override
       public Couple<List<ASTCssNode>, IScope> run() {
-        // compile referenced mixin - keep the original copy unchanged
-        List<ASTCssNode> replacement = compileBody(bodyOwner.getBody(), referencedMixinScope);
-        for (ASTCssNode node : replacement) {
-          node.addVisibilityBlocks(visibilityBlocks);
+        statistics.enter(bodyOwner);
+        try {
+          // compile referenced mixin - keep the original copy unchanged
+          List<ASTCssNode> replacement = compileBody(bodyOwner.getBody(), referencedMixinScope);
+          for (ASTCssNode node : replacement) {
+            node.addVisibilityBlocks(visibilityBlocks);
+          }
+
+          // collect variables and mixins to be imported
+          IScope returnValues = ScopeFactory.createDummyScope();
+          if (returnMode == ReturnMode.MIXINS_AND_VARIABLES) {
+            ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator(referencedMixinScope, problemsHandler, configuration, functionsCache, statistics);
+            returnValues.addFilteredVariables(new ImportedScopeFilter(expressionEvaluator, callerScope), referencedMixinScope);
+          }
+          List<FullMixinDefinition> unmodifiedMixinsToImport = referencedMixinScope.getAllMixins();
+
+          List<FullMixinDefinition> allMixinsToImport = scopeManipulation.mixinsToImport(callerScope, referencedMixinScope, unmodifiedMixinsToImport);
+          returnValues.addAllMixins(allMixinsToImport);
+
+          return new Couple<List<ASTCssNode>, IScope>(replacement, returnValues);
+        } finally {
+          statistics.exit();
         }
-
-        // collect variables and mixins to be imported
-        IScope returnValues = ScopeFactory.createDummyScope();
-        if (returnMode == ReturnMode.MIXINS_AND_VARIABLES) {
-          ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator(referencedMixinScope, problemsHandler, configuration);
-          returnValues.addFilteredVariables(new ImportedScopeFilter(expressionEvaluator, callerScope), referencedMixinScope);
-        }
-        List<FullMixinDefinition> unmodifiedMixinsToImport = referencedMixinScope.getAllMixins();
-
-        List<FullMixinDefinition> allMixinsToImport = scopeManipulation.mixinsToImport(callerScope, referencedMixinScope, unmodifiedMixinsToImport);
-        returnValues.addAllMixins(allMixinsToImport);
-
-        return new Couple<List<ASTCssNode>, IScope>(replacement, returnValues);
       }
 
     });
@@ -9,20 +9,23 @@ import com.github.sommeri.less4j.core.ast.ASTCssNode;
 import com.github.sommeri.less4j.core.ast.Directive;
 import com.github.sommeri.less4j.core.ast.RuleSet;
 import com.github.sommeri.less4j.core.ast.Selector;
+import com.github.sommeri.less4j.core.compiler.selectors.DuplicateSelectorsRemover;
 import com.github.sommeri.less4j.core.compiler.selectors.SelectorsManipulator;
 
 public class NestedInRulesetStack {
   private final SelectorsManipulator selectorsManipulator = new SelectorsManipulator();
+  private final DuplicateSelectorsRemover duplicatesRemover;
 
   private Stack<List<Selector>> selectors = new Stack<List<Selector>>();
   private LinkedList<ASTCssNode> nestedNodes = new LinkedList<ASTCssNode>();
 
-  public NestedInRulesetStack(RuleSet topLevelNode) {
+  public NestedInRulesetStack(RuleSet topLevelNode, boolean removeDuplicateSelectors) {
+    this.duplicatesRemover = removeDuplicateSelectors ? new DuplicateSelectorsRemover() : null;
     List<Selector> topSelectors = new ArrayList<Selector>();
     for (Selector selector : topLevelNode.getSelectors()) {
       topSelectors.add(selectorsManipulator.removeAppenders(selector.clone()));
     }
-    selectors.push(topSelectors);
+    selectors.push(removeDuplicates(topSelectors));
   }
 
   public void popSelectors() {
@@ -54,10 +57,17 @@ public class NestedInRulesetStack {
       result.addAll(selectorsManipulator.replaceAppenders(selector, previousSelectors));
     }
 
-    ruleSet.replaceSelectors(result);
+    ruleSet.replaceSelectors(removeDuplicates(result));
     ruleSet.configureParentToAllChilds();
   }
 
+  private List<Selector> removeDuplicates(List<Selector> selectors) {
+    if (duplicatesRemover == null)
+      return selectors;
+
+    return duplicatesRemover.removeDuplicates(selectors);
+  }
+
   public List<Selector> currentSelectors() {
     return selectors.peek();
   }
@@ -6,6 +6,8 @@ import java.util.List;
 import java.util.Stack;
 
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
+import com.github.sommeri.less4j.core.ast.Body;
 import com.github.sommeri.less4j.core.ast.Media;
 import com.github.sommeri.less4j.core.ast.MediaQuery;
 import com.github.sommeri.less4j.core.problems.ProblemsHandler;
@@ -19,7 +21,6 @@ import com.github.sommeri.less4j.utils.ArraysUtils;
 // FIXME (import) test directive inside directive where inner directive is behind reference
 public class NestedMediaCollector {
 
-  private final ASTManipulator manipulator = new ASTManipulator();
   private Stack<List<MediaQuery>> mediums;
   private LinkedList<Media> finalMedia;
   private ProblemsHandler problemsHandler;
@@ -39,33 +40,48 @@ public class NestedMediaCollector {
     return finalMedia;
   }
 
-  private void collectChildMedia(ASTCssNode node) {
-    List<? extends ASTCssNode> childs = new ArrayList<ASTCssNode>(node.getChilds());
-    for (ASTCssNode kid : childs)
-      switch (kid.getType()) {
-      case MEDIA: {
-        Media nestedMedia = (Media) kid;
-        manipulator.removeFromBody(nestedMedia);
-        collect(nestedMedia);
-        pushMediums(nestedMedia);
+  private void collectChildMedia(Media media) {
+    // media at-rules always have body
+    collectChildMedia(media.getBody());
+  }
 
-        collectChildMedia(nestedMedia.getBody());
+  private void collectChildMedia(Body body) {
+    // The collector assumes that all media already
+    // bubbled no top of rulesets. There is no reason 
+    // to go into anything other then media and their 
+    // bodies.
+    List<Media> nestedMedia = removeNestedMedia(body);
+    for (Media media : nestedMedia) {
+      collect(media);
+      pushMediums(media);
 
-        popMediums();
-        break;
-      }
-      case GENERAL_BODY: {
-        collectChildMedia(kid);
-        break;
-      }
+      collectChildMedia(media);
 
-      default:
-        // The collector assumes that all media already
-        // bubbled no top of rulesets. There is no reason 
-        // to go into anything other then media and their 
-        // bodies.
-        break;
+      popMediums();
+    }
+  }
+
+  /**
+   * Removes all media from the body at once, removing them one by one would be quadratic.  
+   */
+  private List<Media> removeNestedMedia(Body body) {
+    List<ASTCssNode> members = body.getMembers();
+    List<Media> result = new ArrayList<Media>();
+    List<ASTCssNode> keep = new ArrayList<ASTCssNode>(members.size());
+    for (ASTCssNode member : members) {
+      if (member.getType() == ASTCssNodeType.MEDIA) {
+        result.add((Media) member);
+        member.setParent(null);
+      } else {
+        keep.add(member);
       }
+    }
+
+    if (!result.isEmpty()) {
+      body.removeAllMembers();
+      body.addMembers(keep);
+    }
+    return result;
   }
 
   private void collect(Media media) {
@@ -26,7 +26,9 @@ import com.github.sommeri.less4j.core.ast.RuleSet;
 import com.github.sommeri.less4j.core.ast.SimpleSelector;
 import com.github.sommeri.less4j.core.ast.Variable;
 import com.github.sommeri.less4j.core.ast.VariableNamePart;
+import com.github.sommeri.less4j.core.compiler.CompilationStatisticsCollector;
 import com.github.sommeri.less4j.core.compiler.expressions.ExpressionEvaluator;
+import com.github.sommeri.less4j.core.compiler.expressions.PureFunctionsCache;
 import com.github.sommeri.less4j.core.compiler.expressions.strings.StringInterpolator;
 import com.github.sommeri.less4j.core.compiler.scopes.FoundMixin;
 import com.github.sommeri.less4j.core.compiler.scopes.IScope;
@@ -45,14 +47,18 @@ public class ReferencesSolver {
   private final MixinsRulesetsSolver mixinsSolver;
   private final ProblemsHandler problemsHandler;
   private final Configuration configuration;
+  private final PureFunctionsCache functionsCache;
+  private final CompilationStatisticsCollector statistics;
   private final AstNodesStack semiCompiledNodes = new AstNodesStack();
   private final StringInterpolator stringInterpolator;
 
-  public ReferencesSolver(ProblemsHandler problemsHandler, Configuration configuration) {
+  public ReferencesSolver(ProblemsHandler problemsHandler, Configuration configuration, PureFunctionsCache functionsCache, CompilationStatisticsCollector statistics) {
     this.problemsHandler = problemsHandler;
     this.configuration = configuration;
+    this.functionsCache = functionsCache;
+    this.statistics = statistics;
     this.stringInterpolator = new StringInterpolator(problemsHandler);
-    this.mixinsSolver = new MixinsRulesetsSolver(this, semiCompiledNodes, problemsHandler, configuration);
+    this.mixinsSolver = new MixinsRulesetsSolver(this, semiCompiledNodes, problemsHandler, configuration, functionsCache, statistics);
   }
 
   public void solveReferences(final ASTCssNode node, final IScope scope) {
@@ -116,7 +122,7 @@ public class ReferencesSolver {
         RuleSet ruleSet = (RuleSet) kid;
         if (cssGuardsValidator == null) {
           // this is first time we need guards validator, therefore it needs to be created
-          cssGuardsValidator = new ExpressionEvaluator(guardEvaluatorScope, problemsHandler, configuration);
+          cssGuardsValidator = new ExpressionEvaluator(guardEvaluatorScope, problemsHandler, configuration, functionsCache, statistics);
         }
         if (cssGuardsValidator.guardsSatisfied(ruleSet)) {
           ruleSet.removeGuards();
@@ -174,7 +180,7 @@ public class ReferencesSolver {
         MixinReference reference = (MixinReference) kid;
         if (expressionEvaluator == null) {
           // this is first time we need expressions evaluator, therefore it needs to be created
-          expressionEvaluator = new ExpressionEvaluator(referenceScope, problemsHandler, configuration);
+          expressionEvaluator = new ExpressionEvaluator(referenceScope, problemsHandler, configuration, functionsCache, statistics);
         }
         EvaluatedMixinReferenceCall evaluatedMixinReference = new EvaluatedMixinReferenceCall(reference, expressionEvaluator);
         List<FoundMixin> foundMixins = findReferencedMixins(evaluatedMixinReference, referenceScope);
@@ -190,7 +196,7 @@ public class ReferencesSolver {
           handleUnavailableDetachedRulesetReference(detachedRulesetReference, solvedMixinReferences);
         } else {
           if (expressionEvaluator == null) {
-            expressionEvaluator = new ExpressionEvaluator(referenceScope, problemsHandler, configuration);
+            expressionEvaluator = new ExpressionEvaluator(referenceScope, problemsHandler, configuration, functionsCache, statistics);
           }
           Expression evaluatedDetachedRuleset = expressionEvaluator.evaluate(fullNodeDefinition);
           fullNodeDefinition = evaluatedDetachedRuleset;
@@ -227,7 +233,7 @@ public class ReferencesSolver {
 
   protected List<FoundMixin> findReferencedMixins(EvaluatedMixinReferenceCall evaluatedMixinReference, IScope scope) {
     MixinReference mixinReference = evaluatedMixinReference.getReference();
-    MixinReferenceFinder finder = new MixinReferenceFinder(this, semiCompiledNodes, problemsHandler, configuration);
+    MixinReferenceFinder finder = new MixinReferenceFinder(this, semiCompiledNodes, problemsHandler, configuration, functionsCache, statistics);
     List<FoundMixin> sameNameMixins = finder.getNearestMixins(scope, mixinReference);
     if (sameNameMixins.isEmpty()) {
       // error reporting
@@ -257,50 +263,50 @@ public class ReferencesSolver {
     ExpressionEvaluator expressionEvaluator = null;
     switch (node.getType()) {
     case VARIABLE: {
-      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration);
+      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration, functionsCache, statistics);
       Expression replacement = expressionEvaluator.evaluate((Variable) node);
       manipulator.replace(node, replacement);
       return true;
     }
     case INDIRECT_VARIABLE: {
-      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration);
+      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration, functionsCache, statistics);
       Expression replacement = expressionEvaluator.evaluate((IndirectVariable) node);
       manipulator.replace(node, replacement);
       return true;
     }
     case STRING_EXPRESSION: {
-      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration);
+      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration, functionsCache, statistics);
       Expression replacement = expressionEvaluator.evaluate((CssString) node);
       manipulator.replace(node, replacement);
       return true;
     }
     case ESCAPED_VALUE: {
-      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration);
+      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration, functionsCache, statistics);
       Expression replacement = expressionEvaluator.evaluate((EscapedValue) node);
       manipulator.replace(node, replacement);
       return true;
     }
     case EMBEDDED_SCRIPT: {
-      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration);
+      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration, functionsCache, statistics);
       Expression replacement = expressionEvaluator.evaluate((EmbeddedScript) node);
       manipulator.replace(node, replacement);
       return true;
     }
     case ESCAPED_SELECTOR: {
-      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration);
+      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration, functionsCache, statistics);
       SimpleSelector replacement = interpolateEscapedSelector((EscapedSelector) node, expressionEvaluator);
       manipulator.replace(node, replacement);
       return true;
     }
     case FIXED_NAME_PART: {
-      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration);
+      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration, functionsCache, statistics);
       FixedNamePart part = (FixedNamePart) node;
       FixedNamePart replacement = interpolateFixedNamePart(part, expressionEvaluator);
       manipulator.replace(part, replacement);
       return true;
     }
     case VARIABLE_NAME_PART: {
-      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration);
+      expressionEvaluator = new ExpressionEvaluator(scope, problemsHandler, configuration, functionsCache, statistics);
       VariableNamePart part = (VariableNamePart) node;
       Expression value = expressionEvaluator.evaluate(part.getVariable());
       FixedNamePart fixedName = toFixedName(value, node.getUnderlyingStructure(), part);
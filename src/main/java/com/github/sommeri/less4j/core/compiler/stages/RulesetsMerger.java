@@ -0,0 +1,344 @@
+package com.github.sommeri.less4j.core.compiler.stages;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
+import com.github.sommeri.less4j.core.ast.Body;
+import com.github.sommeri.less4j.core.ast.BodyOwner;
+import com.github.sommeri.less4j.core.ast.Declaration;
+import com.github.sommeri.less4j.core.ast.Pseudo;
+import com.github.sommeri.less4j.core.ast.RuleSet;
+import com.github.sommeri.less4j.core.ast.Selector;
+import com.github.sommeri.less4j.core.ast.StyleSheet;
+import com.github.sommeri.less4j.utils.ArraysUtils;
+import com.github.sommeri.less4j.utils.CssPrinter;
+
+/**
+ * Makes the final css smaller:
+ * 1.) rulesets with the same selectors are merged into one ruleset with declarations of both,
+ * 2.) rulesets with the same declarations are merged into one ruleset with selectors of both.
+ *
+ * Rulesets are merged only within the same body (style sheet, media, supports or document) and
+ * later ruleset is always merged into the earlier one. Moving declarations of the later
+ * ruleset up is safe only if no ruleset in between sets the same property. Properties are
+ * compared conservatively - the check compares property families (e.g., <code>margin</code>
+ * and <code>margin-top</code> belong to the same family) and everything other than a ruleset
+ * stops merging.
+ *
+ * Rulesets are compared by their printed form, so the merger is able to find only rulesets
+ * that would be printed the same way. Rulesets with comments are never merged and rulesets
+ * with less supported pseudo classes or elements are never merged with other selectors. Browsers
+ * drop whole ruleset if they do not understand one selector.
+ *
+ * Preconditions: declarations must be finished and empty rulesets removed.
+ */
+public class RulesetsMerger {
+
+  private static final Set<String> SAFE_PSEUDOS = ArraysUtils.asSet("link", "visited", "hover", "active", "focus", "first-child", "last-child", "only-child", "first-of-type", "last-of-type", "only-of-type", "nth-child", "nth-last-child", "nth-of-type", "nth-last-of-type", "not", "empty", "root", "target", "checked", "disabled", "enabled", "lang", "before", "after", "first-line", "first-letter");
+  private static final Map<String, String> SHARED_FAMILIES = new HashMap<String, String>();
+  private static final String INDENTATION = "  ";
+  private static final String NEW_LINE = "\n";
+  private static final String SELECTORS_SEPARATOR = ",\n";
+
+  static {
+    // shorthands and aliases that do not share prefix with properties they set
+    SHARED_FAMILIES.put("line", "font");
+    SHARED_FAMILIES.put("place", "align");
+    SHARED_FAMILIES.put("justify", "align");
+    SHARED_FAMILIES.put("top", "inset");
+    SHARED_FAMILIES.put("right", "inset");
+    SHARED_FAMILIES.put("bottom", "inset");
+    SHARED_FAMILIES.put("left", "inset");
+    SHARED_FAMILIES.put("gap", "grid");
+    SHARED_FAMILIES.put("row", "grid");
+    SHARED_FAMILIES.put("column", "grid");
+    SHARED_FAMILIES.put("columns", "grid");
+    SHARED_FAMILIES.put("width", "size");
+    SHARED_FAMILIES.put("height", "size");
+    SHARED_FAMILIES.put("min", "size");
+    SHARED_FAMILIES.put("max", "size");
+    SHARED_FAMILIES.put("inline", "size");
+    SHARED_FAMILIES.put("block", "size");
+    SHARED_FAMILIES.put("translate", "transform");
+    SHARED_FAMILIES.put("rotate", "transform");
+    SHARED_FAMILIES.put("scale", "transform");
+    SHARED_FAMILIES.put("page", "break");
+    SHARED_FAMILIES.put("word", "overflow");
+    SHARED_FAMILIES.put("white", "text");
+  }
+
+  private final CssPrinter basePrinter;
+  private final boolean compressing;
+  private int mergedRulesets = 0;
+  private int savedBytes = 0;
+
+  public RulesetsMerger(LessSource source, Configuration configuration) {
+    LessSource cssDestination = new LessSource.StringSource("", source.getName());
+    this.basePrinter = new CssPrinter(source, cssDestination, new ArrayList<LessSource>(), new ArrayList<LessSource>(), configuration);
+    this.compressing = configuration.isCompressing();
+  }
+
+  public void mergeRulesets(StyleSheet styleSheet) {
+    mergeRulesets(styleSheet, 0);
+  }
+
+  private void mergeRulesets(Body body, int indentationLevel) {
+    for (ASTCssNode member : body.getMembers()) {
+      switch (member.getType()) {
+      case MEDIA:
+      case SUPPORTS:
+      case DOCUMENT:
+        Body nestedBody = ((BodyOwner<?>) member).getBody();
+        if (nestedBody != null)
+          mergeRulesets(nestedBody, indentationLevel + 1);
+        break;
+
+      default:
+        break;
+      }
+    }
+
+    merge(body, indentationLevel, true);
+    merge(body, indentationLevel, false);
+  }
+
+  /**
+   * Number of rulesets merged into other rulesets.
+   */
+  public int getMergedRulesets() {
+    return mergedRulesets;
+  }
+
+  /**
+   * By how many characters merging shortened the css.
+   */
+  public int getSavedBytes() {
+    return savedBytes;
+  }
+
+  private void merge(Body body, int indentationLevel, boolean sameSelectors) {
+    List<ASTCssNode> members = body.getMembers();
+    Map<String, Candidate> candidates = new HashMap<String, Candidate>();
+    // last position of a ruleset that sets a property from the family
+    Map<String, Integer> familiesPositions = new HashMap<String, Integer>();
+    Map<ASTCssNode, Boolean> merged = new IdentityHashMap<ASTCssNode, Boolean>();
+
+    for (int position = 0; position < members.size(); position++) {
+      ASTCssNode member = members.get(position);
+      Set<String> families = member.getType() == ASTCssNodeType.RULE_SET ? toFamilies((RuleSet) member) : null;
+      if (families == null) {
+        // nothing can be moved over unknown member
+        candidates.clear();
+        familiesPositions.clear();
+        continue;
+      }
+
+      RuleSet ruleSet = (RuleSet) member;
+      String key = toKey(ruleSet, sameSelectors);
+      Candidate candidate = key == null ? null : candidates.get(key);
+      if (candidate != null && canMoveTo(candidate.position, families, familiesPositions)) {
+        merge(candidate, ruleSet, indentationLevel, sameSelectors);
+        merged.put(ruleSet, Boolean.TRUE);
+        // declarations moved up to the candidate
+        storePositions(families, candidate.position, familiesPositions);
+      } else {
+        if (key != null)
+          candidates.put(key, new Candidate(ruleSet, position, printedSize(ruleSet, indentationLevel)));
+        storePositions(families, position, familiesPositions);
+      }
+    }
+
+    if (!merged.isEmpty())
+      removeMerged(body, merged);
+  }
+
+  private void merge(Candidate into, RuleSet ruleSet, int indentationLevel, boolean sameSelectors) {
+    // merged ruleset was separated from the previous member by new line or by space if compressing
+    int originalSize = printedSize(ruleSet, indentationLevel) + 1;
+
+    if (sameSelectors) {
+      Body body = into.ruleSet.getBody();
+      for (ASTCssNode declaration : ruleSet.getBody().getMembers()) {
+        body.addMember(declaration);
+        declaration.setParent(body);
+      }
+      // printer removes duplicate declarations, so the new size must be measured
+      int size = printedSize(into.ruleSet, indentationLevel);
+      savedBytes += originalSize + into.printedSize - size;
+      into.printedSize = size;
+    } else {
+      // performance optimization - printing the growing ruleset again after each merge would be quadratic
+      int addedSize = SELECTORS_SEPARATOR.length() + printedSize(ruleSet.getSelectors(), indentationLevel);
+      for (Selector selector : ruleSet.getSelectors()) {
+        into.ruleSet.addSelector(selector);
+        selector.setParent(into.ruleSet);
+      }
+      savedBytes += originalSize - addedSize;
+      into.printedSize += addedSize;
+    }
+    mergedRulesets++;
+  }
+
+  private void removeMerged(Body body, Map<ASTCssNode, Boolean> merged) {
+    // removing members one by one would be quadratic
+    List<ASTCssNode> members = body.getMembers();
+    List<ASTCssNode> result = new ArrayList<ASTCssNode>(members.size() - merged.size());
+    for (ASTCssNode member : members) {
+      if (merged.containsKey(member)) {
+        member.setParent(null);
+      } else {
+        result.add(member);
+      }
+    }
+    body.removeAllMembers();
+    body.addMembers(result);
+  }
+
+  private boolean canMoveTo(int position, Set<String> families, Map<String, Integer> familiesPositions) {
+    for (String family : families) {
+      Integer lastPosition = familiesPositions.get(family);
+      if (lastPosition != null && lastPosition > position)
+        return false;
+    }
+    return true;
+  }
+
+  private void storePositions(Set<String> families, int position, Map<String, Integer> familiesPositions) {
+    for (String family : families) {
+      Integer lastPosition = familiesPositions.get(family);
+      if (lastPosition == null || lastPosition < position)
+        familiesPositions.put(family, position);
+    }
+  }
+
+  /**
+   * Returns families of all properties in the ruleset or <code>null</code> if the ruleset
+   * contains something else then declarations or property that affects all properties.
+   */
+  static Set<String> toFamilies(RuleSet ruleSet) {
+    Set<String> result = new HashSet<String>();
+    for (ASTCssNode member : ruleSet.getBody().getMembers()) {
+      if (member.getType() != ASTCssNodeType.DECLARATION)
+        return null;
+
+      String family = toFamily(((Declaration) member).getNameAsString());
+      if (family == null)
+        return null;
+      result.add(family);
+    }
+    return result;
+  }
+
+  private static String toFamily(String property) {
+    if (property == null)
+      return null;
+
+    String name = property.toLowerCase();
+    // custom properties do not interact with other properties
+    if (name.startsWith("--"))
+      return name;
+
+    // ie hacks
+    while (name.startsWith("*") || name.startsWith("_"))
+      name = name.substring(1);
+    // vendor prefix
+    if (name.startsWith("-")) {
+      int prefixEnd = name.indexOf('-', 1);
+      name = prefixEnd == -1 ? name.substring(1) : name.substring(prefixEnd + 1);
+    }
+    if (name.equals("all"))
+      return null;
+
+    int familyEnd = name.indexOf('-');
+    String family = familyEnd == -1 ? name : name.substring(0, familyEnd);
+    String sharedFamily = SHARED_FAMILIES.get(family);
+    return sharedFamily == null ? family : sharedFamily;
+  }
+
+  /**
+   * Printed selectors or declarations of the ruleset or <code>null</code> if the ruleset
+   * should not be merged.
+   */
+  private String toKey(RuleSet ruleSet, boolean sameSelectors) {
+    if (ruleSet.getSelectors().isEmpty() || ruleSet.getBody().isEmpty() || hasComments(ruleSet))
+      return null;
+    if (!sameSelectors && hasUnsafePseudo(ruleSet))
+      return null;
+
+    CssPrinter printer = new CssPrinter(basePrinter);
+    if (sameSelectors) {
+      printer.appendSelectors(ruleSet.getSelectors());
+    } else {
+      printer.append(ruleSet.getBody());
+    }
+    String key = printer.toString();
+    return key.trim().isEmpty() ? null : key;
+  }
+
+  private boolean hasUnsafePseudo(ASTCssNode node) {
+    if (node instanceof Pseudo && !SAFE_PSEUDOS.contains(((Pseudo) node).getName().toLowerCase()))
+      return true;
+
+    for (ASTCssNode kid : node.getChilds()) {
+      if (kid.getType() != ASTCssNodeType.GENERAL_BODY && hasUnsafePseudo(kid))
+        return true;
+    }
+    return false;
+  }
+
+  private boolean hasComments(ASTCssNode node) {
+    if (node.hasComments())
+      return true;
+
+    for (ASTCssNode kid : node.getChilds()) {
+      if (hasComments(kid))
+        return true;
+    }
+    return false;
+  }
+
+  private int printedSize(RuleSet ruleSet, int indentationLevel) {
+    CssPrinter printer = new CssPrinter(basePrinter);
+    printer.append(ruleSet);
+    return printedSize(printer.toString(), indentationLevel);
+  }
+
+  private int printedSize(List<Selector> selectors, int indentationLevel) {
+    CssPrinter printer = new CssPrinter(basePrinter);
+    printer.appendSelectors(selectors);
+    return printedSize(printer.toString(), indentationLevel);
+  }
+
+  private int printedSize(String css, int indentationLevel) {
+    if (compressing)
+      return css.length();
+
+    // each line is indented inside media
+    int lines = css.split(NEW_LINE, -1).length;
+    return css.length() + lines * indentationLevel * INDENTATION.length();
+  }
+
+  private static class Candidate {
+
+    private final RuleSet ruleSet;
+    private final int position;
+    private int printedSize;
+
+    public Candidate(RuleSet ruleSet, int position, int printedSize) {
+      this.ruleSet = ruleSet;
+      this.position = position;
+      this.printedSize = printedSize;
+    }
+
+  }
+
+}
@@ -21,7 +21,9 @@ import com.github.sommeri.less4j.core.ast.Import.ImportContent;
 import com.github.sommeri.less4j.core.ast.InlineContent;
 import com.github.sommeri.less4j.core.ast.Media;
 import com.github.sommeri.less4j.core.ast.StyleSheet;
+import com.github.sommeri.less4j.core.compiler.CompilationStatisticsCollector;
 import com.github.sommeri.less4j.core.compiler.expressions.TypesConversionUtils;
+import com.github.sommeri.less4j.core.output.SourcesRegistry;
 import com.github.sommeri.less4j.core.parser.ANTLRParser;
 import com.github.sommeri.less4j.core.parser.ASTBuilder;
 import com.github.sommeri.less4j.core.parser.HiddenTokenAwareTree;
@@ -33,12 +35,16 @@ public class SingleImportSolver {
   private final Configuration configuration;
   private TypesConversionUtils conversionUtils = new TypesConversionUtils();
   private ASTManipulator astManipulator = new ASTManipulator();
+  private final SourcesRegistry sources;
+  private final CompilationStatisticsCollector statistics;
 
   private Cache astCache;
 
-  public SingleImportSolver(ProblemsHandler problemsHandler, Configuration configuration) {
+  public SingleImportSolver(ProblemsHandler problemsHandler, Configuration configuration, SourcesRegistry sources, CompilationStatisticsCollector statistics) {
     this.problemsHandler = problemsHandler;
     this.configuration = configuration;
+    this.sources = sources;
+    this.statistics = statistics;
     this.astCache = configuration.getCache();
     if (astCache == null) {
       final HashMap<Object, Object> map = new HashMap<Object, Object>();
@@ -98,14 +104,16 @@ public class SingleImportSolver {
     StyleSheet importedAst;
     try {
       if (importNode.isInline()) {
-        ASTCssNode importedNode = replaceByInlineValue(importNode, importedSource.getContent());
+        ASTCssNode importedNode = replaceByInlineValue(importNode, sources.getContent(importedSource));
         alreadyImportedSources.add(importedSource);
+        statistics.importRead();
         configureVisibilityBlocks(importNode, Arrays.asList(importedNode));
         return importedNode;
       }
 
       importedAst = buildImportedAst(importNode, importedSource);
       alreadyImportedSources.add(importedSource);
+      statistics.importRead();
     } catch (FileNotFound e) {
       return importFileNotFound(importNode, filename);
     } catch (CannotReadFile e) {
@@ -171,13 +179,14 @@ public class SingleImportSolver {
   private StyleSheet getImportedAst(Import node, LessSource source) throws FileNotFound, CannotReadFile {
     StyleSheet importedAst = (StyleSheet) astCache.getAst(source);
     if (importedAst == null) {
-      importedAst = parseContent(node, source.getContent(), source);
+      importedAst = parseContent(node, sources.getContent(source), source);
       astCache.setAst(source, importedAst);
     }
     return importedAst.clone();
   }
 
   private StyleSheet parseContent(Import importNode, String importedContent, LessSource source) {
+    statistics.parsed(importedContent);
     ANTLRParser parser = new ANTLRParser();
     ANTLRParser.ParseResult parsedSheet = parser.parseStyleSheet(importedContent, source);
     if (parsedSheet.hasErrors()) {
@@ -1,54 +1,37 @@
 package com.github.sommeri.less4j.core.compiler.stages;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
 import com.github.sommeri.less4j.core.ast.Body;
 import com.github.sommeri.less4j.core.ast.Declaration;
 import com.github.sommeri.less4j.core.ast.RuleSet;
 
-public abstract class TreeDeclarationsVisitor {
+/**
+ * Visits declarations placed directly in rulesets bodies. Ruleset body is processed when 
+ * the traversal leaves the ruleset, e.g., after its nested members were processed by other 
+ * visitors fused into the same traversal.
+ */
+public abstract class TreeDeclarationsVisitor extends FusableTreeVisitor {
 
   public void apply(ASTCssNode node) {
-    switch (node.getType()) {
-    case RULE_SET:
+    new TreeVisitorsPipeline(this).apply(node);
+  }
+
+  @Override
+  protected void leavingNode(ASTCssNode node) {
+    if (node.getType() == ASTCssNodeType.RULE_SET) {
       RuleSet ruleset = (RuleSet) node;
       rulesetsBodyPropertiesMerger(ruleset.getBody());
-      break;
-
-    case CHARSET_DECLARATION:
-    case IMPORT:
-      break;
-
-    default:
-      applyToKidsProperties(node);
     }
-
   }
 
-  private void applyToKidsProperties(ASTCssNode node) {
-    List<ASTCssNode> childs = new ArrayList<ASTCssNode>(node.getChilds());
-    for (ASTCssNode kid : childs) {
-      apply(kid);
-    }
-  }
-  
   private void rulesetsBodyPropertiesMerger(Body node) {
     enteringBody(node);
 
-    List<? extends ASTCssNode> childs = node.getChilds();
-    for (ASTCssNode kid : childs) {
-      switch (kid.getType()) {
-      case DECLARATION:
+    // getChilds returns new list, declarations can be removed from body while iterating
+    for (ASTCssNode kid : node.getChilds()) {
+      if (kid.getType() == ASTCssNodeType.DECLARATION)
         applyToDeclaration((Declaration) kid);
-        
-        break;
-
-      default:
-        applyToKidsProperties(kid);
-        break;
-      }
     }
 
     leavingBody(node);
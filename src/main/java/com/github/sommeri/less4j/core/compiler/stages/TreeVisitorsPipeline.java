@@ -0,0 +1,45 @@
+package com.github.sommeri.less4j.core.compiler.stages;
+
+import java.util.List;
+
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
+import com.github.sommeri.less4j.utils.ArraysUtils;
+
+/**
+ * Runs multiple visitors in one tree traversal. The result is the same as if the visitors 
+ * were applied one after another in the order they were passed to the constructor as long 
+ * as each visitor depends only on subtree of the node it is working on. 
+ * 
+ * Enter methods are called in visitors order before kids are visited, leave methods are 
+ * called in visitors order after all kids were visited. 
+ * 
+ * Visitors that need whole tree to be processed by previous visitor (e.g., extends solving 
+ * or media merging) can not be fused and must run in separate pipelines.
+ */
+public class TreeVisitorsPipeline {
+
+  private final List<FusableTreeVisitor> visitors;
+
+  public TreeVisitorsPipeline(FusableTreeVisitor... visitors) {
+    this.visitors = ArraysUtils.asList(visitors);
+  }
+
+  public void apply(ASTCssNode node) {
+    for (FusableTreeVisitor visitor : visitors) {
+      visitor.enteringNode(node);
+    }
+
+    // visitors modify only subtree of the visited kid, childs list does not change and there is no need to copy it
+    for (ASTCssNode kid : node.getChilds()) {
+      // selectors contain no bodies and there may be very many of them after nesting
+      if (kid.getType() != ASTCssNodeType.SELECTOR)
+        apply(kid);
+    }
+
+    for (FusableTreeVisitor visitor : visitors) {
+      visitor.leavingNode(node);
+    }
+  }
+
+}
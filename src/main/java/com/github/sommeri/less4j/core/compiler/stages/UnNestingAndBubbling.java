@@ -3,6 +3,7 @@ package com.github.sommeri.less4j.core.compiler.stages;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.github.sommeri.less4j.LessCompiler.Configuration;
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
 import com.github.sommeri.less4j.core.ast.Body;
 import com.github.sommeri.less4j.core.ast.BodyOwner;
@@ -17,6 +18,15 @@ public class UnNestingAndBubbling {
 
   private final ASTManipulator manipulator = new ASTManipulator();
   private final UselessLessElementsRemover uselessLessElementsRemover = new UselessLessElementsRemover();
+  private final boolean removeDuplicateSelectors;
+
+  public UnNestingAndBubbling() {
+    this(new Configuration());
+  }
+
+  public UnNestingAndBubbling(Configuration configuration) {
+    this.removeDuplicateSelectors = configuration.isRemoveDuplicateSelectors();
+  }
 
   //niekde tu je problem
   public void unnestRulesetsAndDirectives(Body generalBody) {
@@ -46,7 +56,7 @@ public class UnNestingAndBubbling {
   }
 
   private List<ASTCssNode> collectNestedRuleSets(RuleSet topLevelNode) {
-    NestedInRulesetStack nestedNodesStack = new NestedInRulesetStack(topLevelNode);
+    NestedInRulesetStack nestedNodesStack = new NestedInRulesetStack(topLevelNode, removeDuplicateSelectors);
     collectChildRuleSets(topLevelNode, nestedNodesStack);
 
     return nestedNodesStack.getRulesets();
@@ -67,6 +77,10 @@ public class UnNestingAndBubbling {
         nestedNodes.popSelectors();
         break;
       }
+      case SELECTOR:
+        // selectors can not contain rulesets and there may be very many of them after nesting
+        break;
+
       default:
         if (AstLogic.isBubleableDirective(kid)) {
           Directive directive = (Directive) kid;
@@ -0,0 +1,100 @@
+package com.github.sommeri.less4j.core.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+
+/**
+ * Base64 encodes text straight into extended string builder. Text is encoded in small chunks,
+ * so neither its bytes nor the whole encoded string ever exist in memory. Used for inline
+ * source maps which can be several megabytes large.
+ */
+public class Base64Appender extends OutputStream {
+
+  private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+  private static final char PADDING = '=';
+  private static final int CHUNK_SIZE = 4096;
+
+  private final ExtendedStringBuilder output;
+  private final char[] buffer = new char[CHUNK_SIZE];
+  private int length = 0;
+  // bytes waiting for the rest of their three bytes group
+  private int pending = 0;
+  private int pendingCount = 0;
+
+  private Base64Appender(ExtendedStringBuilder output) {
+    this.output = output;
+  }
+
+  public static void append(String text, String encodingCharset, ExtendedStringBuilder output) throws UnsupportedEncodingException {
+    Writer writer = new OutputStreamWriter(new Base64Appender(output), encodingCharset);
+    char[] chunk = new char[CHUNK_SIZE];
+    try {
+      for (int start = 0; start < text.length(); start += CHUNK_SIZE) {
+        int end = Math.min(start + CHUNK_SIZE, text.length());
+        text.getChars(start, end, chunk, 0);
+        writer.write(chunk, 0, end - start);
+      }
+      writer.close();
+    } catch (IOException e) {
+      throw new IllegalStateException("Impossible to happen exception.", e);
+    }
+  }
+
+  @Override
+  public void write(int b) {
+    pending = (pending << 8) | (b & 0xff);
+    pendingCount++;
+    if (pendingCount == 3) {
+      encodeGroup(pending, 4);
+      pending = 0;
+      pendingCount = 0;
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    int end = off + len;
+    int i = off;
+    while (pendingCount != 0 && i < end) {
+      write(b[i++]);
+    }
+    for (; i + 2 < end; i += 3) {
+      encodeGroup(((b[i] & 0xff) << 16) | ((b[i + 1] & 0xff) << 8) | (b[i + 2] & 0xff), 4);
+    }
+    while (i < end) {
+      write(b[i++]);
+    }
+  }
+
+  /**
+   * Writes out the last incomplete group with padding.
+   */
+  @Override
+  public void close() {
+    if (pendingCount != 0) {
+      encodeGroup(pending << (8 * (3 - pendingCount)), pendingCount + 1);
+      pending = 0;
+      pendingCount = 0;
+    }
+    flush();
+  }
+
+  @Override
+  public void flush() {
+    output.appendAsIs(buffer, 0, length);
+    length = 0;
+  }
+
+  private void encodeGroup(int group, int significantChars) {
+    if (length + 4 > buffer.length)
+      flush();
+
+    for (int i = 0; i < 4; i++) {
+      buffer[length++] = i < significantChars ? ALPHABET[(group >>> (18 - 6 * i)) & 0x3f] : PADDING;
+    }
+  }
+
+}
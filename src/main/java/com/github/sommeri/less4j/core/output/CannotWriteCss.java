@@ -0,0 +1,15 @@
+package com.github.sommeri.less4j.core.output;
+
+import java.io.IOException;
+
+/**
+ * Streamed css could not be written into the output.
+ */
+@SuppressWarnings("serial")
+public class CannotWriteCss extends RuntimeException {
+
+  public CannotWriteCss(IOException cause) {
+    super(cause.getMessage(), cause);
+  }
+
+}
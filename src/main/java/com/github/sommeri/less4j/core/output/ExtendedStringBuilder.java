@@ -1,5 +1,7 @@
 package com.github.sommeri.less4j.core.output;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -9,10 +11,18 @@ public class ExtendedStringBuilder {
   private static final String INDENTATION = "  ";
   private static final char SPACE = ' ';
   private static final Set<Character> SEPARATORS = new HashSet<Character>();
+  private static final char NEW_LINE = Constants.NEW_LINE.charAt(0);
+  private static final int FLUSH_THRESHOLD = 8192;
   private StringBuilder builder = new StringBuilder();
 
+  // streaming mode - content is periodically moved from builder into the output
+  private Writer output;
+  private int flushedLastChar = -1;
+
   private int indentationLevel;
+  // position after the last appended character, maintained incrementally 
   private int line = 0;
+  private int column = 0;
   private boolean onNewLine = true;
 
   static {
@@ -27,12 +37,21 @@ public class ExtendedStringBuilder {
 
   public ExtendedStringBuilder(String string) {
     builder = new StringBuilder(string);
+    movePosition(string, 0, string.length());
   }
 
   public ExtendedStringBuilder(ExtendedStringBuilder otherBuilder) {
     configureFrom(otherBuilder);
   }
 
+  /**
+   * Streaming builder, it keeps only small unwritten part of css in memory. Call {@link #flush()}
+   * after everything was appended.
+   */
+  public ExtendedStringBuilder(Writer output) {
+    this.output = output;
+  }
+
   public void configureFrom(ExtendedStringBuilder otherBuilder) {
     indentationLevel = otherBuilder.indentationLevel;
     onNewLine = otherBuilder.onNewLine;
@@ -40,107 +59,112 @@ public class ExtendedStringBuilder {
 
   public ExtendedStringBuilder appendAsIs(String string) {
     builder.append(string);
-    addNewLines(string);
+    movePosition(string, 0, string.length());
+    flushIfNeeded();
     return this;
   }
 
-  private void addNewLines(String string) {
-    int addedLines = string.split(Constants.NEW_LINE).length - 1;
-    if (string.endsWith(Constants.NEW_LINE))
-      addedLines++;
-    
-    line = line + addedLines;
+  public ExtendedStringBuilder appendAsIs(char[] str, int offset, int len) {
+    builder.append(str, offset, len);
+    for (int i = offset; i < offset + len; i++) {
+      movePosition(str[i]);
+    }
+    flushIfNeeded();
+    return this;
   }
 
   public ExtendedStringBuilder append(boolean arg0) {
-    handleIndentation();
-    builder.append(arg0);
-    return this;
+    return append(String.valueOf(arg0));
   }
 
   public ExtendedStringBuilder append(char c) {
     handleIndentation();
     builder.append(c);
+    movePosition(c);
     return this;
   }
 
   public ExtendedStringBuilder append(char[] str, int offset, int len) {
     handleIndentation();
     builder.append(str, offset, len);
+    for (int i = offset; i < offset + len; i++) {
+      movePosition(str[i]);
+    }
     return this;
   }
 
   public ExtendedStringBuilder append(char[] str) {
-    handleIndentation();
-    builder.append(str);
-    return this;
+    return append(str, 0, str.length);
   }
 
   public ExtendedStringBuilder append(CharSequence s, int start, int end) {
     handleIndentation();
     builder.append(s, start, end);
+    movePosition(s, start, end);
     return this;
   }
 
   public ExtendedStringBuilder append(CharSequence s) {
+    if (s == null)
+      return append(String.valueOf(s));
+
     handleIndentation();
     builder.append(s);
+    movePosition(s, 0, s.length());
+    flushIfNeeded();
     return this;
   }
 
   public ExtendedStringBuilder append(double d) {
-    handleIndentation();
-    builder.append(d);
-    return this;
+    return append(String.valueOf(d));
   }
 
   public ExtendedStringBuilder append(float f) {
-    handleIndentation();
-    builder.append(f);
-    return this;
+    return append(String.valueOf(f));
   }
 
   public ExtendedStringBuilder append(int i) {
-    handleIndentation();
-    builder.append(i);
-    return this;
+    return append(String.valueOf(i));
   }
 
   public ExtendedStringBuilder append(long lng) {
-    handleIndentation();
-    builder.append(lng);
-    return this;
+    return append(String.valueOf(lng));
   }
 
   public ExtendedStringBuilder append(Object obj) {
-    handleIndentation();
-    builder.append(obj);
-    return this;
+    return append(String.valueOf(obj));
   }
 
   public ExtendedStringBuilder append(String str) {
-    handleIndentation();
-    builder.append(str);
-    addNewLines(str);
-    return this;
+    return append((CharSequence) str);
   }
 
   public ExtendedStringBuilder append(StringBuffer sb) {
-    handleIndentation();
-    builder.append(sb);
-    addNewLines(sb.toString());
-    return this;
+    return append((CharSequence) sb);
   }
 
   public ExtendedStringBuilder appendIgnoreNull(CharSequence s) {
-    if (s != null) {
-      handleIndentation();
-      builder.append(s);
-    }
+    if (s != null) 
+      append(s);
 
     return this;
   }
 
+  private void movePosition(CharSequence s, int start, int end) {
+    for (int i = start; i < end; i++) {
+      movePosition(s.charAt(i));
+    }
+  }
+
+  private void movePosition(char c) {
+    if (c == NEW_LINE) {
+      line++;
+      column = 0;
+    } else {
+      column++;
+    }
+  }
+
   public String toString() {
     return builder.toString();
   }
@@ -157,9 +181,11 @@ public class ExtendedStringBuilder {
   }
 
   public ExtendedStringBuilder newLine() {
-    builder.append(Constants.NEW_LINE);
+    builder.append(NEW_LINE);
     onNewLine = true;
     line++;
+    column = 0;
+    flushIfNeeded();
 
     return this;
   }
@@ -180,6 +206,7 @@ public class ExtendedStringBuilder {
       for (int i = 0; i < indentationLevel; i++) {
         builder.append(INDENTATION);
       }
+      column += indentationLevel * INDENTATION.length();
     }
   }
 
@@ -197,15 +224,28 @@ public class ExtendedStringBuilder {
 
   public ExtendedStringBuilder appendSpace() {
     builder.append(SPACE);
+    column++;
     return this;
   }
 
   public boolean endsWithSeparator() {
+    int lastChar = lastChar();
+    if (lastChar == -1)
+      return false;
+
+    return SEPARATORS.contains((char) lastChar);
+  }
+
+  public boolean endsWithNewLine() {
+    return lastChar() == NEW_LINE;
+  }
+
+  private int lastChar() {
     int length = builder.length() - 1;
     if (length < 0)
-      return false;
+      return flushedLastChar;
 
-    return SEPARATORS.contains(builder.charAt(length));
+    return builder.charAt(length);
   }
 
   public int getLine() {
@@ -213,7 +253,33 @@ public class ExtendedStringBuilder {
   }
 
   public int getColumn() {
-    int lastNewLine = builder.lastIndexOf(Constants.NEW_LINE);
-    return builder.length() - (lastNewLine+1);
+    return column;
+  }
+
+  public boolean isStreaming() {
+    return output != null;
+  }
+
+  /**
+   * Writes everything appended so far into the output. Does nothing if the builder 
+   * is not streaming.
+   */
+  public void flush() {
+    if (!isStreaming() || builder.length() == 0)
+      return;
+
+    flushedLastChar = lastChar();
+    try {
+      output.write(builder.toString());
+    } catch (IOException ex) {
+      throw new CannotWriteCss(ex);
+    }
+    builder.setLength(0);
   }
+
+  private void flushIfNeeded() {
+    if (isStreaming() && builder.length() >= FLUSH_THRESHOLD)
+      flush();
+  }
+
 }
@@ -1,8 +1,14 @@
 package com.github.sommeri.less4j.core.output;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.github.sommeri.less4j.LessCompiler;
@@ -12,10 +18,12 @@ import com.github.sommeri.less4j.LessSource.FileNotFound;
 import com.github.sommeri.less4j.core.parser.HiddenTokenAwareTree;
 import com.github.sommeri.less4j.core.problems.BugHappened;
 import com.github.sommeri.less4j.utils.URIUtils;
-import com.github.sommeri.sourcemap.FilePosition;
+import com.github.sommeri.sourcemap.MappedPosition;
+import com.github.sommeri.sourcemap.SourceMapConsumerV3;
 import com.github.sommeri.sourcemap.SourceMapFormat;
 import com.github.sommeri.sourcemap.SourceMapGenerator;
 import com.github.sommeri.sourcemap.SourceMapGeneratorFactory;
+import com.github.sommeri.sourcemap.SourceMapParseException;
 
 /*
    Unused source map v3 features: source content and source root.
@@ -27,75 +35,98 @@ public class SourceMapBuilder {
   private final LessCompiler.SourceMapConfiguration configuration;
   private final Collection<LessSource> additionalSourceFiles;
   private final Collection<LessSource> includeContentOf;
-  private final Map<LessSource, String> cachedContent;
+  private final SourcesRegistry sources;
+  // names and contents as they go into the map, indexed by source id 
+  private final List<MappedSource> mappedSources = new ArrayList<MappedSource>();
+  private int mappingsCount = 0;
+  private final Map<LessSource, String> unreadableInputMaps = new LinkedHashMap<LessSource, String>();
 
   private LessSource cssDestination;
 
   public SourceMapBuilder(ExtendedStringBuilder cssBuilder, LessSource cssDestination, Collection<LessSource> nonTreeSources, Collection<LessSource> additionalSourceFiles, LessCompiler.SourceMapConfiguration configuration) {
+    this(cssBuilder, cssDestination, nonTreeSources, additionalSourceFiles, configuration, new SourcesRegistry());
+  }
+
+  public SourceMapBuilder(ExtendedStringBuilder cssBuilder, LessSource cssDestination, Collection<LessSource> nonTreeSources, Collection<LessSource> additionalSourceFiles, LessCompiler.SourceMapConfiguration configuration, SourcesRegistry sources) {
     this.cssBuilder = cssBuilder;
     this.cssDestination = cssDestination;
     this.configuration = configuration;
     this.additionalSourceFiles = additionalSourceFiles;
     this.includeContentOf = nonTreeSources;
+    this.sources = sources;
     generator = SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3);
-    cachedContent = new HashMap<LessSource, String>();
   }
 
   public SourceMapBuilder append(String str, HiddenTokenAwareTree sourceToken) {
-    //indentation must be handled before measuring symbol start position
-    FilePosition outputStartPosition = beforeSymbolPosition();
-    cssBuilder.append(str);
-    FilePosition outputEndPosition = afterSymbolPosition();
-
-    createMapping(str, sourceToken, outputStartPosition, outputEndPosition);
+    appendIgnoreNull(str, sourceToken);
     return this;
   }
 
   public void appendIgnoreNull(String str, HiddenTokenAwareTree sourceToken) {
-    FilePosition outputStartPosition = beforeSymbolPosition();
+    //indentation must be handled before measuring symbol start position
+    cssBuilder.handleIndentation();
+    int startLine = cssBuilder.getLine();
+    int startColumn = cssBuilder.getColumn();
     cssBuilder.append(str);
-    FilePosition outputEndPosition = afterSymbolPosition();
-
-    createMapping(str, sourceToken, outputStartPosition, outputEndPosition);
-  }
 
-  private void createMapping(String mappedSymbol, HiddenTokenAwareTree sourceToken, FilePosition outputStartPosition, FilePosition outputEndPosition) {
-    FilePosition sourceStartPosition = toFilePosition(sourceToken);
-    String sourceName = toSourceName(sourceToken);
-    String sourceContent = toSourceContent(sourceToken, sourceName);
-    
-    generator.addMapping(sourceName, sourceContent, mappedSymbol, sourceStartPosition, outputStartPosition, outputEndPosition);
+    createMapping(str, sourceToken, startLine, startColumn, cssBuilder.getLine(), cssBuilder.getColumn());
   }
 
-  private FilePosition beforeSymbolPosition() {
-    cssBuilder.handleIndentation();
-    FilePosition outputStartPosition = afterSymbolPosition();
-    return outputStartPosition;
+  private void createMapping(String mappedSymbol, HiddenTokenAwareTree sourceToken, int startLine, int startColumn, int endLine, int endColumn) {
+    mappingsCount++;
+    MappedSource source = toMappedSource(sourceToken.getSource(), sourceToken);
+    int sourceLine = sourceToken.getLine() - 1;
+    int sourceColumn = sourceToken.getCharPositionInLine();
+    if (source.inputMap != null) {
+      // less was generated from something else, map to that original instead
+      MappedPosition original = source.inputMap.getPositionForLine(sourceLine + 1, sourceColumn + 1);
+      if (original != null) {
+        MappedSource originalSource = source.toOriginalSource(original.getOriginalFile());
+        String symbol = original.hasIdentifier() ? original.getIdentifier() : mappedSymbol;
+        generator.addMapping(originalSource.name, originalSource.content, symbol, original.getLineNumber() - 1, original.getColumnPosition() - 1, startLine, startColumn, endLine, endColumn);
+        return;
+      }
+    }
+    generator.addMapping(source.name, source.content, mappedSymbol, sourceLine, sourceColumn, startLine, startColumn, endLine, endColumn);
   }
 
-  private FilePosition afterSymbolPosition() {
-    return currentPosition();
-  }
+  private MappedSource toMappedSource(LessSource source, HiddenTokenAwareTree underlyingStructure) {
+    int id = sources.toId(source);
+    while (mappedSources.size() <= id) {
+      mappedSources.add(null);
+    }
 
-  private FilePosition currentPosition() {
-    return new FilePosition(cssBuilder.getLine(), cssBuilder.getColumn());
+    MappedSource result = mappedSources.get(id);
+    if (result == null) {
+      String sourceName = toSourceName(source);
+      result = new MappedSource(sourceName, toSourceContent(underlyingStructure, sourceName, source));
+      result.setInputMap(source, toInputMap(source));
+      mappedSources.set(id, result);
+    }
+    return result;
   }
 
   public void append(SourceMapBuilder other) {
-    FilePosition offset = afterSymbolPosition();
+    int offsetLine = cssBuilder.getLine();
+    int offsetColumn = cssBuilder.getColumn();
     cssBuilder.appendAsIs(other.cssBuilder.toString());
-    SourceMapGenerator otherGenerator = other.generator;
-    generator.offsetAndAppend(otherGenerator, offset);
+    generator.offsetAndAppend(other.generator, offsetLine, offsetColumn);
+    mappingsCount += other.mappingsCount;
+    unreadableInputMaps.putAll(other.unreadableInputMaps);
   }
 
-  private FilePosition toFilePosition(HiddenTokenAwareTree underlyingStructure) {
-    FilePosition result = new FilePosition(underlyingStructure.getLine() - 1, underlyingStructure.getCharPositionInLine());
-    return result;
+  /**
+   * Number of mappings created so far, mappings of appended builders included.
+   */
+  public int getMappingsCount() {
+    return mappingsCount;
   }
 
-  private String toSourceName(HiddenTokenAwareTree underlyingStructure) {
-    LessSource source = underlyingStructure.getSource();
-    return toSourceName(source);
+  /**
+   * Sources whose input source map could not be read and was ignored, together with the reason.
+   */
+  public Map<LessSource, String> getUnreadableInputMaps() {
+    return unreadableInputMaps;
   }
 
   private String toSourceName(LessSource source) {
@@ -106,27 +137,60 @@ public class SourceMapBuilder {
     }
   }
 
-  private String toSourceContent(HiddenTokenAwareTree underlyingStructure, String sourceName) {
-    LessSource source = underlyingStructure.getSource();
-    return toSourceContent(underlyingStructure, sourceName, source);
+  private SourceMapConsumerV3 toInputMap(LessSource source) {
+    String inputSourceMap = source.getInputSourceMap();
+    if (inputSourceMap == null)
+      return null;
+
+    try {
+      SourceMapConsumerV3 result = new SourceMapConsumerV3();
+      result.parse(inputSourceMap);
+      return result;
+    } catch (SourceMapParseException ex) {
+      // invalid input source map is ignored
+      unreadableInputMaps.put(source, ex.getMessage());
+      return null;
+    } catch (RuntimeException ex) {
+      // json that is not a source map at all
+      unreadableInputMaps.put(source, ex.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Names of sources in input source map are relative to the less source. Resulting name is relative
+   * to generated css the same way as names of less sources are.
+   */
+  private String toOriginalSourceName(LessSource source, String sourceRoot, String originalFile) {
+    String name = originalFile;
+    if (sourceRoot != null && !sourceRoot.isEmpty() && name != null) {
+      name = sourceRoot.endsWith(URIUtils.URI_FILE_SEPARATOR) ? sourceRoot + name : sourceRoot + URIUtils.URI_FILE_SEPARATOR + name;
+    }
+    if (name == null || source.getURI() == null)
+      return name;
+
+    String resolved;
+    try {
+      resolved = source.getURI().resolve(new URI(name)).toString();
+    } catch (URISyntaxException ex) {
+      return name;
+    }
+
+    if (!configuration.isRelativizePaths() || cssDestination == null || cssDestination.getURI() == null)
+      return resolved;
+
+    return URIUtils.getRelativePath(cssDestination.getURI().toString(), resolved, URIUtils.URI_FILE_SEPARATOR);
   }
 
   private String toSourceContent(HiddenTokenAwareTree underlyingStructure, String sourceName, LessSource source) {
     if (configuration.isIncludeSourcesContent() || sourceName==null || includeContentOf.contains(source)) {
-      if (cachedContent.containsKey(source)) {
-        return cachedContent.get(source);
-      }
-
-      String content;
       try {
-        content = source.getContent();
+        return sources.getContent(source);
       } catch (FileNotFound e) {
         throw new BugHappened("How did we compiled something we did not read?", underlyingStructure);
       } catch (CannotReadFile e) {
         throw new BugHappened("How did we compiled something we did not read?", underlyingStructure);
       }
-      cachedContent.put(source, content);
-      return content;
     } else {
       return null;
     }
@@ -134,9 +198,8 @@ public class SourceMapBuilder {
 
   public String toSourceMap() {
     for (LessSource source : additionalSourceFiles) {
-      String sourceName = toSourceName(source);
-      String sourceContent = toSourceContent(null, sourceName, source);
-      generator.addSourceFile(sourceName, sourceContent);
+      MappedSource mappedSource = toMappedSource(source, null);
+      generator.addSourceFile(mappedSource.name, mappedSource.content);
     }
     // map file is assumed to have the same location as generated css 
     String name = "";
@@ -160,4 +223,48 @@ public class SourceMapBuilder {
     cssBuilder.ensureSeparator();
   }
 
+  private class MappedSource {
+
+    private final String name;
+    private final String content;
+    // non-null only if the source has valid input source map
+    private SourceMapConsumerV3 inputMap;
+    private Map<String, MappedSource> originalSources;
+    private Map<String, String> originalContents;
+    private LessSource lessSource;
+
+    public MappedSource(String name, String content) {
+      this.name = name;
+      this.content = content;
+    }
+
+    public void setInputMap(LessSource lessSource, SourceMapConsumerV3 inputMap) {
+      if (inputMap == null)
+        return;
+
+      this.lessSource = lessSource;
+      this.inputMap = inputMap;
+      this.originalSources = new HashMap<String, MappedSource>();
+      this.originalContents = new HashMap<String, String>();
+      Iterator<String> contents = inputMap.getOriginalSourcesContent().iterator();
+      for (String originalFile : inputMap.getOriginalSources()) {
+        String originalContent = contents.next();
+        if (!originalContents.containsKey(originalFile))
+          originalContents.put(originalFile, originalContent);
+      }
+    }
+
+    public MappedSource toOriginalSource(String originalFile) {
+      MappedSource result = originalSources.get(originalFile);
+      if (result == null) {
+        String originalName = toOriginalSourceName(lessSource, inputMap.getSourceRoot(), originalFile);
+        boolean includeContent = configuration.isIncludeSourcesContent() || originalName == null;
+        result = new MappedSource(originalName, includeContent ? originalContents.get(originalFile) : null);
+        originalSources.put(originalFile, result);
+      }
+      return result;
+    }
+
+  }
+
 }
@@ -0,0 +1,58 @@
+package com.github.sommeri.less4j.core.output;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.LessSource.CannotReadFile;
+import com.github.sommeri.less4j.LessSource.FileNotFound;
+
+/**
+ * Sources used by a single compilation. Each source gets an integer id the first time it is seen,
+ * so printers can keep information about sources in arrays instead of maps.
+ *
+ * Content read for parser is remembered, source map printing reuses it instead of reading the
+ * source again.
+ */
+public class SourcesRegistry {
+
+  private final Map<LessSource, Integer> ids = new HashMap<LessSource, Integer>();
+  private final List<String> contents = new ArrayList<String>();
+
+  // performance optimization - consecutive tokens almost always come from the same source
+  private LessSource lastSource;
+  private int lastId = -1;
+
+  public int toId(LessSource source) {
+    if (source == lastSource && lastId != -1)
+      return lastId;
+
+    Integer id = ids.get(source);
+    if (id == null) {
+      id = ids.size();
+      ids.put(source, id);
+      contents.add(null);
+    }
+
+    lastSource = source;
+    lastId = id;
+    return id;
+  }
+
+  /**
+   * Returns remembered content of the source. Source is read only if its content was not
+   * remembered yet.
+   */
+  public String getContent(LessSource source) throws FileNotFound, CannotReadFile {
+    int id = toId(source);
+    String content = contents.get(id);
+    if (content == null) {
+      content = source.getContent();
+      contents.set(id, content);
+    }
+    return content;
+  }
+
+}
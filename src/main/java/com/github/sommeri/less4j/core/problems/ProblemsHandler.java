@@ -4,6 +4,7 @@ import java.util.List;
 
 import com.github.sommeri.less4j.LessCompiler.Problem;
 import com.github.sommeri.less4j.LessProblems;
+import com.github.sommeri.less4j.LessSource;
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
 import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
 import com.github.sommeri.less4j.core.ast.ArgumentDeclaration;
@@ -339,6 +340,11 @@ public class ProblemsHandler implements LessProblems {
     addWarning(less, "Cannot link source map. Css result location is not know and could not be deduced from input less source.");
   }
 
+  public void warnUnreadableInputSourceMap(ASTCssNode less, LessSource source, String reason) {
+    String name = source.getName() != null ? source.getName() : String.valueOf(source.getURI());
+    addWarning(less, "Input source map of '" + name + "' could not be read and was ignored: " + reason);
+  }
+
   public void errUnknownEncodingCharsetSourceMap(ASTCssNode nodeForErrorReport, String encodingCharset) {
     addError(nodeForErrorReport, "Source map link or data could not be created. Requested charset '" + encodingCharset+"' is not available.");
   }
@@ -5,9 +5,11 @@ import java.util.Set;
 import com.github.sommeri.less4j.core.ast.ASTCssNode;
 import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
 import com.github.sommeri.less4j.core.ast.Body;
+import com.github.sommeri.less4j.core.compiler.stages.FusableTreeVisitor;
+import com.github.sommeri.less4j.core.compiler.stages.TreeVisitorsPipeline;
 import com.github.sommeri.less4j.core.problems.ProblemsHandler;
 
-public class CssAstValidator {
+public class CssAstValidator extends FusableTreeVisitor {
 
   private final ProblemsHandler problemsHandler;
   private final SupportedCSSBodyMembers allowedBodyMembers = new SupportedCSSBodyMembers();
@@ -17,14 +19,13 @@ public class CssAstValidator {
   }
 
   public void validate(ASTCssNode node) {
+    new TreeVisitorsPipeline(this).apply(node);
+  }
+
+  @Override
+  protected void enteringNode(ASTCssNode node) {
     if (node instanceof Body)
       validateBody((Body) node);
-
-    // no need to copy the array for validation?
-    for (ASTCssNode kid : node.getChilds()) {
-      validate(kid);
-    }
-
   }
 
   private void validateBody(Body node) {
@@ -1,9 +1,14 @@
 package com.github.sommeri.less4j.utils;
 
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.github.sommeri.less4j.LessCompiler;
 import com.github.sommeri.less4j.LessSource;
@@ -78,8 +83,11 @@ import com.github.sommeri.less4j.core.ast.SyntaxOnlyElement;
 import com.github.sommeri.less4j.core.ast.UnicodeRangeExpression;
 import com.github.sommeri.less4j.core.ast.UnknownAtRule;
 import com.github.sommeri.less4j.core.ast.Viewport;
+import com.github.sommeri.less4j.core.output.Base64Appender;
 import com.github.sommeri.less4j.core.output.ExtendedStringBuilder;
 import com.github.sommeri.less4j.core.output.SourceMapBuilder;
+import com.github.sommeri.less4j.core.output.SourcesRegistry;
+import com.github.sommeri.less4j.platform.Constants;
 //SelectorCombinator
 //EscapedSelector
 
@@ -94,18 +102,37 @@ public class CssPrinter {
   private LessCompiler.Configuration options;
   private Collection<LessSource> additionalSourceFiles;
   private Collection<LessSource> externalVariables;
+  private SourcesRegistry sources = new SourcesRegistry();
 
   public CssPrinter() {
     super();
   }
 
   public CssPrinter(LessSource lessSource, LessSource cssDestination, Collection<LessSource> externalVariables, Collection<LessSource> additionalSourceFiles, LessCompiler.Configuration options) {
+    this(lessSource, cssDestination, externalVariables, additionalSourceFiles, options, new SourcesRegistry(), null);
+  }
+
+  /**
+   * Streaming printer, css is written into the output while it is printed. Call {@link #flush()}
+   * once everything was appended.
+   */
+  public CssPrinter(LessSource lessSource, LessSource cssDestination, Collection<LessSource> externalVariables, Collection<LessSource> additionalSourceFiles, LessCompiler.Configuration options, Writer cssOutput) {
+    this(lessSource, cssDestination, externalVariables, additionalSourceFiles, options, new SourcesRegistry(), cssOutput);
+  }
+
+  /**
+   * Printer sharing sources with the rest of the compilation. Css is kept in memory if the 
+   * output is <code>null</code>.
+   */
+  public CssPrinter(LessSource lessSource, LessSource cssDestination, Collection<LessSource> externalVariables, Collection<LessSource> additionalSourceFiles, LessCompiler.Configuration options, SourcesRegistry sources, Writer cssOutput) {
+    this.cssOnly = cssOutput == null ? new ExtendedStringBuilder() : new ExtendedStringBuilder(cssOutput);
     this.lessSource = lessSource;
     this.cssDestination = cssDestination;
     this.options = options;
     this.additionalSourceFiles = additionalSourceFiles;
     this.externalVariables = externalVariables;
-    this.cssAndSM = new SourceMapBuilder(cssOnly, cssDestination, externalVariables, additionalSourceFiles, getSourceMapConfiguration(options));
+    this.sources = sources;
+    this.cssAndSM = new SourceMapBuilder(cssOnly, cssDestination, externalVariables, additionalSourceFiles, getSourceMapConfiguration(options), sources);
   }
 
   public CssPrinter(CssPrinter configureFromPrinter) {
@@ -114,8 +141,9 @@ public class CssPrinter {
     this.cssDestination = configureFromPrinter.cssDestination;
     this.additionalSourceFiles = configureFromPrinter.additionalSourceFiles;
     this.externalVariables = configureFromPrinter.externalVariables;
+    this.sources = configureFromPrinter.sources;
     this.cssOnly = new ExtendedStringBuilder(configureFromPrinter.cssOnly);
-    this.cssAndSM = new SourceMapBuilder(cssOnly, cssDestination, externalVariables, additionalSourceFiles, getSourceMapConfiguration(options));
+    this.cssAndSM = new SourceMapBuilder(cssOnly, cssDestination, externalVariables, additionalSourceFiles, getSourceMapConfiguration(options), sources);
   }
 
   private LessCompiler.SourceMapConfiguration getSourceMapConfiguration(LessCompiler.Configuration options) {
@@ -625,9 +653,14 @@ public class CssPrinter {
     if (!isCompressing()) cssOnly.ensureSeparator();
     append(body.getOpeningCurlyBrace());
     if (!isCompressing()) cssOnly.ensureNewLine().increaseIndentationLevel();
-    Iterable<CssPrinter> declarationsBuilders = collectUniqueBodyMembersStrings(body);
-    for (CssPrinter miniBuilder : declarationsBuilders) {
-      append(miniBuilder);
+    List<ASTCssNode> members = body.getMembers();
+    boolean[] duplicates = findDuplicateMembers(members);
+    for (int i = 0; i < members.size(); i++) {
+      if (duplicates[i])
+        continue;
+
+      append(members.get(i));
+      if (!isCompressing()) cssOnly.ensureNewLine();
     }
 
     appendComments(body.getOrphanComments(), false);
@@ -637,23 +670,29 @@ public class CssPrinter {
     return true;
   }
 
-  private void append(CssPrinter miniBuilder) {
-    cssAndSM.append(miniBuilder.cssAndSM);
+  /**
+   * The same member must be printed only once - the last one is kept. Returns which members 
+   * are followed by the same member.
+   */
+  private boolean[] findDuplicateMembers(List<ASTCssNode> members) {
+    boolean[] result = new boolean[members.size()];
+    Set<String> laterMembers = new HashSet<String>();
+    StructuralKeyBuilder keyBuilder = new StructuralKeyBuilder(isCompressing());
+    for (int i = members.size() - 1; i >= 0; i--) {
+      result[i] = !laterMembers.add(toDuplicatesKey(keyBuilder, members.get(i)));
+    }
+    return result;
   }
 
-  private Iterable<CssPrinter> collectUniqueBodyMembersStrings(Body body) {
-    // the same declaration must be printed only once
-    LastOfKindSet<String, CssPrinter> declarationsStrings = new LastOfKindSet<String, CssPrinter>();
-    for (ASTCssNode declaration : body.getMembers()) {
-      CssPrinter miniPrinter = new CssPrinter(this);
+  private String toDuplicatesKey(StructuralKeyBuilder keyBuilder, ASTCssNode member) {
+    String key = keyBuilder.toKey(member);
+    if (key != null)
+      return "s" + key;
 
-      miniPrinter.append(declaration);
-      if (!isCompressing()) miniPrinter.cssOnly.ensureNewLine();
-
-      declarationsStrings.add(miniPrinter.toCss().toString(), miniPrinter);
-    }
-
-    return declarationsStrings;
+    // rare members, e.g. rulesets inside keyframes, are compared by how they look
+    CssPrinter miniPrinter = new CssPrinter(this);
+    miniPrinter.append(member);
+    return "p" + miniPrinter.toString();
   }
 
   public boolean appendDeclaration(Declaration declaration) {
@@ -921,12 +960,12 @@ public class CssPrinter {
       cssOnly.append(node.getOriginalString());
     } else {
       if (node.hasExpliciteSign()) {
-        if (0 < node.getValueAsDouble())
+        if (0 < node.doubleValue())
           cssOnly.append('+');
         else
           cssOnly.append('-');
       }
-      cssOnly.append(PrintUtils.formatNumber(node.getValueAsDouble()) + node.getSuffix());
+      cssOnly.append(PrintUtils.formatNumber(node.doubleValue()) + node.getSuffix());
     }
 
     return true;
@@ -1047,10 +1086,47 @@ public class CssPrinter {
     return cssOnly.toStringBuilder();
   }
 
+  /**
+   * Appends text that is not part of the style sheet, e.g. source map link, on a new line.
+   */
+  public void appendOnNewLine(String text) {
+    if (!cssOnly.endsWithNewLine())
+      cssOnly.appendAsIs(Constants.NEW_LINE);
+    cssOnly.appendAsIs(text);
+  }
+
+  /**
+   * Appends link with base64 encoded source map on a new line. The map is encoded directly
+   * into the css, encoded string is never created.
+   */
+  public void appendInlineSourceMapLink(String sourceMap, String encodingCharset) throws UnsupportedEncodingException {
+    appendOnNewLine("/*# sourceMappingURL=data:application/json;base64,");
+    try {
+      Base64Appender.append(sourceMap, encodingCharset, cssOnly);
+    } finally {
+      cssOnly.appendAsIs(" */" + Constants.NEW_LINE);
+    }
+  }
+
+  /**
+   * Writes printed css into the output of streaming printer.
+   */
+  public void flush() {
+    cssOnly.flush();
+  }
+
   public String toSourceMap() {
     return cssAndSM.toSourceMap();
   }
 
+  public int getMappingsCount() {
+    return cssAndSM.getMappingsCount();
+  }
+
+  public Map<LessSource, String> getUnreadableInputMaps() {
+    return cssAndSM.getUnreadableInputMaps();
+  }
+
   private boolean isCompressing() {
     return options != null ? options.isCompressing() : false;
   }
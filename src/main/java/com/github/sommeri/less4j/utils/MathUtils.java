@@ -11,6 +11,18 @@ public class MathUtils {
     return value.compareTo(value2) == 0;
   }
 
+  /**
+   * Same as {@link #equals(Double, Double)}, but does not allocate.
+   */
+  public static boolean equals(double value, double value2) {
+    return Double.compare(normalize0(value), normalize0(value2)) == 0;
+  }
+
+  private static double normalize0(double value) {
+    // -0.0 == 0.0 is true for primitives
+    return value == 0.0 ? 0.0 : value;
+  }
+
   private static Double normalize0(Double value) {
     if (value.compareTo(-0.0) == 0)
       value = 0.0;
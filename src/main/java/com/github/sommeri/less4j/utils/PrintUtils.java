@@ -32,7 +32,11 @@ public class PrintUtils {
   }
 
   public static String formatNumber(Double value) {
-    if (value.isNaN())
+    return formatNumber(value.doubleValue());
+  }
+
+  public static String formatNumber(double value) {
+    if (Double.isNaN(value))
       return "NaN";
 
     return FORMATTER.format(value);
@@ -104,15 +108,6 @@ public class PrintUtils {
     }
   }
 
-  public static String base64Encode(String toEncode, String encodingCharset, ProblemsHandler problemsHandler, ASTCssNode nodeForErrorReport) {
-    try {
-      return Base64.encodeBytes(toEncode.getBytes(encodingCharset));
-    } catch (UnsupportedEncodingException uex) {
-      problemsHandler.errUnknownEncodingCharsetSourceMap(nodeForErrorReport, encodingCharset);
-      return null;
-    }
-  }
-
   public static String toUtf8(String value) {
     try {
       return URLEncoder.encode(value, "UTF-8");
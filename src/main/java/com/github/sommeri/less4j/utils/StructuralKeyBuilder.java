@@ -0,0 +1,197 @@
+package com.github.sommeri.less4j.utils;
+
+import java.util.List;
+
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.ASTCssNodeType;
+import com.github.sommeri.less4j.core.ast.AnonymousExpression;
+import com.github.sommeri.less4j.core.ast.BinaryExpression;
+import com.github.sommeri.less4j.core.ast.BinaryExpressionOperator;
+import com.github.sommeri.less4j.core.ast.ColorExpression;
+import com.github.sommeri.less4j.core.ast.Comment;
+import com.github.sommeri.less4j.core.ast.CssString;
+import com.github.sommeri.less4j.core.ast.Declaration;
+import com.github.sommeri.less4j.core.ast.EmbeddedScript;
+import com.github.sommeri.less4j.core.ast.EscapedValue;
+import com.github.sommeri.less4j.core.ast.Expression;
+import com.github.sommeri.less4j.core.ast.FunctionExpression;
+import com.github.sommeri.less4j.core.ast.IdentifierExpression;
+import com.github.sommeri.less4j.core.ast.ListExpression;
+import com.github.sommeri.less4j.core.ast.ListExpressionOperator;
+import com.github.sommeri.less4j.core.ast.NamedExpression;
+import com.github.sommeri.less4j.core.ast.NumberExpression;
+import com.github.sommeri.less4j.core.ast.UnicodeRangeExpression;
+
+/**
+ * Builds keys of declarations from their structure, without printing them. Two declarations
+ * with equal keys are printed the same way by {@link CssPrinter}. The opposite does not have
+ * to hold - e.g. differently quoted strings have different keys.
+ *
+ * Returns <code>null</code> for members and expressions it does not understand.
+ */
+public class StructuralKeyBuilder {
+
+  private final boolean compressing;
+  private final StringBuilder key = new StringBuilder();
+
+  public StructuralKeyBuilder(boolean compressing) {
+    this.compressing = compressing;
+  }
+
+  public String toKey(ASTCssNode member) {
+    key.setLength(0);
+    if (member.getType() != ASTCssNodeType.DECLARATION || !appendDeclaration((Declaration) member))
+      return null;
+
+    return key.toString();
+  }
+
+  private boolean appendDeclaration(Declaration declaration) {
+    appendComments(declaration);
+    appendText(declaration.getNameAsString());
+    Expression expression = declaration.getExpression();
+    if (expression == null) {
+      key.append('-');
+      return true;
+    }
+    return appendExpression(expression);
+  }
+
+  private boolean appendExpression(ASTCssNode node) {
+    if (node == null) {
+      key.append('-');
+      return true;
+    }
+
+    appendComments(node);
+    // different values printed the same way must have the same key e.g., 3 and ~"3" 
+    switch (node.getType()) {
+    case IDENTIFIER_EXPRESSION:
+      appendValue(((IdentifierExpression) node).getValue());
+      return true;
+
+    case NUMBER:
+      appendNumber((NumberExpression) node);
+      return true;
+
+    case COLOR_EXPRESSION:
+      appendValue(((ColorExpression) node).getValue());
+      return true;
+
+    case STRING_EXPRESSION:
+      CssString string = (CssString) node;
+      appendValue(string.getQuoteType() + string.getValue() + string.getQuoteType());
+      return true;
+
+    case ESCAPED_VALUE:
+      appendValue(((EscapedValue) node).getValue());
+      return true;
+
+    case EMBEDDED_SCRIPT:
+      appendValue(((EmbeddedScript) node).getValue());
+      return true;
+
+    case UNICODE_RANGE_EXPRESSION:
+      appendValue(((UnicodeRangeExpression) node).getValue());
+      return true;
+
+    case ANONYMOUS:
+      appendValue(((AnonymousExpression) node).getValue());
+      return true;
+
+    case EMPTY_EXPRESSION:
+      appendValue("");
+      return true;
+
+    default:
+      // composed expressions
+      key.append(node.getType().ordinal()).append('|');
+      return appendComposed(node);
+    }
+  }
+
+  private boolean appendComposed(ASTCssNode node) {
+    switch (node.getType()) {
+    case FUNCTION:
+      FunctionExpression function = (FunctionExpression) node;
+      appendText(function.getName());
+      return appendExpression(function.getParameter());
+
+    case NAMED_EXPRESSION:
+      NamedExpression named = (NamedExpression) node;
+      appendText(named.getName());
+      return appendExpression(named.getExpression());
+
+    case BINARY_EXPRESSION:
+      BinaryExpression binary = (BinaryExpression) node;
+      return appendExpression(binary.getLeft()) && appendExpression(binary.getOperator()) && appendExpression(binary.getRight());
+
+    case BINARY_EXPRESSION_OPERATOR:
+      key.append(((BinaryExpressionOperator) node).getOperator().ordinal()).append('|');
+      return true;
+
+    case LIST_EXPRESSION:
+      ListExpression list = (ListExpression) node;
+      List<Expression> expressions = list.getExpressions();
+      key.append(expressions.size()).append('|');
+      if (expressions.size() > 1 && !appendExpression(list.getOperator()))
+        return false;
+      for (Expression expression : expressions) {
+        if (!appendExpression(expression))
+          return false;
+      }
+      return true;
+
+    case LIST_EXPRESSION_OPERATOR:
+      key.append(((ListExpressionOperator) node).getOperator().ordinal()).append('|');
+      return true;
+
+    default:
+      return false;
+    }
+  }
+
+  private void appendNumber(NumberExpression number) {
+    if (number.hasOriginalString()) {
+      appendValue(number.getOriginalString());
+    } else {
+      // the same thing printer does
+      String sign = !number.hasExpliciteSign() ? "" : 0 < number.doubleValue() ? "+" : "-";
+      appendValue(sign + PrintUtils.formatNumber(number.doubleValue()) + number.getSuffix());
+    }
+  }
+
+  private void appendComments(ASTCssNode node) {
+    // compressing printer ignores comments
+    if (compressing)
+      return;
+
+    appendComments(node.getOpeningComments());
+    key.append('/');
+    appendComments(node.getTrailingComments());
+  }
+
+  private void appendComments(List<Comment> comments) {
+    if (comments == null)
+      return;
+
+    for (Comment comment : comments) {
+      appendText(comment.getComment());
+      key.append(comment.hasNewLine() ? 'n' : 's');
+    }
+  }
+
+  private void appendValue(String value) {
+    key.append('v');
+    appendText(value);
+  }
+
+  private void appendText(String text) {
+    if (text == null) {
+      key.append('-');
+    } else {
+      key.append(text.length()).append(':').append(text);
+    }
+  }
+
+}
@@ -0,0 +1,97 @@
+package com.github.sommeri.sourcemap;
+
+/**
+ * Immutable result of a source map lookup. Original positions returned by
+ * {@link SourceMapping#getPositionForLine(int, int)} have file, line and
+ * column numbered from 1 and optionally an identifier. Generated positions
+ * returned by {@link SourceMappingReversable#getReversePositions(String, int, int)}
+ * have only line and column, numbered the same way as in the source map.
+ *
+ * Strings are shared with the source map, nothing is copied.
+ */
+public final class MappedPosition {
+
+  private final String originalFile;
+  private final int lineNumber;
+  private final int columnPosition;
+  private final String identifier;
+
+  public MappedPosition(String originalFile, int lineNumber, int columnPosition, String identifier) {
+    this.originalFile = originalFile;
+    this.lineNumber = lineNumber;
+    this.columnPosition = columnPosition;
+    this.identifier = identifier;
+  }
+
+  public MappedPosition(int lineNumber, int columnPosition) {
+    this(null, lineNumber, columnPosition, null);
+  }
+
+  public boolean hasOriginalFile() {
+    return originalFile != null;
+  }
+
+  /**
+   * @return the original file or <code>null</code> if the position is not in original source
+   */
+  public String getOriginalFile() {
+    return originalFile;
+  }
+
+  public int getLineNumber() {
+    return lineNumber;
+  }
+
+  public int getColumnPosition() {
+    return columnPosition;
+  }
+
+  public boolean hasIdentifier() {
+    return identifier != null;
+  }
+
+  /**
+   * @return the original name or <code>null</code> if the mapping has none
+   */
+  public String getIdentifier() {
+    return identifier;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (!(obj instanceof MappedPosition))
+      return false;
+
+    MappedPosition other = (MappedPosition) obj;
+    return lineNumber == other.lineNumber && columnPosition == other.columnPosition && equals(originalFile, other.originalFile) && equals(identifier, other.identifier);
+  }
+
+  private static boolean equals(String a, String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = lineNumber;
+    result = 31 * result + columnPosition;
+    result = 31 * result + (originalFile == null ? 0 : originalFile.hashCode());
+    result = 31 * result + (identifier == null ? 0 : identifier.hashCode());
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    if (originalFile != null) {
+      builder.append(originalFile);
+    }
+    builder.append("[").append(lineNumber).append(":").append(columnPosition).append("]");
+    if (identifier != null) {
+      builder.append(" ").append(identifier);
+    }
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,39 @@
+package com.github.sommeri.sourcemap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.github.sommeri.sourcemap.Mapping.OriginalMapping;
+
+/**
+ * Converts lookup results into protobuf generated {@link OriginalMapping}s
+ * returned by older source mapping api. It is the only place that needs
+ * protobuf-java on classpath.
+ */
+public class ProtobufMappings {
+
+  public static OriginalMapping toOriginalMapping(MappedPosition position) {
+    if (position == null)
+      return null;
+
+    OriginalMapping.Builder builder = OriginalMapping.newBuilder();
+    if (position.hasOriginalFile()) {
+      builder.setOriginalFile(position.getOriginalFile());
+    }
+    builder.setLineNumber(position.getLineNumber()).setColumnPosition(position.getColumnPosition());
+    if (position.hasIdentifier()) {
+      builder.setIdentifier(position.getIdentifier());
+    }
+    return builder.build();
+  }
+
+  public static Collection<OriginalMapping> toOriginalMappings(Collection<MappedPosition> positions) {
+    List<OriginalMapping> result = new ArrayList<OriginalMapping>(positions.size());
+    for (MappedPosition position : positions) {
+      result.add(toOriginalMapping(position));
+    }
+    return result;
+  }
+
+}
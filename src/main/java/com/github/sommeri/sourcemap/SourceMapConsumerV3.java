@@ -22,27 +22,42 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 
 import com.github.sommeri.sourcemap.Base64VLQ.CharIterator;
 import com.github.sommeri.sourcemap.Mapping.OriginalMapping;
-import com.github.sommeri.sourcemap.Mapping.OriginalMapping.Builder;
 
 /**
  * Class for parsing version 3 of the SourceMap format, as produced by the
  * Closure Compiler, etc.
  * http://code.google.com/p/closure-compiler/wiki/SourceMaps
  * 
+ * Decoded entries are kept in a single int array, five ints per entry. Both
+ * forward and reverse lookups are binary or direct searches in int arrays,
+ * MappedPosition objects are created only for returned results.
+ * 
  * @author johnlenz@google.com (John Lenz)
  */
 public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReversable {
   static final int UNMAPPED = -1;
 
+  /**
+   * Offsets of entry fields inside the entries array.
+   */
+  private static final int GENERATED_COLUMN = 0;
+  private static final int SOURCE_ID = 1;
+  private static final int SOURCE_LINE = 2;
+  private static final int SOURCE_COLUMN = 3;
+  private static final int NAME_ID = 4;
+  private static final int ENTRY_SIZE = 5;
+
   //SMS: (source map separation):  added this
   private String file;
   private String sourceRoot;
@@ -51,10 +66,20 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
   private String[] sourcesContent;
   private String[] names;
   private int lineCount;
-  // Slots in the lines list will be null if the line does not have any entries.
-  private ArrayList<ArrayList<Entry>> lines = null;
-  /** originalFile path ==> original line ==> target mappings */
-  private Map<String, Map<Integer, Collection<OriginalMapping>>> reverseSourceMapping;
+  // Entries of line i are those between lineStarts[i] and lineStarts[i + 1], 
+  // the line does not have any entries if they are equal.
+  private int[] lineStarts = null;
+  private int linesSize;
+  private int[] entries = null;
+  // Reverse index, created lazily. Original source lines of each source are
+  // numbered consecutively starting with reverseSourceStarts[source id], 
+  // their targets are stored as (generated line, generated column) pairs
+  // between reverseLineStarts[number] and reverseLineStarts[number + 1].
+  private Map<String, Integer> reverseSourceIds;
+  private int[] reverseSourceStarts;
+  private int[] reverseSourceLines;
+  private int[] reverseLineStarts;
+  private int[] reverseTargets;
 
   public SourceMapConsumerV3() {
 
@@ -104,7 +129,8 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
       throw new SourceMapParseException("Unknown version: " + version);
     }
 
-    this.file = sourceMapRoot.get("file").getAsString();
+    // file and lineCount are optional, only closure compiler always writes them
+    this.file = sourceMapRoot.has("file") ? sourceMapRoot.get("file").getAsString() : "";
     if (file.isEmpty()) {
       //SMS: (source map separation):  commented this - I need more tolerant parser
       //throw new SourceMapParseException("File entry is missing or empty ");
@@ -118,7 +144,7 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
       return;
     }
 
-    lineCount = sourceMapRoot.get("lineCount").getAsInt();
+    lineCount = sourceMapRoot.has("lineCount") ? sourceMapRoot.get("lineCount").getAsInt() : -1;
     String lineMap = sourceMapRoot.get("mappings").getAsString();
 
     sources = getJavaStringArray(sourceMapRoot.get("sources").getAsJsonArray());
@@ -129,7 +155,8 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
     }
     names = getJavaStringArray(sourceMapRoot.get("names").getAsJsonArray());
 
-    lines = new ArrayList<ArrayList<Entry>>(lineCount);
+    // the reverse index belongs to previously parsed map
+    reverseTargets = null;
 
     new MappingBuilder(lineMap).build();
   }
@@ -150,10 +177,7 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
         throw new SourceMapParseException("Unknown version: " + version);
       }
 
-      String file = sourceMapRoot.get("file").getAsString();
-      if (file.isEmpty()) {
-        throw new SourceMapParseException("File entry is missing or empty");
-      }
+      String file = sourceMapRoot.has("file") ? sourceMapRoot.get("file").getAsString() : "";
 
       if (sourceMapRoot.has("lineCount") || sourceMapRoot.has("mappings") || sourceMapRoot.has("sources") || sourceMapRoot.has("names")) {
         throw new SourceMapParseException("Invalid map format");
@@ -177,7 +201,9 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
             throw new SourceMapParseException("Unable to retrieve: " + url);
           }
         } else if (section.has("map")) {
-          mapSectionContents = section.get("map").getAsString();
+          // the map is embedded as an object by spec, older generators wrote it as a string
+          JsonElement map = section.get("map");
+          mapSectionContents = map.isJsonObject() ? map.toString() : map.getAsString();
         } else {
           throw new SourceMapParseException("Invalid map format: section must have either 'map' or 'url'");
         }
@@ -200,11 +226,16 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
 
   @Override
   public OriginalMapping getMappingForLine(int lineNumber, int column) {
+    return ProtobufMappings.toOriginalMapping(getPositionForLine(lineNumber, column));
+  }
+
+  @Override
+  public MappedPosition getPositionForLine(int lineNumber, int column) {
     // Normalize the line and column numbers to 0.
     lineNumber--;
     column--;
 
-    if (lineNumber < 0 || lineNumber >= lines.size()) {
+    if (lineNumber < 0 || lineNumber >= linesSize) {
       return null;
     }
 
@@ -212,20 +243,19 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
     Preconditions.checkState(column >= 0);
 
     // If the line is empty return the previous mapping.
-    if (lines.get(lineNumber) == null) {
+    int start = lineStarts[lineNumber];
+    int end = lineStarts[lineNumber + 1];
+    if (start == end) {
       return getPreviousMapping(lineNumber);
     }
 
-    ArrayList<Entry> entries = lines.get(lineNumber);
-    // No empty lists.
-    Preconditions.checkState(entries.size() > 0);
-    if (entries.get(0).getGeneratedColumn() > column) {
+    if (entries[start * ENTRY_SIZE + GENERATED_COLUMN] > column) {
       return getPreviousMapping(lineNumber);
     }
 
-    int index = search(entries, column, 0, entries.size() - 1);
-    Preconditions.checkState(index >= 0, "unexpected: " + index);
-    return getOriginalMappingForEntry(entries.get(index));
+    int index = search(column, start, end - 1);
+    Preconditions.checkState(index >= start, "unexpected: " + index);
+    return getPositionForEntry(index);
   }
 
   @Override
@@ -247,27 +277,36 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
   
   @Override
   public Collection<OriginalMapping> getReverseMapping(String originalFile, int line, int column) {
+    return ProtobufMappings.toOriginalMappings(getReversePositions(originalFile, line, column));
+  }
+
+  @Override
+  public Collection<MappedPosition> getReversePositions(String originalFile, int line, int column) {
     // TODO(user): This implementation currently does not make use of the column
     // parameter.
 
     // Synchronization needs to be handled by callers.
-    if (reverseSourceMapping == null) {
+    if (reverseTargets == null) {
       createReverseMapping();
     }
 
-    Map<Integer, Collection<OriginalMapping>> sourceLineToCollectionMap = reverseSourceMapping.get(originalFile);
+    Integer sourceId = reverseSourceIds.get(originalFile);
+    if (sourceId == null || line < 0 || line >= reverseSourceLines[sourceId]) {
+      return Collections.emptyList();
+    }
 
-    if (sourceLineToCollectionMap == null) {
+    int number = reverseSourceStarts[sourceId] + line;
+    int start = reverseLineStarts[number];
+    int end = reverseLineStarts[number + 1];
+    if (start == end) {
       return Collections.emptyList();
-    } else {
-      Collection<OriginalMapping> mappings = sourceLineToCollectionMap.get(line);
+    }
 
-      if (mappings == null) {
-        return Collections.emptyList();
-      } else {
-        return mappings;
-      }
+    List<MappedPosition> mappings = new ArrayList<MappedPosition>(end - start);
+    for (int i = start; i < end; i++) {
+      mappings.add(new MappedPosition(reverseTargets[i * 2], reverseTargets[i * 2 + 1]));
     }
+    return mappings;
   }
 
   private String[] getJavaStringArray(JsonArray array) {
@@ -289,29 +328,41 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
     private int previousSrcColumn = 0;
     private int previousNameId = 0;
 
+    private int[] builtEntries;
+    private int entriesSize = 0;
+    private int[] builtLineStarts;
+
     MappingBuilder(String lineMap) {
       this.content = new StringCharIterator(lineMap);
+      // count entries and lines first, so arrays do not have to grow
+      int entriesCount = 0;
+      int lines = 0;
+      boolean separated = true;
+      for (int i = 0; i < lineMap.length(); i++) {
+        char c = lineMap.charAt(i);
+        if (c == ';') {
+          lines++;
+          separated = true;
+        } else if (c == ',') {
+          separated = true;
+        } else if (separated) {
+          entriesCount++;
+          separated = false;
+        }
+      }
+      builtEntries = new int[entriesCount * ENTRY_SIZE];
+      // last line may be not terminated by ';'
+      builtLineStarts = new int[lines + 2];
     }
 
     void build() {
       int[] temp = new int[MAX_ENTRY_VALUES];
-      ArrayList<Entry> entries = new ArrayList<Entry>();
       while (content.hasNext()) {
         // ';' denotes a new line.
         if (tryConsumeToken(';')) {
-          // The line is complete, store the result for the line,
-          // null if the line is empty.
-          ArrayList<Entry> result;
-          if (entries.size() > 0) {
-            result = entries;
-            // A new array list for the next line.
-            entries = new ArrayList<Entry>();
-          } else {
-            result = null;
-          }
-          lines.add(result);
-          entries.clear();
+          // The line is complete, entries of the next line start here.
           line++;
+          builtLineStarts[line] = entriesSize;
           previousCol = 0;
         } else {
           // grab the next entry for the current line.
@@ -320,39 +371,50 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
             temp[entryValues] = nextValue();
             entryValues++;
           }
-          Entry entry = decodeEntry(temp, entryValues);
+          decodeEntry(temp, entryValues);
 
-          validateEntry(entry);
-          entries.add(entry);
+          validateEntry(entriesSize - 1);
 
           // Consume the separating token, if there is one.
           tryConsumeToken(',');
         }
       }
+
+      if (entriesSize > builtLineStarts[line]) {
+        line++;
+        builtLineStarts[line] = entriesSize;
+      }
+      linesSize = line;
+      lineStarts = builtLineStarts;
+      entries = builtEntries;
+      int size = builtLineStarts[line] * ENTRY_SIZE;
+      if (entries.length != size) {
+        entries = Arrays.copyOf(entries, size);
+      }
     }
 
     /**
      * Sanity check the entry.
      */
-    private void validateEntry(Entry entry) {
-      Preconditions.checkState(line < lineCount);
-      Preconditions.checkState(entry.getSourceFileId() == UNMAPPED || entry.getSourceFileId() < sources.length);
-      Preconditions.checkState(entry.getSourceFileId() == UNMAPPED || entry.getSourceFileId() < sourcesContent.length);
-      Preconditions.checkState(entry.getNameId() == UNMAPPED || entry.getNameId() < names.length);
+    private void validateEntry(int entry) {
+      int sourceFileId = builtEntries[entry * ENTRY_SIZE + SOURCE_ID];
+      int nameId = builtEntries[entry * ENTRY_SIZE + NAME_ID];
+      Preconditions.checkState(lineCount < 0 || line < lineCount);
+      Preconditions.checkState(sourceFileId == UNMAPPED || sourceFileId < sources.length);
+      Preconditions.checkState(sourceFileId == UNMAPPED || sourceFileId < sourcesContent.length);
+      Preconditions.checkState(nameId == UNMAPPED || nameId < names.length);
     }
 
     /**
      * Decodes the next entry, using the previous encountered values to decode
-     * the relative values.
+     * the relative values, and adds it to entries.
      * 
      * @param vals
      *          An array of integers that represent values in the entry.
      * @param entryValues
      *          The number of entries in the array.
-     * @return The entry object.
      */
-    private Entry decodeEntry(int[] vals, int entryValues) {
-      Entry entry;
+    private void decodeEntry(int[] vals, int entryValues) {
       switch (entryValues) {
       // The first values, if present are in the following order:
       //   0: the starting column in the current line of the generated file
@@ -367,38 +429,45 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
 
       case 1:
         // An unmapped section of the generated file.
-        entry = new UnmappedEntry(vals[0] + previousCol);
-        // Set the values see for the next entry.
-        previousCol = entry.getGeneratedColumn();
-        return entry;
+        previousCol = vals[0] + previousCol;
+        addEntry(previousCol, UNMAPPED, UNMAPPED, UNMAPPED, UNMAPPED);
+        return;
 
       case 4:
         // A mapped section of the generated file.
-        entry = new UnnamedEntry(vals[0] + previousCol, vals[1] + previousSrcId, vals[2] + previousSrcLine, vals[3] + previousSrcColumn);
-        // Set the values see for the next entry.
-        previousCol = entry.getGeneratedColumn();
-        previousSrcId = entry.getSourceFileId();
-        previousSrcLine = entry.getSourceLine();
-        previousSrcColumn = entry.getSourceColumn();
-        return entry;
+        previousCol = vals[0] + previousCol;
+        previousSrcId = vals[1] + previousSrcId;
+        previousSrcLine = vals[2] + previousSrcLine;
+        previousSrcColumn = vals[3] + previousSrcColumn;
+        addEntry(previousCol, previousSrcId, previousSrcLine, previousSrcColumn, UNMAPPED);
+        return;
 
       case 5:
         // A mapped section of the generated file, that has an associated
         // name.
-        entry = new NamedEntry(vals[0] + previousCol, vals[1] + previousSrcId, vals[2] + previousSrcLine, vals[3] + previousSrcColumn, vals[4] + previousNameId);
-        // Set the values see for the next entry.
-        previousCol = entry.getGeneratedColumn();
-        previousSrcId = entry.getSourceFileId();
-        previousSrcLine = entry.getSourceLine();
-        previousSrcColumn = entry.getSourceColumn();
-        previousNameId = entry.getNameId();
-        return entry;
+        previousCol = vals[0] + previousCol;
+        previousSrcId = vals[1] + previousSrcId;
+        previousSrcLine = vals[2] + previousSrcLine;
+        previousSrcColumn = vals[3] + previousSrcColumn;
+        previousNameId = vals[4] + previousNameId;
+        addEntry(previousCol, previousSrcId, previousSrcLine, previousSrcColumn, previousNameId);
+        return;
 
       default:
         throw new IllegalStateException("Unexpected number of values for entry:" + entryValues);
       }
     }
 
+    private void addEntry(int column, int sourceId, int sourceLine, int sourceColumn, int nameId) {
+      int index = entriesSize * ENTRY_SIZE;
+      builtEntries[index + GENERATED_COLUMN] = column;
+      builtEntries[index + SOURCE_ID] = sourceId;
+      builtEntries[index + SOURCE_LINE] = sourceLine;
+      builtEntries[index + SOURCE_COLUMN] = sourceColumn;
+      builtEntries[index + NAME_ID] = nameId;
+      entriesSize++;
+    }
+
     private boolean tryConsumeToken(char token) {
       if (content.hasNext() && content.peek() == token) {
         // consume the comma
@@ -423,13 +492,13 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
   }
 
   /**
-   * Perform a binary search on the array to find a section that covers the
+   * Perform a binary search on the entries to find a section that covers the
    * target column.
    */
-  private int search(ArrayList<Entry> entries, int target, int start, int end) {
+  private int search(int target, int start, int end) {
     while (true) {
       int mid = ((end - start) / 2) + start;
-      int compare = compareEntry(entries, mid, target);
+      int compare = compareEntry(mid, target);
       if (compare == 0) {
         return mid;
       } else if (compare < 0) {
@@ -449,80 +518,106 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
   }
 
   /**
-   * Compare an array entry's column value to the target column value.
+   * Compare an entry's column value to the target column value.
    */
-  private int compareEntry(ArrayList<Entry> entries, int entry, int target) {
-    return entries.get(entry).getGeneratedColumn() - target;
+  private int compareEntry(int entry, int target) {
+    return entries[entry * ENTRY_SIZE + GENERATED_COLUMN] - target;
   }
 
   /**
    * Returns the mapping entry that proceeds the supplied line or null if no
    * such entry exists.
    */
-  private OriginalMapping getPreviousMapping(int lineNumber) {
+  private MappedPosition getPreviousMapping(int lineNumber) {
     do {
       if (lineNumber == 0) {
         return null;
       }
       lineNumber--;
-    } while (lines.get(lineNumber) == null);
-    ArrayList<Entry> entries = lines.get(lineNumber);
-    return getOriginalMappingForEntry(entries.get(entries.size() - 1));
+    } while (lineStarts[lineNumber] == lineStarts[lineNumber + 1]);
+    return getPositionForEntry(lineStarts[lineNumber + 1] - 1);
   }
 
   /**
-   * Creates an "OriginalMapping" object for the given entry object.
+   * Creates a position in original source for the given entry.
    */
-  private OriginalMapping getOriginalMappingForEntry(Entry entry) {
-    if (entry.getSourceFileId() == UNMAPPED) {
+  private MappedPosition getPositionForEntry(int entry) {
+    int index = entry * ENTRY_SIZE;
+    if (entries[index + SOURCE_ID] == UNMAPPED) {
       return null;
     } else {
       // Adjust the line/column here to be start at 1.
-      Builder x = OriginalMapping.newBuilder().setOriginalFile(sources[entry.getSourceFileId()]).setLineNumber(entry.getSourceLine() + 1).setColumnPosition(entry.getSourceColumn() + 1);
-      if (entry.getNameId() != UNMAPPED) {
-        x.setIdentifier(names[entry.getNameId()]);
-      }
-      return x.build();
+      String identifier = entries[index + NAME_ID] != UNMAPPED ? names[entries[index + NAME_ID]] : null;
+      return new MappedPosition(sources[entries[index + SOURCE_ID]], entries[index + SOURCE_LINE] + 1, entries[index + SOURCE_COLUMN] + 1, identifier);
     }
   }
 
   /**
-   * Reverse the source map; the created mapping will allow us to quickly go
+   * Reverse the source map; the created index will allow us to quickly go
    * from a source file and line number to a collection of target
-   * OriginalMappings.
+   * positions. Targets are sorted by original source and line with
+   * counting sort, so targets of each line stay in the generated order.
    */
   private void createReverseMapping() {
-    reverseSourceMapping = new HashMap<String, Map<Integer, Collection<OriginalMapping>>>();
-
-    for (int targetLine = 0; targetLine < lines.size(); targetLine++) {
-      ArrayList<Entry> entries = lines.get(targetLine);
-
-      if (entries != null) {
-        for (Entry entry : entries) {
-          if (entry.getSourceFileId() != UNMAPPED && entry.getSourceLine() != UNMAPPED) {
-            String originalFile = sources[entry.getSourceFileId()];
-
-            if (!reverseSourceMapping.containsKey(originalFile)) {
-              reverseSourceMapping.put(originalFile, new HashMap<Integer, Collection<OriginalMapping>>());
-            }
-
-            Map<Integer, Collection<OriginalMapping>> lineToCollectionMap = reverseSourceMapping.get(originalFile);
-
-            int sourceLine = entry.getSourceLine();
-
-            if (!lineToCollectionMap.containsKey(sourceLine)) {
-              lineToCollectionMap.put(sourceLine, new ArrayList<OriginalMapping>(1));
-            }
+    // sources with the same name share their reverse mappings
+    reverseSourceIds = new HashMap<String, Integer>();
+    int[] sourceIds = new int[sources.length];
+    for (int i = 0; i < sources.length; i++) {
+      Integer id = reverseSourceIds.get(sources[i]);
+      if (id == null) {
+        id = i;
+        reverseSourceIds.put(sources[i], id);
+      }
+      sourceIds[i] = id;
+    }
 
-            Collection<OriginalMapping> mappings = lineToCollectionMap.get(sourceLine);
+    // number lines of all sources
+    int entriesSize = entries.length / ENTRY_SIZE;
+    reverseSourceLines = new int[sources.length];
+    for (int i = 0; i < entriesSize; i++) {
+      if (isReversible(i)) {
+        int sourceId = sourceIds[entries[i * ENTRY_SIZE + SOURCE_ID]];
+        reverseSourceLines[sourceId] = Math.max(reverseSourceLines[sourceId], entries[i * ENTRY_SIZE + SOURCE_LINE] + 1);
+      }
+    }
+    reverseSourceStarts = new int[sources.length];
+    int numbers = 0;
+    for (int i = 0; i < sources.length; i++) {
+      reverseSourceStarts[i] = numbers;
+      numbers += reverseSourceLines[i];
+    }
 
-            Builder builder = OriginalMapping.newBuilder().setLineNumber(targetLine).setColumnPosition(entry.getGeneratedColumn());
+    // count targets of each line and compute where they start
+    reverseLineStarts = new int[numbers + 1];
+    for (int i = 0; i < entriesSize; i++) {
+      if (isReversible(i)) {
+        reverseLineStarts[reverseNumber(sourceIds, i) + 1]++;
+      }
+    }
+    for (int i = 0; i < numbers; i++) {
+      reverseLineStarts[i + 1] += reverseLineStarts[i];
+    }
 
-            mappings.add(builder.build());
-          }
+    int[] targets = new int[reverseLineStarts[numbers] * 2];
+    int[] next = Arrays.copyOf(reverseLineStarts, numbers);
+    for (int targetLine = 0; targetLine < linesSize; targetLine++) {
+      for (int i = lineStarts[targetLine]; i < lineStarts[targetLine + 1]; i++) {
+        if (isReversible(i)) {
+          int position = next[reverseNumber(sourceIds, i)]++;
+          targets[position * 2] = targetLine;
+          targets[position * 2 + 1] = entries[i * ENTRY_SIZE + GENERATED_COLUMN];
         }
       }
     }
+    reverseTargets = targets;
+  }
+
+  private boolean isReversible(int entry) {
+    return entries[entry * ENTRY_SIZE + SOURCE_ID] != UNMAPPED && entries[entry * ENTRY_SIZE + SOURCE_LINE] >= 0;
+  }
+
+  private int reverseNumber(int[] sourceIds, int entry) {
+    return reverseSourceStarts[sourceIds[entries[entry * ENTRY_SIZE + SOURCE_ID]]] + entries[entry * ENTRY_SIZE + SOURCE_LINE];
   }
 
   /**
@@ -554,113 +649,6 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
     }
   }
 
-  /**
-   * Represents a mapping entry in the source map.
-   */
-  private interface Entry {
-    int getGeneratedColumn();
-
-    int getSourceFileId();
-
-    int getSourceLine();
-
-    int getSourceColumn();
-
-    int getNameId();
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is not mapped
-   * to a section in the original source.
-   */
-  private static class UnmappedEntry implements Entry {
-    private final int column;
-
-    UnmappedEntry(int column) {
-      this.column = column;
-    }
-
-    @Override
-    public int getGeneratedColumn() {
-      return column;
-    }
-
-    @Override
-    public int getSourceFileId() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getSourceLine() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getSourceColumn() {
-      return UNMAPPED;
-    }
-
-    @Override
-    public int getNameId() {
-      return UNMAPPED;
-    }
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is mapped to a
-   * section in the original source.
-   */
-  private static class UnnamedEntry extends UnmappedEntry {
-    private final int srcFile;
-    private final int srcLine;
-    private final int srcColumn;
-
-    UnnamedEntry(int column, int srcFile, int srcLine, int srcColumn) {
-      super(column);
-      this.srcFile = srcFile;
-      this.srcLine = srcLine;
-      this.srcColumn = srcColumn;
-    }
-
-    @Override
-    public int getSourceFileId() {
-      return srcFile;
-    }
-
-    @Override
-    public int getSourceLine() {
-      return srcLine;
-    }
-
-    @Override
-    public int getSourceColumn() {
-      return srcColumn;
-    }
-
-    @Override
-    public int getNameId() {
-      return UNMAPPED;
-    }
-  }
-
-  /**
-   * This class represents a portion of the generated file, that is mapped to a
-   * section in the original source, and is associated with a name.
-   */
-  private static class NamedEntry extends UnnamedEntry {
-    private final int name;
-
-    NamedEntry(int column, int srcFile, int srcLine, int srcColumn, int name) {
-      super(column, srcFile, srcLine, srcColumn);
-      this.name = name;
-    }
-
-    @Override
-    public int getNameId() {
-      return name;
-    }
-  }
-
   public static interface EntryVisitor {
     void visit(String sourceName, String sourceContent, String symbolName, FilePosition sourceStartPosition, FilePosition startPosition, FilePosition endPosition);
   }
@@ -673,33 +661,31 @@ public class SourceMapConsumerV3 implements SourceMapConsumer, SourceMappingReve
     FilePosition sourceStartPosition = null;
     FilePosition startPosition = null;
 
-    final int lineCount = lines.size();
-    for (int i = 0; i < lineCount; i++) {
-      ArrayList<Entry> line = lines.get(i);
-      if (line != null) {
-        final int entryCount = line.size();
-        for (int j = 0; j < entryCount; j++) {
-          Entry entry = line.get(j);
-          if (pending) {
-            FilePosition endPosition = new FilePosition(i, entry.getGeneratedColumn());
-            visitor.visit(sourceName, sourceContent, symbolName, sourceStartPosition, startPosition, endPosition);
-            pending = false;
-          }
+    for (int i = 0; i < linesSize; i++) {
+      final int lineEnd = lineStarts[i + 1];
+      for (int j = lineStarts[i]; j < lineEnd; j++) {
+        int index = j * ENTRY_SIZE;
+        if (pending) {
+          FilePosition endPosition = new FilePosition(i, entries[index + GENERATED_COLUMN]);
+          visitor.visit(sourceName, sourceContent, symbolName, sourceStartPosition, startPosition, endPosition);
+          pending = false;
+        }
 
-          if (entry.getSourceFileId() != UNMAPPED) {
-            pending = true;
-            sourceName = sources[entry.getSourceFileId()];
-            sourceContent = sourcesContent[entry.getSourceFileId()];
-            symbolName = (entry.getNameId() != UNMAPPED) ? names[entry.getNameId()] : null;
-            sourceStartPosition = new FilePosition(entry.getSourceLine(), entry.getSourceColumn());
-            startPosition = new FilePosition(i, entry.getGeneratedColumn());
-          }
+        int sourceFileId = entries[index + SOURCE_ID];
+        if (sourceFileId != UNMAPPED) {
+          pending = true;
+          sourceName = sources[sourceFileId];
+          sourceContent = sourcesContent[sourceFileId];
+          symbolName = (entries[index + NAME_ID] != UNMAPPED) ? names[entries[index + NAME_ID]] : null;
+          sourceStartPosition = new FilePosition(entries[index + SOURCE_LINE], entries[index + SOURCE_COLUMN]);
+          startPosition = new FilePosition(i, entries[index + GENERATED_COLUMN]);
         }
       }
     }
     //TODO: (closure report) (source map separation) I added this to because last mapping was never visited 
+    // the last mapping continues to the end of the last line, zero length mapping would be lost when merged into generator
     if (pending) {
-      FilePosition endPosition = new FilePosition(startPosition.getLine(), startPosition.getColumn());
+      FilePosition endPosition = new FilePosition(linesSize, 0);
       visitor.visit(sourceName, sourceContent, symbolName, sourceStartPosition, startPosition, endPosition);
     }
 
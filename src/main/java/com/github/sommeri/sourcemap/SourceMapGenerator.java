@@ -73,6 +73,15 @@ public interface SourceMapGenerator {
   void addMapping(String sourceName, String sourceContent, String symbolName,
            FilePosition sourceStartPosition,
            FilePosition outputStartPosition, FilePosition outputEndPosition);
+
+  /**
+   * Same as {@link #addMapping(String, String, String, FilePosition, FilePosition, FilePosition)}, 
+   * but positions are passed as zero based lines and columns. Printers call this 
+   * for every symbol, so it should not allocate positions of ignored mappings. 
+   */
+  void addMapping(String sourceName, String sourceContent, String symbolName,
+           int sourceLine, int sourceColumn,
+           int outputStartLine, int outputStartColumn, int outputEndLine, int outputEndColumn);
   
   /**
    * Add source file to be shown in the map. 
@@ -112,4 +121,6 @@ public interface SourceMapGenerator {
   //SMS: (source map separation):  added following - implemented only for v3 and in ugly way
   void offsetAndAppend(SourceMapGenerator otherGenerator, FilePosition offset);
 
+  void offsetAndAppend(SourceMapGenerator otherGenerator, int offsetLine, int offsetColumn);
+
 }
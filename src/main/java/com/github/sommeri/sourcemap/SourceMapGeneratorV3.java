@@ -17,14 +17,11 @@
 package com.github.sommeri.sourcemap;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import com.github.sommeri.sourcemap.SourceMapConsumerV3.EntryVisitor;
 
@@ -32,28 +29,57 @@ import com.github.sommeri.sourcemap.SourceMapConsumerV3.EntryVisitor;
  * Collects information mapping the generated (compiled) source back to
  * its original source for debugging purposes.
  *
+ * Mappings are kept in a single int array, eight ints per mapping. Sources
+ * and symbol names are stored only once and mappings refer to them by id.
+ *
  * @author johnlenz@google.com (John Lenz)
  */
 public class SourceMapGeneratorV3 implements SourceMapGenerator {
 
   private static final int UNMAPPED = -1;
 
+  /**
+   * Offsets of mapping fields inside the mappings array. Generated positions
+   * are indexed by 0 and already adjusted for the starting position.
+   */
+  private static final int START_LINE = 0;
+  private static final int START_COLUMN = 1;
+  private static final int END_LINE = 2;
+  private static final int END_COLUMN = 3;
+  private static final int SOURCE_ID = 4;
+  private static final int SOURCE_LINE = 5;
+  private static final int SOURCE_COLUMN = 6;
+  private static final int NAME_ID = 7;
+  private static final int MAPPING_SIZE = 8;
+
+  private static final int INITIAL_MAPPINGS = 256;
+
   /**
    * A pre-order traversal ordered list of mappings stored in this map.
    */
-  private List<Mapping> mappings = new ArrayList<Mapping>();
+  private int[] mappings = new int[INITIAL_MAPPINGS * MAPPING_SIZE];
+  private int mappingsCount = 0;
 
   /**
-   * A map of source names to source name index
+   * Sources and symbol names referenced by mappings, in the order in which
+   * they were added. Their ids are used only internally.
    */
-  private LinkedHashMap<String, Integer> sourceFileKeyMap = new LinkedHashMap<String, Integer>();
-  private LinkedList<String> sourceFileNameMap = new LinkedList<String>();
-  private LinkedList<String> sourceFileContentMap = new LinkedList<String>();
+  private Map<String, Integer> sourceKeys = new HashMap<String, Integer>();
+  private List<String> sourceNames = new ArrayList<String>();
+  private List<String> sourceContents = new ArrayList<String>();
+  private Map<String, Integer> symbolNames = new HashMap<String, Integer>();
+  private List<String> symbols = new ArrayList<String>();
 
   /**
-   * A map of source names to source name index
+   * Sources and symbol names written into the source map. They get their ids
+   * in the order in which the written mappings use them, internal ids are
+   * translated by the arrays below.
    */
-  private LinkedHashMap<String, Integer> originalNameMap = new LinkedHashMap<String, Integer>();
+  private int[] sourceOutputIds = new int[0];
+  private List<String> sourceFileNameMap = new ArrayList<String>();
+  private List<String> sourceFileContentMap = new ArrayList<String>();
+  private int[] symbolOutputIds = new int[0];
+  private List<String> originalNameMap = new ArrayList<String>();
 
   /**
    * Cache of the last mappings source name.
@@ -68,42 +94,47 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
   /**
    * Cache of the last mappings source name index.
    */
-  private int lastSourceFileIndex = -1;
-
-  /**
-   * For validation store the last mapping added.
-   */
-  private Mapping lastMapping;
+  private int lastSourceFileIndex = UNMAPPED;
 
   /**
    * The position that the current source map is offset in the
    * buffer being used to generated the compiled source file.
    */
-  private FilePosition offsetPosition = new FilePosition(0, 0);
+  private int offsetLine = 0;
+  private int offsetColumn = 0;
 
   /**
    * The position that the current source map is offset in the
    * generated the compiled source file by the addition of a
    * an output wrapper prefix.
    */
-  private FilePosition prefixPosition = new FilePosition(0, 0);
+  private int prefixLine = 0;
+  private int prefixColumn = 0;
 
   /**
    * {@inheritDoc}
    */
   @Override
   public void reset() {
-    mappings.clear();
-    lastMapping = null;
-    sourceFileKeyMap.clear();
+    mappings = new int[INITIAL_MAPPINGS * MAPPING_SIZE];
+    mappingsCount = 0;
+    sourceKeys.clear();
+    sourceNames.clear();
+    sourceContents.clear();
+    symbolNames.clear();
+    symbols.clear();
+    sourceOutputIds = new int[0];
     sourceFileNameMap.clear();
     sourceFileContentMap.clear();
+    symbolOutputIds = new int[0];
     originalNameMap.clear();
     lastSourceFileName = null;
     lastSourceFileContent = null;
-    lastSourceFileIndex = -1;
-    offsetPosition = new FilePosition(0, 0);
-    prefixPosition = new FilePosition(0, 0);
+    lastSourceFileIndex = UNMAPPED;
+    offsetLine = 0;
+    offsetColumn = 0;
+    prefixLine = 0;
+    prefixColumn = 0;
   }
 
   /**
@@ -137,7 +168,8 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
       }
     }
 
-    prefixPosition = new FilePosition(prefixLine, prefixIndex);
+    this.prefixLine = prefixLine;
+    this.prefixColumn = prefixIndex;
   }
 
   /**
@@ -154,7 +186,8 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
   public void setStartingPosition(int offsetLine, int offsetIndex) {
     Preconditions.checkState(offsetLine >= 0);
     Preconditions.checkState(offsetIndex >= 0);
-    offsetPosition = new FilePosition(offsetLine, offsetIndex);
+    this.offsetLine = offsetLine;
+    this.offsetColumn = offsetIndex;
   }
 
   /**
@@ -164,82 +197,91 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
    */
   @Override
   public void addMapping(String sourceName, String sourceContent, String symbolName, FilePosition sourceStartPosition, FilePosition startPosition, FilePosition endPosition) {
+    addMapping(sourceName, sourceContent, symbolName, sourceStartPosition.getLine(), sourceStartPosition.getColumn(), startPosition.getLine(), startPosition.getColumn(), endPosition.getLine(), endPosition.getColumn());
+  }
 
+  @Override
+  public void addMapping(String sourceName, String sourceContent, String symbolName, int sourceLine, int sourceColumn, int outputStartLine, int outputStartColumn, int outputEndLine, int outputEndColumn) {
     // Don't bother if there is not sufficient information to be useful.
-    if ((sourceName == null && sourceContent == null) || sourceStartPosition.getLine() < 0) {
+    if ((sourceName == null && sourceContent == null) || sourceLine < 0) {
       return;
     }
 
-    FilePosition adjustedStart = startPosition;
-    FilePosition adjustedEnd = endPosition;
-
-    if (offsetPosition.getLine() != 0 || offsetPosition.getColumn() != 0) {
-      // If the mapping is found on the first line, we need to offset
-      // its character position by the number of characters found on
-      // the *last* line of the source file to which the code is
-      // being generated.
-      adjustedStart = adjustPosition(startPosition, offsetPosition);
-      adjustedEnd = adjustPosition(endPosition, offsetPosition);
-    }
-
-    // Create the new mapping.
-    Mapping mapping = new Mapping();
-    mapping.sourceFile = sourceName;
-    mapping.sourceContent = sourceContent;
-    mapping.originalPosition = sourceStartPosition;
-    mapping.originalName = symbolName;
-    mapping.startPosition = adjustedStart;
-    mapping.endPosition = adjustedEnd;
+    // If the mapping is found on the first line, we need to offset
+    // its character position by the number of characters found on
+    // the *last* line of the source file to which the code is
+    // being generated.
+    int startLine = outputStartLine + offsetLine;
+    int startColumn = outputStartColumn + (outputStartLine > 0 ? 0 : offsetColumn);
+    int endLine = outputEndLine + offsetLine;
+    int endColumn = outputEndColumn + (outputEndLine > 0 ? 0 : offsetColumn);
 
     // Validate the mappings are in a proper order.
-    if (lastMapping != null) {
-      int lastLine = lastMapping.startPosition.getLine();
-      int lastColumn = lastMapping.startPosition.getColumn();
-      int nextLine = mapping.startPosition.getLine();
-      int nextColumn = mapping.startPosition.getColumn();
-      Preconditions.checkState(nextLine > lastLine || (nextLine == lastLine && nextColumn >= lastColumn), "Incorrect source mappings order, previous : (" + lastLine + "," + lastColumn + ")\n" + "new : (" + nextLine + "," + nextColumn + ")\nnode : %s");
+    if (mappingsCount > 0) {
+      int last = (mappingsCount - 1) * MAPPING_SIZE;
+      int lastLine = mappings[last + START_LINE];
+      int lastColumn = mappings[last + START_COLUMN];
+      if (startLine < lastLine || (startLine == lastLine && startColumn < lastColumn)) {
+        throw new IllegalStateException("Incorrect source mappings order, previous : (" + lastLine + "," + lastColumn + ")\n" + "new : (" + startLine + "," + startColumn + ")");
+      }
     }
 
-    lastMapping = mapping;
-    mappings.add(mapping);
-  }
-
-  public void addSourceFile(String sourceName, String sourceContent) {
-    getSourceId(sourceName, sourceContent);
+    addAdjustedMapping(getSourceId(sourceName, sourceContent), sourceLine, sourceColumn, getNameId(symbolName), startLine, startColumn, endLine, endColumn);
   }
 
-  private FilePosition adjustPosition(FilePosition mapping, FilePosition offset) {
-    int offsetLine = offset.getLine();
-    int offsetColumn = offset.getColumn();
-
-    if (mapping.getLine() > 0) {
-      offsetColumn = 0;
+  private void addAdjustedMapping(int sourceId, int sourceLine, int sourceColumn, int nameId, int startLine, int startColumn, int endLine, int endColumn) {
+    int index = mappingsCount * MAPPING_SIZE;
+    if (index == mappings.length) {
+      mappings = Arrays.copyOf(mappings, mappings.length * 2);
     }
 
-    FilePosition adjustedStart = new FilePosition(mapping.getLine() + offsetLine, mapping.getColumn() + offsetColumn);
-    return adjustedStart;
+    mappings[index + START_LINE] = startLine;
+    mappings[index + START_COLUMN] = startColumn;
+    mappings[index + END_LINE] = endLine;
+    mappings[index + END_COLUMN] = endColumn;
+    mappings[index + SOURCE_ID] = sourceId;
+    mappings[index + SOURCE_LINE] = sourceLine;
+    mappings[index + SOURCE_COLUMN] = sourceColumn;
+    mappings[index + NAME_ID] = nameId;
+    mappingsCount++;
   }
 
-  private List<Mapping> getMappings() {
-    return mappings;
+  public void addSourceFile(String sourceName, String sourceContent) {
+    toOutputSourceId(getSourceId(sourceName, sourceContent));
   }
 
   @Override
   public void offsetAndAppend(SourceMapGenerator otherGenerator, FilePosition offset) {
+    offsetAndAppend(otherGenerator, offset.getLine(), offset.getColumn());
+  }
+
+  @Override
+  public void offsetAndAppend(SourceMapGenerator otherGenerator, int offsetLine, int offsetColumn) {
     if (!(otherGenerator instanceof SourceMapGeneratorV3)) {
       throw new IllegalStateException("Incompatible generator supplied.");
     }
     SourceMapGeneratorV3 other = (SourceMapGeneratorV3) otherGenerator;
-    List<Mapping> otherMappings = other.getMappings();
-    for (Mapping mapping : otherMappings) {
-      Mapping adjustedMapping = new Mapping();
-      adjustedMapping.sourceFile = mapping.sourceFile;
-      adjustedMapping.originalPosition = mapping.originalPosition;
-      adjustedMapping.originalName = mapping.originalName;
-      adjustedMapping.startPosition = adjustPosition(mapping.startPosition, offset);
-      adjustedMapping.endPosition = adjustPosition(mapping.endPosition, offset);
-
-      mappings.add(adjustedMapping);
+    // ids of the other generator translated into ids of this one
+    int[] sourceIds = newIds(other.sourceNames.size());
+    int[] nameIds = newIds(other.symbols.size());
+    int[] otherMappings = other.mappings;
+    for (int i = 0; i < other.mappingsCount; i++) {
+      int index = i * MAPPING_SIZE;
+      int otherSourceId = otherMappings[index + SOURCE_ID];
+      if (sourceIds[otherSourceId] == UNMAPPED) {
+        // source content is not carried over
+        sourceIds[otherSourceId] = getSourceId(other.sourceNames.get(otherSourceId), null);
+      }
+      int otherNameId = otherMappings[index + NAME_ID];
+      if (otherNameId != UNMAPPED && nameIds[otherNameId] == UNMAPPED) {
+        nameIds[otherNameId] = getNameId(other.symbols.get(otherNameId));
+      }
+
+      int startLine = otherMappings[index + START_LINE];
+      int endLine = otherMappings[index + END_LINE];
+      addAdjustedMapping(sourceIds[otherSourceId], otherMappings[index + SOURCE_LINE], otherMappings[index + SOURCE_COLUMN], otherNameId == UNMAPPED ? UNMAPPED : nameIds[otherNameId], //
+          startLine + offsetLine, otherMappings[index + START_COLUMN] + (startLine > 0 ? 0 : offsetColumn), //
+          endLine + offsetLine, otherMappings[index + END_COLUMN] + (endLine > 0 ? 0 : offsetColumn));
     }
   }
 
@@ -286,7 +328,8 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
    */
   @Override
   public void appendTo(Appendable out, String name) throws IOException {
-    int maxLine = prepMappings();
+    boolean[] used = findUsedMappings();
+    int maxLine = findMaxLine(used);
 
     // Add the header fields.
     out.append("{\n");
@@ -343,19 +386,7 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
    * Writes the source name map to 'out'.
    */
   private void addSymbolNameMap(Appendable out) throws IOException {
-    addNameMap(out, originalNameMap);
-  }
-
-  private void addNameMap(Appendable out, Map<String, Integer> map) throws IOException {
-    int i = 0;
-    for (Entry<String, Integer> entry : map.entrySet()) {
-      String key = entry.getKey();
-      if (i != 0) {
-        out.append(",");
-      }
-      out.append(key == null ? null : escapeString(key));
-      i++;
-    }
+    addValuesList(out, originalNameMap);
   }
 
   private void addValuesList(Appendable out, List<String> list) throws IOException {
@@ -403,110 +434,54 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
   }
 
   /**
-   * Assigns sequential ids to used mappings, and returns the last line mapped.
+   * Marks mappings visited by the traversal, mappings completely covered by
+   * their children are not written into the source map.
    */
-  private int prepMappings() throws IOException {
-    // Mark any unused mappings.
-    (new MappingTraversal()).traverse(new UsedMappingCheck());
-
-    // Renumber used mappings and keep track of the last line.
-    int id = 0;
-    int maxLine = 0;
-    for (Mapping m : mappings) {
-      if (m.used) {
-        m.id = id++;
-        int endPositionLine = m.endPosition.getLine();
-        maxLine = Math.max(maxLine, endPositionLine);
+  private boolean[] findUsedMappings() throws IOException {
+    final boolean[] used = new boolean[mappingsCount];
+    (new MappingTraversal()).traverse(new MappingVisitor() {
+
+      @Override
+      public void visit(int m, int line, int col, int nextLine, int nextCol) throws IOException {
+        if (m != UNMAPPED) {
+          used[m] = true;
+        }
       }
-    }
-
-    // Adjust for the prefix.
-    return maxLine + prefixPosition.getLine();
-  }
-
-  /**
-   * A mapping from a given position in an input source file to a given position
-   * in the generated code.
-   */
-  static class Mapping {
-
-    /**
-     * A unique ID for this mapping for record keeping purposes.
-     */
-    int id = UNMAPPED;
-
-    /**
-     * The source file index.
-     */
-    String sourceFile;
-
-    /**
-     * The source file content.
-     */
-    String sourceContent;
-
-    /**
-     * The position of the code in the input source file. Both
-     * the line number and the character index are indexed by
-     * 1 for legacy reasons via the Rhino Node class.
-     */
-    FilePosition originalPosition;
-
-    /**
-     * The starting position of the code in the generated source
-     * file which this mapping represents. Indexed by 0.
-     */
-    FilePosition startPosition;
-
-    /**
-     * The ending position of the code in the generated source
-     * file which this mapping represents. Indexed by 0.
-     */
-    FilePosition endPosition;
-
-    /**
-     * The original name of the token found at the position
-     * represented by this mapping (if any).
-     */
-    String originalName;
-
-    /**
-     * Whether the mapping is actually used by the source map.
-     */
-    boolean used = false;
+    });
+    return used;
   }
 
   /**
-   * Mark any visited mapping as "used".
+   * Returns the last line mapped by used mappings.
    */
-  private class UsedMappingCheck implements MappingVisitor {
-    /**
-     * @throws IOException
-     */
-    @Override
-    public void visit(Mapping m, int line, int col, int nextLine, int nextCol) throws IOException {
-      if (m != null) {
-        m.used = true;
+  private int findMaxLine(boolean[] used) {
+    int maxLine = 0;
+    for (int i = 0; i < mappingsCount; i++) {
+      if (used[i]) {
+        maxLine = Math.max(maxLine, mappings[i * MAPPING_SIZE + END_LINE]);
       }
     }
+
+    // Adjust for the prefix.
+    return maxLine + prefixLine;
   }
 
   private interface MappingVisitor {
     /**
-     * @param m The mapping for the current code segment. null if the segment
-     *     is unmapped.
+     * @param m The index of the mapping for the current code segment.
+     *     UNMAPPED if the segment is unmapped.
      * @param line The starting line for this code segment.
      * @param col The starting column for this code segment.
      * @param endLine The ending line
      * @param endCol The ending column
      * @throws IOException
      */
-    void visit(Mapping m, int line, int col, int endLine, int endCol) throws IOException;
+    void visit(int m, int line, int col, int endLine, int endCol) throws IOException;
   }
 
   /**
    * Walk the mappings and visit each segment of the mappings, unmapped
-   * segments are visited with a null mapping, unused mapping are not visited.
+   * segments are visited with UNMAPPED mapping, unused mapping are not visited.
    */
   private class MappingTraversal {
     // The last line and column written
@@ -521,59 +496,59 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
       // The mapping list is ordered as a pre-order traversal.  The mapping
       // positions give us enough information to rebuild the stack and this
       // allows the building of the source map in O(n) time.
-      Deque<Mapping> stack = new ArrayDeque<Mapping>();
-      for (Mapping m : mappings) {
+      int[] stack = new int[16];
+      int size = 0;
+      for (int m = 0; m < mappingsCount; m++) {
         // Find the closest ancestor of the current mapping:
         // An overlapping mapping is an ancestor of the current mapping, any
         // non-overlapping mappings are siblings (or cousins) and must be
         // closed in the reverse order of when they encountered.
-        while (!stack.isEmpty() && !isOverlapped(stack.peek(), m)) {
-          Mapping previous = stack.pop();
-          maybeVisit(v, previous);
+        while (size > 0 && !isOverlapped(stack[size - 1], m)) {
+          maybeVisit(v, stack[--size]);
         }
 
         // Any gaps between the current line position and the start of the
         // current mapping belong to the parent.
-        Mapping parent = stack.peek();
+        int parent = size > 0 ? stack[size - 1] : UNMAPPED;
         maybeVisitParent(v, parent, m);
 
-        stack.push(m);
+        if (size == stack.length) {
+          stack = Arrays.copyOf(stack, size * 2);
+        }
+        stack[size++] = m;
       }
 
       // There are no more children to be had, simply close the remaining
       // mappings in the reverse order of when they encountered.
-      while (!stack.isEmpty()) {
-        Mapping m = stack.pop();
-        maybeVisit(v, m);
+      while (size > 0) {
+        maybeVisit(v, stack[--size]);
       }
     }
 
     /**
      * @return The line adjusted for the prefix position.
      */
-    private int getAdjustedLine(FilePosition p) {
-      return p.getLine() + prefixPosition.getLine();
+    private int getAdjustedLine(int rawLine) {
+      return rawLine + prefixLine;
     }
 
     /**
      * @return The column adjusted for the prefix position.
      */
-    private int getAdjustedCol(FilePosition p) {
-      int rawLine = p.getLine();
-      int rawCol = p.getColumn();
+    private int getAdjustedCol(int rawLine, int rawCol) {
       // Only the first line needs the character position adjusted.
-      return (rawLine != 0) ? rawCol : rawCol + prefixPosition.getColumn();
+      return (rawLine != 0) ? rawCol : rawCol + prefixColumn;
     }
 
     /**
      * @return Whether m1 ends before m2 starts.
      */
-    private boolean isOverlapped(Mapping m1, Mapping m2) {
+    private boolean isOverlapped(int m1, int m2) {
       // No need to use adjusted values here, relative positions are sufficient.
-      int l1 = m1.endPosition.getLine();
-      int l2 = m2.startPosition.getLine();
-      int c1 = m1.endPosition.getColumn();
-      int c2 = m2.startPosition.getColumn();
+      int l1 = mappings[m1 * MAPPING_SIZE + END_LINE];
+      int l2 = mappings[m2 * MAPPING_SIZE + START_LINE];
+      int c1 = mappings[m1 * MAPPING_SIZE + END_COLUMN];
+      int c2 = mappings[m2 * MAPPING_SIZE + START_COLUMN];
 
       return (l1 == l2 && c1 >= c2) || l1 > l2;
     }
@@ -582,9 +557,10 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
      * Write any needed entries from the current position to the end of the
      * provided mapping.
      */
-    private void maybeVisit(MappingVisitor v, Mapping m) throws IOException {
-      int nextLine = getAdjustedLine(m.endPosition);
-      int nextCol = getAdjustedCol(m.endPosition);
+    private void maybeVisit(MappingVisitor v, int m) throws IOException {
+      int rawLine = mappings[m * MAPPING_SIZE + END_LINE];
+      int nextLine = getAdjustedLine(rawLine);
+      int nextCol = getAdjustedCol(rawLine, mappings[m * MAPPING_SIZE + END_COLUMN]);
       // If this anything remaining in this mapping beyond the
       // current line and column position, write it out now.
       if (line < nextLine || (line == nextLine && col < nextCol)) {
@@ -595,10 +571,11 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
     /**
      * Write any needed entries to complete the provided mapping.
      */
-    private void maybeVisitParent(MappingVisitor v, Mapping parent, Mapping m) throws IOException {
-      int nextLine = getAdjustedLine(m.startPosition);
-      int nextCol = getAdjustedCol(m.startPosition);
-      // If the previous value is null, no mapping exists.
+    private void maybeVisitParent(MappingVisitor v, int parent, int m) throws IOException {
+      int rawLine = mappings[m * MAPPING_SIZE + START_LINE];
+      int nextLine = getAdjustedLine(rawLine);
+      int nextCol = getAdjustedCol(rawLine, mappings[m * MAPPING_SIZE + START_COLUMN]);
+      // If the previous value is UNMAPPED, no mapping exists.
       Preconditions.checkState(line < nextLine || col <= nextCol);
       if (line < nextLine || (line == nextLine && col < nextCol)) {
         visit(v, parent, nextLine, nextCol);
@@ -609,7 +586,7 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
      * Write any entries needed between the current position the next position
      * and update the current position.
      */
-    private void visit(MappingVisitor v, Mapping m, int nextLine, int nextCol) throws IOException {
+    private void visit(MappingVisitor v, int m, int nextLine, int nextCol) throws IOException {
       Preconditions.checkState(line <= nextLine);
       Preconditions.checkState(line < nextLine || col < nextCol);
 
@@ -686,29 +663,70 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
       lastSourceFileContent = sourceContent;
 
       String key = sourceName != null ? sourceName : sourceContent;
-      Integer index = sourceFileKeyMap.get(key);
+      Integer index = sourceKeys.get(key);
       if (index != null) {
         lastSourceFileIndex = index;
       } else {
-        lastSourceFileIndex = sourceFileKeyMap.size();
-        sourceFileKeyMap.put(key, lastSourceFileIndex);
-        sourceFileNameMap.add(sourceName);
-        sourceFileContentMap.add(sourceContent);
+        lastSourceFileIndex = sourceNames.size();
+        sourceKeys.put(key, lastSourceFileIndex);
+        sourceNames.add(sourceName);
+        sourceContents.add(sourceContent);
       }
     }
     return lastSourceFileIndex;
   }
 
   private int getNameId(String symbolName) {
-    int originalNameIndex;
-    Integer index = originalNameMap.get(symbolName);
-    if (index != null) {
-      originalNameIndex = index;
-    } else {
-      originalNameIndex = originalNameMap.size();
-      originalNameMap.put(symbolName, originalNameIndex);
+    if (symbolName == null) {
+      return UNMAPPED;
+    }
+
+    Integer index = symbolNames.get(symbolName);
+    if (index == null) {
+      index = symbols.size();
+      symbolNames.put(symbolName, index);
+      symbols.add(symbolName);
+    }
+    return index;
+  }
+
+  private int toOutputSourceId(int sourceId) {
+    sourceOutputIds = ensureIds(sourceOutputIds, sourceNames.size());
+    int result = sourceOutputIds[sourceId];
+    if (result == UNMAPPED) {
+      result = sourceFileNameMap.size();
+      sourceOutputIds[sourceId] = result;
+      sourceFileNameMap.add(sourceNames.get(sourceId));
+      sourceFileContentMap.add(sourceContents.get(sourceId));
+    }
+    return result;
+  }
+
+  private int toOutputNameId(int nameId) {
+    symbolOutputIds = ensureIds(symbolOutputIds, symbols.size());
+    int result = symbolOutputIds[nameId];
+    if (result == UNMAPPED) {
+      result = originalNameMap.size();
+      symbolOutputIds[nameId] = result;
+      originalNameMap.add(symbols.get(nameId));
     }
-    return originalNameIndex;
+    return result;
+  }
+
+  private static int[] ensureIds(int[] ids, int size) {
+    if (ids.length >= size) {
+      return ids;
+    }
+
+    int[] result = Arrays.copyOf(ids, Math.max(size, ids.length * 2));
+    Arrays.fill(result, ids.length, result.length, UNMAPPED);
+    return result;
+  }
+
+  private static int[] newIds(int size) {
+    int[] result = new int[size];
+    Arrays.fill(result, UNMAPPED);
+    return result;
   }
 
   private class LineMapper implements MappingVisitor {
@@ -732,7 +750,7 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
      * As each segment is visited write out the appropriate line mapping.
      */
     @Override
-    public void visit(Mapping m, int line, int col, int nextLine, int nextCol) throws IOException {
+    public void visit(int m, int line, int col, int nextLine, int nextCol) throws IOException {
 
       if (previousLine != line) {
         previousColumn = 0;
@@ -763,28 +781,29 @@ public class SourceMapGeneratorV3 implements SourceMapGenerator {
      * The values are stored as relative to the last seen values for each
      * field and encoded as Base64VLQs.
      */
-    void writeEntry(Mapping m, int column) throws IOException {
+    void writeEntry(int m, int column) throws IOException {
       // The relative generated column number
       Base64VLQ.encode(out, column - previousColumn);
       previousColumn = column;
-      if (m != null) {
+      if (m != UNMAPPED) {
+        int index = m * MAPPING_SIZE;
         // The relative source file id
-        int sourceId = getSourceId(m.sourceFile, m.sourceContent);
+        int sourceId = toOutputSourceId(mappings[index + SOURCE_ID]);
         Base64VLQ.encode(out, sourceId - previousSourceFileId);
         previousSourceFileId = sourceId;
 
         // The relative source file line and column
-        int srcline = m.originalPosition.getLine();
-        int srcColumn = m.originalPosition.getColumn();
+        int srcline = mappings[index + SOURCE_LINE];
+        int srcColumn = mappings[index + SOURCE_COLUMN];
         Base64VLQ.encode(out, srcline - previousSourceLine);
         previousSourceLine = srcline;
 
         Base64VLQ.encode(out, srcColumn - previousSourceColumn);
         previousSourceColumn = srcColumn;
 
-        if (m.originalName != null) {
+        if (mappings[index + NAME_ID] != UNMAPPED) {
           // The relative id for the associated symbol name
-          int nameId = getNameId(m.originalName);
+          int nameId = toOutputNameId(mappings[index + NAME_ID]);
           Base64VLQ.encode(out, (nameId - previousNameId));
           previousNameId = nameId;
         }
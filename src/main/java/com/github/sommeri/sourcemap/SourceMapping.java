@@ -25,11 +25,21 @@ import com.github.sommeri.sourcemap.Mapping.OriginalMapping;
  */
 public interface SourceMapping {
   /**
-   * Returns the original mapping for the line number and column position found
+   * Returns the original position for the line number and column position found
    * in the source map. Returns null if none is found.
    *
    * @param lineNumber The line number, with the first being '1'.
    * @param columnIndex The column index, with the first being '1'.
    */
+  MappedPosition getPositionForLine(int lineNumber, int columnIndex);
+
+  /**
+   * The same as {@link #getPositionForLine(int, int)}, but the result is
+   * converted into protobuf generated class. Requires protobuf-java on
+   * classpath.
+   *
+   * @param lineNumber The line number, with the first being '1'.
+   * @param columnIndex The column index, with the first being '1'.
+   */
   OriginalMapping getMappingForLine(int lineNumber, int columnIndex);
 }
@@ -42,6 +42,16 @@ public interface SourceMappingReversable extends SourceMapping {
    * @param column the source column
    * @return the reverse mapping (source --> target)
    */
+  public Collection<MappedPosition> getReversePositions(String originalFile, int line, int column);
+
+  /**
+   * The same as {@link #getReversePositions(String, int, int)}, but results are converted
+   * into protobuf generated class. Requires protobuf-java on classpath.
+   * @param originalFile the source file
+   * @param line the source line
+   * @param column the source column
+   * @return the reverse mapping (source --> target)
+   */
   public Collection<OriginalMapping> getReverseMapping(String originalFile, int line, int column);
 
 }
@@ -0,0 +1,99 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Minimal benchmark harness for main method driven benchmarks. Runs the task several times to
+ * warm up the jvm and then reports average time and bytes allocated by the current thread
+ * per one run.
+ *
+ * Allocated bytes are available only on jvms providing
+ * <code>com.sun.management.ThreadMXBean</code>, -1 is reported otherwise.
+ *
+ * Benchmarks are not part of the test suite, run them manually from ide or command line.
+ */
+public class BenchmarkSupport {
+
+  public static final String RESOURCES = "src/test/resources/benchmarks/";
+
+  private final int warmupRuns;
+  private final int measuredRuns;
+
+  public BenchmarkSupport(int warmupRuns, int measuredRuns) {
+    this.warmupRuns = warmupRuns;
+    this.measuredRuns = measuredRuns;
+  }
+
+  public static File resource(String name) {
+    return new File(RESOURCES + name);
+  }
+
+  public Result measure(String name, Task task) throws Exception {
+    for (int i = 0; i < warmupRuns; i++) {
+      task.run();
+    }
+
+    long allocatedBefore = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < measuredRuns; i++) {
+      task.run();
+    }
+    long time = System.nanoTime() - start;
+    long allocatedAfter = allocatedBytes();
+
+    long allocated = allocatedBefore < 0 ? -1 : (allocatedAfter - allocatedBefore) / measuredRuns;
+    Result result = new Result(name, time / measuredRuns, allocated);
+    System.out.println(result);
+    return result;
+  }
+
+  private static long allocatedBytes() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    try {
+      // com.sun.management.ThreadMXBean is not available on all jvms
+      Method method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+      return (Long) method.invoke(bean, Thread.currentThread().getId());
+    } catch (Exception ex) {
+      return -1;
+    }
+  }
+
+  public interface Task {
+    void run() throws Exception;
+  }
+
+  public static class Result {
+
+    private final String name;
+    private final long nanosPerRun;
+    private final long bytesPerRun;
+
+    public Result(String name, long nanosPerRun, long bytesPerRun) {
+      this.name = name;
+      this.nanosPerRun = nanosPerRun;
+      this.bytesPerRun = bytesPerRun;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getNanosPerRun() {
+      return nanosPerRun;
+    }
+
+    public long getBytesPerRun() {
+      return bytesPerRun;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-40s %10.3f ms/run %12d bytes/run", name, nanosPerRun / 1000000.0, bytesPerRun);
+    }
+
+  }
+
+}
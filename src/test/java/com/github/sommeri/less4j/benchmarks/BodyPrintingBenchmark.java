@@ -0,0 +1,78 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import java.util.Collections;
+
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.StyleSheet;
+import com.github.sommeri.less4j.core.compiler.LessToCssCompiler;
+import com.github.sommeri.less4j.core.parser.ANTLRParser;
+import com.github.sommeri.less4j.core.parser.ASTBuilder;
+import com.github.sommeri.less4j.core.problems.ProblemsHandler;
+import com.github.sommeri.less4j.utils.CssPrinter;
+
+/**
+ * Printing of bootstrap like buttons - rulesets with many declarations generated by vendor
+ * prefixing mixins, some of them duplicate. Css is printed together with source map.
+ */
+public class BodyPrintingBenchmark {
+
+  private static final int BUTTONS = 5000;
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(10, 10);
+    final Configuration configuration = new Configuration();
+    final LessSource source = new LessSource.StringSource(buttonsSheet(), "buttons.less");
+    final LessSource destination = new LessSource.StringSource("", "buttons.css");
+    final ASTCssNode css = compile(source, configuration);
+
+    support.measure("buttons, css and source map", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        CssPrinter printer = new CssPrinter(source, destination, Collections.<LessSource> emptyList(), Collections.<LessSource> emptyList(), configuration);
+        printer.append(css);
+        printer.toString();
+        printer.toSourceMap();
+      }
+    });
+  }
+
+  private static ASTCssNode compile(LessSource source, Configuration configuration) throws Exception {
+    ProblemsHandler problemsHandler = new ProblemsHandler();
+    StyleSheet less = new ASTBuilder(problemsHandler).parseStyleSheet(new ANTLRParser().parseStyleSheet(source.getContent(), source).getTree());
+    return new LessToCssCompiler(problemsHandler, configuration).compileToCss(less, source, configuration);
+  }
+
+  private static String buttonsSheet() {
+    StringBuilder result = new StringBuilder();
+    result.append(".border-radius(@radius) { -webkit-border-radius: @radius; -moz-border-radius: @radius; border-radius: @radius; }\n");
+    result.append(".box-shadow(@shadow) { -webkit-box-shadow: @shadow; box-shadow: @shadow; }\n");
+    result.append(".gradient(@start, @end) {\n");
+    result.append("  background-color: mix(@start, @end, 60%);\n");
+    result.append("  background-image: -webkit-linear-gradient(top, @start, @end);\n");
+    result.append("  background-image: linear-gradient(to bottom, @start, @end);\n");
+    result.append("  background-repeat: repeat-x;\n");
+    result.append("}\n");
+    result.append(".button-variant(@color, @background) {\n");
+    result.append("  color: @color;\n");
+    result.append("  .gradient(lighten(@background, 10%), @background);\n");
+    result.append("  border: 1px solid darken(@background, 5%);\n");
+    result.append("  .border-radius(4px);\n");
+    result.append("  .box-shadow(inset 0 1px 0 rgba(255, 255, 255, .15));\n");
+    result.append("  &:hover { color: @color; background-color: darken(@background, 10%); .box-shadow(none); }\n");
+    result.append("}\n");
+    for (int i = 0; i < BUTTONS; i++) {
+      result.append(".btn-").append(i).append(" {\n");
+      result.append("  display: inline-block;\n");
+      result.append("  padding: 6px 12px;\n");
+      result.append("  font: 14px/1.42857143 \"Helvetica Neue\", Helvetica, Arial, sans-serif;\n");
+      result.append("  .border-radius(").append(i % 6).append("px);\n");
+      result.append("  .button-variant(#fff, #").append(100 + i % 800).append(");\n");
+      result.append("}\n");
+    }
+    return result.toString();
+  }
+
+}
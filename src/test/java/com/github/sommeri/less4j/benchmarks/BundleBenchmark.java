@@ -0,0 +1,68 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import com.github.sommeri.less4j.CssBundler;
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+import com.github.sommeri.sourcemap.SourceMapGeneratorV3;
+
+/**
+ * Bundling of separately compiled style sheets - bundle with index source map compared to
+ * bundle with single source map made by merging all sections.
+ */
+public class BundleBenchmark {
+
+  private static final int STYLE_SHEETS = 50;
+  private static final int COMPONENTS = 500;
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(5, 10);
+    final CompilationResult[] results = new CompilationResult[STYLE_SHEETS];
+    for (int i = 0; i < STYLE_SHEETS; i++) {
+      Configuration configuration = new Configuration();
+      configuration.setCssResultLocation(new LessSource.StringSource("", "sheet-" + i + ".css"));
+      results[i] = new DefaultLessCompiler().compile(new LessSource.StringSource(componentsSheet(i), "sheet-" + i + ".less"), configuration);
+    }
+
+    support.measure("index map", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        CssBundler bundler = new CssBundler();
+        for (CompilationResult result : results) {
+          bundler.add(result);
+        }
+        bundler.toCompilationResult("bundle.css", "bundle.css.map");
+      }
+    });
+
+    support.measure("merged map", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        StringBuilder css = new StringBuilder();
+        SourceMapGeneratorV3 generator = new SourceMapGeneratorV3();
+        int line = 0;
+        for (CompilationResult result : results) {
+          generator.mergeMapSection(line, 0, result.getSourceMap());
+          css.append(result.getCss());
+          line += result.getCss().split("\n", -1).length - 1;
+        }
+        generator.appendTo(new StringBuilder(), "bundle.css");
+      }
+    });
+  }
+
+  private static String componentsSheet(int sheet) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < COMPONENTS; i++) {
+      result.append(".sheet-").append(sheet).append("-component-").append(i).append(" {\n");
+      result.append("  padding: ").append(i % 10).append("px 2px;\n");
+      result.append("  .title, .subtitle > a:hover { color: #").append(100 + i % 800).append("; }\n");
+      result.append("}\n");
+    }
+    return result.toString();
+  }
+
+}
@@ -0,0 +1,87 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.core.ThreadUnsafeLessCompiler;
+
+/**
+ * Extends heavy style sheets - many rulesets and selectors with both exact and <code>all</code>
+ * extends, some of them inside media. Media heavy sheet is compiled both with serial and
+ * parallel extends solver.
+ */
+public class ExtendsBenchmark {
+
+  private static final int RULESETS = 4000;
+  private static final int EXTENDS = 400;
+  private static final int MEDIA = 40;
+  private static final int RULESETS_IN_MEDIA = 300;
+  private static final int EXTENDS_IN_MEDIA = 30;
+  private static final int THREADS = 4;
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(5, 10);
+    final LessCompiler compiler = new ThreadUnsafeLessCompiler();
+    final Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+
+    final String sheet = extendsSheet();
+    support.measure("many extends", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(sheet, configuration);
+      }
+    });
+
+    final String mediaSheet = mediaSheet();
+    support.measure("extends in media, serial", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(mediaSheet, configuration);
+      }
+    });
+
+    final Configuration parallel = new Configuration();
+    parallel.getSourceMapConfiguration().setLinkSourceMap(false);
+    parallel.setExtendsSolverThreads(THREADS);
+    support.measure("extends in media, " + THREADS + " threads", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(mediaSheet, parallel);
+      }
+    });
+  }
+
+  private static String extendsSheet() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < RULESETS; i++) {
+      result.append(".component-").append(i).append(" .part-").append(i % 50).append(", div.item-").append(i).append(":hover { width: ").append(i).append("px; }\n");
+      if (i % 10 == 0)
+        result.append("@media print { .component-").append(i).append(" { display: none; } }\n");
+    }
+    for (int i = 0; i < EXTENDS; i++) {
+      int target = i * 7 % RULESETS;
+      result.append(".alias-").append(i).append(":extend(div.item-").append(target).append(":hover) { color: red; }\n");
+      result.append(".all-alias-").append(i).append(" { &:extend(.component-").append(target).append(" all); }\n");
+    }
+    return result.toString();
+  }
+
+  private static String mediaSheet() {
+    StringBuilder result = new StringBuilder();
+    for (int m = 0; m < MEDIA; m++) {
+      result.append("@media (min-width: ").append(m * 10).append("px) {\n");
+      for (int i = 0; i < RULESETS_IN_MEDIA; i++) {
+        result.append("  .box-").append(i).append(" .title-").append(i % 20).append(", .box-").append(i).append(" > a.link { margin: ").append(m).append("px; }\n");
+      }
+      for (int i = 0; i < EXTENDS_IN_MEDIA; i++) {
+        result.append("  .panel-").append(i).append(" { &:extend(.box-").append(i * 3).append(" all); }\n");
+      }
+      result.append("}\n");
+    }
+    return result.toString();
+  }
+
+}
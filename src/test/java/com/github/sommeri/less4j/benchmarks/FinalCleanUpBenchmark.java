@@ -0,0 +1,83 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.StyleSheet;
+import com.github.sommeri.less4j.core.compiler.LessToCssCompiler;
+import com.github.sommeri.less4j.core.compiler.selectors.UselessLessElementsRemover;
+import com.github.sommeri.less4j.core.compiler.stages.EmptyBodiesRemover;
+import com.github.sommeri.less4j.core.compiler.stages.PropertiesMerger;
+import com.github.sommeri.less4j.core.compiler.stages.TreeVisitorsPipeline;
+import com.github.sommeri.less4j.core.compiler.stages.UselessImportantRemover;
+import com.github.sommeri.less4j.core.parser.ANTLRParser;
+import com.github.sommeri.less4j.core.parser.ASTBuilder;
+import com.github.sommeri.less4j.core.problems.ProblemsHandler;
+
+/**
+ * Final clean up of large style sheet - many rulesets with many declarations, some of them in 
+ * media. Clean up visitors are applied to already compiled tree both one after another 
+ * in separate traversals and fused into one traversal.
+ */
+public class FinalCleanUpBenchmark {
+
+  private static final int RULESETS = 5000;
+  private static final int DECLARATIONS = 8;
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(5, 10);
+    final String sheet = largeSheet();
+
+    final ASTCssNode compiled = compileToCssTree(sheet);
+    support.measure("separate traversals", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        new UselessLessElementsRemover().removeUselessLessElements(compiled);
+        new EmptyBodiesRemover().removeEmptyBodies(compiled);
+        new PropertiesMerger().apply(compiled);
+        new UselessImportantRemover().apply(compiled);
+      }
+    });
+
+    support.measure("fused traversal", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        TreeVisitorsPipeline pipeline = new TreeVisitorsPipeline( //
+            new UselessLessElementsRemover(), //
+            new EmptyBodiesRemover(), //
+            new PropertiesMerger(), //
+            new UselessImportantRemover());
+        pipeline.apply(compiled);
+      }
+    });
+  }
+
+  private static ASTCssNode compileToCssTree(String sheet) {
+    LessSource source = new LessSource.StringSource(sheet);
+    ProblemsHandler problemsHandler = new ProblemsHandler();
+    Configuration configuration = new Configuration();
+    StyleSheet less = new ASTBuilder(problemsHandler).parseStyleSheet(new ANTLRParser().parseStyleSheet(sheet, source).getTree());
+    return new LessToCssCompiler(problemsHandler, configuration).compileToCss(less, source, configuration);
+  }
+
+  private static String largeSheet() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < RULESETS; i++) {
+      boolean inMedia = i % 100 == 0;
+      if (inMedia)
+        result.append("@media (min-width: ").append(i).append("px) {\n");
+      result.append(".card-").append(i).append(" .title, .card-").append(i).append(" > .body {\n");
+      for (int j = 0; j < DECLARATIONS; j++) {
+        result.append("  margin-").append(j).append(": ").append(i).append("px ").append(j).append("px 1em (").append(i).append(" + 2px);\n");
+      }
+      result.append("  .empty-").append(i).append(" { }\n");
+      result.append("}\n");
+      if (inMedia)
+        result.append("}\n");
+    }
+    return result.toString();
+  }
+
+}
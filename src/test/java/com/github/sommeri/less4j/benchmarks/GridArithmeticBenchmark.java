@@ -0,0 +1,52 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import java.io.File;
+
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.core.ThreadUnsafeLessCompiler;
+
+/**
+ * Allocation rate of arithmetic heavy code. Compiles bootstrap like grid system and a sheet
+ * with unit conversions and comparisons in mixin guards.
+ */
+public class GridArithmeticBenchmark {
+
+  private static final int ARITHMETIC_MIXIN_CALLS = 500;
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(20, 50);
+    final LessCompiler compiler = new ThreadUnsafeLessCompiler();
+    final Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+
+    final File grid = BenchmarkSupport.resource("grid-system.less");
+    support.measure("grid system", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(grid, configuration);
+      }
+    });
+
+    final String arithmetic = arithmeticSheet();
+    support.measure("units arithmetic and guards", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(arithmetic, configuration);
+      }
+    });
+  }
+
+  private static String arithmeticSheet() {
+    StringBuilder result = new StringBuilder();
+    result.append(".size(@i) when (@i > 10mm) { width: (@i + 1cm) * 2 - 1in; height: (@i / 3) + 2pt; }\n");
+    result.append(".size(@i) when (@i =< 10mm) { width: (@i - 1cm) / 2 + 1pc; height: @i * 3 - 1mm; }\n");
+    for (int i = 0; i < ARITHMETIC_MIXIN_CALLS; i++) {
+      result.append(".item-").append(i).append(" { .size(").append(i % 40).append("mm); }\n");
+    }
+    return result.toString();
+  }
+
+}
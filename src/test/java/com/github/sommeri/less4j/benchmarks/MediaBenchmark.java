@@ -0,0 +1,58 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.core.ThreadUnsafeLessCompiler;
+
+/**
+ * Responsive components style sheet - thousands of rulesets with media nested in them and 
+ * media nested in those media. Compiled with and without adjacent media merging.
+ */
+public class MediaBenchmark {
+
+  private static final int COMPONENTS = 4000;
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(3, 5);
+    final LessCompiler compiler = new ThreadUnsafeLessCompiler();
+    final Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+
+    final String sheet = responsiveSheet();
+    support.measure("nested media", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(sheet, configuration);
+      }
+    });
+
+    final Configuration mergeMedia = new Configuration();
+    mergeMedia.getSourceMapConfiguration().setLinkSourceMap(false);
+    mergeMedia.setMergeAdjacentMedia(true);
+    support.measure("nested media, merge adjacent", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(sheet, mergeMedia);
+      }
+    });
+  }
+
+  private static String responsiveSheet() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < COMPONENTS; i++) {
+      result.append(".component-").append(i).append(" {\n");
+      result.append("  padding: ").append(i % 10).append("px;\n");
+      result.append("  @media (min-width: 768px) {\n");
+      result.append("    padding: ").append(i % 20).append("px;\n");
+      result.append("    @media (max-width: 1024px) { margin: 1px; }\n");
+      result.append("    @media print { display: none; }\n");
+      result.append("  }\n");
+      result.append("  @media (min-width: 1200px) { padding: 0; }\n");
+      result.append("}\n");
+    }
+    return result.toString();
+  }
+
+}
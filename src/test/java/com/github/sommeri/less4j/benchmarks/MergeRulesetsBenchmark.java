@@ -0,0 +1,65 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.core.ThreadUnsafeLessCompiler;
+
+/**
+ * Components style sheet where mixins generate many rulesets with the same declarations and
+ * where components are styled in multiple places. Compiled with and without rulesets merging.
+ */
+public class MergeRulesetsBenchmark {
+
+  private static final int COMPONENTS = 4000;
+  private static final int MIXINS = 20;
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(3, 5);
+    final LessCompiler compiler = new ThreadUnsafeLessCompiler();
+    final Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+
+    final String sheet = componentsSheet();
+    support.measure("components", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(sheet, configuration);
+      }
+    });
+
+    final Configuration mergeRulesets = new Configuration();
+    mergeRulesets.getSourceMapConfiguration().setLinkSourceMap(false);
+    mergeRulesets.setMergeRulesets(true);
+    support.measure("components, merge rulesets", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(sheet, mergeRulesets);
+      }
+    });
+
+    CompilationResult original = compiler.compile(sheet, configuration);
+    CompilationResult merged = compiler.compile(sheet, mergeRulesets);
+    System.out.println("css size: " + original.getCss().length() + " -> " + merged.getCss().length() + " (merged rulesets: " + merged.getMergedRulesetsStatistics().getMergedRulesets() + ")");
+  }
+
+  private static String componentsSheet() {
+    StringBuilder result = new StringBuilder();
+    for (int m = 0; m < MIXINS; m++) {
+      result.append(".theme-").append(m).append("() {\n");
+      result.append("  color: #").append(100 + m).append(";\n");
+      result.append("  background: white;\n");
+      result.append("  border: 1px solid #").append(200 + m).append(";\n");
+      result.append("}\n");
+    }
+    for (int i = 0; i < COMPONENTS; i++) {
+      result.append(".component-").append(i).append(" { .theme-").append(i % MIXINS).append("(); }\n");
+      result.append(".component-").append(i).append(" .title { font-weight: bold; }\n");
+      result.append(".component-").append(i).append(" { padding: ").append(i % 10).append("px; }\n");
+    }
+    return result.toString();
+  }
+
+}
@@ -0,0 +1,53 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.core.ThreadUnsafeLessCompiler;
+
+/**
+ * Memory used by deeply nested rulesets with long selectors lists, repeated selectors and
+ * multiple appenders. Compiled with and without duplicate selectors removal.
+ */
+public class NestedSelectorsBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(5, 10);
+    final LessCompiler compiler = new ThreadUnsafeLessCompiler();
+    final Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+
+    final String sheet = nestedSheet();
+    support.measure("nested selectors", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(sheet, configuration);
+      }
+    });
+
+    final Configuration removeDuplicates = new Configuration();
+    removeDuplicates.getSourceMapConfiguration().setLinkSourceMap(false);
+    removeDuplicates.setRemoveDuplicateSelectors(true);
+    support.measure("nested selectors, no duplicates", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(sheet, removeDuplicates);
+      }
+    });
+  }
+
+  private static String nestedSheet() {
+    StringBuilder result = new StringBuilder();
+    result.append(".block-a, .block-b, .block-c, .block-a, .block-d {\n");
+    result.append("  &__element-a, &__element-b, &__element-c, &__element-a {\n");
+    result.append("    &-modifier-a, &-modifier-b, &-modifier-a {\n");
+    result.append("      & + &, & ~ & { margin: 1px; }\n");
+    result.append("      .theme-dark &, .theme-light & { color: red; }\n");
+    result.append("    }\n");
+    result.append("  }\n");
+    result.append("}\n");
+    return result.toString();
+  }
+
+}
@@ -0,0 +1,117 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import java.util.Collections;
+
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.ast.ASTCssNode;
+import com.github.sommeri.less4j.core.ast.StyleSheet;
+import com.github.sommeri.less4j.core.compiler.LessToCssCompiler;
+import com.github.sommeri.less4j.core.parser.ANTLRParser;
+import com.github.sommeri.less4j.core.parser.ASTBuilder;
+import com.github.sommeri.less4j.core.problems.ProblemsHandler;
+import com.github.sommeri.less4j.utils.CssPrinter;
+import com.github.sommeri.sourcemap.SourceMapFormat;
+import com.github.sommeri.sourcemap.SourceMapGenerator;
+import com.github.sommeri.sourcemap.SourceMapGeneratorFactory;
+
+/**
+ * Printing of already compiled large style sheet. Css is printed alone and together with
+ * source map - position bookkeeping is measured in both cases, generating the map only
+ * in the second one. Inline case base64 encodes the map into css. The last case composes
+ * the map with input source map of generated less.
+ */
+public class PrintingBenchmark {
+
+  private static final int COMPONENTS = 20000;
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(10, 10);
+    final Configuration configuration = new Configuration();
+    final LessSource source = new LessSource.StringSource(componentsSheet(), "components.less");
+    final LessSource destination = new LessSource.StringSource("", "components.css");
+    final ASTCssNode css = compile(source, configuration);
+
+    support.measure("css", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        CssPrinter printer = createPrinter(source, destination, configuration);
+        printer.append(css);
+        printer.toString();
+      }
+    });
+
+    support.measure("css and source map", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        CssPrinter printer = createPrinter(source, destination, configuration);
+        printer.append(css);
+        printer.toString();
+        printer.toSourceMap();
+      }
+    });
+
+    support.measure("css and inline source map", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        CssPrinter printer = createPrinter(source, destination, configuration);
+        printer.append(css);
+        printer.appendInlineSourceMapLink(printer.toSourceMap(), "UTF-8");
+        printer.toString();
+      }
+    });
+
+    // pretend the less was generated
+    source.setInputSourceMap(inputSourceMap(source.getContent()));
+    support.measure("css and composed source map", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        CssPrinter printer = createPrinter(source, destination, configuration);
+        printer.append(css);
+        printer.toString();
+        printer.toSourceMap();
+      }
+    });
+  }
+
+  /**
+   * Maps each line of less to a line in one of original files.
+   */
+  private static String inputSourceMap(String less) throws Exception {
+    SourceMapGenerator generator = SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3);
+    int lines = less.split("\n").length;
+    for (int i = 0; i < lines; i++) {
+      generator.addMapping("tokens-" + (i % 10) + ".json", null, null, i / 10, 2, i, 0, i, 1);
+    }
+    StringBuilder result = new StringBuilder();
+    generator.appendTo(result, "components.less");
+    return result.toString();
+  }
+
+  private static CssPrinter createPrinter(LessSource source, LessSource destination, Configuration configuration) {
+    return new CssPrinter(source, destination, Collections.<LessSource> emptyList(), Collections.<LessSource> emptyList(), configuration);
+  }
+
+  private static ASTCssNode compile(LessSource source, Configuration configuration) throws Exception {
+    ProblemsHandler problemsHandler = new ProblemsHandler();
+    StyleSheet less = new ASTBuilder(problemsHandler).parseStyleSheet(new ANTLRParser().parseStyleSheet(source.getContent(), source).getTree());
+    return new LessToCssCompiler(problemsHandler, configuration).compileToCss(less, source, configuration);
+  }
+
+  private static String componentsSheet() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < COMPONENTS; i++) {
+      result.append(".component-").append(i).append(" {\n");
+      result.append("  padding: ").append(i % 10).append("px 2px;\n");
+      result.append("  .title, .subtitle > a:hover { color: #").append(100 + i % 800).append("; font: 12px/1.5 Arial, sans-serif; }\n");
+      result.append("  &.active { border: 1px solid red; }\n");
+      result.append("}\n");
+    }
+    return result.toString();
+  }
+
+}
@@ -0,0 +1,114 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import java.util.Random;
+
+import com.github.sommeri.sourcemap.SourceMapConsumerV3;
+import com.github.sommeri.sourcemap.SourceMapFormat;
+import com.github.sommeri.sourcemap.SourceMapGenerator;
+import com.github.sommeri.sourcemap.SourceMapGeneratorFactory;
+
+/**
+ * Decoding of a large source map and lookups in it - the way error reporting maps positions in
+ * generated css back to less and the other way round.
+ */
+public class SourceMapConsumerBenchmark {
+
+  private static final int MAPPINGS = 1000000;
+  private static final int MAPPINGS_PER_LINE = 12;
+  private static final int LOOKUPS = 100000;
+  private static final String[] SOURCES = { "main.less", "mixins.less", "variables.less" };
+  private static final String[] SYMBOLS = { ".component", "{", "padding", ":", "2px", ";", "color", "#fff", "}", "a:hover", ",", "margin" };
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(5, 10);
+    final String map = generateMap();
+
+    support.measure("parse", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        new SourceMapConsumerV3().parse(map);
+      }
+    });
+
+    final SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(map);
+    support.measure("generated to original lookups", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        Random random = new Random(0);
+        int lines = MAPPINGS / MAPPINGS_PER_LINE;
+        for (int i = 0; i < LOOKUPS; i++) {
+          consumer.getPositionForLine(random.nextInt(lines) + 1, random.nextInt(80) + 1);
+        }
+      }
+    });
+
+    support.measure("generated to original lookups, protobuf", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        Random random = new Random(0);
+        int lines = MAPPINGS / MAPPINGS_PER_LINE;
+        for (int i = 0; i < LOOKUPS; i++) {
+          consumer.getMappingForLine(random.nextInt(lines) + 1, random.nextInt(80) + 1);
+        }
+      }
+    });
+
+    support.measure("parse and original to generated lookups", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+        consumer.parse(map);
+        Random random = new Random(0);
+        for (int i = 0; i < LOOKUPS; i++) {
+          consumer.getReversePositions(SOURCES[random.nextInt(SOURCES.length)], random.nextInt(MAPPINGS / 20), 0);
+        }
+      }
+    });
+
+    retainedHeap(map);
+  }
+
+  private static void retainedHeap(String map) throws Exception {
+    long before = usedHeap();
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(map);
+    consumer.getReversePositions(SOURCES[0], 0, 0);
+    long after = usedHeap();
+    System.out.println("retained by consumer with reverse index: " + (after - before) / 1024 / 1024 + " MB");
+    // keep consumer reachable until heap was measured
+    consumer.getFile();
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static String generateMap() throws Exception {
+    SourceMapGenerator generator = SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3);
+    int line = 0;
+    int column = 0;
+    for (int i = 0; i < MAPPINGS; i++) {
+      String symbol = SYMBOLS[i % SYMBOLS.length];
+      String source = SOURCES[(i / 100) % SOURCES.length];
+      generator.addMapping(source, null, symbol, i / 20, (i % 20) * 4, line, column, line, column + symbol.length());
+      column += symbol.length();
+      if (i % MAPPINGS_PER_LINE == MAPPINGS_PER_LINE - 1) {
+        line++;
+        column = 0;
+      }
+    }
+    StringBuilder result = new StringBuilder();
+    generator.appendTo(result, "out.css");
+    return result.toString();
+  }
+
+}
@@ -0,0 +1,128 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.github.sommeri.sourcemap.SourceMapFormat;
+import com.github.sommeri.sourcemap.SourceMapGenerator;
+import com.github.sommeri.sourcemap.SourceMapGeneratorFactory;
+
+/**
+ * Source map generator alone - a million mappings similar to those produced by css printer are
+ * added and then written into a writer that throws the text away. Merging of generators is
+ * measured too.
+ */
+public class SourceMapGeneratorBenchmark {
+
+  private static final int MAPPINGS = 1000000;
+  private static final int MAPPINGS_PER_LINE = 12;
+  private static final String[] SOURCES = { "main.less", "mixins.less", "variables.less" };
+  private static final String[] SYMBOLS = { ".component", " ", "{", "padding", ":", "2px", ";", "color", "#fff", "}", "a:hover", "," };
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(5, 10);
+
+    support.measure("add mappings", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        addMappings(SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3), MAPPINGS);
+      }
+    });
+
+    support.measure("add mappings and write map", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        SourceMapGenerator generator = SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3);
+        addMappings(generator, MAPPINGS);
+        generator.appendTo(new DiscardingWriter(), "out.css");
+      }
+    });
+
+    support.measure("offset and append", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        SourceMapGenerator generator = SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3);
+        for (int i = 0; i < 10; i++) {
+          SourceMapGenerator part = SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3);
+          addMappings(part, MAPPINGS / 10);
+          // each part starts on a new line
+          generator.offsetAndAppend(part, i * (MAPPINGS / 10 / MAPPINGS_PER_LINE + 1), 0);
+        }
+        generator.appendTo(new DiscardingWriter(), "out.css");
+      }
+    });
+
+    retainedHeap();
+  }
+
+  private static void retainedHeap() throws Exception {
+    long before = usedHeap();
+    SourceMapGenerator generator = SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3);
+    addMappings(generator, MAPPINGS);
+    long after = usedHeap();
+    System.out.println("retained by generator: " + (after - before) / 1024 / 1024 + " MB");
+    // keep generator reachable until heap was measured
+    generator.reset();
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void addMappings(SourceMapGenerator generator, int count) {
+    int line = 0;
+    int column = 0;
+    for (int i = 0; i < count; i++) {
+      String symbol = SYMBOLS[i % SYMBOLS.length];
+      // each line ends with unique selector, similar to real style sheets
+      if (i % MAPPINGS_PER_LINE == MAPPINGS_PER_LINE - 1)
+        symbol = ".component-" + i;
+
+      String source = SOURCES[(i / 100) % SOURCES.length];
+      generator.addMapping(source, null, symbol, i / 20, (i % 20) * 4, line, column, line, column + symbol.length());
+      column += symbol.length();
+      if (i % MAPPINGS_PER_LINE == MAPPINGS_PER_LINE - 1) {
+        line++;
+        column = 0;
+      }
+    }
+  }
+
+  private static class DiscardingWriter extends Writer {
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+    }
+
+    @Override
+    public Writer append(char c) throws IOException {
+      return this;
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+      return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+  }
+
+}
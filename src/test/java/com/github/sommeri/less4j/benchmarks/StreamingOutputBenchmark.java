@@ -0,0 +1,74 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.ThreadUnsafeLessCompiler;
+
+/**
+ * Large flat style sheet written into a file - once compiled into a string and written
+ * afterwards and once streamed directly into the file.
+ */
+public class StreamingOutputBenchmark {
+
+  private static final int RULESETS = 40000;
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(3, 5);
+    final LessCompiler compiler = new ThreadUnsafeLessCompiler();
+    final Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+
+    final LessSource sheet = new LessSource.StringSource(flatSheet(), "flat.less");
+    final File cssFile = File.createTempFile("streaming-benchmark", ".css");
+    cssFile.deleteOnExit();
+
+    support.measure("string, then file", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        CompilationResult result = compiler.compile(sheet, configuration);
+        Writer writer = createWriter(cssFile);
+        try {
+          writer.write(result.getCss());
+        } finally {
+          writer.close();
+        }
+      }
+    });
+
+    support.measure("streamed into file", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        Writer writer = createWriter(cssFile);
+        try {
+          compiler.compile(sheet, configuration, writer);
+        } finally {
+          writer.close();
+        }
+      }
+    });
+    System.out.println("css size: " + cssFile.length());
+  }
+
+  private static Writer createWriter(File file) throws Exception {
+    return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+  }
+
+  private static String flatSheet() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < RULESETS; i++) {
+      result.append(".component-").append(i).append(" .title, .component-").append(i).append(" > a:hover { margin: ").append(i % 10).append("px; color: #").append(100 + i % 800).append("; }\n");
+    }
+    return result.toString();
+  }
+
+}
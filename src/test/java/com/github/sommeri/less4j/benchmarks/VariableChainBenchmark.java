@@ -0,0 +1,31 @@
+package com.github.sommeri.less4j.benchmarks;
+
+import java.io.File;
+
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.core.ThreadUnsafeLessCompiler;
+
+/**
+ * Variables references cost. Compiles theme where design tokens reference each other in
+ * long chains and are used by many mixin calls and rulesets.
+ */
+public class VariableChainBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    BenchmarkSupport support = new BenchmarkSupport(20, 50);
+    final LessCompiler compiler = new ThreadUnsafeLessCompiler();
+    final Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+
+    final File theme = BenchmarkSupport.resource("token-chain-theme.less");
+    support.measure("token chain theme", new BenchmarkSupport.Task() {
+
+      @Override
+      public void run() throws Exception {
+        compiler.compile(theme, configuration);
+      }
+    });
+  }
+
+}
@@ -1,5 +1,7 @@
 package com.github.sommeri.less4j.commandline;
 
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -111,4 +113,27 @@ public class SingleModeTest extends CommandLineTest {
     assertNoErrors();
   }
 
+  @Test
+  public void printStatistics() {
+    String lessFile = inputDir+"one.less";
+    CommandLine.main(new String[] {lessFile, "--stats"});
+    assertSysout(correctCss("one"));
+    String error = errContent.toString();
+    assertTrue(error.startsWith("Statistics of compilation of " + lessFile + "\nparsing: "));
+    assertTrue(error.contains("\ntotal: "));
+    assertTrue(error.contains("\nmappings generated: "));
+  }
+
+  @Test
+  public void printProfile() {
+    String lessFile = inputDir+"one.less";
+    String stacksFile = inputDir+"one.stacks";
+    cleaner.ensureRemoval(stacksFile);
+    CommandLine.main(new String[] {lessFile, "--profile"});
+    assertSysout(correctCss("one"));
+    String error = errContent.toString();
+    assertTrue(error.startsWith("Profile of compilation of " + lessFile + "\n  inclusive ms   exclusive ms      calls  definition\n"));
+    fileUtils.assertFileContent(stacksFile, "");
+  }
+
 }
@@ -11,6 +11,7 @@ import com.github.sommeri.less4j.AbstractFileBasedTest;
 import com.github.sommeri.less4j.LessCompiler.Configuration;
 import com.github.sommeri.less4j.LessFunction;
 import com.github.sommeri.less4j.LessProblems;
+import com.github.sommeri.less4j.ReadOnlyLessFunction;
 import com.github.sommeri.less4j.core.ast.CssString;
 import com.github.sommeri.less4j.core.ast.Expression;
 import com.github.sommeri.less4j.core.ast.FunctionExpression;
@@ -29,6 +30,8 @@ public class CustomLessFunctionsTest extends AbstractFileBasedTest {
     Configuration configuration = super.createConfiguration(cssOutput);
     configuration.addCustomFunction(new NoParametersTestFnc());
     configuration.addCustomFunctions(Arrays.asList(new MultipleParametersTestFnc(), new CauseWarningTestFnc()));
+    configuration.addCustomFunction("firstParameter", new FirstParameterTestFnc());
+    configuration.addCustomFunction("NamedWorks", new NoParametersTestFnc());
     return configuration;
   }
 
@@ -81,4 +84,18 @@ class CauseWarningTestFnc implements LessFunction {
     return new IdentifierExpression(input.getUnderlyingStructure(), "caused");
   }
   
-}
\ No newline at end of file
+}
+
+class FirstParameterTestFnc implements ReadOnlyLessFunction {
+
+  @Override
+  public boolean canEvaluate(FunctionExpression input, List<Expression> parameters) {
+    return !parameters.isEmpty();
+  }
+
+  @Override
+  public Expression evaluate(FunctionExpression input, List<Expression> parameters, Expression evaluatedParameter, LessProblems problems) {
+    return parameters.get(0);
+  }
+  
+}
@@ -0,0 +1,30 @@
+package com.github.sommeri.less4j.compiler;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.junit.runners.Parameterized.Parameters;
+
+import com.github.sommeri.less4j.LessCompiler;
+
+public class RemoveDuplicateSelectorsTest extends BasicFeaturesTest {
+
+  private static final String standardCases = "src/test/resources/compile-basic-features/remove-duplicate-selectors/";
+
+  public RemoveDuplicateSelectorsTest(File inputFile, File outputFile, File errorList, File mapdataFile, File configFile, String testName) {
+    super(inputFile, outputFile, errorList, mapdataFile, configFile, testName);
+  }
+
+  @Parameters(name="Less: {5}")
+  public static Collection<Object[]> allTestsParameters() {
+    return createTestFileUtils().loadTestFiles(standardCases);
+  }
+
+  @Override
+  protected LessCompiler.Configuration createConfiguration(File cssOutput) {
+    LessCompiler.Configuration configuration = super.createConfiguration(cssOutput);
+    configuration.setRemoveDuplicateSelectors(true);
+    return configuration;
+  }
+
+}
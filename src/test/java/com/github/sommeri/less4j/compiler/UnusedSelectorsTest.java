@@ -0,0 +1,32 @@
+package com.github.sommeri.less4j.compiler;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.runners.Parameterized.Parameters;
+
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.UsedSelectorsSet;
+
+public class UnusedSelectorsTest extends BasicFeaturesTest {
+
+  private static final String standardCases = "src/test/resources/compile-basic-features/unused-selectors/";
+
+  public UnusedSelectorsTest(File inputFile, File outputFile, File errorList, File mapdataFile, File configFile, String testName) {
+    super(inputFile, outputFile, errorList, mapdataFile, configFile, testName);
+  }
+
+  @Parameters(name="Less: {5}")
+  public static Collection<Object[]> allTestsParameters() {
+    return createTestFileUtils().loadTestFiles(standardCases);
+  }
+
+  @Override
+  protected LessCompiler.Configuration createConfiguration(File cssOutput) {
+    LessCompiler.Configuration configuration = super.createConfiguration(cssOutput);
+    configuration.setUsedSelectors(new UsedSelectorsSet(Arrays.asList("button", "active", "icon", "sm:flex", "w-1/2", "spinner"), Arrays.asList("main"), Arrays.asList("div", "a", "span")));
+    return configuration;
+  }
+
+}
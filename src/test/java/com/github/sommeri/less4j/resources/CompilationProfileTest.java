@@ -0,0 +1,153 @@
+package com.github.sommeri.less4j.resources;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.sommeri.less4j.LessCompiler.CompilationProfile;
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessCompiler.ProfileEntry;
+import com.github.sommeri.less4j.LessCompiler.ProfileNode;
+import com.github.sommeri.less4j.LessCompiler.ProfileOrder;
+import com.github.sommeri.less4j.LessFunction;
+import com.github.sommeri.less4j.LessProblems;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+import com.github.sommeri.less4j.core.ast.Expression;
+import com.github.sommeri.less4j.core.ast.FunctionExpression;
+
+public class CompilationProfileTest {
+
+  private static final String LESS = "" //
+      + ".outer(@a) { .inner(); width: percentage(@a); }\n" //
+      + ".inner() { height: same(@a); }\n" //
+      + ".loop(@i) when (@i > 0) { .loop(@i - 1); }\n" //
+      + "@detached: { color: red; };\n" //
+      + ".a { .outer(0.5); .outer(0.2); .loop(3); @detached(); }\n";
+
+  @Test
+  public void profileIsOffByDefault() throws Exception {
+    CompilationResult result = new DefaultLessCompiler().compile(new LessSource.StringSource(LESS, "profile.less"), configuration().setProfiling(false));
+    assertNull(result.getProfile());
+  }
+
+  @Test
+  public void profilingDoesNotTurnOnStatistics() throws Exception {
+    assertNull(compile().getStatistics());
+  }
+
+  @Test
+  public void listsCalledDefinitions() throws Exception {
+    CompilationProfile profile = compile().getProfile();
+    List<String> labels = new ArrayList<String>();
+    for (ProfileEntry entry : profile.getEntries()) {
+      labels.add(entry.getLabel());
+      assertTrue(entry.getInclusiveTime() >= entry.getExclusiveTime());
+      assertTrue(entry.getExclusiveTime() >= 0);
+    }
+    assertEquals(Arrays.asList("mixin .outer (profile.less:1:1)", "mixin .inner (profile.less:2:1)", "mixin .loop (profile.less:3:1)", "detached ruleset (profile.less:4:12)", "custom function same", "function percentage"), labels);
+
+    assertEquals(2, entry(profile, "mixin .outer").getCalls());
+    assertEquals(2, entry(profile, "mixin .inner").getCalls());
+    assertEquals(3, entry(profile, "mixin .loop").getCalls());
+    assertEquals(1, entry(profile, "detached ruleset").getCalls());
+    assertEquals(2, entry(profile, "function percentage").getCalls());
+    assertEquals("custom function", entry(profile, "custom function same").getKind());
+  }
+
+  @Test
+  public void recursiveCallsAreIncludedOnlyOnce() throws Exception {
+    CompilationProfile profile = compile().getProfile();
+    ProfileEntry loop = entry(profile, "mixin .loop");
+    ProfileNode outermost = child(profile.getCallTree(), "mixin .loop");
+    assertEquals(outermost.getInclusiveTime(), loop.getInclusiveTime());
+  }
+
+  @Test
+  public void buildsCallTree() throws Exception {
+    ProfileNode root = compile().getProfile().getCallTree();
+    assertNull(root.getLabel());
+
+    ProfileNode outer = child(root, "mixin .outer");
+    assertEquals(2, outer.getCalls());
+    assertEquals(2, child(outer, "mixin .inner").getCalls());
+    assertTrue(outer.getInclusiveTime() >= child(outer, "mixin .inner").getInclusiveTime() + outer.getExclusiveTime());
+
+    ProfileNode loop = child(root, "mixin .loop");
+    loop = child(loop, "mixin .loop");
+    loop = child(loop, "mixin .loop");
+    assertEquals(1, loop.getCalls());
+    assertTrue(loop.getChildren().isEmpty());
+  }
+
+  @Test
+  public void sortsEntries() throws Exception {
+    CompilationProfile profile = compile().getProfile();
+    assertEquals("mixin .loop (profile.less:3:1)", profile.getEntries(ProfileOrder.CALLS).get(0).getLabel());
+
+    List<ProfileEntry> byInclusiveTime = profile.getEntries(ProfileOrder.INCLUSIVE_TIME);
+    for (int i = 1; i < byInclusiveTime.size(); i++) {
+      assertTrue(byInclusiveTime.get(i - 1).getInclusiveTime() >= byInclusiveTime.get(i).getInclusiveTime());
+    }
+
+    String table = profile.toTable(ProfileOrder.EXCLUSIVE_TIME);
+    assertTrue(table.startsWith("  inclusive ms   exclusive ms      calls  definition\n"));
+    assertTrue(table.contains("  mixin .outer (profile.less:1:1)\n"));
+  }
+
+  @Test
+  public void collapsedStacks() throws Exception {
+    String stacks = compile().getProfile().toCollapsedStacks();
+    for (String line : stacks.split("\n")) {
+      assertTrue(line, line.matches("[^;]+(;[^;]+)* [1-9][0-9]*"));
+    }
+    assertTrue(stacks.contains("mixin .outer (profile.less:1:1);mixin .inner (profile.less:2:1) "));
+  }
+
+  private ProfileEntry entry(CompilationProfile profile, String labelPrefix) {
+    for (ProfileEntry entry : profile.getEntries()) {
+      if (entry.getLabel().startsWith(labelPrefix))
+        return entry;
+    }
+    fail("Missing entry " + labelPrefix);
+    return null;
+  }
+
+  private ProfileNode child(ProfileNode node, String labelPrefix) {
+    for (ProfileNode child : node.getChildren()) {
+      if (child.getLabel().startsWith(labelPrefix))
+        return child;
+    }
+    fail("Missing call " + labelPrefix);
+    return null;
+  }
+
+  private CompilationResult compile() throws Exception {
+    return new DefaultLessCompiler().compile(new LessSource.StringSource(LESS, "profile.less"), configuration());
+  }
+
+  private Configuration configuration() {
+    Configuration configuration = new Configuration();
+    configuration.setProfiling(true);
+    configuration.addCustomFunction("same", new LessFunction() {
+
+      @Override
+      public boolean canEvaluate(FunctionExpression input, List<Expression> parameters) {
+        return parameters.size() == 1;
+      }
+
+      @Override
+      public Expression evaluate(FunctionExpression input, List<Expression> parameters, Expression evaluatedParameter, LessProblems problems) {
+        return parameters.get(0);
+      }
+
+    });
+    return configuration;
+  }
+
+}
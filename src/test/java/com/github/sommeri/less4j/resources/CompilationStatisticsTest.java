@@ -0,0 +1,76 @@
+package com.github.sommeri.less4j.resources;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.CompilationStatistics;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessCompiler.StageStatistics;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+
+public class CompilationStatisticsTest {
+
+  private static final String LESS = "" //
+      + "@import (inline) \"inline.css\";\n" //
+      + "@color: red;\n" //
+      + ".mixin(@c) { color: darken(@c, 10%); }\n" //
+      + ".a { .mixin(@color); }\n" //
+      + ".b { .mixin(@color); }\n" //
+      + ".c:extend(.a) {}\n";
+
+  @Test
+  public void statisticsAreOffByDefault() throws Exception {
+    CompilationResult result = new DefaultLessCompiler().compile(lessSource(), new Configuration());
+    assertNull(result.getStatistics());
+  }
+
+  @Test
+  public void countsWork() throws Exception {
+    CompilationStatistics statistics = compile().getStatistics();
+    assertEquals(1, statistics.getImportsRead());
+    assertEquals(LESS.length(), statistics.getParsedCharacters());
+    assertEquals(2, statistics.getMixinExpansions());
+    // argument in both calls and parameter in both expansions
+    assertEquals(4, statistics.getVariableLookups());
+    assertEquals(2, statistics.getFunctionCalls());
+    assertEquals(1, statistics.getExtendsMatched());
+    assertTrue(statistics.getMappingsGenerated() > 0);
+  }
+
+  @Test
+  public void measuresStages() throws Exception {
+    CompilationStatistics statistics = compile().getStatistics();
+    List<String> names = new ArrayList<String>();
+    long wallTime = 0;
+    for (StageStatistics stage : statistics.getStages()) {
+      names.add(stage.getName());
+      assertTrue(stage.getWallTime() >= 0);
+      wallTime += stage.getWallTime();
+    }
+    assertEquals(Arrays.asList("parsing", "imports", "references", "expressions", "unnesting", "extends", "media bubbling", "clean up", "printing"), names);
+    assertEquals(wallTime, statistics.getWallTime());
+  }
+
+  private CompilationResult compile() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setCollectStatistics(true);
+    return new DefaultLessCompiler().compile(lessSource(), configuration);
+  }
+
+  private LessSource lessSource() {
+    return new LessSource.StringSource(LESS) {
+      @Override
+      public LessSource relativeSource(String filename) {
+        return new LessSource.StringSource(".inline {}", filename);
+      }
+    };
+  }
+
+}
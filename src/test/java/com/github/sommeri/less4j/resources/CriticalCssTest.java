@@ -0,0 +1,92 @@
+package com.github.sommeri.less4j.resources;
+
+import static com.github.sommeri.less4j.resources.SourceMapLinkParser.assertLinksSourceMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import com.github.sommeri.less4j.Less4jException;
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.UsedSelectorsSet;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+import com.github.sommeri.less4j.utils.SourceMapValidator;
+
+public class CriticalCssTest {
+
+  private static final String DIRECTORY = "src/test/resources/critical-css/";
+  private static final File LESS_FILE = new File(DIRECTORY + "page.less");
+  private static final File CSS_FILE = new File(DIRECTORY + "page.css");
+  private static final File CRITICAL_CSS_FILE = new File(DIRECTORY + "page.critical.css");
+  private static final File MAPDATA_FILE = new File(DIRECTORY + "page.mapdata");
+  private static final File CRITICAL_MAPDATA_FILE = new File(DIRECTORY + "page.critical.mapdata");
+  private static final File CASCADE_LESS_FILE = new File(DIRECTORY + "cascade.less");
+  private static final File CASCADE_CSS_FILE = new File(DIRECTORY + "cascade.css");
+  private static final File CASCADE_CRITICAL_CSS_FILE = new File(DIRECTORY + "cascade.critical.css");
+
+  @Test
+  public void split() throws Exception {
+    CompilationResult result = compile(configuration());
+    CompilationResult critical = result.getCritical();
+
+    assertEquals(read(CRITICAL_CSS_FILE), critical.getCss());
+    assertEquals(read(CSS_FILE), result.getCss());
+    assertLinksSourceMap(critical.getCss(), "page.critical.css.map");
+    assertLinksSourceMap(result.getCss(), "page.css.map");
+  }
+
+  @Test
+  public void sourceMaps() throws Exception {
+    CompilationResult result = compile(configuration());
+
+    new SourceMapValidator().validateSourceMap(result.getCritical(), CRITICAL_MAPDATA_FILE, CRITICAL_CSS_FILE);
+    new SourceMapValidator().validateSourceMap(result, MAPDATA_FILE, CSS_FILE);
+  }
+
+  @Test
+  public void keepsCascadeAndMatchesFontFamilies() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+    configuration.setCriticalSelectors(new UsedSelectorsSet(Arrays.asList("hero", "hero-title"), null, null));
+    CompilationResult result = new DefaultLessCompiler().compile(CASCADE_LESS_FILE, configuration);
+
+    // .hero would lose to earlier .promo if it was moved into critical style sheet
+    assertEquals(read(CASCADE_CRITICAL_CSS_FILE), result.getCritical().getCss());
+    assertEquals(read(CASCADE_CSS_FILE), result.getCss());
+  }
+
+  @Test
+  public void notSplit() throws Exception {
+    Configuration configuration = configuration();
+    configuration.setCriticalSelectors(null);
+    CompilationResult result = compile(configuration);
+
+    assertNull(result.getCritical());
+  }
+
+  private CompilationResult compile(Configuration configuration) throws Less4jException {
+    LessCompiler compiler = new DefaultLessCompiler();
+    return compiler.compile(LESS_FILE, configuration);
+  }
+
+  private Configuration configuration() {
+    Configuration configuration = new Configuration();
+    configuration.setCssResultLocation(CSS_FILE);
+    configuration.setCriticalSelectors(new UsedSelectorsSet(Arrays.asList("header", "logo", "menu"), null, null));
+    return configuration;
+  }
+
+  private String read(File file) throws IOException {
+    return IOUtils.toString(new InputStreamReader(new FileInputStream(file), "utf-8"));
+  }
+
+}
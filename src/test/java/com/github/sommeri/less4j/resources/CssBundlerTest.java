@@ -0,0 +1,68 @@
+package com.github.sommeri.less4j.resources;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.net.URI;
+
+import org.junit.Test;
+
+import com.github.sommeri.less4j.CssBundler;
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+import com.github.sommeri.sourcemap.MappedPosition;
+import com.github.sommeri.sourcemap.SourceMapConsumerV3;
+
+public class CssBundlerTest {
+
+  @Test
+  public void concatenatesCssAndSourceMaps() throws Exception {
+    CompilationResult first = compile(".first {\n  color: red;\n}", "first");
+    CompilationResult second = compile("@c: blue;\n\n.second {\n  color: @c;\n}", "second");
+
+    CompilationResult bundle = new CssBundler().add(first).add(second).toCompilationResult("bundle.css", "bundle.css.map");
+    assertEquals(".first {\n  color: red;\n}\n.second {\n  color: blue;\n}\n/*# sourceMappingURL=bundle.css.map */\n", bundle.getCss());
+
+    SourceMapConsumerV3 map = new SourceMapConsumerV3();
+    map.parse(bundle.getSourceMap());
+    assertEquals(new MappedPosition("../less/first.less", 1, 1, ".first"), map.getPositionForLine(1, 1));
+    assertEquals(new MappedPosition("../less/second.less", 3, 1, ".second"), map.getPositionForLine(4, 1));
+  }
+
+  @Test
+  public void sectionsAreNotReencoded() throws Exception {
+    CompilationResult first = compile(".first {\n  color: red;\n}", "first");
+    CompilationResult second = compile(".second {\n  color: blue;\n}", "second");
+
+    CompilationResult bundle = new CssBundler().add(first).add(second).toCompilationResult("bundle.css", null);
+    assertTrue(bundle.getSourceMap().contains("\"offset\":{\n\"line\":3,\n\"column\":0\n}"));
+    assertTrue(bundle.getSourceMap().contains(second.getSourceMap()));
+    assertFalse(bundle.getCss().contains("sourceMappingURL"));
+  }
+
+  @Test
+  public void emptyBundle() throws Exception {
+    CompilationResult bundle = new CssBundler().toCompilationResult("bundle.css", null);
+    assertEquals("", bundle.getCss());
+    assertTrue(bundle.getWarnings().isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void streamedResultIsRejected() throws Exception {
+    Configuration configuration = new Configuration();
+    CompilationResult streamed = new DefaultLessCompiler().compile(new LessSource.StringSource(".a {\n  color: red;\n}"), configuration, new StringWriter());
+    new CssBundler().add(streamed);
+  }
+
+  private CompilationResult compile(String less, String name) throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setCssResultLocation(new LessSource.StringSource("", name + ".css", new URI("file:///project/css/" + name + ".css")));
+    LessSource source = new LessSource.StringSource(less, name + ".less", new URI("file:///project/less/" + name + ".less"));
+    LessCompiler compiler = new DefaultLessCompiler();
+    return compiler.compile(source, configuration);
+  }
+
+}
@@ -0,0 +1,60 @@
+package com.github.sommeri.less4j.resources;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.github.sommeri.less4j.Less4jException;
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.FunctionsCacheStatistics;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+
+public class FunctionsCacheStatisticsTest {
+
+  @Test
+  public void repeatedCalls() throws Less4jException {
+    String less = ".mixin(@color) { color: darken(@color, 10%); } .a { .mixin(#336699); } .b { .mixin(#336699); } .c { .mixin(#336699); }";
+    FunctionsCacheStatistics statistics = compile(less);
+
+    assertEquals(2, statistics.getHits());
+    assertEquals(1, statistics.getMisses());
+    assertEquals(2.0 / 3.0, statistics.getHitRate(), 0.0001);
+  }
+
+  @Test
+  public void differentArguments() throws Less4jException {
+    String less = ".mixin(@color) { color: darken(@color, 10%); } .a { .mixin(#336699); } .b { .mixin(#336698); }";
+    FunctionsCacheStatistics statistics = compile(less);
+
+    assertEquals(0, statistics.getHits());
+    assertEquals(2, statistics.getMisses());
+  }
+
+  @Test
+  public void colorsPrintedTheSame() throws Less4jException {
+    // both colors print as #640000, but their red channels differ
+    String less = ".mixin(@color) { r: red(@color); } .a { .mixin(rgb(100.4, 0, 0)); } .b { .mixin(rgb(99.6, 0, 0)); }";
+    CompilationResult result = new DefaultLessCompiler().compile(less);
+
+    assertEquals(".a {\n  r: 100.4;\n}\n.b {\n  r: 99.6;\n}\n", result.getCss());
+    assertEquals(0, result.getFunctionsCacheStatistics().getHits());
+  }
+
+  @Test
+  public void impureFunctions() throws Less4jException {
+    String less = ".a { width: e(\"10px\"); height: e(\"10px\"); }";
+    FunctionsCacheStatistics statistics = compile(less);
+
+    assertEquals(0, statistics.getHits());
+    assertEquals(0, statistics.getMisses());
+    assertEquals(0.0, statistics.getHitRate(), 0.0001);
+  }
+
+  private FunctionsCacheStatistics compile(String less) throws Less4jException {
+    LessCompiler compiler = new DefaultLessCompiler();
+    CompilationResult result = compiler.compile(less);
+    return result.getFunctionsCacheStatistics();
+  }
+
+}
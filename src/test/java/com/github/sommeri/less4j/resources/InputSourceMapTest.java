@@ -0,0 +1,109 @@
+package com.github.sommeri.less4j.resources;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+
+import org.junit.Test;
+
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+import com.github.sommeri.sourcemap.MappedPosition;
+import com.github.sommeri.sourcemap.SourceMapConsumerV3;
+import com.github.sommeri.sourcemap.SourceMapFormat;
+import com.github.sommeri.sourcemap.SourceMapGenerator;
+import com.github.sommeri.sourcemap.SourceMapGeneratorFactory;
+
+public class InputSourceMapTest {
+
+  private static final String LESS = ".a {\n  color: red;\n}\n.b {\n  color: blue;\n}";
+  private static final String TOKENS = "{\"a\": {\n  \"color\": \"red\"\n},\n\"b\": {\n  \"color\": \"blue\"\n}}";
+
+  @Test
+  public void mapsToOriginalOfGeneratedLess() throws Exception {
+    LessSource source = new LessSource.StringSource(LESS, "generated.less", new URI("file:///project/less/generated.less"));
+    source.setInputSourceMap(tokensMap("tokens/tokens.json", TOKENS));
+
+    SourceMapConsumerV3 map = compile(source);
+    assertEquals(new MappedPosition("../less/tokens/tokens.json", 1, 2, ".a"), map.getPositionForLine(1, 1));
+    assertEquals(new MappedPosition("../less/tokens/tokens.json", 4, 3, ".b"), map.getPositionForLine(4, 1));
+    assertEquals(1, map.getOriginalSources().size());
+    // content of original is included only if configured
+    assertNull(map.getOriginalSourcesContent().iterator().next());
+  }
+
+  @Test
+  public void includesOriginalContent() throws Exception {
+    LessSource source = new LessSource.StringSource(LESS, "generated.less", new URI("file:///project/less/generated.less"));
+    source.setInputSourceMap(tokensMap("tokens/tokens.json", TOKENS));
+    Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setIncludeSourcesContent(true);
+
+    SourceMapConsumerV3 map = compile(source, configuration);
+    assertEquals(TOKENS, map.getOriginalSourcesContent().iterator().next());
+  }
+
+  @Test
+  public void specMinimalInputMap() throws Exception {
+    LessSource source = new LessSource.StringSource(LESS, "generated.less", new URI("file:///project/less/generated.less"));
+    // neither file nor lineCount, last line is not terminated by ';'
+    source.setInputSourceMap("{\"version\":3,\"sources\":[\"tokens.json\"],\"names\":[],\"mappings\":\"AAAA;;;AACA\"}");
+
+    SourceMapConsumerV3 map = compile(source);
+    assertEquals(new MappedPosition("../less/tokens.json", 1, 1, ".a"), map.getPositionForLine(1, 1));
+    assertEquals(new MappedPosition("../less/tokens.json", 2, 1, ".b"), map.getPositionForLine(4, 1));
+  }
+
+  @Test
+  public void invalidInputMapIsIgnored() throws Exception {
+    LessSource source = new LessSource.StringSource(LESS, "generated.less", new URI("file:///project/less/generated.less"));
+    source.setInputSourceMap("{ not a source map");
+
+    SourceMapConsumerV3 map = compile(source);
+    MappedPosition position = map.getPositionForLine(1, 1);
+    assertEquals("../less/generated.less", position.getOriginalFile());
+    assertEquals(1, position.getLineNumber());
+  }
+
+  @Test
+  public void invalidInputMapIsReported() throws Exception {
+    LessSource source = new LessSource.StringSource(LESS, "generated.less", new URI("file:///project/less/generated.less"));
+    source.setInputSourceMap("{ not a source map");
+    Configuration configuration = new Configuration();
+    configuration.setCssResultLocation(new LessSource.StringSource("", "generated.css", new URI("file:///project/css/generated.css")));
+
+    CompilationResult result = new DefaultLessCompiler().compile(source, configuration);
+    assertEquals(1, result.getWarnings().size());
+    assertTrue(result.getWarnings().get(0).getMessage().startsWith("Input source map of 'generated.less' could not be read and was ignored: "));
+  }
+
+  private SourceMapConsumerV3 compile(LessSource source) throws Exception {
+    return compile(source, new Configuration());
+  }
+
+  private SourceMapConsumerV3 compile(LessSource source, Configuration configuration) throws Exception {
+    configuration.setCssResultLocation(new LessSource.StringSource("", "generated.css", new URI("file:///project/css/generated.css")));
+    LessCompiler compiler = new DefaultLessCompiler();
+    CompilationResult result = compiler.compile(source, configuration);
+
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(result.getSourceMap());
+    return consumer;
+  }
+
+  /**
+   * Maps both rulesets to objects in the original.
+   */
+  private String tokensMap(String originalName, String originalContent) throws Exception {
+    SourceMapGenerator generator = SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3);
+    generator.addMapping(originalName, originalContent, null, 0, 1, 0, 0, 0, 2);
+    generator.addMapping(originalName, originalContent, null, 3, 2, 3, 0, 3, 2);
+    StringBuilder result = new StringBuilder();
+    generator.appendTo(result, "generated.less");
+    return result.toString();
+  }
+
+}
@@ -0,0 +1,58 @@
+package com.github.sommeri.less4j.resources;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.github.sommeri.less4j.Less4jException;
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessCompiler.MergedRulesetsStatistics;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+
+public class MergedRulesetsStatisticsTest {
+
+  private static final String LESS = ".a { color: red; } .b { width: 1px; } .a { padding: 0; } .c { width: 1px; } @media print { .d { margin: 0; } .e { margin: 0; } }";
+
+  @Test
+  public void savedBytes() throws Less4jException {
+    assertSavedBytes(false);
+  }
+
+  @Test
+  public void savedBytesCompressed() throws Less4jException {
+    assertSavedBytes(true);
+  }
+
+  @Test
+  public void turnedOff() throws Less4jException {
+    MergedRulesetsStatistics statistics = compile(LESS, configuration(false, false)).getMergedRulesetsStatistics();
+
+    assertEquals(0, statistics.getMergedRulesets());
+    assertEquals(0, statistics.getSavedBytes());
+  }
+
+  private void assertSavedBytes(boolean compressing) throws Less4jException {
+    CompilationResult original = compile(LESS, configuration(false, compressing));
+    CompilationResult merged = compile(LESS, configuration(true, compressing));
+    MergedRulesetsStatistics statistics = merged.getMergedRulesetsStatistics();
+
+    assertEquals(3, statistics.getMergedRulesets());
+    assertEquals(original.getCss().length() - merged.getCss().length(), statistics.getSavedBytes());
+  }
+
+  private CompilationResult compile(String less, Configuration configuration) throws Less4jException {
+    LessCompiler compiler = new DefaultLessCompiler();
+    return compiler.compile(less, configuration);
+  }
+
+  private Configuration configuration(boolean mergeRulesets, boolean compressing) {
+    Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+    configuration.setCompressing(compressing);
+    configuration.setMergeRulesets(mergeRulesets);
+    return configuration;
+  }
+
+}
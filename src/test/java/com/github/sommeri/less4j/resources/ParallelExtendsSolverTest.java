@@ -0,0 +1,110 @@
+package com.github.sommeri.less4j.resources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.sommeri.less4j.Less4jException;
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessCompiler.Problem;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+
+public class ParallelExtendsSolverTest {
+
+  private static final String EXTENDS_TESTS = "src/test/resources/compile-basic-features/extends/";
+
+  @Test
+  public void extendsTestCases() throws Exception {
+    List<File> files = new ArrayList<File>();
+    collectLessFiles(new File(EXTENDS_TESTS), files);
+    for (File file : files) {
+      assertEquals(file.getPath(), compile(file, 1), compile(file, 4));
+    }
+  }
+
+  @Test
+  public void manyMedia() throws Exception {
+    String less = manyMediaLess();
+    String serial = compile(less, 1);
+    assertEquals(serial, compile(less, 4));
+  }
+
+  @Test
+  public void interruptIsKept() throws Exception {
+    String less = manyMediaLess();
+    Thread.currentThread().interrupt();
+    try {
+      compile(less, 4);
+      fail("Interrupted compilation should fail.");
+    } catch (Less4jException ex) {
+      assertEquals("Compilation was interrupted.", ex.getErrors().get(0).getMessage());
+    } finally {
+      // clears the flag, so it does not leak into other tests
+      assertTrue(Thread.interrupted());
+    }
+  }
+
+  private String manyMediaLess() {
+    StringBuilder less = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      less.append(".a-").append(i).append(" { color: red; }\n");
+      less.append("@media (min-width: ").append(i).append("px) {\n");
+      less.append("  .a-").append(i).append(", .b { color: blue; }\n");
+      less.append("  .c-").append(i).append(":extend(.a-").append(i).append(") {}\n");
+      less.append("  .d-").append(i).append(":extend(.c-").append(i).append(") {}\n");
+      less.append("  .e-").append(i).append(":extend(.b all) {}\n");
+      less.append("}\n");
+    }
+    for (int i = 0; i < 20; i++) {
+      less.append(".f-").append(i).append(":extend(.a-").append(i).append(", .c-").append(i).append(") {}\n");
+    }
+    return less.toString();
+  }
+
+  private String compile(File file, int threads) {
+    try {
+      LessCompiler compiler = new DefaultLessCompiler();
+      return compiler.compile(file, configuration(threads)).getCss();
+    } catch (Less4jException ex) {
+      StringBuilder errors = new StringBuilder();
+      for (Problem problem : ex.getErrors()) {
+        errors.append(problem.getLine()).append(": ").append(problem.getMessage()).append("\n");
+      }
+      return errors.toString();
+    }
+  }
+
+  private String compile(String less, int threads) throws Less4jException {
+    LessCompiler compiler = new DefaultLessCompiler();
+    return compiler.compile(less, configuration(threads)).getCss();
+  }
+
+  private Configuration configuration(int threads) {
+    Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+    configuration.setExtendsSolverThreads(threads);
+    return configuration;
+  }
+
+  private void collectLessFiles(File directory, List<File> result) {
+    File[] files = directory.listFiles();
+    if (files == null)
+      return;
+
+    for (File file : files) {
+      if (file.isDirectory()) {
+        collectLessFiles(file, result);
+      } else if (file.getName().endsWith(".less")) {
+        result.add(file);
+      }
+    }
+  }
+
+}
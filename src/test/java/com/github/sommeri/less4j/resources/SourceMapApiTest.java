@@ -3,6 +3,7 @@ package com.github.sommeri.less4j.resources;
 import static com.github.sommeri.less4j.resources.SourceMapLinkParser.assertDoesNotLinkSourceMap;
 import static com.github.sommeri.less4j.resources.SourceMapLinkParser.assertInlineSourceMap;
 import static com.github.sommeri.less4j.resources.SourceMapLinkParser.assertLinksSourceMap;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.io.File;
@@ -18,8 +19,11 @@ import com.github.sommeri.less4j.LessCompiler;
 import com.github.sommeri.less4j.LessCompiler.CompilationResult;
 import com.github.sommeri.less4j.LessCompiler.Configuration;
 import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.LessSource.CannotReadFile;
+import com.github.sommeri.less4j.LessSource.FileNotFound;
 import com.github.sommeri.less4j.core.DefaultLessCompiler;
 import com.github.sommeri.less4j.platform.Constants;
+import com.github.sommeri.less4j.utils.Base64;
 import com.github.sommeri.less4j.utils.SourceMapValidator;
 import com.github.sommeri.less4j.utils.URIUtils;
 
@@ -100,6 +104,23 @@ public class SourceMapApiTest {
     validator.validateSourceMap(compilationResult, new File(NO_DATA_AVAILABLE_MAPDATA));
   }
 
+  @Test
+  public void largeInlineSourceMap() throws Exception {
+    StringBuilder less = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      less.append(".p\u0159\u00edli\u0161-\u017elu\u0165ou\u010dk\u00fd-").append(i).append(" { content: \"k\u016f\u0148\"; }\n");
+    }
+    Configuration options = new Configuration();
+    options.getSourceMapConfiguration().setInline(true);
+    options.getSourceMapConfiguration().setIncludeSourcesContent(true);
+    CompilationResult compilationResult = new DefaultLessCompiler().compile(less.toString(), options);
+
+    String css = compilationResult.getCss();
+    String link = "/*# sourceMappingURL=data:application/json;base64,";
+    String encoded = css.substring(css.indexOf(link) + link.length(), css.lastIndexOf(" */\n"));
+    assertEquals(compilationResult.getSourceMap(), new String(Base64.decode(encoded), "UTF-8"));
+  }
+
   @Test
   public void stringWithConfiguration() throws Less4jException {
     Configuration configuration = new Configuration();
@@ -188,6 +209,22 @@ public class SourceMapApiTest {
     validator.validateSourceMap(compilationResult, new File(ONE_IMPORT_MAPDATA_WITH_LESS), URIUtils.changeSuffix(ONE_IMPORT_LESS_FILE, Constants.CSS_SUFFIX));
   }
 
+  @Test
+  public void fileIncludeLessFilesReadsEachFileOnce() throws Less4jException {
+    LessCompiler compiler = new DefaultLessCompiler();
+    Configuration configuration = new Configuration(); 
+    configuration.getSourceMapConfiguration().setIncludeSourcesContent(true);
+    Map<String, Integer> reads = new HashMap<String, Integer>();
+    CompilationResult compilationResult = compiler.compile(new ReadsCountingSource(ONE_IMPORT_LESS_FILE, reads), configuration);
+    
+    SourceMapValidator validator = new SourceMapValidator(LESS_INPUT_CONTENTS);
+    validator.validateSourceMap(compilationResult, new File(ONE_IMPORT_MAPDATA_WITH_LESS), URIUtils.changeSuffix(ONE_IMPORT_LESS_FILE, Constants.CSS_SUFFIX));
+    assertEquals(2, reads.size());
+    for (Integer count : reads.values()) {
+      assertEquals(Integer.valueOf(1), count);
+    }
+  }
+
   @Test
   public void fileSelfContained() throws Less4jException {
     LessCompiler compiler = new DefaultLessCompiler();
@@ -236,6 +273,34 @@ public class SourceMapApiTest {
     validator.validateSourceMap(compilationResult, new File(ONE_IMPORT_URL_KNOWN_MAPDATA));
   }
   
+  private static class ReadsCountingSource extends LessSource.FileSource {
+
+    private final Map<String, Integer> reads;
+
+    public ReadsCountingSource(File inputFile, Map<String, Integer> reads) {
+      super(inputFile);
+      this.reads = reads;
+    }
+
+    public ReadsCountingSource(ReadsCountingSource parent, String filename) {
+      super(parent, filename);
+      this.reads = parent.reads;
+    }
+
+    @Override
+    public FileSource relativeSource(String filename) {
+      return new ReadsCountingSource(this, filename);
+    }
+
+    @Override
+    public String getContent() throws FileNotFound, CannotReadFile {
+      String name = getInputFile().getName();
+      reads.put(name, reads.containsKey(name) ? reads.get(name) + 1 : 1);
+      return super.getContent();
+    }
+
+  }
+
   private String toFullMapSuffix() {
     return URIUtils.changeSuffix(ONE_IMPORT_LESS_FILE.getName(), Constants.FULL_SOURCE_MAP_SUFFIX);
   }
@@ -0,0 +1,79 @@
+package com.github.sommeri.less4j.resources;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.sommeri.sourcemap.MappedPosition;
+import com.github.sommeri.sourcemap.Mapping.OriginalMapping;
+import com.github.sommeri.sourcemap.SourceMapConsumerV3;
+import com.github.sommeri.sourcemap.SourceMapFormat;
+import com.github.sommeri.sourcemap.SourceMapGenerator;
+import com.github.sommeri.sourcemap.SourceMapGeneratorFactory;
+
+public class SourceMapConsumerTest {
+
+  @Test
+  public void positionForLine() throws Exception {
+    SourceMapConsumerV3 consumer = createConsumer();
+
+    assertEquals(new MappedPosition("file 1", 1, 1, "ahoj"), consumer.getPositionForLine(1, 1));
+    assertEquals(new MappedPosition("file 1", 1, 1, "ahoj"), consumer.getPositionForLine(1, 4));
+    assertEquals(new MappedPosition("file 2", 3, 5, null), consumer.getPositionForLine(1, 8));
+    // text after last mapping of the line is unmapped, so is following empty line
+    assertNull(consumer.getPositionForLine(1, 10));
+    assertNull(consumer.getPositionForLine(2, 1));
+    assertEquals(new MappedPosition("file 1", 2, 3, "nazdar"), consumer.getPositionForLine(3, 3));
+    assertNull(consumer.getPositionForLine(10, 1));
+  }
+
+  @Test
+  public void reversePositions() throws Exception {
+    SourceMapConsumerV3 consumer = createConsumer();
+
+    assertEquals(Arrays.asList(new MappedPosition(0, 0)), consumer.getReversePositions("file 1", 0, 0));
+    assertEquals(Arrays.asList(new MappedPosition(0, 5), new MappedPosition(2, 7)), consumer.getReversePositions("file 2", 2, 0));
+    assertTrue(consumer.getReversePositions("file 2", 1, 0).isEmpty());
+    assertTrue(consumer.getReversePositions("unknown", 0, 0).isEmpty());
+  }
+
+  @Test
+  public void protobufAdapter() throws Exception {
+    SourceMapConsumerV3 consumer = createConsumer();
+
+    OriginalMapping mapping = consumer.getMappingForLine(3, 3);
+    assertEquals("file 1", mapping.getOriginalFile());
+    assertEquals(2, mapping.getLineNumber());
+    assertEquals(3, mapping.getColumnPosition());
+    assertEquals("nazdar", mapping.getIdentifier());
+    assertFalse(consumer.getMappingForLine(1, 8).hasIdentifier());
+
+    List<String> reverse = new ArrayList<String>();
+    Collection<OriginalMapping> mappings = consumer.getReverseMapping("file 2", 2, 0);
+    for (OriginalMapping originalMapping : mappings) {
+      assertFalse(originalMapping.hasOriginalFile());
+      reverse.add(originalMapping.getLineNumber() + ":" + originalMapping.getColumnPosition());
+    }
+    assertEquals(Arrays.asList("0:5", "2:7"), reverse);
+  }
+
+  private SourceMapConsumerV3 createConsumer() throws Exception {
+    SourceMapGenerator generator = SourceMapGeneratorFactory.getInstance(SourceMapFormat.V3);
+    generator.addMapping("file 1", null, "ahoj", 0, 0, 0, 0, 0, 5);
+    generator.addMapping("file 2", null, null, 2, 4, 0, 5, 0, 9);
+    generator.addMapping("file 1", null, "nazdar", 1, 2, 2, 0, 2, 7);
+    generator.addMapping("file 2", null, null, 2, 0, 2, 7, 2, 9);
+
+    StringBuilder map = new StringBuilder();
+    generator.appendTo(map, "name");
+    SourceMapConsumerV3 consumer = new SourceMapConsumerV3();
+    consumer.parse(map.toString());
+    return consumer;
+  }
+
+}
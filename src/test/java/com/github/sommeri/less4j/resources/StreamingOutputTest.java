@@ -0,0 +1,123 @@
+package com.github.sommeri.less4j.resources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+import com.github.sommeri.less4j.Less4jException;
+import com.github.sommeri.less4j.LessCompiler;
+import com.github.sommeri.less4j.LessCompiler.CompilationResult;
+import com.github.sommeri.less4j.LessCompiler.Configuration;
+import com.github.sommeri.less4j.LessSource;
+import com.github.sommeri.less4j.core.DefaultLessCompiler;
+
+public class StreamingOutputTest {
+
+  private static final File SOURCE_MAP_LESS = new File("src/test/resources/source-map/api/file-import.less");
+
+  @Test
+  public void largeCss() throws Exception {
+    assertSameAsInMemory(new LessSource.StringSource(largeLess(), "large.less"), configuration(false));
+  }
+
+  @Test
+  public void largeCompressedCss() throws Exception {
+    assertSameAsInMemory(new LessSource.StringSource(largeLess(), "large.less"), configuration(true));
+  }
+
+  @Test
+  public void sourceMapLink() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setCssResultLocation(new File("src/test/resources/source-map/api/file-import.css"));
+    assertSameAsInMemory(new LessSource.FileSource(SOURCE_MAP_LESS), configuration);
+  }
+
+  @Test
+  public void inlineSourceMap() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setInline(true);
+    assertSameAsInMemory(new LessSource.FileSource(SOURCE_MAP_LESS), configuration);
+  }
+
+  @Test
+  public void outputStreamAndChannel() throws Exception {
+    LessCompiler compiler = new DefaultLessCompiler();
+    LessSource source = new LessSource.StringSource(".a { content: \"\u00e9\"; }");
+    String expected = compiler.compile(source, configuration(false)).getCss();
+
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    compiler.compile(source, configuration(false), stream);
+    assertEquals(expected, stream.toString("UTF-8"));
+
+    ByteArrayOutputStream channel = new ByteArrayOutputStream();
+    compiler.compile(source, configuration(false), Channels.newChannel(channel));
+    assertEquals(expected, channel.toString("UTF-8"));
+  }
+
+  @Test
+  public void failingWriter() {
+    LessCompiler compiler = new DefaultLessCompiler();
+    try {
+      compiler.compile(new LessSource.StringSource(largeLess()), configuration(false), new FailingWriter());
+      fail("Writing into failing writer should fail.");
+    } catch (Less4jException ex) {
+      assertEquals(1, ex.getErrors().size());
+    }
+  }
+
+  private void assertSameAsInMemory(LessSource source, Configuration configuration) throws Less4jException {
+    LessCompiler compiler = new DefaultLessCompiler();
+    CompilationResult expected = compiler.compile(source, configuration);
+
+    StringWriter output = new StringWriter();
+    CompilationResult streamed = compiler.compile(source, configuration, output);
+
+    assertNull(streamed.getCss());
+    assertEquals(expected.getCss(), output.toString());
+    assertEquals(expected.getSourceMap(), streamed.getSourceMap());
+  }
+
+  private Configuration configuration(boolean compressing) {
+    Configuration configuration = new Configuration();
+    configuration.getSourceMapConfiguration().setLinkSourceMap(false);
+    configuration.setCompressing(compressing);
+    return configuration;
+  }
+
+  private String largeLess() {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      result.append(".component-").append(i).append(" { color: red; .title { margin: ").append(i).append("px; } }\n");
+      if (i % 100 == 0)
+        result.append("@media print { .component-").append(i).append(" { display: none; } }\n");
+    }
+    return result.toString();
+  }
+
+  private static class FailingWriter extends Writer {
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      throw new IOException("Disk full.");
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+  }
+
+}